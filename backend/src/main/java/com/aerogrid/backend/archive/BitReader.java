@@ -0,0 +1,34 @@
+package com.aerogrid.backend.archive;
+
+/**
+ * MSB-first reader over a buffer produced by {@link BitWriter}.
+ */
+final class BitReader {
+
+    private final byte[] buffer;
+    private long position;
+
+    BitReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    boolean readBit() {
+        boolean bit = (buffer[(int) (position >>> 3)] & (0x80 >>> (position & 7))) != 0;
+        position++;
+        return bit;
+    }
+
+    long readBits(int count) {
+        long value = 0;
+        while (count > 0) {
+            int byteIndex = (int) (position >>> 3);
+            int availableInByte = 8 - (int) (position & 7);
+            int take = Math.min(availableInByte, count);
+            int chunk = (buffer[byteIndex] >>> (availableInByte - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            position += take;
+            count -= take;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,52 @@
+package com.aerogrid.backend.archive;
+
+import java.util.Arrays;
+
+/**
+ * Append-only, MSB-first bit buffer used by {@link GorillaCodec}.
+ */
+final class BitWriter {
+
+    private byte[] buffer;
+    private long bitLength;
+
+    BitWriter(int initialBytes) {
+        this.buffer = new byte[Math.max(16, initialBytes)];
+    }
+
+    void writeBit(boolean bit) {
+        ensureCapacity(1);
+        if (bit) {
+            buffer[(int) (bitLength >>> 3)] |= (byte) (0x80 >>> (bitLength & 7));
+        }
+        bitLength++;
+    }
+
+    /**
+     * Writes the {@code count} low-order bits of {@code value}, most significant first.
+     */
+    void writeBits(long value, int count) {
+        ensureCapacity(count);
+        while (count > 0) {
+            int byteIndex = (int) (bitLength >>> 3);
+            int freeInByte = 8 - (int) (bitLength & 7);
+            int take = Math.min(freeInByte, count);
+            int shift = count - take;
+            int chunk = (int) ((value >>> shift) & ((1L << take) - 1));
+            buffer[byteIndex] |= (byte) (chunk << (freeInByte - take));
+            bitLength += take;
+            count -= take;
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, (int) ((bitLength + 7) >>> 3));
+    }
+
+    private void ensureCapacity(int extraBits) {
+        long needed = (bitLength + extraBits + 7) >>> 3;
+        if (needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.max(needed, buffer.length * 2L));
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.aerogrid.backend.archive;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compresses one time series of measurements into a compact bit stream.
+ * <p>
+ * Follows the scheme of Facebook's Gorilla TSDB: timestamps are stored as delta-of-deltas, so a
+ * sensor reporting at a fixed interval costs one bit per timestamp, and values are XORed with the
+ * previous value so repeated or slowly changing readings only store their differing bits. AQI
+ * levels change rarely and cost one bit when unchanged. Timestamps are stored with second
+ * precision and must be sorted in ascending order.
+ * </p>
+ * <pre>
+ * header : version(8) count(32) firstTimestamp(64) firstValue(64) firstAqi(16)
+ * point  : timestamp delta-of-delta, value XOR, AQI
+ * </pre>
+ */
+public final class GorillaCodec {
+
+    /** AQI value used in the arrays for a measurement without AQI */
+    public static final int NO_AQI = -1;
+
+    private static final int VERSION = 1;
+    private static final int AQI_BITS = 16;
+    private static final int AQI_NULL = (1 << AQI_BITS) - 1;
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * Encodes a series.
+     *
+     * @param epochSeconds timestamps in seconds since the epoch (UTC), ascending
+     * @param values       measured values
+     * @param aqis         AQI levels, {@link #NO_AQI} for none
+     * @param count        number of points to encode from the arrays
+     * @return the encoded block
+     */
+    public static byte[] encode(long[] epochSeconds, double[] values, int[] aqis, int count) {
+        if (count == 0) {
+            throw new IllegalArgumentException("Cannot encode an empty series");
+        }
+
+        BitWriter out = new BitWriter(24 + count * 2);
+        out.writeBits(VERSION, 8);
+        out.writeBits(count, 32);
+        out.writeBits(epochSeconds[0], 64);
+        out.writeBits(Double.doubleToRawLongBits(values[0]), 64);
+        out.writeBits(toAqiBits(aqis[0]), AQI_BITS);
+
+        long previousTimestamp = epochSeconds[0];
+        long previousDelta = 0;
+        long previousValue = Double.doubleToRawLongBits(values[0]);
+        int previousLeading = Integer.MAX_VALUE;
+        int previousTrailing = 0;
+        int previousAqi = aqis[0];
+
+        for (int i = 1; i < count; i++) {
+            long delta = epochSeconds[i] - previousTimestamp;
+            writeDeltaOfDelta(out, delta - previousDelta);
+            previousTimestamp = epochSeconds[i];
+            previousDelta = delta;
+
+            long value = Double.doubleToRawLongBits(values[i]);
+            long xor = value ^ previousValue;
+            if (xor == 0) {
+                out.writeBit(false);
+            } else {
+                out.writeBit(true);
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (leading >= previousLeading && trailing >= previousTrailing) {
+                    // Meaningful bits fit in the previous window
+                    out.writeBit(false);
+                    out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int significant = 64 - leading - trailing;
+                    out.writeBit(true);
+                    out.writeBits(leading, 5);
+                    out.writeBits(significant - 1, 6);
+                    out.writeBits(xor >>> trailing, significant);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previousValue = value;
+
+            if (aqis[i] == previousAqi) {
+                out.writeBit(false);
+            } else {
+                out.writeBit(true);
+                out.writeBits(toAqiBits(aqis[i]), AQI_BITS);
+                previousAqi = aqis[i];
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a whole block.
+     *
+     * @param data an encoded block
+     * @return the decoded series
+     */
+    public static Series decode(byte[] data) {
+        return decode(data, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodes the points of a block whose timestamp falls in [fromEpochSecond, toEpochSecond].
+     * Decoding stops at the first point after the range.
+     *
+     * @param data            an encoded block
+     * @param fromEpochSecond range start (inclusive)
+     * @param toEpochSecond   range end (inclusive)
+     * @return the decoded points in the range
+     */
+    public static Series decode(byte[] data, long fromEpochSecond, long toEpochSecond) {
+        BitReader in = new BitReader(data);
+        int version = (int) in.readBits(8);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported archive block version " + version);
+        }
+        int count = (int) in.readBits(32);
+
+        Series series = new Series(count);
+        long timestamp = in.readBits(64);
+        long value = in.readBits(64);
+        int aqi = fromAqiBits((int) in.readBits(AQI_BITS));
+        if (timestamp >= fromEpochSecond && timestamp <= toEpochSecond) {
+            series.add(timestamp, Double.longBitsToDouble(value), aqi);
+        }
+
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            delta += readDeltaOfDelta(in);
+            timestamp += delta;
+
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    leading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                long xor = in.readBits(64 - leading - trailing) << trailing;
+                value ^= xor;
+            }
+
+            if (in.readBit()) {
+                aqi = fromAqiBits((int) in.readBits(AQI_BITS));
+            }
+
+            if (timestamp > toEpochSecond) break;
+            if (timestamp >= fromEpochSecond) {
+                series.add(timestamp, Double.longBitsToDouble(value), aqi);
+            }
+        }
+        return series;
+    }
+
+    private static void writeDeltaOfDelta(BitWriter out, long dod) {
+        if (dod == 0) {
+            out.writeBit(false);
+        } else if (dod >= -64 && dod <= 63) {
+            out.writeBits(0b10, 2);
+            out.writeBits(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            out.writeBits(0b110, 3);
+            out.writeBits(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(dod, 12);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(dod, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (!in.readBit()) return 0;
+        if (!in.readBit()) return signExtend(in.readBits(7), 7);
+        if (!in.readBit()) return signExtend(in.readBits(9), 9);
+        if (!in.readBit()) return signExtend(in.readBits(12), 12);
+        return in.readBits(64);
+    }
+
+    private static long signExtend(long value, int bits) {
+        int shift = 64 - bits;
+        return (value << shift) >> shift;
+    }
+
+    private static int toAqiBits(int aqi) {
+        return aqi < 0 ? AQI_NULL : Math.min(aqi, AQI_NULL - 1);
+    }
+
+    private static int fromAqiBits(int bits) {
+        return bits == AQI_NULL ? NO_AQI : bits;
+    }
+
+    /**
+     * Decoded points of one block, stored as parallel primitive arrays.
+     */
+    public static final class Series {
+        private long[] epochSeconds;
+        private double[] values;
+        private int[] aqis;
+        private int size;
+
+        Series(int capacity) {
+            this.epochSeconds = new long[Math.max(1, capacity)];
+            this.values = new double[epochSeconds.length];
+            this.aqis = new int[epochSeconds.length];
+        }
+
+        void add(long epochSecond, double value, int aqi) {
+            if (size == epochSeconds.length) {
+                epochSeconds = Arrays.copyOf(epochSeconds, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                aqis = Arrays.copyOf(aqis, size * 2);
+            }
+            epochSeconds[size] = epochSecond;
+            values[size] = value;
+            aqis[size] = aqi;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long epochSecond(int index) {
+            return epochSeconds[index];
+        }
+
+        public double value(int index) {
+            return values[index];
+        }
+
+        /**
+         * @return the AQI at {@code index}, or {@link #NO_AQI}
+         */
+        public int aqi(int index) {
+            return aqis[index];
+        }
+
+        public LocalDateTime timestamp(int index) {
+            return LocalDateTime.ofEpochSecond(epochSeconds[index], 0, ZoneOffset.UTC);
+        }
+
+        /**
+         * Converts the points into records of the given station and pollutant.
+         */
+        public List<MeasurementRecord> toRecords(long stationId, Pollutant pollutant) {
+            List<MeasurementRecord> records = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                records.add(new MeasurementRecord(stationId, pollutant, values[i],
+                        aqis[i] == NO_AQI ? null : aqis[i], timestamp(i)));
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.aerogrid.backend.cli;
+
+import com.aerogrid.backend.service.ParquetExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+
+import java.io.IOException;
+import java.util.stream.Collectors;
+
+@ShellComponent
+@RequiredArgsConstructor
+public class ExportCommands {
+
+    private final ParquetExportService parquetExportService;
+
+    /**
+     * Exports the closed months that were not exported yet to Parquet, without waiting for the nightly job.
+     * Usage: export-parquet
+     */
+    @ShellMethod(key = "export-parquet", value = "Exports closed months of measurements and snapshots to Parquet.")
+    public String exportParquet() {
+        try {
+            if (!parquetExportService.start()) return "A Parquet export is already running";
+        } catch (TaskRejectedException e) {
+            return "Too many jobs running, try again later";
+        }
+        return "Parquet export started";
+    }
+
+    /**
+     * Lists the exported Parquet files.
+     * Usage: parquet-files
+     */
+    @ShellMethod(key = "parquet-files", value = "Lists the exported Parquet files and their sizes.")
+    public String parquetFiles() throws IOException {
+        return parquetExportService.listFiles().stream()
+                .map(f -> String.format("%-56s %12d bytes", f.path(), f.sizeBytes()))
+                .collect(Collectors.joining("\n"));
+    }
+}
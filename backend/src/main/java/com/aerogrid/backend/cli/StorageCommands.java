@@ -0,0 +1,89 @@
+package com.aerogrid.backend.cli;
+
+import com.aerogrid.backend.service.AqiAggregationService;
+import com.aerogrid.backend.service.MeasurementArchiveService;
+import com.aerogrid.backend.service.MeasurementPartitionService;
+import com.aerogrid.backend.service.MeasurementRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.time.LocalDateTime;
+import java.util.stream.Collectors;
+
+@ShellComponent
+@RequiredArgsConstructor
+public class StorageCommands {
+
+    private final ObjectProvider<MeasurementPartitionService> partitionService;
+    private final MeasurementRollupService rollupService;
+    private final MeasurementArchiveService archiveService;
+    private final AqiAggregationService aggregationService;
+    private final TaskExecutor jobExecutor;
+
+    /**
+     * Lists the monthly partitions of the measurements table.
+     * Usage: partitions
+     */
+    @ShellMethod(key = "partitions", value = "Lists measurement partitions and their estimated row counts.")
+    public String partitions() {
+        MeasurementPartitionService service = partitionService.getIfAvailable();
+        if (service == null) return "Partitioning is disabled (aerogrid.storage.partitioning.enabled=false).";
+
+        return service.listPartitions().stream()
+                .map(p -> String.format("%-28s %12d rows", p.name(), p.estimatedRows()))
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Checks that a query over the last days only scans the partitions it needs.
+     * Usage: check-pruning --days 7
+     */
+    @ShellMethod(key = "check-pruning", value = "Explains a time-range query and shows which partitions it scans.")
+    public String checkPruning(@ShellOption(defaultValue = "7", help = "Number of days back") int days) {
+        MeasurementPartitionService service = partitionService.getIfAvailable();
+        if (service == null) return "Partitioning is disabled (aerogrid.storage.partitioning.enabled=false).";
+
+        LocalDateTime to = LocalDateTime.now();
+        MeasurementPartitionService.PruningReport report = service.checkPruning(to.minusDays(days), to);
+        return String.format("Last %d days scan %d of %d partitions%s: %s",
+                days, report.scannedPartitions().size(), report.totalPartitions(),
+                report.pruned() ? "" : " (NOT PRUNED)", String.join(", ", report.scannedPartitions()));
+    }
+
+    /**
+     * Recomputes the chart rollups from the raw measurements, then the hourly AQI snapshots read from them.
+     * Usage: rebuild-rollups --days 30
+     */
+    @ShellMethod(key = "rebuild-rollups", value = "Rebuilds the measurement rollups from raw data (days back).")
+    public String rebuildRollups(@ShellOption(defaultValue = "7", help = "Number of days back") int days) {
+        LocalDateTime to = LocalDateTime.now();
+        try {
+            jobExecutor.execute(() -> {
+                rollupService.rebuild(to.minusDays(days), to);
+                aggregationService.recompute(to.minusDays(days), to);
+            });
+        } catch (TaskRejectedException e) {
+            return "Too many jobs running, try again later";
+        }
+        return "Rollup rebuild started for the last " + days + " days";
+    }
+
+    /**
+     * Compacts the sealed days into archive blocks now instead of waiting for the nightly job.
+     * Usage: compact-archive
+     */
+    @ShellMethod(key = "compact-archive", value = "Moves sealed days of raw measurements into the compressed archive.")
+    public String compactArchive() {
+        try {
+            jobExecutor.execute(archiveService::compactSealedDays);
+        } catch (TaskRejectedException e) {
+            return "Too many jobs running, try again later";
+        }
+        return "Archive compaction started";
+    }
+}
@@ -0,0 +1,75 @@
+package com.aerogrid.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executors for long work started outside of a request, or too long for the shared async pool.
+ * <p>
+ * Declaring any executor makes Spring Boot back off from its own, so the application executor used
+ * by async MVC requests is declared here again from the auto-configured builder.
+ * </p>
+ */
+@Configuration
+public class TaskExecutorConfig {
+
+    /**
+     * The executor Spring Boot would create, configured by the {@code spring.task.execution.*} properties.
+     */
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Runs long maintenance jobs started from the shell or by an operator (rollup rebuilds, archive
+     * compaction, Parquet exports). Jobs beyond the pool wait in a short queue; past that the submit
+     * is rejected. Running jobs are interrupted when the context shuts down.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor jobExecutor(@Value("${aerogrid.jobs.threads:2}") int threads,
+                                              @Value("${aerogrid.jobs.queue-capacity:4}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("job-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        return executor;
+    }
+
+    /**
+     * Streams bulk measurement exports. Without a queue, an export beyond the pool is rejected
+     * right away instead of waiting behind exports that may run for hours.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportExecutor(
+            @Value("${aerogrid.measurements.export.max-concurrent:2}") int maxConcurrent) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("export-");
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(0);
+        return executor;
+    }
+
+    /**
+     * Sends station status events to open map streams. Each stream has at most one send queued or
+     * running, so the queue never holds more than one task per subscriber.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor streamExecutor(@Value("${aerogrid.map.stream.sender-threads:4}") int threads,
+                                                 @Value("${aerogrid.map.stream.max-subscribers:10000}") int maxSubscribers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("station-stream-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(maxSubscribers);
+        return executor;
+    }
+}
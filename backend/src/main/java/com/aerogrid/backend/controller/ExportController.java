@@ -0,0 +1,86 @@
+package com.aerogrid.backend.controller;
+
+import com.aerogrid.backend.service.ParquetExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * REST controller for the Parquet exports of closed months, for analytics.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/exports/parquet")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private static final MediaType PARQUET = MediaType.parseMediaType("application/vnd.apache.parquet");
+
+    private final ParquetExportService parquetExportService;
+
+    /**
+     * Starts exporting the closed months that were not exported yet. Admin only.
+     *
+     * @return 202 when started, 409 if an export is already running, or 503 if the job executor is full
+     */
+    @PostMapping
+    public ResponseEntity<Void> start() {
+        if (!parquetExportService.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Lists the exported files, partitioned as {@code measurements/month=YYYY-MM/pollutant=X/}
+     * and {@code snapshots/month=YYYY-MM/}.
+     *
+     * @return the files with their size
+     */
+    @GetMapping("/files")
+    public ResponseEntity<List<ParquetExportService.ExportedFile>> listFiles() {
+        try {
+            return ResponseEntity.ok(parquetExportService.listFiles());
+        } catch (IOException e) {
+            log.error("Error listing Parquet exports", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Downloads an exported file.
+     *
+     * @param path the path of the file, as listed by {@code /files}
+     * @return the file, or 404 if it is not an exported file
+     */
+    @GetMapping("/file")
+    public ResponseEntity<Resource> download(@RequestParam String path) {
+        Path file = parquetExportService.resolve(path);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // month=2025-01/pollutant=NO2/part-0.parquet is saved as measurements-2025-01-NO2.parquet
+        String fileName = path.replace("month=", "").replace("pollutant=", "")
+                .replace("/part-0.parquet", ".parquet").replace('/', '-');
+        return ResponseEntity.ok()
+                .contentType(PARQUET)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(new FileSystemResource(file));
+    }
+}
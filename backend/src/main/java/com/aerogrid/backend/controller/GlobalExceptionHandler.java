@@ -1,6 +1,7 @@
 package com.aerogrid.backend.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -118,6 +119,19 @@ public class GlobalExceptionHandler {
                 .body("Authentication failed: " + ex.getMessage());
     }
 
+    /**
+     * Handles work refused because its executor is busy, such as exports beyond the concurrent limit.
+     *
+     * @param ex the exception
+     * @return 503 Service Unavailable response
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> handleTaskRejected(TaskRejectedException ex) {
+        log.warn("Task rejected: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Too many requests running, try again later");
+    }
+
     /**
      * Handles all other runtime exceptions.
      *
@@ -2,13 +2,19 @@ package com.aerogrid.backend.controller;
 
 import com.aerogrid.backend.controller.dto.MeasurementDto;
 import com.aerogrid.backend.controller.mapper.MeasurementMapper;
-import com.aerogrid.backend.domain.Measurement;
-import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.service.MeasurementExportService;
+import com.aerogrid.backend.service.MeasurementQueryService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,37 +28,53 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MeasurementController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
     /* Tota la lògica que hi ha en aquesta classe es moura en el service */
-    private final MeasurementRepository measurementRepository;
+    private final MeasurementQueryService measurementQueryService;
+    private final MeasurementExportService measurementExportService;
     private final MeasurementMapper measurementMapper;
+    private final AsyncTaskExecutor exportExecutor;
 
     /**
-     * Retrieves historical measurement data for a station.
+     * Retrieves historical measurement data for a station, one page at a time.
      * If no time range is specified, returns the last 24 hours of data.
+     * When more measurements follow, the {@code X-Next-Cursor} header holds the {@code after}
+     * value of the next page.
      *
      * @param stationCode the station code
      * @param from start timestamp (optional, defaults to 24 hours before end)
      * @param to end timestamp (optional, defaults to now)
-     * @return list of measurements within the specified time range
+     * @param after position of the last measurement of the previous page, as {@code <timestamp>,<pollutant>} (optional)
+     * @param limit page size (optional, capped by the server)
+     * @return the measurements of the page, ordered by timestamp and pollutant
      */
     @GetMapping
     public ResponseEntity<List<MeasurementDto>> getHistory(
             @RequestParam String stationCode,
             @RequestParam(required = false) LocalDateTime from,
-            @RequestParam(required = false) LocalDateTime to
+            @RequestParam(required = false) LocalDateTime to,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit
     ) {
         try {
             LocalDateTime end = (to != null) ? to : LocalDateTime.now();
             LocalDateTime start = (from != null) ? from : end.minusHours(24);
 
-            List<Measurement> data = measurementRepository.findByStationCodeAndTimestampBetween(
-                    stationCode, start, end);
+            MeasurementQueryService.MeasurementPage page =
+                    measurementQueryService.findPage(stationCode, start, end, after, limit);
 
-            List<MeasurementDto> dtos = data.stream()
-                    .map(measurementMapper::toDto)
+            List<MeasurementDto> dtos = page.measurements().stream()
+                    .map(record -> measurementMapper.toDto(record, stationCode))
                     .toList();
 
-            return ResponseEntity.ok(dtos);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+            }
+            return response.body(dtos);
 
         } catch (IllegalArgumentException e) {
             log.error("Invalid parameters for measurement query: {}", e.getMessage());
@@ -62,4 +84,40 @@ public class MeasurementController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+
+    /**
+     * Exports the raw measurements of many stations as a gzip-compressed CSV or NDJSON file.
+     * Rows are streamed from the database while the response is written, so exports of any size
+     * use the same memory. Exports run on their own bounded pool with their own timeout, so they
+     * neither hold the threads of other async requests nor lengthen their timeout; when the pool
+     * is busy the export is refused with 503.
+     *
+     * @param stations station codes (optional, defaults to every station)
+     * @param pollutants pollutants (optional, defaults to every pollutant)
+     * @param from start timestamp
+     * @param to end timestamp (optional, defaults to now)
+     * @param format csv or ndjson (optional, defaults to csv)
+     * @return the task writing the compressed file, grouped by station and ordered by timestamp
+     */
+    @GetMapping("/export")
+    public WebAsyncTask<Void> export(
+            @RequestParam(required = false) List<String> stations,
+            @RequestParam(required = false) List<String> pollutants,
+            @RequestParam LocalDateTime from,
+            @RequestParam(required = false) LocalDateTime to,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response
+    ) {
+        // Invalid parameters fail here, before the export takes a thread
+        MeasurementExportService.Export export = measurementExportService.prepare(
+                stations, pollutants, from, to != null ? to : LocalDateTime.now(), format);
+
+        return new WebAsyncTask<>(measurementExportService.timeout().toMillis(), exportExecutor, () -> {
+            response.setContentType(GZIP.toString());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(export.fileName()).build().toString());
+            measurementExportService.write(export, response.getOutputStream());
+            return null;
+        });
+    }
 }
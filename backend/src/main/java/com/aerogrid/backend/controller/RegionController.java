@@ -0,0 +1,85 @@
+package com.aerogrid.backend.controller;
+
+import com.aerogrid.backend.controller.dto.RegionAqiDto;
+import com.aerogrid.backend.domain.RegionType;
+import com.aerogrid.backend.service.RegionalAqiService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * REST controller for regional AQI aggregates, used by the map at low zoom levels.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/regions")
+@RequiredArgsConstructor
+public class RegionController {
+
+    private final ObjectProvider<RegionalAqiService> regionalAqiService;
+
+    /**
+     * Retrieves the latest AQI of every region of one type whose centre is inside the bounding box.
+     *
+     * @param type       {@code hex} (default) or {@code municipality}
+     * @param resolution hex grid resolution, 0 being the coarsest
+     * @param minLat     minimum latitude of the bounding box
+     * @param minLon     minimum longitude of the bounding box
+     * @param maxLat     maximum latitude of the bounding box
+     * @param maxLon     maximum longitude of the bounding box
+     * @param targetTime optional target time, defaults to now
+     * @return one aggregate per region, or 400 for an unknown type or resolution
+     */
+    @GetMapping
+    public ResponseEntity<List<RegionAqiDto>> getRegions(
+            @RequestParam(defaultValue = "hex") String type,
+            @RequestParam(defaultValue = "0") int resolution,
+            @RequestParam(defaultValue = "-90") double minLat,
+            @RequestParam(defaultValue = "-180") double minLon,
+            @RequestParam(defaultValue = "90") double maxLat,
+            @RequestParam(defaultValue = "180") double maxLon,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime targetTime
+    ) {
+        RegionalAqiService service = regionalAqiService.getIfAvailable();
+        if (service == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        try {
+            RegionType regionType = RegionType.valueOf(type.toUpperCase(Locale.ROOT));
+            LocalDateTime actualTargetTime = targetTime != null ? targetTime : LocalDateTime.now();
+
+            List<RegionAqiDto> dtos = service.findLatest(regionType, resolution, actualTargetTime, minLat, minLon, maxLat, maxLon)
+                    .stream()
+                    .map(p -> RegionAqiDto.builder()
+                            .type(p.getRegionType())
+                            .resolution(p.getResolution())
+                            .key(p.getRegionKey())
+                            .timestamp(p.getTimestamp())
+                            .maxAqi(p.getMaxAqi())
+                            .avgAqi(p.getAvgAqi())
+                            .stationCount(p.getStationCount())
+                            .latitude(p.getLatitude())
+                            .longitude(p.getLongitude())
+                            .build())
+                    .toList();
+            return ResponseEntity.ok(dtos);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid parameters for region query: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error retrieving regions", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -1,27 +1,50 @@
 package com.aerogrid.backend.controller;
 
+import com.aerogrid.backend.controller.dto.LocationAirQualityDto;
+import com.aerogrid.backend.controller.dto.LocationDto;
+import com.aerogrid.backend.controller.dto.MeasurementDto;
+import com.aerogrid.backend.controller.dto.NearbyStationDto;
+import com.aerogrid.backend.controller.dto.StationClusterDto;
+import com.aerogrid.backend.controller.dto.StationColumnsDto;
 import com.aerogrid.backend.controller.dto.StationCreationResponseDto;
+import com.aerogrid.backend.controller.dto.StationTimelineDto;
 import com.aerogrid.backend.controller.dto.StationDetailsDto;
 import com.aerogrid.backend.controller.dto.StationMapDto;
+import com.aerogrid.backend.controller.mapper.StationColumnsMapper;
 import com.aerogrid.backend.controller.mapper.StationMapper;
+import com.aerogrid.backend.domain.ChartResolution;
 import com.aerogrid.backend.domain.Station;
 import com.aerogrid.backend.domain.User;
+import com.aerogrid.backend.map.MapDataVersion;
+import com.aerogrid.backend.map.NearestStationService;
+import com.aerogrid.backend.map.StationClusterService;
+import com.aerogrid.backend.map.StationStatusStream;
 import com.aerogrid.backend.repository.StationRepository;
 import com.aerogrid.backend.repository.projection.StationMapProjection;
 import com.aerogrid.backend.repository.projection.AggregatedMeasurementProjection;
+import com.aerogrid.backend.service.StationMapService;
 import com.aerogrid.backend.service.StationService;
-import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.service.StationTimelineService;
+import com.aerogrid.backend.service.MeasurementHistoryService;
+import com.aerogrid.backend.service.StationLatestService;
 import com.aerogrid.backend.repository.StationApiKeyRepository;
 import com.aerogrid.backend.repository.VoteRepository;
 import com.aerogrid.backend.controller.dto.MyStationDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * REST controller for station management and queries.
@@ -32,13 +55,26 @@ import java.util.List;
 @RequiredArgsConstructor
 public class StationController {
 
+    public static final String COLUMNAR_JSON_VALUE = "application/vnd.aerogrid.stations+json";
+    public static final MediaType COLUMNAR_JSON = MediaType.parseMediaType(COLUMNAR_JSON_VALUE);
+    public static final String BINARY_VALUE = "application/x-aerogrid-stations";
+    public static final MediaType BINARY = MediaType.parseMediaType(BINARY_VALUE);
+
     /* Tota la lògica que hi ha en aquesta classe es moura en el service */
     private final StationRepository stationRepository;
     private final StationMapper stationMapper;
+    private final StationColumnsMapper stationColumnsMapper;
     private final StationService stationService;
-    private final MeasurementRepository measurementRepository;
+    private final MeasurementHistoryService measurementHistoryService;
+    private final StationLatestService stationLatestService;
     private final StationApiKeyRepository stationApiKeyRepository;
     private final VoteRepository voteRepository;
+    private final StationMapService stationMapService;
+    private final StationClusterService stationClusterService;
+    private final StationTimelineService stationTimelineService;
+    private final StationStatusStream stationStatusStream;
+    private final NearestStationService nearestStationService;
+    private final MapDataVersion mapDataVersion;
 
     /**
      * Retrieves the stations owned by the currently authenticated user,
@@ -86,6 +122,7 @@ public class StationController {
      * @param maxLon maximum longitude for bounding box filter
      * @param userId user ID to filter stations by owner
      * @param targetTime optional target time for querying station data
+     * @param webRequest the request, for conditional GET
      * @return list of station map DTOs
      */
     @GetMapping
@@ -95,37 +132,245 @@ public class StationController {
             @RequestParam(required = false) Double maxLat,
             @RequestParam(required = false) Double maxLon,
             @RequestParam(required = false) Long userId,
-            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime targetTime
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime targetTime,
+            WebRequest webRequest
     ) {
-        try {
-            List<StationMapProjection> projections;
+        return mapResponse(MediaType.APPLICATION_JSON, minLat, minLon, maxLat, maxLon, userId, targetTime, webRequest,
+                projections -> projections.stream().map(StationController::toMapDto).toList());
+    }
 
-            java.time.LocalDateTime actualTargetTime = targetTime != null ? targetTime : java.time.LocalDateTime.now();
-            java.time.LocalDateTime minTime = actualTargetTime.minusHours(48); // Extended to 48 hours for data elasticity
+    /**
+     * Retrieves the stations as clusters for a map zoom level, so the response size depends on
+     * the viewport and not on the number of stations. Stations alone at that zoom are returned as
+     * single-station clusters with their details.
+     *
+     * @param zoom       map zoom level
+     * @param minLat     minimum latitude of the viewport
+     * @param minLon     minimum longitude of the viewport
+     * @param maxLat     maximum latitude of the viewport
+     * @param maxLon     maximum longitude of the viewport
+     * @param targetTime optional target time, defaults to now
+     * @param webRequest the request, for conditional GET
+     * @return list of clusters, or 400 for a negative zoom
+     */
+    @GetMapping(params = "zoom")
+    public ResponseEntity<List<StationClusterDto>> getStationClusters(
+            @RequestParam int zoom,
+            @RequestParam(defaultValue = "-85") double minLat,
+            @RequestParam(defaultValue = "-180") double minLon,
+            @RequestParam(defaultValue = "85") double maxLat,
+            @RequestParam(defaultValue = "180") double maxLon,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime targetTime,
+            WebRequest webRequest
+    ) {
+        return conditionalResponse(MediaType.APPLICATION_JSON, targetTime, webRequest,
+                () -> stationClusterService.getClusters(minLat, minLon, maxLat, maxLon, zoom, targetTime).stream()
+                        .map(c -> StationClusterDto.builder()
+                                .latitude(c.latitude())
+                                .longitude(c.longitude())
+                                .count(c.count())
+                                .maxAqi(c.maxAqi())
+                                .meanAqi(c.meanAqi())
+                                .station(c.station() != null ? toMapDto(c.station()) : null)
+                                .build())
+                        .toList(),
+                "clusters", zoom, minLat, minLon, maxLat, maxLon);
+    }
+
+    /**
+     * Retrieves the AQI of the active stations for every frame of a map animation in one
+     * response: station attributes once, then a station × frame grid of AQI and pollutant.
+     *
+     * @param minLat    minimum latitude for bounding box filter
+     * @param minLon    minimum longitude for bounding box filter
+     * @param maxLat    maximum latitude for bounding box filter
+     * @param maxLon    maximum longitude for bounding box filter
+     * @param from      first frame
+     * @param to        last frame at the latest
+     * @param step      hours between frames
+     * @param webRequest the request, for conditional GET
+     * @return the timeline, or 400 for an invalid range
+     */
+    @GetMapping("/timeline")
+    public ResponseEntity<StationTimelineDto> getTimeline(
+            @RequestParam(required = false) Double minLat,
+            @RequestParam(required = false) Double minLon,
+            @RequestParam(required = false) Double maxLat,
+            @RequestParam(required = false) Double maxLon,
+            @RequestParam @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime from,
+            @RequestParam @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime to,
+            @RequestParam(defaultValue = "1") int step,
+            WebRequest webRequest
+    ) {
+        return conditionalResponse(MediaType.APPLICATION_JSON, to, webRequest,
+                () -> stationTimelineService.getTimeline(minLat, minLon, maxLat, maxLon, from, to, step),
+                "timeline", from, step, minLat, minLon, maxLat, maxLon);
+    }
+
+    /**
+     * Estimates the air quality at a location from its nearest stations, weighted by great-circle
+     * distance and trust score.
+     *
+     * @param lat      latitude of the location
+     * @param lon      longitude of the location
+     * @param count    how many stations to use at most
+     * @param radiusKm stations farther than this are ignored
+     * @return the estimate with the stations used, or 400 for invalid parameters
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<LocationAirQualityDto> getNearestStations(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "3") int count,
+            @RequestParam(defaultValue = "25") double radiusKm
+    ) {
+        try {
+            return ResponseEntity.ok(toLocationDto(nearestStationService.estimate(lat, lon, count, radiusKm)));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid parameters for nearest stations: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error finding nearest stations", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
-            if (minLat != null && minLon != null && maxLat != null && maxLon != null) {
-                projections = stationRepository.findStationsInBoundingBox(minLon, minLat, maxLon, maxLat, actualTargetTime, minTime);
-            } else if (userId != null) {
-                projections = stationRepository.findByOwnerIdProjection(userId, actualTargetTime, minTime);
-            } else {
-                projections = stationRepository.findAllStationsWithStatus(actualTargetTime, minTime);
+    /**
+     * Same as {@link #getNearestStations} for many locations at once, answered in the order given.
+     *
+     * @param locations the locations to estimate
+     * @param count     how many stations to use at most per location
+     * @param radiusKm  stations farther than this are ignored
+     * @return one estimate per location, or 400 for invalid parameters or too many locations
+     */
+    @PostMapping("/nearest")
+    public ResponseEntity<List<LocationAirQualityDto>> getNearestStationsBulk(
+            @RequestBody List<LocationDto> locations,
+            @RequestParam(defaultValue = "3") int count,
+            @RequestParam(defaultValue = "25") double radiusKm
+    ) {
+        try {
+            double[] latitudes = new double[locations.size()];
+            double[] longitudes = new double[locations.size()];
+            for (int i = 0; i < locations.size(); i++) {
+                LocationDto location = locations.get(i);
+                if (location == null || location.getLatitude() == null || location.getLongitude() == null) {
+                    throw new IllegalArgumentException("Location " + i + " has no coordinates");
+                }
+                latitudes[i] = location.getLatitude();
+                longitudes[i] = location.getLongitude();
             }
+            return ResponseEntity.ok(nearestStationService.estimateAll(latitudes, longitudes, count, radiusKm).stream()
+                    .map(StationController::toLocationDto)
+                    .toList());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid parameters for nearest stations: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error finding nearest stations", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
-            List<StationMapDto> dtos = projections.stream()
-                    .map(p -> StationMapDto.builder()
-                            .id(p.getId())
-                            .code(p.getCode())
-                            .name(p.getName())
-                            .latitude(p.getLatitude())
-                            .longitude(p.getLongitude())
-                            .aqi(p.getAqi())
-                            .pollutant(p.getPollutant())
-                            .trustScore(p.getTrustScore())
-                            .sourceType(p.getSourceType())
-                            .build())
-                    .toList();
+    /**
+     * Opens a server-sent event stream of the status changes of the stations in the bounding box,
+     * or of every station without one. {@code status} events carry a JSON array of station deltas;
+     * a {@code resync} event, sent first and whenever the client falls behind, asks it to reload
+     * the viewport with {@link #getStations} before applying further deltas.
+     *
+     * @param minLat minimum latitude of the viewport
+     * @param minLon minimum longitude of the viewport
+     * @param maxLat maximum latitude of the viewport
+     * @param maxLon maximum longitude of the viewport
+     * @return the event stream, 400 for an inverted bounding box or 503 when too many streams are open
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStatus(
+            @RequestParam(required = false) Double minLat,
+            @RequestParam(required = false) Double minLon,
+            @RequestParam(required = false) Double maxLat,
+            @RequestParam(required = false) Double maxLon
+    ) {
+        try {
+            return ResponseEntity.ok(stationStatusStream.subscribe(minLat, minLon, maxLat, maxLon));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid parameters for station stream: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Station stream refused: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
 
-            return ResponseEntity.ok(dtos);
+    /**
+     * Same as {@link #getStations}, as parallel arrays with dictionary-encoded enums and scaled
+     * coordinates. Selected with {@code Accept: application/vnd.aerogrid.stations+json}.
+     */
+    @GetMapping(produces = COLUMNAR_JSON_VALUE)
+    public ResponseEntity<StationColumnsDto> getStationColumns(
+            @RequestParam(required = false) Double minLat,
+            @RequestParam(required = false) Double minLon,
+            @RequestParam(required = false) Double maxLat,
+            @RequestParam(required = false) Double maxLon,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime targetTime,
+            WebRequest webRequest
+    ) {
+        return mapResponse(COLUMNAR_JSON, minLat, minLon, maxLat, maxLon, userId, targetTime, webRequest,
+                stationColumnsMapper::toColumns);
+    }
+
+    /**
+     * Same as {@link #getStations}, in the little-endian layout documented in {@link StationColumnsMapper}.
+     * Selected with {@code Accept: application/x-aerogrid-stations}.
+     */
+    @GetMapping(produces = BINARY_VALUE)
+    public ResponseEntity<byte[]> getStationsBinary(
+            @RequestParam(required = false) Double minLat,
+            @RequestParam(required = false) Double minLon,
+            @RequestParam(required = false) Double maxLat,
+            @RequestParam(required = false) Double maxLon,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime targetTime,
+            WebRequest webRequest
+    ) {
+        return mapResponse(BINARY, minLat, minLon, maxLat, maxLon, userId, targetTime, webRequest,
+                stationColumnsMapper::toBinary);
+    }
+
+    /**
+     * Runs a station map query and encodes it.
+     */
+    private <T> ResponseEntity<T> mapResponse(MediaType mediaType, Double minLat, Double minLon, Double maxLat, Double maxLon,
+                                              Long userId, java.time.LocalDateTime targetTime, WebRequest webRequest,
+                                              Function<List<StationMapProjection>, T> encoder) {
+        return conditionalResponse(mediaType, targetTime, webRequest,
+                () -> encoder.apply(stationMapService.findStations(minLat, minLon, maxLat, maxLon, userId, targetTime)),
+                minLat, minLon, maxLat, maxLon, userId);
+    }
+
+    /**
+     * Builds a map response, answering 304 when the client already has this representation for
+     * the current data version.
+     *
+     * @param parameters the request parameters that select the response, for the ETag
+     */
+    private <T> ResponseEntity<T> conditionalResponse(MediaType mediaType, java.time.LocalDateTime targetTime, WebRequest webRequest,
+                                                      Supplier<T> body, Object... parameters) {
+        try {
+            Object[] parts = new Object[parameters.length + 1];
+            parts[0] = mediaType;
+            System.arraycopy(parameters, 0, parts, 1, parameters.length);
+            String etag = mapDataVersion.etag(targetTime, parts);
+            CacheControl cacheControl = mapDataVersion.cacheControl(targetTime);
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl)
+                        .varyBy(HttpHeaders.ACCEPT).build();
+            }
+
+            // The same URL serves several encodings, so shared caches must key them by Accept
+            return ResponseEntity.ok().contentType(mediaType).eTag(etag).cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT).body(body.get());
 
         } catch (IllegalArgumentException e) {
             log.error("Invalid parameters for station query: {}", e.getMessage());
@@ -136,6 +381,37 @@ public class StationController {
         }
     }
 
+    private static LocationAirQualityDto toLocationDto(NearestStationService.PointEstimate estimate) {
+        return LocationAirQualityDto.builder()
+                .latitude(estimate.latitude())
+                .longitude(estimate.longitude())
+                .aqi(estimate.aqi())
+                .pollutant(estimate.pollutant())
+                .stations(estimate.stations().stream()
+                        .map(n -> NearbyStationDto.builder()
+                                .station(toMapDto(n.station()))
+                                .distanceKm(n.distanceKm())
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    private static StationMapDto toMapDto(StationMapProjection p) {
+        return StationMapDto.builder()
+                .id(p.getId())
+                .code(p.getCode())
+                .name(p.getName())
+                .latitude(p.getLatitude())
+                .longitude(p.getLongitude())
+                .aqi(p.getAqi())
+                .pollutant(p.getPollutant())
+                .rollingAqi(p.getRollingAqi())
+                .rollingPollutant(p.getRollingPollutant())
+                .trustScore(p.getTrustScore())
+                .sourceType(p.getSourceType())
+                .build();
+    }
+
     /**
      * Retrieves detailed information for a specific station.
      *
@@ -167,6 +443,24 @@ public class StationController {
         }
     }
 
+    /**
+     * Retrieves the most recent reading of each pollutant measured by a station.
+     *
+     * @param code the station code
+     * @return one measurement per pollutant, or 404 if the station does not exist
+     */
+    @GetMapping("/{code}/latest")
+    public ResponseEntity<List<MeasurementDto>> getLatestMeasurements(@PathVariable String code) {
+        try {
+            return stationLatestService.findLatest(code)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            log.error("Error retrieving latest measurements for station: {}", code, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/{stationId}/measurements")
     public ResponseEntity<List<AggregatedMeasurementProjection>> getAggregatedMeasurements(
             @PathVariable("stationId") String stationCode,
@@ -174,28 +468,13 @@ public class StationController {
             @RequestParam("endDate") @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime endDate,
             @RequestParam("resolution") String resolution
     ) {
+        ChartResolution chartResolution = ChartResolution.fromParam(resolution);
+        if (chartResolution == null) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            List<AggregatedMeasurementProjection> result;
-            switch (resolution.toUpperCase()) {
-                case "1D":
-                case "HOURLY":
-                    result = measurementRepository.aggregateHourly(stationCode, startDate, endDate);
-                    break;
-                case "1W":
-                case "SIX_HOURS":
-                    result = measurementRepository.aggregateSixHours(stationCode, startDate, endDate);
-                    break;
-                case "1M":
-                case "DAILY":
-                    result = measurementRepository.aggregateDaily(stationCode, startDate, endDate);
-                    break;
-                case "1Y":
-                case "WEEKLY":
-                    result = measurementRepository.aggregateWeekly(stationCode, startDate, endDate);
-                    break;
-                default:
-                    return ResponseEntity.badRequest().build();
-            }
+            List<AggregatedMeasurementProjection> result =
+                    measurementHistoryService.aggregate(stationCode, startDate, endDate, chartResolution);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             log.error("Error aggregating measurements", e);
@@ -0,0 +1,140 @@
+package com.aerogrid.backend.controller;
+
+import com.aerogrid.backend.map.HeatmapService;
+import com.aerogrid.backend.map.MapDataVersion;
+import com.aerogrid.backend.service.StationTileService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * REST controller for map tiles: station vector tiles, read by MapLibre as a {@code vector}
+ * source, and AQI heatmap rasters.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/tiles")
+@RequiredArgsConstructor
+public class TileController {
+
+    public static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private final StationTileService stationTileService;
+    private final HeatmapService heatmapService;
+    private final MapDataVersion mapDataVersion;
+
+    /**
+     * Retrieves the active stations of one tile with their latest AQI, in layer {@code stations}.
+     * Features carry code, name, aqi, pollutant, rollingAqi, rollingPollutant, trustScore and sourceType.
+     *
+     * @param z          zoom level
+     * @param x          tile column
+     * @param y          tile row
+     * @param targetTime optional target time, defaults to now
+     * @return the tile, or 400 if it does not exist
+     */
+    @GetMapping("/stations/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getStationTile(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime targetTime,
+            WebRequest webRequest
+    ) {
+        try {
+            // Tiles only depend on the hour of the target time
+            LocalDateTime hour = targetTime != null ? targetTime.truncatedTo(ChronoUnit.HOURS) : null;
+            String etag = mapDataVersion.etag(hour, z, x, y);
+            CacheControl cacheControl = mapDataVersion.cacheControl(targetTime);
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+            }
+
+            LocalDateTime actualTargetTime = targetTime != null ? targetTime : LocalDateTime.now();
+            byte[] tile = stationTileService.getStatusTile(z, x, y, actualTargetTime);
+            return ResponseEntity.ok().contentType(MVT).eTag(etag).cacheControl(cacheControl).body(tile);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid tile request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error generating station tile {}/{}/{}", z, x, y, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Retrieves the AQI surface interpolated from the stations over one tile, as a PNG coloured
+     * by AQI band and transparent where no station is in range.
+     *
+     * @param z          zoom level
+     * @param x          tile column
+     * @param y          tile row
+     * @param targetTime optional target time, defaults to now
+     * @param rolling    whether to use the rolling AQI instead of the hourly one
+     * @return the tile, or 400 if it does not exist
+     */
+    @GetMapping("/heatmap/{z}/{x}/{y}.png")
+    public ResponseEntity<byte[]> getHeatmapTile(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime targetTime,
+            @RequestParam(defaultValue = "false") boolean rolling,
+            WebRequest webRequest
+    ) {
+        return heatmapResponse(z, x, y, targetTime, rolling, HeatmapService.Format.PNG, MediaType.IMAGE_PNG, webRequest);
+    }
+
+    /**
+     * Same as {@link #getHeatmapTile}, as the interpolated values: 256 × 256 little-endian
+     * float32, row by row from the north, NaN where no station is in range.
+     */
+    @GetMapping("/heatmap/{z}/{x}/{y}.raw")
+    public ResponseEntity<byte[]> getHeatmapValues(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime targetTime,
+            @RequestParam(defaultValue = "false") boolean rolling,
+            WebRequest webRequest
+    ) {
+        return heatmapResponse(z, x, y, targetTime, rolling, HeatmapService.Format.RAW,
+                MediaType.APPLICATION_OCTET_STREAM, webRequest);
+    }
+
+    private ResponseEntity<byte[]> heatmapResponse(int z, int x, int y, LocalDateTime targetTime, boolean rolling,
+                                                   HeatmapService.Format format, MediaType mediaType,
+                                                   WebRequest webRequest) {
+        try {
+            LocalDateTime hour = targetTime != null ? targetTime.truncatedTo(ChronoUnit.HOURS) : null;
+            String etag = mapDataVersion.etag(hour, "heatmap", format, rolling, z, x, y);
+            CacheControl cacheControl = mapDataVersion.cacheControl(targetTime);
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+            }
+
+            LocalDateTime actualTargetTime = targetTime != null ? targetTime : LocalDateTime.now();
+            byte[] tile = heatmapService.getTile(z, x, y, actualTargetTime, rolling, format);
+            return ResponseEntity.ok().contentType(mediaType).eTag(etag).cacheControl(cacheControl).body(tile);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid heatmap tile request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error generating heatmap tile {}/{}/{}", z, x, y, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.aerogrid.backend.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for the air quality estimated at a location from its nearest stations.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationAirQualityDto {
+    /** Queried latitude. */
+    private Double latitude;
+
+    /** Queried longitude. */
+    private Double longitude;
+
+    /** AQI weighted by distance and trust score, null without stations in range. */
+    private Double aqi;
+
+    /** Worst pollutant of the nearest station. */
+    private String pollutant;
+
+    /** Stations used for the estimate, closest first. */
+    private List<NearbyStationDto> stations;
+}
@@ -0,0 +1,19 @@
+package com.aerogrid.backend.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a location of a bulk air quality query.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationDto {
+    /** Latitude in degrees. */
+    private Double latitude;
+
+    /** Longitude in degrees. */
+    private Double longitude;
+}
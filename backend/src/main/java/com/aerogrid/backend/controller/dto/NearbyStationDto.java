@@ -0,0 +1,21 @@
+package com.aerogrid.backend.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a station near a queried location.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyStationDto {
+    /** The station with its current status. */
+    private StationMapDto station;
+
+    /** Great-circle distance from the location, in kilometres. */
+    private Double distanceKm;
+}
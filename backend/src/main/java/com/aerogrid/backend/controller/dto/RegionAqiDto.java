@@ -0,0 +1,44 @@
+package com.aerogrid.backend.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the aggregated AQI of a region displayed on low-zoom maps.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegionAqiDto {
+    /** MUNICIPALITY or HEX. */
+    private String type;
+
+    /** Hex grid resolution, 0 for municipalities. */
+    private Integer resolution;
+
+    /** Municipality name or hex cell id. */
+    private String key;
+
+    /** Hour of the aggregate. */
+    private LocalDateTime timestamp;
+
+    /** Worst station AQI in the region. */
+    private Integer maxAqi;
+
+    /** Mean station AQI in the region. */
+    private Double avgAqi;
+
+    /** Number of stations with an AQI in the hour. */
+    private Integer stationCount;
+
+    /** Latitude of the region centre. */
+    private Double latitude;
+
+    /** Longitude of the region centre. */
+    private Double longitude;
+}
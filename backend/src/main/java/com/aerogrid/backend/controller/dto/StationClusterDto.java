@@ -0,0 +1,33 @@
+package com.aerogrid.backend.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a cluster of stations displayed on map at low zoom levels.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationClusterDto {
+    /** Latitude of the cluster centre, or of the station. */
+    private Double latitude;
+
+    /** Longitude of the cluster centre, or of the station. */
+    private Double longitude;
+
+    /** Number of stations in the cluster. */
+    private Integer count;
+
+    /** Worst AQI among the stations. */
+    private Integer maxAqi;
+
+    /** Mean AQI of the stations that have one. */
+    private Double meanAqi;
+
+    /** The station itself when the cluster holds a single station, null otherwise. */
+    private StationMapDto station;
+}
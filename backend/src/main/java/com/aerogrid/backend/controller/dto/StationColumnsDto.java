@@ -0,0 +1,62 @@
+package com.aerogrid.backend.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Columnar form of a list of {@link StationMapDto}: one array per field, all of length
+ * {@code count}. Pollutants and source types are indexes into their dictionaries, -1 when missing.
+ * Coordinates are integers in units of 1 / {@code coordinateScale} degrees.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationColumnsDto {
+    /** Number of stations. */
+    private int count;
+
+    /** Coordinate units per degree. */
+    private int coordinateScale;
+
+    /** Pollutant names referenced by pollutant and rollingPollutant. */
+    private String[] pollutants;
+
+    /** Source type names referenced by sourceType. */
+    private String[] sourceTypes;
+
+    /** Station identifiers. */
+    private long[] id;
+
+    /** Station codes. */
+    private String[] code;
+
+    /** Station names. */
+    private String[] name;
+
+    /** Scaled latitudes. */
+    private int[] latitude;
+
+    /** Scaled longitudes. */
+    private int[] longitude;
+
+    /** Current worst AQI, -1 when unknown. */
+    private int[] aqi;
+
+    /** Pollutant index of the worst AQI. */
+    private int[] pollutant;
+
+    /** Worst AQI of the rolling means, -1 when unknown. */
+    private int[] rollingAqi;
+
+    /** Pollutant index of the worst rolling mean. */
+    private int[] rollingPollutant;
+
+    /** Station trust scores. */
+    private int[] trustScore;
+
+    /** Source type index. */
+    private int[] sourceType;
+}
@@ -34,6 +34,12 @@ public class StationMapDto {
     /** Worst pollutant identifier. */
     private String pollutant;
 
+    /** Worst AQI of the rolling means (24h PM, 8h O3, 1h NO2). */
+    private Integer rollingAqi;
+
+    /** Pollutant of the worst rolling mean. */
+    private String rollingPollutant;
+
     /** Station trust score. */
     private Integer trustScore;
 
@@ -0,0 +1,42 @@
+package com.aerogrid.backend.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a change of the map status of one station, pushed by the station stream.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationStatusDeltaDto {
+    /** Station identifier. */
+    private Long id;
+
+    /** Station latitude coordinate. */
+    private Double latitude;
+
+    /** Station longitude coordinate. */
+    private Double longitude;
+
+    /** Current worst AQI value. */
+    private Integer aqi;
+
+    /** Worst pollutant identifier. */
+    private String pollutant;
+
+    /** Worst AQI of the rolling means (24h PM, 8h O3, 1h NO2). */
+    private Integer rollingAqi;
+
+    /** Pollutant of the worst rolling mean. */
+    private String rollingPollutant;
+
+    /** Station trust score. */
+    private Integer trustScore;
+
+    /** True when the station left the map (deactivated or deleted). */
+    private boolean removed;
+}
@@ -0,0 +1,66 @@
+package com.aerogrid.backend.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Station status over a series of hours, for map animations.
+ * <p>
+ * Station attributes are parallel arrays of length {@code stationCount}. The AQI grids hold
+ * {@code stationCount * frameCount} values, station by station: the value of station {@code s} at
+ * frame {@code f} is at index {@code s * frameCount + f}. Frame {@code f} is the hour
+ * {@code from + f * stepHours}, and shows the latest snapshot of the station in the 48 hours up to
+ * it, like the station map. Missing values are -1; pollutants are indexes into {@code pollutants}.
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationTimelineDto {
+    /** Hour of the first frame. */
+    private LocalDateTime from;
+
+    /** Hours between frames. */
+    private int stepHours;
+
+    /** Number of frames. */
+    private int frameCount;
+
+    /** Number of stations. */
+    private int stationCount;
+
+    /** Pollutant names referenced by the pollutant grid. */
+    private String[] pollutants;
+
+    /** Station identifiers. */
+    private long[] id;
+
+    /** Station codes. */
+    private String[] code;
+
+    /** Station names. */
+    private String[] name;
+
+    /** Station latitudes. */
+    private double[] latitude;
+
+    /** Station longitudes. */
+    private double[] longitude;
+
+    /** Station trust scores. */
+    private int[] trustScore;
+
+    /** Source types (OFFICIAL or CITIZEN). */
+    private String[] sourceType;
+
+    /** Worst AQI grid. */
+    private int[] aqi;
+
+    /** Worst pollutant grid. */
+    private int[] pollutant;
+}
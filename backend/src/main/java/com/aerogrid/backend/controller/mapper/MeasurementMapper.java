@@ -2,6 +2,7 @@ package com.aerogrid.backend.controller.mapper;
 
 import com.aerogrid.backend.controller.dto.MeasurementDto;
 import com.aerogrid.backend.domain.Measurement;
+import com.aerogrid.backend.domain.MeasurementRecord;
 import com.aerogrid.backend.domain.Pollutant;
 import com.aerogrid.backend.domain.Station;
 import com.aerogrid.backend.repository.StationRepository;
@@ -37,6 +38,23 @@ public class MeasurementMapper {
                 .build();
     }
 
+    /**
+     * Converts a MeasurementRecord to MeasurementDto.
+     *
+     * @param record the measurement record to convert
+     * @param stationCode the code of the record's station
+     * @return the measurement DTO
+     */
+    public MeasurementDto toDto(MeasurementRecord record, String stationCode) {
+        return MeasurementDto.builder()
+                .stationCode(stationCode)
+                .pollutant(record.pollutant().name())
+                .value(record.value())
+                .aqi(record.aqi())
+                .timestamp(record.timestamp())
+                .build();
+    }
+
     /**
      * Converts a MeasurementDto to Measurement entity.
      * Requires the station to exist in the database.
@@ -0,0 +1,198 @@
+package com.aerogrid.backend.controller.mapper;
+
+import com.aerogrid.backend.controller.dto.StationColumnsDto;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes station map rows in the compact representations of the station map endpoint.
+ * <p>
+ * Both representations are columnar, with dictionary-encoded pollutants and source types and
+ * coordinates as integers of 1e-5 degrees (about one metre). The binary one
+ * ({@code application/x-aerogrid-stations}) is little-endian:
+ * </p>
+ * <pre>
+ * magic "AGS1", int32 count, int32 coordinateScale
+ * uint8 pollutantCount, then per entry: uint8 length, UTF-8 bytes
+ * uint8 sourceTypeCount, then per entry: uint8 length, UTF-8 bytes
+ * int64 id[count]
+ * int32 latitude[count], int32 longitude[count]
+ * int16 aqi[count], int16 rollingAqi[count]           (-1 when unknown)
+ * int8 pollutant[count], int8 rollingPollutant[count] (dictionary index, -1 when unknown)
+ * int8 trustScore[count], int8 sourceType[count]
+ * then per station: uint16 length + UTF-8 code, uint16 length + UTF-8 name
+ * </pre>
+ */
+@Component
+public class StationColumnsMapper {
+
+    public static final int COORDINATE_SCALE = 100_000;
+    private static final byte[] MAGIC = {'A', 'G', 'S', '1'};
+
+    /**
+     * Converts station map rows to the columnar JSON form.
+     */
+    public StationColumnsDto toColumns(List<StationMapProjection> rows) {
+        int count = rows.size();
+        Dictionary pollutants = new Dictionary();
+        Dictionary sourceTypes = new Dictionary();
+
+        long[] ids = new long[count];
+        String[] codes = new String[count];
+        String[] names = new String[count];
+        int[] latitudes = new int[count];
+        int[] longitudes = new int[count];
+        int[] aqis = new int[count];
+        int[] pollutantIndexes = new int[count];
+        int[] rollingAqis = new int[count];
+        int[] rollingPollutantIndexes = new int[count];
+        int[] trustScores = new int[count];
+        int[] sourceTypeIndexes = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            StationMapProjection row = rows.get(i);
+            ids[i] = row.getId();
+            codes[i] = row.getCode();
+            names[i] = row.getName();
+            latitudes[i] = scale(row.getLatitude());
+            longitudes[i] = scale(row.getLongitude());
+            aqis[i] = orMissing(row.getAqi());
+            pollutantIndexes[i] = pollutants.indexOf(row.getPollutant());
+            rollingAqis[i] = orMissing(row.getRollingAqi());
+            rollingPollutantIndexes[i] = pollutants.indexOf(row.getRollingPollutant());
+            trustScores[i] = orMissing(row.getTrustScore());
+            sourceTypeIndexes[i] = sourceTypes.indexOf(row.getSourceType());
+        }
+
+        return StationColumnsDto.builder()
+                .count(count)
+                .coordinateScale(COORDINATE_SCALE)
+                .pollutants(pollutants.values())
+                .sourceTypes(sourceTypes.values())
+                .id(ids)
+                .code(codes)
+                .name(names)
+                .latitude(latitudes)
+                .longitude(longitudes)
+                .aqi(aqis)
+                .pollutant(pollutantIndexes)
+                .rollingAqi(rollingAqis)
+                .rollingPollutant(rollingPollutantIndexes)
+                .trustScore(trustScores)
+                .sourceType(sourceTypeIndexes)
+                .build();
+    }
+
+    /**
+     * Converts station map rows to the binary form described in the class documentation.
+     */
+    public byte[] toBinary(List<StationMapProjection> rows) {
+        StationColumnsDto columns = toColumns(rows);
+        int count = columns.getCount();
+
+        byte[][] codes = new byte[count][];
+        byte[][] names = new byte[count][];
+        int size = MAGIC.length + 8
+                + dictionarySize(columns.getPollutants()) + dictionarySize(columns.getSourceTypes())
+                + count * (8 + 4 + 4 + 2 + 2 + 1 + 1 + 1 + 1 + 2 + 2);
+        for (int i = 0; i < count; i++) {
+            codes[i] = utf8(columns.getCode()[i], 0xFFFF);
+            names[i] = utf8(columns.getName()[i], 0xFFFF);
+            size += codes[i].length + names[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC).putInt(count).putInt(columns.getCoordinateScale());
+        putDictionary(buffer, columns.getPollutants());
+        putDictionary(buffer, columns.getSourceTypes());
+        for (long id : columns.getId()) buffer.putLong(id);
+        for (int latitude : columns.getLatitude()) buffer.putInt(latitude);
+        for (int longitude : columns.getLongitude()) buffer.putInt(longitude);
+        for (int aqi : columns.getAqi()) buffer.putShort(toShort(aqi));
+        for (int aqi : columns.getRollingAqi()) buffer.putShort(toShort(aqi));
+        for (int index : columns.getPollutant()) buffer.put((byte) index);
+        for (int index : columns.getRollingPollutant()) buffer.put((byte) index);
+        for (int trustScore : columns.getTrustScore()) buffer.put((byte) trustScore);
+        for (int index : columns.getSourceType()) buffer.put((byte) index);
+        for (int i = 0; i < count; i++) {
+            buffer.putShort((short) codes[i].length).put(codes[i]);
+            buffer.putShort((short) names[i].length).put(names[i]);
+        }
+        return buffer.array();
+    }
+
+    private static int scale(Double degrees) {
+        return degrees == null ? 0 : (int) Math.round(degrees * COORDINATE_SCALE);
+    }
+
+    private static int orMissing(Integer value) {
+        return value != null ? value : -1;
+    }
+
+    private static short toShort(int value) {
+        return (short) Math.max(-1, Math.min(Short.MAX_VALUE, value));
+    }
+
+    private static int dictionarySize(String[] values) {
+        int size = 1;
+        for (String value : values) size += 1 + utf8(value, 0xFF).length;
+        return size;
+    }
+
+    private static void putDictionary(ByteBuffer buffer, String[] values) {
+        buffer.put((byte) values.length);
+        for (String value : values) {
+            byte[] bytes = utf8(value, 0xFF);
+            buffer.put((byte) bytes.length).put(bytes);
+        }
+    }
+
+    /**
+     * Encodes a string as UTF-8, cut to the longest prefix of whole characters that fits the length field.
+     */
+    private static byte[] utf8(String value, int maxLength) {
+        if (value == null) return new byte[0];
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= maxLength) return bytes;
+        int end = maxLength;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) end--;
+        byte[] cut = new byte[end];
+        System.arraycopy(bytes, 0, cut, 0, end);
+        return cut;
+    }
+
+    /**
+     * Assigns indexes to distinct values in order of first appearance. At most 127 entries, the
+     * binary form stores indexes in a signed byte.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int indexOf(String value) {
+            if (value == null) return -1;
+            Integer index = indexes.get(value);
+            if (index == null) {
+                if (values.size() == Byte.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct values for a dictionary: " + value);
+                }
+                index = values.size();
+                indexes.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+
+        String[] values() {
+            return values.toArray(new String[0]);
+        }
+    }
+}
@@ -147,6 +147,8 @@ public class    StationMapper {
                 .longitude(projection.getLongitude())
                 .aqi(projection.getAqi() != null ? projection.getAqi() : 0)
                 .pollutant(projection.getPollutant())
+                .rollingAqi(projection.getRollingAqi())
+                .rollingPollutant(projection.getRollingPollutant())
                 .trustScore(projection.getTrustScore() != null ? projection.getTrustScore() : 100)
                 .build();
     }
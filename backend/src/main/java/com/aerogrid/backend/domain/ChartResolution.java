@@ -0,0 +1,33 @@
+package com.aerogrid.backend.domain;
+
+/**
+ * Bucket width requested by the station chart endpoint.
+ */
+public enum ChartResolution {
+    /** Hourly buckets, used by the 1D chart */
+    HOURLY,
+    /** Six-hour buckets, used by the 1W chart */
+    SIX_HOURS,
+    /** Daily buckets, used by the 1M chart */
+    DAILY,
+    /** Weekly buckets, used by the 1Y chart */
+    WEEKLY;
+
+    /**
+     * Resolves the {@code resolution} request parameter, which accepts either the chart range
+     * (1D, 1W, 1M, 1Y) or the resolution name.
+     *
+     * @param value the request parameter
+     * @return the matching resolution, or {@code null} if it is not recognised
+     */
+    public static ChartResolution fromParam(String value) {
+        if (value == null) return null;
+        return switch (value.toUpperCase()) {
+            case "1D", "HOURLY" -> HOURLY;
+            case "1W", "SIX_HOURS" -> SIX_HOURS;
+            case "1M", "DAILY" -> DAILY;
+            case "1Y", "WEEKLY" -> WEEKLY;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.aerogrid.backend.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Highest AQI seen so far for a station in one clock hour, and the pollutant that caused it.
+ *
+ * @param stationId the station id
+ * @param hour      start of the hour
+ * @param pollutant the pollutant with the highest AQI
+ * @param aqi       the highest AQI
+ */
+public record HourlyAqiPeak(long stationId, LocalDateTime hour, Pollutant pollutant, int aqi) {
+}
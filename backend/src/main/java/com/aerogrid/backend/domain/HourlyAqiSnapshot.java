@@ -31,5 +31,12 @@ public class HourlyAqiSnapshot {
 
     @Column(nullable = true)
     private String pollutant;
+
+    /** Highest AQI of the regulatory rolling means (24h PM, 8h O3, 1h NO2) at the end of the hour */
+    @Column(name = "rolling_aqi", nullable = true)
+    private Integer rollingAqi;
+
+    @Column(name = "rolling_pollutant", nullable = true)
+    private String rollingPollutant;
 }
 
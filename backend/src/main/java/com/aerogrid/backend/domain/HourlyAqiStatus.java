@@ -0,0 +1,17 @@
+package com.aerogrid.backend.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row of {@code hourly_aqi_snapshots} without the station entity, for bulk reads.
+ *
+ * @param stationId        the station id
+ * @param hour             start of the hour
+ * @param maxAqi           highest AQI of the hour, or null
+ * @param pollutant        pollutant of the highest AQI, or null
+ * @param rollingAqi       highest rolling-mean AQI at the end of the hour, or null
+ * @param rollingPollutant pollutant of the highest rolling-mean AQI, or null
+ */
+public record HourlyAqiStatus(long stationId, LocalDateTime hour, Integer maxAqi, String pollutant,
+                              Integer rollingAqi, String rollingPollutant) {
+}
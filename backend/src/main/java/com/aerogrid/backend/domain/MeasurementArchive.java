@@ -0,0 +1,57 @@
+package com.aerogrid.backend.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDate;
+
+/**
+ * One sealed day of measurements of one pollutant at one station.
+ * <p>
+ * The raw rows of the day are compressed into {@link #data} with
+ * {@link com.aerogrid.backend.archive.GorillaCodec} and removed from the measurements table.
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "measurement_archives", indexes = {
+        @Index(name = "idx_archive_day", columnList = "day")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_archive_station_pollutant_day",
+                columnNames = {"station_id", "pollutant", "day"})
+})
+public class MeasurementArchive {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "station_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Station station;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Pollutant pollutant;
+
+    /** Day covered by this block, from 00:00 (inclusive) to 00:00 of the next day (exclusive) */
+    @Column(nullable = false)
+    private LocalDate day;
+
+    /** Number of points encoded in {@link #data} */
+    @Column(name = "sample_count", nullable = false)
+    private Integer sampleCount;
+
+    /** Encoded block */
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+}
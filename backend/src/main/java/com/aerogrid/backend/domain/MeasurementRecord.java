@@ -0,0 +1,24 @@
+package com.aerogrid.backend.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight, immutable representation of a single measurement on its way into storage.
+ * <p>
+ * Unlike {@link Measurement}, this type carries only the station identifier instead of a
+ * managed {@link Station} reference, so it can be buffered, logged to disk and written in
+ * bulk without touching the persistence context.
+ * </p>
+ *
+ * @param stationId the identifier of the station that produced the value
+ * @param pollutant the measured pollutant
+ * @param value     the measured concentration
+ * @param aqi       the calculated AQI level, or {@code null} if not applicable
+ * @param timestamp the measurement timestamp
+ */
+public record MeasurementRecord(long stationId,
+                                Pollutant pollutant,
+                                double value,
+                                Integer aqi,
+                                LocalDateTime timestamp) {
+}
@@ -0,0 +1,77 @@
+package com.aerogrid.backend.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated measurements of one pollutant at one station over a time bucket.
+ * <p>
+ * Rollups are updated in the same statement that inserts the raw measurements, and outlive them
+ * once raw data expires. Sums and counts are stored instead of averages so buckets can be merged
+ * and re-aggregated to any coarser resolution without losing precision.
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "measurement_rollups", indexes = {
+        @Index(name = "idx_rollup_station_resolution_bucket", columnList = "station_id, resolution, bucket_start")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_rollup_station_pollutant_resolution_bucket",
+                columnNames = {"station_id", "pollutant", "resolution", "bucket_start"})
+})
+public class MeasurementRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "station_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Station station;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Pollutant pollutant;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RollupResolution resolution;
+
+    /** Start of the bucket (inclusive) */
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    /** Number of raw values folded into this bucket */
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+
+    @Column(name = "value_sum", nullable = false)
+    private Double valueSum;
+
+    @Column(name = "value_min", nullable = false)
+    private Double valueMin;
+
+    @Column(name = "value_max", nullable = false)
+    private Double valueMax;
+
+    /** Number of raw values that had an AQI */
+    @Column(name = "aqi_count", nullable = false)
+    private Long aqiCount;
+
+    @Column(name = "aqi_sum", nullable = false)
+    private Long aqiSum;
+
+    @Column(name = "aqi_max")
+    private Integer aqiMax;
+}
@@ -0,0 +1,11 @@
+package com.aerogrid.backend.domain;
+
+/**
+ * Kind of region the stations are grouped into for regional AQI aggregates.
+ */
+public enum RegionType {
+    /** Stations of the same municipality */
+    MUNICIPALITY,
+    /** Stations inside the same cell of a hexagonal grid */
+    HEX
+}
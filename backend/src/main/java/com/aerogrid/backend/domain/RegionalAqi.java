@@ -0,0 +1,65 @@
+package com.aerogrid.backend.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * AQI of one region in one clock hour, aggregated from the hourly snapshots of its active stations.
+ * <p>
+ * Written by {@code RegionalAqiService}; low-zoom maps read these rows instead of every station.
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "regional_aqi", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_regional_aqi_region_hour",
+                columnNames = {"region_type", "resolution", "region_key", "timestamp"})
+}, indexes = {
+        @Index(name = "idx_regional_aqi_hour", columnList = "region_type, resolution, timestamp")
+})
+public class RegionalAqi {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "region_type", nullable = false)
+    private RegionType regionType;
+
+    /** Grid resolution for hex cells, 0 for municipalities */
+    @Column(nullable = false)
+    private Integer resolution;
+
+    /** Municipality name or hex cell id */
+    @Column(name = "region_key", nullable = false)
+    private String regionKey;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    /** Worst station AQI of the hour */
+    @Column(name = "max_aqi", nullable = false)
+    private Integer maxAqi;
+
+    /** Mean of the station AQIs of the hour */
+    @Column(name = "avg_aqi", nullable = false)
+    private Double avgAqi;
+
+    @Column(name = "station_count", nullable = false)
+    private Integer stationCount;
+
+    @Column(nullable = false)
+    private Double latitude;
+
+    @Column(nullable = false)
+    private Double longitude;
+}
@@ -0,0 +1,13 @@
+package com.aerogrid.backend.domain;
+
+/**
+ * Bucket width of a {@link MeasurementRollup}.
+ */
+public enum RollupResolution {
+    /** One bucket per clock hour */
+    HOUR,
+    /** One bucket per calendar day */
+    DAY,
+    /** One bucket per ISO week, starting on Monday */
+    WEEK
+}
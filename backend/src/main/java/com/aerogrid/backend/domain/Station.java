@@ -31,6 +31,9 @@ import java.util.UUID;
 @Table(name = "stations")
 public class Station {
 
+    /** Trust score of a new station, also assumed for stations read without one */
+    public static final int DEFAULT_TRUST_SCORE = 50;
+
     /** Unique identifier for the station */
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -61,7 +64,7 @@ public class Station {
     /** Community trust score based on user votes */
     @Builder.Default
     @Column(nullable = false)
-    private int trustScore = 50;
+    private int trustScore = DEFAULT_TRUST_SCORE;
 
     /** Whether the station is currently active and collecting data */
     @Builder.Default
@@ -0,0 +1,62 @@
+package com.aerogrid.backend.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Most recent reading of one pollutant at one station.
+ * <p>
+ * Upserted by the same statement that inserts measurements, so it always matches the newest row
+ * of {@code measurements} for the pair and survives the retention of raw data.
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(StationLatest.Key.class)
+@Table(name = "station_latest")
+public class StationLatest {
+
+    @Id
+    @Column(name = "station_id")
+    private Long stationId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Pollutant pollutant;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "station_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Station station;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    @Column(nullable = false)
+    private Double value;
+
+    private Integer aqi;
+
+    /**
+     * Primary key of {@link StationLatest}.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long stationId;
+        private Pollutant pollutant;
+    }
+}
@@ -0,0 +1,71 @@
+package com.aerogrid.backend.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+
+/**
+ * Region a station belongs to, one row per region type and resolution.
+ * <p>
+ * For municipalities the coordinates are those of the station, for hex cells those of the cell
+ * centre; regional aggregates average them to place the region on the map.
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(StationRegion.Key.class)
+@Table(name = "station_regions", indexes = {
+        @Index(name = "idx_station_regions_region", columnList = "region_type, resolution, region_key")
+})
+public class StationRegion {
+
+    @Id
+    @Column(name = "station_id")
+    private Long stationId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "region_type", nullable = false)
+    private RegionType regionType;
+
+    /** Grid resolution for hex cells, 0 for municipalities */
+    @Id
+    @Column(nullable = false)
+    private Integer resolution;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "station_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Station station;
+
+    /** Municipality name or hex cell id */
+    @Column(name = "region_key", nullable = false)
+    private String regionKey;
+
+    @Column(nullable = false)
+    private Double latitude;
+
+    @Column(nullable = false)
+    private Double longitude;
+
+    /**
+     * Primary key of {@link StationRegion}.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long stationId;
+        private RegionType regionType;
+        private Integer resolution;
+    }
+}
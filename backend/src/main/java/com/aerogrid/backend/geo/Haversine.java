@@ -0,0 +1,74 @@
+package com.aerogrid.backend.geo;
+
+/**
+ * Great-circle distances on a spherical Earth, in kilometres.
+ * <p>
+ * {@link #METRIC} measures {@link KdTree} points given as (longitude, latitude) in degrees. Its
+ * bound for a box follows geokdbush: the distance to the closest meridian edge, taken at the
+ * latitude of the box closest to the great circle through the query point, or to the nearest
+ * parallel when the query longitude is inside the box.
+ * </p>
+ */
+public final class Haversine {
+
+    /** Mean Earth radius */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /** Haversine distance between (longitude, latitude) points */
+    public static final KdTree.Metric METRIC = new KdTree.Metric() {
+        @Override
+        public double distance(double ax, double ay, double bx, double by) {
+            return distanceKm(ay, ax, by, bx);
+        }
+
+        @Override
+        public double boxDistance(double x, double y, double minX, double minY, double maxX, double maxY) {
+            return boxDistanceKm(y, x, Math.max(-90, minY), Math.max(-180, minX), Math.min(90, maxY), Math.min(180, maxX));
+        }
+    };
+
+    private Haversine() {
+    }
+
+    /**
+     * Distance between two points given in degrees.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double h = haversine(lat1, lat2, Math.cos(Math.toRadians(lat1)), Math.toRadians(lon2 - lon1));
+        return toKm(h);
+    }
+
+    private static double boxDistanceKm(double lat, double lon, double minLat, double minLon,
+                                        double maxLat, double maxLon) {
+        if (lon >= minLon && lon <= maxLon) {
+            if (lat < minLat) return toKm(hav(Math.toRadians(minLat - lat)));
+            if (lat > maxLat) return toKm(hav(Math.toRadians(lat - maxLat)));
+            return 0;
+        }
+
+        // Longitude of the nearest meridian edge, going either way around
+        double closestLon = (minLon - lon + 360) % 360 <= (lon - maxLon + 360) % 360 ? minLon : maxLon;
+        double deltaLon = Math.toRadians(closestLon - lon);
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double extremumLat = Math.toDegrees(Math.atan(Math.sin(Math.toRadians(lat)) / (cosLat * Math.cos(deltaLon))));
+
+        double h = Math.min(haversine(lat, minLat, cosLat, deltaLon), haversine(lat, maxLat, cosLat, deltaLon));
+        if (extremumLat > minLat && extremumLat < maxLat) {
+            h = Math.min(h, haversine(lat, extremumLat, cosLat, deltaLon));
+        }
+        return toKm(h);
+    }
+
+    private static double haversine(double lat1, double lat2, double cosLat1, double deltaLon) {
+        return hav(Math.toRadians(lat2 - lat1)) + cosLat1 * Math.cos(Math.toRadians(lat2)) * hav(deltaLon);
+    }
+
+    private static double hav(double theta) {
+        double s = Math.sin(theta / 2);
+        return s * s;
+    }
+
+    private static double toKm(double h) {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, h)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.aerogrid.backend.geo;
+
+/**
+ * Hexagonal grid over the Web Mercator plane, in the spirit of H3 but flat and self-contained.
+ * <p>
+ * Cells are pointy-top hexagons addressed by axial coordinates (q, r). Because the grid is laid
+ * on Web Mercator, cells look regular on the map at every latitude, and their ground size shrinks
+ * towards the poles like map tiles do. Cell ids have the form {@code h<resolution>:<q>:<r>}.
+ * </p>
+ */
+public final class HexGrid {
+
+    private static final double EARTH_RADIUS = 6_378_137.0;
+    private static final double SQRT3 = Math.sqrt(3);
+
+    private final int resolution;
+    private final double size;
+
+    /**
+     * @param resolution index of the grid among the configured ones, stored in the cell ids
+     * @param sizeMeters distance from the centre of a cell to its corners, in Web Mercator metres
+     */
+    public HexGrid(int resolution, double sizeMeters) {
+        if (sizeMeters <= 0) {
+            throw new IllegalArgumentException("Hex size must be positive");
+        }
+        this.resolution = resolution;
+        this.size = sizeMeters;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Finds the cell that contains a point.
+     */
+    public Cell cellOf(double latitude, double longitude) {
+        double x = mercatorX(longitude);
+        double y = mercatorY(latitude);
+
+        double q = (SQRT3 / 3 * x - y / 3) / size;
+        double r = (2.0 / 3 * y) / size;
+
+        // Cube rounding: round the three cube coordinates and fix the one with the largest error
+        double s = -q - r;
+        long rq = Math.round(q);
+        long rr = Math.round(r);
+        long rs = Math.round(s);
+        double dq = Math.abs(rq - q);
+        double dr = Math.abs(rr - r);
+        double ds = Math.abs(rs - s);
+        if (dq > dr && dq > ds) {
+            rq = -rr - rs;
+        } else if (dr > ds) {
+            rr = -rq - rs;
+        }
+        return cell(rq, rr);
+    }
+
+    /**
+     * Builds the cell at the given axial coordinates.
+     */
+    public Cell cell(long q, long r) {
+        double x = size * (SQRT3 * q + SQRT3 / 2 * r);
+        double y = size * 1.5 * r;
+        return new Cell(resolution, q, r, latitude(y), longitude(x));
+    }
+
+    private static double mercatorX(double longitude) {
+        return EARTH_RADIUS * Math.toRadians(longitude);
+    }
+
+    private static double mercatorY(double latitude) {
+        double clamped = Math.max(-85.05112878, Math.min(85.05112878, latitude));
+        return EARTH_RADIUS * Math.log(Math.tan(Math.PI / 4 + Math.toRadians(clamped) / 2));
+    }
+
+    private static double longitude(double x) {
+        return Math.toDegrees(x / EARTH_RADIUS);
+    }
+
+    private static double latitude(double y) {
+        return Math.toDegrees(2 * Math.atan(Math.exp(y / EARTH_RADIUS)) - Math.PI / 2);
+    }
+
+    /**
+     * One hexagon of a grid.
+     *
+     * @param resolution the grid resolution
+     * @param q          axial column
+     * @param r          axial row
+     * @param latitude   latitude of the centre
+     * @param longitude  longitude of the centre
+     */
+    public record Cell(int resolution, long q, long r, double latitude, double longitude) {
+
+        public String id() {
+            return "h" + resolution + ":" + q + ":" + r;
+        }
+    }
+}
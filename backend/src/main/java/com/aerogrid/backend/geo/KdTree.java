@@ -0,0 +1,304 @@
+package com.aerogrid.backend.geo;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+
+/**
+ * Static two-dimensional KD-tree over points in a flat plane, after the kdbush layout.
+ * <p>
+ * The tree is a single array of point indexes sorted in place: each node splits its range at the
+ * median on x or y, alternating by depth, and ranges of at most {@code nodeSize} points are left
+ * unsorted and scanned. Building takes O(n log n) time and no memory besides the index and
+ * coordinate arrays; queries report the indexes given to the points at build time.
+ * </p>
+ * <p>
+ * Nearest neighbour queries visit nodes best-first, ordered by a lower bound of their distance
+ * under a {@link Metric}, after geokdbush, so the same tree also answers great-circle queries over
+ * longitude/latitude points with {@link Haversine#METRIC}.
+ * </p>
+ */
+public final class KdTree {
+
+    /**
+     * Distance used by nearest neighbour queries.
+     */
+    public interface Metric {
+
+        double distance(double ax, double ay, double bx, double by);
+
+        /**
+         * Lower bound of the distance from (x, y) to any point of the box. Bounds may be infinite.
+         */
+        double boxDistance(double x, double y, double minX, double minY, double maxX, double maxY);
+    }
+
+    /** Distance in the plane of the coordinates */
+    public static final Metric EUCLIDEAN = new Metric() {
+        @Override
+        public double distance(double ax, double ay, double bx, double by) {
+            return Math.sqrt(squaredDistance(ax, ay, bx, by));
+        }
+
+        @Override
+        public double boxDistance(double x, double y, double minX, double minY, double maxX, double maxY) {
+            double dx = Math.max(0, Math.max(minX - x, x - maxX));
+            double dy = Math.max(0, Math.max(minY - y, y - maxY));
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+    };
+
+    private static final int DEFAULT_NODE_SIZE = 64;
+
+    private final int nodeSize;
+    private final int[] ids;
+    private final double[] coords;
+
+    /**
+     * Builds the tree over the points {@code (xs[i], ys[i])}, reported as index {@code i}.
+     */
+    public KdTree(double[] xs, double[] ys) {
+        this(xs, ys, DEFAULT_NODE_SIZE);
+    }
+
+    public KdTree(double[] xs, double[] ys, int nodeSize) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        this.nodeSize = nodeSize;
+        this.ids = new int[xs.length];
+        this.coords = new double[xs.length * 2];
+        for (int i = 0; i < xs.length; i++) {
+            ids[i] = i;
+            coords[2 * i] = xs[i];
+            coords[2 * i + 1] = ys[i];
+        }
+        sort(0, ids.length - 1, 0);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Visits every point inside the rectangle, bounds included.
+     */
+    public void range(double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        int[] stack = new int[64 * 3];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = ids.length - 1;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int axis = stack[--top];
+            int right = stack[--top];
+            int left = stack[--top];
+
+            if (right - left <= nodeSize) {
+                for (int i = left; i <= right; i++) {
+                    double x = coords[2 * i];
+                    double y = coords[2 * i + 1];
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY) visitor.accept(ids[i]);
+                }
+                continue;
+            }
+
+            int m = (left + right) >> 1;
+            double x = coords[2 * m];
+            double y = coords[2 * m + 1];
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) visitor.accept(ids[m]);
+
+            if (axis == 0 ? minX <= x : minY <= y) {
+                stack[top++] = left;
+                stack[top++] = m - 1;
+                stack[top++] = 1 - axis;
+            }
+            if (axis == 0 ? maxX >= x : maxY >= y) {
+                stack[top++] = m + 1;
+                stack[top++] = right;
+                stack[top++] = 1 - axis;
+            }
+        }
+    }
+
+    /**
+     * Visits every point within {@code radius} of (x, y), bounds included.
+     */
+    public void within(double qx, double qy, double radius, IntConsumer visitor) {
+        double r2 = radius * radius;
+        int[] stack = new int[64 * 3];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = ids.length - 1;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int axis = stack[--top];
+            int right = stack[--top];
+            int left = stack[--top];
+
+            if (right - left <= nodeSize) {
+                for (int i = left; i <= right; i++) {
+                    if (squaredDistance(coords[2 * i], coords[2 * i + 1], qx, qy) <= r2) visitor.accept(ids[i]);
+                }
+                continue;
+            }
+
+            int m = (left + right) >> 1;
+            double x = coords[2 * m];
+            double y = coords[2 * m + 1];
+            if (squaredDistance(x, y, qx, qy) <= r2) visitor.accept(ids[m]);
+
+            if (axis == 0 ? qx - radius <= x : qy - radius <= y) {
+                stack[top++] = left;
+                stack[top++] = m - 1;
+                stack[top++] = 1 - axis;
+            }
+            if (axis == 0 ? qx + radius >= x : qy + radius >= y) {
+                stack[top++] = m + 1;
+                stack[top++] = right;
+                stack[top++] = 1 - axis;
+            }
+        }
+    }
+
+    /**
+     * Finds the {@code k} points nearest to (x, y) within {@code maxDistance}, closest first.
+     *
+     * @return the indexes of the points, at most {@code k}
+     */
+    public int[] nearest(double qx, double qy, int k, double maxDistance, Metric metric) {
+        int[] result = new int[Math.min(k, ids.length)];
+        int found = 0;
+        if (result.length == 0) return result;
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        Candidate node = new Candidate(-1, 0, 0, ids.length - 1, 0,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+        while (node != null) {
+            int left = node.left;
+            int right = node.right;
+            if (right - left <= nodeSize) {
+                for (int i = left; i <= right; i++) {
+                    queue.add(point(i, metric.distance(qx, qy, coords[2 * i], coords[2 * i + 1])));
+                }
+            } else {
+                int m = (left + right) >> 1;
+                double x = coords[2 * m];
+                double y = coords[2 * m + 1];
+                queue.add(point(m, metric.distance(qx, qy, x, y)));
+
+                int axis = 1 - node.axis;
+                double leftMaxX = node.axis == 0 ? x : node.maxX;
+                double leftMaxY = node.axis == 1 ? y : node.maxY;
+                double rightMinX = node.axis == 0 ? x : node.minX;
+                double rightMinY = node.axis == 1 ? y : node.minY;
+                queue.add(new Candidate(-1, metric.boxDistance(qx, qy, node.minX, node.minY, leftMaxX, leftMaxY),
+                        left, m - 1, axis, node.minX, node.minY, leftMaxX, leftMaxY));
+                queue.add(new Candidate(-1, metric.boxDistance(qx, qy, rightMinX, rightMinY, node.maxX, node.maxY),
+                        m + 1, right, axis, rightMinX, rightMinY, node.maxX, node.maxY));
+            }
+
+            // Points closer than every pending node are final
+            while (!queue.isEmpty() && queue.peek().index >= 0) {
+                Candidate candidate = queue.poll();
+                if (candidate.distance > maxDistance) return Arrays.copyOf(result, found);
+                result[found++] = ids[candidate.index];
+                if (found == result.length) return result;
+            }
+
+            node = queue.poll();
+            while (node != null && node.left > node.right) node = queue.poll();
+            if (node != null && node.distance > maxDistance) break;
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    private void sort(int left, int right, int axis) {
+        if (right - left <= nodeSize) return;
+        int m = (left + right) >> 1;
+        select(m, left, right, axis);
+        sort(left, m - 1, 1 - axis);
+        sort(m + 1, right, 1 - axis);
+    }
+
+    /**
+     * Floyd-Rivest selection: moves the k-th smallest coordinate on the axis to position k, with
+     * smaller ones before it and larger ones after it.
+     */
+    private void select(int k, int left, int right, int axis) {
+        while (right > left) {
+            if (right - left > 600) {
+                int n = right - left + 1;
+                int m = k - left + 1;
+                double z = Math.log(n);
+                double s = 0.5 * Math.exp(2 * z / 3);
+                double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * (m - n / 2.0 < 0 ? -1 : 1);
+                int newLeft = (int) Math.max(left, Math.floor(k - m * s / n + sd));
+                int newRight = (int) Math.min(right, Math.floor(k + (n - m) * s / n + sd));
+                select(k, newLeft, newRight, axis);
+            }
+
+            double t = coords[2 * k + axis];
+            int i = left;
+            int j = right;
+
+            swap(left, k);
+            if (coords[2 * right + axis] > t) swap(left, right);
+
+            while (i < j) {
+                swap(i, j);
+                i++;
+                j--;
+                while (coords[2 * i + axis] < t) i++;
+                while (coords[2 * j + axis] > t) j--;
+            }
+
+            if (coords[2 * left + axis] == t) {
+                swap(left, j);
+            } else {
+                j++;
+                swap(j, right);
+            }
+
+            if (j <= k) left = j + 1;
+            if (k <= j) right = j - 1;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double x = coords[2 * i];
+        coords[2 * i] = coords[2 * j];
+        coords[2 * j] = x;
+        double y = coords[2 * i + 1];
+        coords[2 * i + 1] = coords[2 * j + 1];
+        coords[2 * j + 1] = y;
+    }
+
+    private static double squaredDistance(double ax, double ay, double bx, double by) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
+    private static Candidate point(int index, double distance) {
+        return new Candidate(index, distance, 0, -1, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Entry of the nearest neighbour queue: a point when {@code index} is set, else a node with
+     * its range of the index and its bounding box.
+     */
+    private record Candidate(int index, double distance, int left, int right, int axis,
+                             double minX, double minY, double maxX, double maxY) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package com.aerogrid.backend.ingestion.citizen;
 
+import com.aerogrid.backend.domain.MeasurementRecord;
 import com.aerogrid.backend.domain.Pollutant;
-import com.aerogrid.backend.domain.Station;
 import com.aerogrid.backend.domain.StationApiKey;
 import com.aerogrid.backend.ingestion.common.CommonMapper;
 import com.aerogrid.backend.ingestion.common.MeasurementValidator;
-import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.ingestion.common.MeasurementWriter;
+import com.aerogrid.backend.ingestion.wal.IngestWriteAheadLog;
 import com.aerogrid.backend.repository.StationApiKeyRepository;
 import com.aerogrid.backend.service.AqiCalculatorService;
+import com.aerogrid.backend.service.StationsChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
@@ -22,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
@@ -29,10 +36,23 @@ import java.util.Map;
 public class CitizenIngestionService {
 
     private final StationApiKeyRepository apiKeyRepository;
-    private final MeasurementRepository measurementRepository;
+    private final MeasurementWriter measurementWriter;
     private final AqiCalculatorService aqiCalculator;
     private final CommonMapper commonMapper;
     private final MeasurementValidator measurementValidator;
+    private final ObjectProvider<IngestWriteAheadLog> ingestWal;
+
+    /** Recently resolved API keys, so that authenticating a reading does not need the database. */
+    private final ConcurrentHashMap<String, CachedApiKey> apiKeyCache = new ConcurrentHashMap<>();
+
+    @Value("${aerogrid.ingest.api-key-cache-ttl-seconds:30}")
+    private long apiKeyCacheTtlSeconds;
+
+    /**
+     * Snapshot of the fields of a {@link StationApiKey} needed to accept a reading.
+     */
+    private record CachedApiKey(long stationId, String stationCode, boolean active, long loadedAt) {
+    }
 
     /**
      * Processes a measurement ingestion request from a citizen station.
@@ -44,30 +64,23 @@ public class CitizenIngestionService {
      * @throws RuntimeException         If there's a database error.
      */
     public void processIngestion(String apiKey, StationIngestionDto dto) {
-        StationApiKey keyEntity = apiKeyRepository.findByApiKey(apiKey)
-                .orElseThrow(() -> new SecurityException("Invalid API Key"));
-
-        if (!keyEntity.isActive()) {
-            throw new SecurityException("API Key is inactive");
-        }
-
-        Station station = keyEntity.getStation();
+        CachedApiKey key = resolveApiKey(apiKey);
 
         Pollutant pollutant = commonMapper.mapPollutantString(dto.getPollutant());
         if (pollutant == null) {
-            log.warn("Unknown or null pollutant '{}' from station {}", dto.getPollutant(), station.getCode());
+            log.warn("Unknown or null pollutant '{}' from station {}", dto.getPollutant(), key.stationCode());
             throw new IllegalArgumentException("Unknown or null pollutant: " + dto.getPollutant());
         }
 
         LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
         measurementValidator.validate(pollutant, dto.getValue(), now);
 
-        Integer aqi = aqiCalculator.calculateAqi(pollutant.name(), dto.getValue());
+        Integer aqi = aqiCalculator.calculateAqi(pollutant, dto.getValue());
 
-        saveMeasurement(station, pollutant, dto.getValue(), aqi, now);
+        saveMeasurements(List.of(new MeasurementRecord(key.stationId(), pollutant, dto.getValue(), aqi, now)));
 
         log.debug("Citizen data received [{}]: {} = {} (AQI: {})",
-                station.getCode(), pollutant, dto.getValue(), aqi);
+                key.stationCode(), pollutant, dto.getValue(), aqi);
     }
 
     /**
@@ -79,12 +92,7 @@ public class CitizenIngestionService {
      * @return Map with result details.
      */
     public Map<String, Object> processCsvIngestion(String apiKey, MultipartFile file) {
-        StationApiKey keyEntity = apiKeyRepository.findByApiKey(apiKey)
-                .orElseThrow(() -> new SecurityException("Invalid API Key"));
-
-        if (!keyEntity.isActive()) {
-            throw new SecurityException("API Key is inactive");
-        }
+        CachedApiKey key = resolveApiKey(apiKey);
 
         if (file.isEmpty()) {
             throw new IllegalArgumentException("L'arxiu CSV està buit");
@@ -95,8 +103,7 @@ public class CitizenIngestionService {
             throw new IllegalArgumentException("Format d'arxiu invàlid. Ha de ser un CSV");
         }
 
-        Station station = keyEntity.getStation();
-        
+        List<MeasurementRecord> accepted = new ArrayList<>();
         int successCount = 0;
         int failCount = 0;
         List<String> errors = new ArrayList<>();
@@ -127,14 +134,8 @@ public class CitizenIngestionService {
                         if (pollutant != null) {
                             measurementValidator.validate(pollutant, value, timestamp);
                             
-                            Integer aqi = aqiCalculator.calculateAqi(pollutant.name(), value);
-                            measurementRepository.saveMeasurementNative(
-                                    station.getId(),
-                                    pollutant.name(),
-                                    value,
-                                    timestamp,
-                                    aqi
-                            );
+                            Integer aqi = aqiCalculator.calculateAqi(pollutant, value);
+                            accepted.add(new MeasurementRecord(key.stationId(), pollutant, value, aqi, timestamp));
                             successCount++;
                         } else {
                             failCount++;
@@ -159,7 +160,9 @@ public class CitizenIngestionService {
             log.error("Error reading CSV file", e);
             throw new RuntimeException("Error processant el CSV: " + e.getMessage());
         }
-        
+
+        saveMeasurements(accepted);
+
         Map<String, Object> result = new HashMap<>();
         result.put("successful", successCount);
         result.put("failed", failCount);
@@ -168,27 +171,78 @@ public class CitizenIngestionService {
     }
 
     /**
-     * Saves a citizen-submitted measurement to the database.
+     * Resolves an API key to its station, serving recently seen keys from memory.
+     * <p>
+     * Entries are refreshed after {@code aerogrid.ingest.api-key-cache-ttl-seconds}, which bounds
+     * how long a key revoked or rotated in the database is still accepted, and dropped when a
+     * station changes through the API. If the database cannot be reached during a refresh, the
+     * stale entry is used so that known stations can keep reporting through short outages.
+     * </p>
      *
-     * @param station   The station entity.
-     * @param pollutant The pollutant type.
-     * @param value     The measured value.
-     * @param aqi       The calculated AQI.
-     * @param timestamp The calculated timestamp.
+     * @param apiKey the API key sent by the station
+     * @return the cached key details
+     * @throws SecurityException if the key is unknown or inactive
      */
-    private void saveMeasurement(Station station, Pollutant pollutant, Double value, Integer aqi, LocalDateTime timestamp) {
-        try {
-            measurementRepository.saveMeasurementNative(
-                    station.getId(),
-                    pollutant.name(),
-                    value,
-                    timestamp,
-                    aqi
-            );
+    private CachedApiKey resolveApiKey(String apiKey) {
+        long now = System.currentTimeMillis();
+        CachedApiKey cached = apiKeyCache.get(apiKey);
+
+        if (cached == null || now - cached.loadedAt() > apiKeyCacheTtlSeconds * 1000) {
+            try {
+                StationApiKey keyEntity = apiKeyRepository.findByApiKey(apiKey).orElse(null);
+                if (keyEntity == null) {
+                    apiKeyCache.remove(apiKey);
+                    throw new SecurityException("Invalid API Key");
+                }
+                cached = new CachedApiKey(keyEntity.getStation().getId(), keyEntity.getStation().getCode(),
+                        keyEntity.isActive(), now);
+                apiKeyCache.put(apiKey, cached);
+            } catch (DataAccessException e) {
+                if (cached == null) {
+                    throw e;
+                }
+                log.warn("Could not refresh API key for station {}, using cached entry: {}", cached.stationCode(), e.getMessage());
+            }
+        }
+
+        if (!cached.active()) {
+            throw new SecurityException("API Key is inactive");
+        }
+        return cached;
+    }
+
+    /**
+     * Forgets every resolved API key once a station change is committed, so the keys of deleted
+     * stations are rejected right away instead of when their cache entry expires.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationsChanged(StationsChangedEvent event) {
+        apiKeyCache.clear();
+    }
 
+    /**
+     * Stores citizen-submitted measurements.
+     * <p>
+     * When the ingest write-ahead log is enabled, the readings are only appended to it and the
+     * call returns once they are durable on local disk; the {@code WalDrainer} writes them to the
+     * database asynchronously. Otherwise they are inserted directly.
+     * </p>
+     *
+     * @param records the validated measurements
+     */
+    private void saveMeasurements(List<MeasurementRecord> records) {
+        if (records.isEmpty()) return;
+
+        IngestWriteAheadLog wal = ingestWal.getIfAvailable();
+        try {
+            if (wal != null) {
+                wal.append(records);
+            } else {
+                measurementWriter.write(records);
+            }
         } catch (Exception e) {
             log.error("Error saving citizen data: {}", e.getMessage());
             throw new RuntimeException("Database error");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package com.aerogrid.backend.ingestion.common;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+
+import java.util.List;
+
+/**
+ * Interface for components that follow the measurements being stored.
+ * Implementations are notified by {@link MeasurementWriter} once the rows are committed.
+ */
+public interface MeasurementIngestListener {
+
+    /**
+     * Called after new measurements have been committed. Duplicates rejected by the
+     * database are not included.
+     *
+     * @param records the measurements actually inserted
+     */
+    void onMeasurementsStored(List<MeasurementRecord> records);
+}
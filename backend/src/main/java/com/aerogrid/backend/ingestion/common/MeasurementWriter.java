@@ -0,0 +1,63 @@
+package com.aerogrid.backend.ingestion.common;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Single write path for ingested measurements.
+ * <p>
+ * Inserts the batch and hands the rows actually inserted to every {@link MeasurementIngestListener}.
+ * When called inside a transaction the listeners run after it commits, so they never see rows
+ * that are rolled back.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MeasurementWriter {
+
+    private final MeasurementRepository measurementRepository;
+    private final ObjectProvider<MeasurementIngestListener> listeners;
+
+    /**
+     * Stores a batch of measurements, ignoring duplicates.
+     *
+     * @param records the measurements to store
+     * @return the number of rows actually inserted
+     */
+    public int write(List<MeasurementRecord> records) {
+        List<MeasurementRecord> inserted = measurementRepository.insertBatch(records);
+        if (inserted.isEmpty()) return inserted.size();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifyListeners(inserted);
+                }
+            });
+        } else {
+            notifyListeners(inserted);
+        }
+        return inserted.size();
+    }
+
+    private void notifyListeners(List<MeasurementRecord> inserted) {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onMeasurementsStored(inserted);
+            } catch (RuntimeException e) {
+                // The rows are already stored; a failing listener must not fail the ingestion
+                log.error("Measurement listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package com.aerogrid.backend.ingestion.gencat;
 
 import com.aerogrid.backend.domain.Measurement;
+import com.aerogrid.backend.domain.MeasurementRecord;
 import com.aerogrid.backend.domain.Pollutant;
 import com.aerogrid.backend.domain.Station;
 import com.aerogrid.backend.ingestion.common.CommonMapper;
@@ -8,7 +9,7 @@ import com.aerogrid.backend.ingestion.common.CommonMeasurementDto;
 import com.aerogrid.backend.ingestion.common.CommonStationDto;
 import com.aerogrid.backend.ingestion.common.DataImportProvider;
 import com.aerogrid.backend.ingestion.common.MeasurementValidator;
-import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.ingestion.common.MeasurementWriter;
 import com.aerogrid.backend.repository.StationRepository;
 import com.aerogrid.backend.service.AqiCalculatorService;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +18,7 @@ import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,7 +36,7 @@ public class GencatImportService implements DataImportProvider {
     private final GencatMapper mapper;
     private final CommonMapper commonMapper;
     private final StationRepository stationRepository;
-    private final MeasurementRepository measurementRepository;
+    private final MeasurementWriter measurementWriter;
     private final AqiCalculatorService aqiCalculatorService;
     private final MeasurementValidator measurementValidator;
     private final Map<String, Station> stationCache = new HashMap<>();
@@ -133,41 +135,52 @@ public class GencatImportService implements DataImportProvider {
 
             List<CommonMeasurementDto> measurements = mapper.toMeasurementDtos(raw);
 
+            List<MeasurementRecord> records = new ArrayList<>();
             for (CommonMeasurementDto dto : measurements) {
-                saveToDatabase(dto, station);
+                MeasurementRecord record = toRecord(dto, station);
+                if (record != null) {
+                    records.add(record);
+                }
             }
+            saveToDatabase(records, station);
 
             log.debug("Processed {} current measurement records from {}", measurements.size(), getProviderName());
         }
     }
 
     /**
-     * Saves a single measurement to the database.
+     * Validates a measurement and converts it into a record ready to be stored.
      *
      * @param dto     The measurement DTO.
      * @param station The associated station entity.
+     * @return The record, or null if the measurement is invalid.
      */
-    private void saveToDatabase(CommonMeasurementDto dto, Station station) {
+    private MeasurementRecord toRecord(CommonMeasurementDto dto, Station station) {
         Pollutant pollutant = commonMapper.mapPollutantString(dto.getPollutant());
 
-        if (pollutant == null) return;
+        if (pollutant == null) return null;
 
         try {
-            measurementValidator.validate(pollutant, dto.getValue());
-
-            measurementRepository.saveMeasurementNative(
-                    station.getId(),
-                    pollutant.name(),
-                    dto.getValue(),
-                    dto.getTimestamp(),
-                    aqiCalculatorService.calculateAqi(pollutant.name(), dto.getValue())
-            );
-            newMeasurement++;
-
+            measurementValidator.validate(pollutant, dto.getValue(), dto.getTimestamp());
+            return new MeasurementRecord(station.getId(), pollutant, dto.getValue(),
+                    aqiCalculatorService.calculateAqi(pollutant, dto.getValue()), dto.getTimestamp());
         } catch (IllegalArgumentException e) {
             log.warn("Skipping measurement for station {}: {}", station.getCode(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the measurements of one station to the database in a single batch.
+     *
+     * @param records The validated measurements.
+     * @param station The associated station entity.
+     */
+    private void saveToDatabase(List<MeasurementRecord> records, Station station) {
+        try {
+            newMeasurement += measurementWriter.write(records);
         } catch (Exception e) {
-            log.error("Critical error inserting measurement: {}", e.getMessage());
+            log.error("Critical error inserting measurements for station {}: {}", station.getCode(), e.getMessage());
         }
     }
 
@@ -0,0 +1,485 @@
+package com.aerogrid.backend.ingestion.wal;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable, append-only log of accepted measurements that have not yet reached the database.
+ * <p>
+ * Records have a fixed size and are written into memory-mapped segment files that are rotated
+ * once full. Appending threads are acknowledged only after their record has been forced to disk;
+ * a background flusher forces all pending writes at a fixed interval, so concurrent appenders
+ * share a single fsync (group commit). The {@link WalDrainer} replays the log into the
+ * {@code measurements} table and advances the checkpoint, after which fully drained segments
+ * are deleted.
+ * </p>
+ * <p>
+ * <b>Record layout (48 bytes):</b> crc32c (4) · sequence (8) · station id (8) · epoch second (8)
+ * · nanos (4) · value (8) · AQI (4, {@link Integer#MIN_VALUE} = none) · pollutant ordinal (1) · padding (3).
+ * The checksum covers bytes 4–47. On startup the log is scanned from the checkpoint and stops at
+ * the first record whose checksum or sequence does not match, which discards torn writes.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aerogrid.ingest.wal.enabled", havingValue = "true", matchIfMissing = true)
+public class IngestWriteAheadLog {
+
+    static final int RECORD_SIZE = 48;
+    private static final int NO_AQI = Integer.MIN_VALUE;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final long fsyncIntervalNanos;
+    private final long durabilityTimeoutMillis;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Object durabilityMonitor = new Object();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private volatile Segment activeSegment;
+    private long nextSeq = 1;
+    private volatile long writtenSeq;
+    private volatile long durableSeq;
+    private volatile long checkpointSeq;
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * @param directory               directory holding segment files and the checkpoint
+     * @param segmentSizeMb           size of each preallocated segment file
+     * @param fsyncIntervalMillis     maximum time a write waits before being forced to disk
+     * @param durabilityTimeoutMillis how long an appender waits for its fsync before failing
+     */
+    public IngestWriteAheadLog(@Value("${aerogrid.ingest.wal.dir:./data/ingest-wal}") Path directory,
+                               @Value("${aerogrid.ingest.wal.segment-size-mb:16}") int segmentSizeMb,
+                               @Value("${aerogrid.ingest.wal.fsync-interval-ms:5}") long fsyncIntervalMillis,
+                               @Value("${aerogrid.ingest.wal.durability-timeout-ms:5000}") long durabilityTimeoutMillis) {
+        this.directory = directory;
+        this.recordsPerSegment = (int) (segmentSizeMb * 1024L * 1024L / RECORD_SIZE);
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, fsyncIntervalMillis));
+        this.durabilityTimeoutMillis = durabilityTimeoutMillis;
+    }
+
+    /**
+     * Opens the log, recovering any records written before the last shutdown or crash,
+     * and starts the background flusher.
+     */
+    @PostConstruct
+    public void open() {
+        try {
+            Files.createDirectories(directory);
+            checkpointSeq = readCheckpoint();
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open ingest write-ahead log at " + directory, e);
+        }
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "ingest-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        long pending = pendingCount();
+        if (pending > 0) {
+            log.info("Ingest WAL recovered {} undrained records (checkpoint {}, last {})", pending, checkpointSeq, writtenSeq);
+        } else {
+            log.info("Ingest WAL opened at {}", directory.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Stops the flusher, forces outstanding writes and releases the segment files.
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Segment active = activeSegment;
+        if (active != null) {
+            active.force();
+        }
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    /**
+     * Appends a single record and blocks until it is durable.
+     *
+     * @param record the measurement to log
+     * @throws IllegalStateException if the record could not be made durable in time
+     */
+    public void append(MeasurementRecord record) {
+        append(List.of(record));
+    }
+
+    /**
+     * Appends several records and blocks until all of them are durable.
+     * The records are written contiguously and share a single fsync.
+     *
+     * @param records the measurements to log
+     * @throws IllegalStateException if the records could not be made durable in time
+     */
+    public void append(List<MeasurementRecord> records) {
+        if (records.isEmpty()) return;
+        if (!running) throw new IllegalStateException("Ingest log is closed");
+
+        ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE);
+        long lastSeq;
+        writeLock.lock();
+        try {
+            for (MeasurementRecord record : records) {
+                Segment segment = activeSegment;
+                if (nextSeq - segment.baseSeq >= segment.capacity) {
+                    segment = rotate();
+                }
+                encode(scratch, nextSeq, record);
+                segment.buffer.put(segment.offsetOf(nextSeq), scratch, 0, RECORD_SIZE);
+                writtenSeq = nextSeq;
+                nextSeq++;
+            }
+            lastSeq = writtenSeq;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(lastSeq);
+    }
+
+    /**
+     * Reads the next durable records after the current checkpoint.
+     *
+     * @param maxRecords maximum number of records to return
+     * @return the batch, empty if nothing is pending
+     */
+    public WalBatch readBatch(int maxRecords) {
+        long from = checkpointSeq + 1;
+        long to = Math.min(durableSeq, from + maxRecords - 1);
+        if (to < from) {
+            return WalBatch.EMPTY;
+        }
+
+        List<MeasurementRecord> records = new ArrayList<>((int) (to - from + 1));
+        for (long seq = from; seq <= to; seq++) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(seq);
+            if (entry == null) {
+                throw new IllegalStateException("Ingest log segment missing for sequence " + seq);
+            }
+            Segment segment = entry.getValue();
+            MeasurementRecord record = decode(segment.buffer, segment.offsetOf(seq), seq);
+            if (record == null) {
+                throw new IllegalStateException("Corrupt ingest log record at sequence " + seq);
+            }
+            records.add(record);
+        }
+        return new WalBatch(to, records);
+    }
+
+    /**
+     * Marks every record up to and including {@code seq} as stored in the database
+     * and deletes segments that no longer contain pending records.
+     *
+     * @param seq the last drained sequence number
+     */
+    public void checkpoint(long seq) {
+        if (seq <= checkpointSeq) return;
+        try {
+            Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, seq));
+                channel.force(true);
+            }
+            Files.move(tmp, directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write ingest log checkpoint", e);
+        }
+        checkpointSeq = seq;
+        deleteDrainedSegments();
+    }
+
+    /**
+     * @return the number of durable or in-flight records not yet drained into the database
+     */
+    public long pendingCount() {
+        return writtenSeq - checkpointSeq;
+    }
+
+    // --- durability -------------------------------------------------------------------------
+
+    private void awaitDurable(long seq) {
+        long deadline = System.currentTimeMillis() + durabilityTimeoutMillis;
+        synchronized (durabilityMonitor) {
+            while (durableSeq < seq) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !running) {
+                    throw new IllegalStateException("Timed out waiting for ingest log fsync");
+                }
+                try {
+                    durabilityMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for ingest log fsync", e);
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                flushPending();
+                TimeUnit.NANOSECONDS.sleep(fsyncIntervalNanos);
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (RuntimeException e) {
+                log.error("Ingest WAL flush failed", e);
+            }
+        }
+        flushPending();
+    }
+
+    private void flushPending() {
+        long target = writtenSeq;
+        if (target <= durableSeq) return;
+
+        // Segments rotated out before 'target' was read were forced during rotation,
+        // so forcing the active segment is enough to cover every record up to 'target'.
+        activeSegment.force();
+
+        synchronized (durabilityMonitor) {
+            durableSeq = target;
+            durabilityMonitor.notifyAll();
+        }
+    }
+
+    // --- segments ---------------------------------------------------------------------------
+
+    private Segment rotate() {
+        Segment previous = activeSegment;
+        previous.force();
+        Segment next = openSegment(nextSeq);
+        segments.put(next.baseSeq, next);
+        activeSegment = next;
+        return next;
+    }
+
+    private void recover() throws IOException {
+        List<Long> bases;
+        try (Stream<Path> files = Files.list(directory)) {
+            bases = files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+
+        long lastValid = checkpointSeq;
+        for (int i = 0; i < bases.size(); i++) {
+            long base = bases.get(i);
+            Segment segment = openSegment(base);
+            segments.put(base, segment);
+            long seq = Math.max(base, lastValid + 1);
+            long end = base + segment.capacity;
+            while (seq < end && decode(segment.buffer, segment.offsetOf(seq), seq) != null) {
+                lastValid = seq;
+                seq++;
+            }
+            if (seq < end && i < bases.size() - 1) {
+                log.warn("Ingest WAL segment {} ends after sequence {}; discarding any trailing partial writes", base, lastValid);
+            }
+        }
+
+        nextSeq = lastValid + 1;
+        writtenSeq = lastValid;
+        durableSeq = lastValid;
+
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        if (last == null || nextSeq - last.getKey() >= last.getValue().capacity || nextSeq < last.getKey()) {
+            Segment fresh = openSegment(nextSeq);
+            segments.put(fresh.baseSeq, fresh);
+            activeSegment = fresh;
+        } else {
+            activeSegment = last.getValue();
+            activeSegment.clearFrom(nextSeq);
+        }
+        deleteDrainedSegments();
+    }
+
+    private void deleteDrainedSegments() {
+        for (Segment segment : segments.values()) {
+            if (segment == activeSegment) continue;
+            if (segment.baseSeq + segment.capacity - 1 <= checkpointSeq) {
+                segments.remove(segment.baseSeq);
+                segment.close();
+                try {
+                    Files.deleteIfExists(segment.path);
+                } catch (IOException e) {
+                    log.warn("Could not delete drained ingest log segment {}: {}", segment.path, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Segment openSegment(long baseSeq) {
+        Path path = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, baseSeq, SEGMENT_SUFFIX));
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = (long) recordsPerSegment * RECORD_SIZE;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+            int capacity = (int) (buffer.capacity() / RECORD_SIZE);
+            return new Segment(baseSeq, path, channel, buffer, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open ingest log segment " + path, e);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) return 0;
+        byte[] bytes = Files.readAllBytes(file);
+        return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : 0;
+    }
+
+    // --- encoding ---------------------------------------------------------------------------
+
+    private static void encode(ByteBuffer buf, long seq, MeasurementRecord record) {
+        LocalDateTime ts = record.timestamp();
+        buf.clear();
+        buf.putInt(0)
+                .putLong(seq)
+                .putLong(record.stationId())
+                .putLong(ts.toEpochSecond(ZoneOffset.UTC))
+                .putInt(ts.getNano())
+                .putDouble(record.value())
+                .putInt(record.aqi() != null ? record.aqi() : NO_AQI)
+                .put((byte) record.pollutant().ordinal())
+                .put((byte) 0).put((byte) 0).put((byte) 0);
+        buf.putInt(0, checksum(buf, 0));
+    }
+
+    private static MeasurementRecord decode(ByteBuffer source, int offset, long expectedSeq) {
+        int crc = source.getInt(offset);
+        long seq = source.getLong(offset + 4);
+        if (seq != expectedSeq || crc != checksum(source, offset)) {
+            return null;
+        }
+        long stationId = source.getLong(offset + 12);
+        long epochSecond = source.getLong(offset + 20);
+        int nanos = source.getInt(offset + 28);
+        double value = source.getDouble(offset + 32);
+        int aqi = source.getInt(offset + 40);
+        int ordinal = source.get(offset + 44);
+        if (ordinal < 0 || ordinal >= POLLUTANTS.length) {
+            return null;
+        }
+        return new MeasurementRecord(stationId, POLLUTANTS[ordinal], value,
+                aqi == NO_AQI ? null : aqi,
+                LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC));
+    }
+
+    private static int checksum(ByteBuffer source, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(source.slice(offset + 4, RECORD_SIZE - 4));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A memory-mapped segment file holding {@code capacity} consecutive sequence numbers.
+     */
+    private static final class Segment {
+        final long baseSeq;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int capacity;
+
+        Segment(long baseSeq, Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+            this.baseSeq = baseSeq;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        int offsetOf(long seq) {
+            return (int) (seq - baseSeq) * RECORD_SIZE;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void clearFrom(long seq) {
+            int from = offsetOf(seq);
+            for (int i = from; i < buffer.capacity(); i++) {
+                if (buffer.get(i) != 0) {
+                    buffer.put(i, (byte) 0);
+                }
+            }
+            buffer.force();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Error closing ingest log segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A contiguous run of records read from the log.
+     *
+     * @param lastSeq sequence number of the last record in the batch
+     * @param records the decoded records, in log order
+     */
+    public record WalBatch(long lastSeq, List<MeasurementRecord> records) {
+        static final WalBatch EMPTY = new WalBatch(0, List.of());
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.aerogrid.backend.ingestion.wal;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.ingestion.common.MeasurementWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Replays the {@link IngestWriteAheadLog} into the {@code measurements} table in batches.
+ * <p>
+ * Runs on a fixed delay. If the database is unavailable the batch is left in the log and
+ * retried on the next run, so readings accepted during a maintenance window are stored once
+ * the database comes back. Inserts ignore duplicates, which makes replaying a batch after a
+ * crash between the insert and the checkpoint harmless.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aerogrid.ingest.wal.enabled", havingValue = "true", matchIfMissing = true)
+public class WalDrainer {
+
+    private final IngestWriteAheadLog wal;
+    private final MeasurementWriter measurementWriter;
+
+    @Value("${aerogrid.ingest.wal.drain-batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Drains every durable record currently in the log.
+     */
+    @Scheduled(fixedDelayString = "${aerogrid.ingest.wal.drain-interval-ms:500}")
+    public void drain() {
+        int drained = 0;
+        try {
+            while (true) {
+                IngestWriteAheadLog.WalBatch batch = wal.readBatch(batchSize);
+                if (batch.isEmpty()) break;
+
+                store(batch);
+                wal.checkpoint(batch.lastSeq());
+                drained += batch.records().size();
+
+                if (batch.records().size() < batchSize) break;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Database unavailable while draining ingest log, {} records pending: {}",
+                    wal.pendingCount(), e.getMessage());
+        }
+
+        if (drained > 0) {
+            log.debug("Drained {} records from ingest log", drained);
+        }
+    }
+
+    /**
+     * Gives the drainer a last chance to empty the log before the application stops.
+     */
+    @PreDestroy
+    public void drainOnShutdown() {
+        drain();
+    }
+
+    private void store(IngestWriteAheadLog.WalBatch batch) {
+        try {
+            measurementWriter.write(batch.records());
+        } catch (DataIntegrityViolationException e) {
+            // A single bad row (e.g. its station was deleted meanwhile) must not block the log:
+            // retry row by row and drop only the ones the database rejects.
+            log.warn("Batch ending at sequence {} rejected, retrying row by row: {}", batch.lastSeq(), e.getMessage());
+            for (MeasurementRecord record : batch.records()) {
+                try {
+                    measurementWriter.write(List.of(record));
+                } catch (DataIntegrityViolationException rowError) {
+                    log.error("Discarding measurement for station {} at {}: {}",
+                            record.stationId(), record.timestamp(), rowError.getMessage());
+                }
+            }
+        }
+    }
+}
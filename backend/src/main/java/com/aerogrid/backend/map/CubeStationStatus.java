@@ -0,0 +1,22 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import lombok.Value;
+
+/**
+ * Station status answered by {@link StationStatusCube}, shaped like the rows of the station map queries.
+ */
+@Value
+public class CubeStationStatus implements StationMapProjection {
+    Long id;
+    String code;
+    String name;
+    Double latitude;
+    Double longitude;
+    Integer aqi;
+    String pollutant;
+    Integer rollingAqi;
+    String rollingPollutant;
+    Integer trustScore;
+    String sourceType;
+}
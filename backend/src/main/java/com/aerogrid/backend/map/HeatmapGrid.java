@@ -0,0 +1,249 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.geo.KdTree;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * AQI surface interpolated from the stations over a regular latitude/longitude grid.
+ * <p>
+ * Each cell gets the inverse distance weighted mean of the stations within {@code radiusKm} of
+ * its centre, every station also weighted by its trust score: {@code w = trust / d^power}. Cells
+ * without a station in range are NaN. Distances are measured in a local equirectangular plane in
+ * kilometres, accurate enough over a region the size of Catalonia.
+ * </p>
+ * <p>
+ * The grid is filled by a fork-join task that splits it into blocks of at most {@value #BLOCK}
+ * cells a side. Each block looks up the stations that can reach it once, through a {@link KdTree},
+ * and then only visits those for each of its cells.
+ * </p>
+ */
+public final class HeatmapGrid {
+
+    private static final int BLOCK = 32;
+    private static final double KM_PER_DEGREE = 111.32;
+    /** Distances below this are treated as this, so a cell on top of a station stays finite */
+    private static final double MIN_DISTANCE_KM = 0.05;
+
+    private final double minLat;
+    private final double minLon;
+    private final double cellDegrees;
+    private final int width;
+    private final int height;
+    /** Cell values, row by row from the south */
+    private final float[] values;
+
+    private HeatmapGrid(double minLat, double minLon, double cellDegrees, int width, int height, float[] values) {
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.cellDegrees = cellDegrees;
+        this.width = width;
+        this.height = height;
+        this.values = values;
+    }
+
+    /**
+     * Interpolates the station values over the extent.
+     *
+     * @param latitudes   station latitudes
+     * @param longitudes  station longitudes
+     * @param aqis        station AQI values
+     * @param weights     station weights, their trust scores
+     * @param cellDegrees cell size in degrees of latitude and longitude
+     * @param radiusKm    stations farther than this from a cell are ignored
+     * @param power       distance exponent
+     * @param pool        pool the blocks run on
+     */
+    public static HeatmapGrid build(double[] latitudes, double[] longitudes, double[] aqis, double[] weights,
+                                    double minLat, double minLon, double maxLat, double maxLon,
+                                    double cellDegrees, double radiusKm, double power, ForkJoinPool pool) {
+        if (cellDegrees <= 0 || maxLat <= minLat || maxLon <= minLon) {
+            throw new IllegalArgumentException("Invalid heatmap extent");
+        }
+        int width = (int) Math.ceil((maxLon - minLon) / cellDegrees);
+        int height = (int) Math.ceil((maxLat - minLat) / cellDegrees);
+        float[] values = new float[width * height];
+        Arrays.fill(values, Float.NaN);
+
+        HeatmapGrid grid = new HeatmapGrid(minLat, minLon, cellDegrees, width, height, values);
+        if (latitudes.length > 0) {
+            Plane plane = new Plane(Math.cos(Math.toRadians((minLat + maxLat) / 2)));
+            double[] xs = new double[latitudes.length];
+            double[] ys = new double[latitudes.length];
+            for (int i = 0; i < latitudes.length; i++) {
+                xs[i] = plane.x(longitudes[i]);
+                ys[i] = plane.y(latitudes[i]);
+            }
+            Stations stations = new Stations(xs, ys, aqis, weights, new KdTree(xs, ys), plane, radiusKm, power);
+            pool.invoke(grid.new Fill(stations, 0, 0, width, height));
+        }
+        return grid;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the value of a cell, NaN without stations in range
+     */
+    public float get(int column, int row) {
+        return values[row * width + column];
+    }
+
+    /**
+     * Bilinear interpolation between the four cell centres around a point, over the ones that
+     * have a value.
+     *
+     * @return the value at the point, NaN outside the grid or without stations in range
+     */
+    public float sample(double latitude, double longitude) {
+        double fx = (longitude - minLon) / cellDegrees - 0.5;
+        double fy = (latitude - minLat) / cellDegrees - 0.5;
+        if (fx < -0.5 || fy < -0.5 || fx > width - 0.5 || fy > height - 0.5) return Float.NaN;
+
+        int x0 = (int) Math.floor(fx);
+        int y0 = (int) Math.floor(fy);
+        double tx = fx - x0;
+        double ty = fy - y0;
+        double sum = 0;
+        double weightSum = 0;
+        for (int dy = 0; dy <= 1; dy++) {
+            int row = Math.max(0, Math.min(height - 1, y0 + dy));
+            double wy = dy == 0 ? 1 - ty : ty;
+            for (int dx = 0; dx <= 1; dx++) {
+                int column = Math.max(0, Math.min(width - 1, x0 + dx));
+                float value = values[row * width + column];
+                double w = wy * (dx == 0 ? 1 - tx : tx);
+                if (!Float.isNaN(value) && w > 0) {
+                    sum += value * w;
+                    weightSum += w;
+                }
+            }
+        }
+        return weightSum > 0 ? (float) (sum / weightSum) : Float.NaN;
+    }
+
+    /**
+     * Samples the grid at the pixel centres of a Web Mercator tile.
+     *
+     * @param size tile size in pixels
+     * @return the pixel values row by row from the north, NaN where the grid has none
+     */
+    public float[] sampleTile(int z, int x, int y, int size) {
+        float[] pixels = new float[size * size];
+        Arrays.fill(pixels, Float.NaN);
+        double scale = (double) size * (1L << z);
+        double[] longitudes = new double[size];
+        for (int column = 0; column < size; column++) {
+            longitudes[column] = ((double) x * size + column + 0.5) / scale * 360 - 180;
+        }
+        double maxLon = minLon + width * cellDegrees;
+        if (longitudes[size - 1] < minLon || longitudes[0] > maxLon) return pixels;
+
+        for (int row = 0; row < size; row++) {
+            double n = Math.PI - 2 * Math.PI * ((double) y * size + row + 0.5) / scale;
+            double latitude = Math.toDegrees(Math.atan(Math.sinh(n)));
+            if (latitude < minLat || latitude > minLat + height * cellDegrees) continue;
+            for (int column = 0; column < size; column++) {
+                pixels[row * size + column] = sample(latitude, longitudes[column]);
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Local equirectangular projection in kilometres, scaled by the cosine of the central latitude.
+     */
+    private record Plane(double cosLat) {
+        double x(double longitude) {
+            return longitude * KM_PER_DEGREE * cosLat;
+        }
+
+        double y(double latitude) {
+            return latitude * KM_PER_DEGREE;
+        }
+    }
+
+    private record Stations(double[] xs, double[] ys, double[] aqis, double[] weights, KdTree tree, Plane plane,
+                            double radiusKm, double power) {
+    }
+
+    /**
+     * Fills a block of cells, splitting it in four while it is larger than {@value #BLOCK} a side.
+     */
+    private final class Fill extends RecursiveAction {
+        private final Stations stations;
+        private final int x0;
+        private final int y0;
+        private final int x1;
+        private final int y1;
+
+        Fill(Stations stations, int x0, int y0, int x1, int y1) {
+            this.stations = stations;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        @Override
+        protected void compute() {
+            if (x1 - x0 > BLOCK || y1 - y0 > BLOCK) {
+                int mx = x1 - x0 > BLOCK ? (x0 + x1) >>> 1 : x1;
+                int my = y1 - y0 > BLOCK ? (y0 + y1) >>> 1 : y1;
+                if (mx < x1 && my < y1) {
+                    invokeAll(new Fill(stations, x0, y0, mx, my), new Fill(stations, mx, y0, x1, my),
+                            new Fill(stations, x0, my, mx, y1), new Fill(stations, mx, my, x1, y1));
+                } else if (mx < x1) {
+                    invokeAll(new Fill(stations, x0, y0, mx, y1), new Fill(stations, mx, y0, x1, y1));
+                } else {
+                    invokeAll(new Fill(stations, x0, y0, x1, my), new Fill(stations, x0, my, x1, y1));
+                }
+                return;
+            }
+
+            Plane plane = stations.plane;
+            double radius = stations.radiusKm;
+            double minX = plane.x(minLon + x0 * cellDegrees) - radius;
+            double maxX = plane.x(minLon + x1 * cellDegrees) + radius;
+            double minY = plane.y(minLat + y0 * cellDegrees) - radius;
+            double maxY = plane.y(minLat + y1 * cellDegrees) + radius;
+            int[] candidates = new int[stations.xs.length];
+            int[] count = {0};
+            stations.tree.range(minX, minY, maxX, maxY, i -> candidates[count[0]++] = i);
+            if (count[0] == 0) return;
+
+            double r2 = radius * radius;
+            double halfPower = stations.power / 2;
+            boolean squared = stations.power == 2;
+            double min2 = MIN_DISTANCE_KM * MIN_DISTANCE_KM;
+            for (int row = y0; row < y1; row++) {
+                double cy = plane.y(minLat + (row + 0.5) * cellDegrees);
+                for (int column = x0; column < x1; column++) {
+                    double cx = plane.x(minLon + (column + 0.5) * cellDegrees);
+                    double sum = 0;
+                    double weightSum = 0;
+                    for (int c = 0; c < count[0]; c++) {
+                        int i = candidates[c];
+                        double dx = stations.xs[i] - cx;
+                        double dy = stations.ys[i] - cy;
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 > r2) continue;
+                        d2 = Math.max(d2, min2);
+                        double w = stations.weights[i] / (squared ? d2 : Math.pow(d2, halfPower));
+                        sum += stations.aqis[i] * w;
+                        weightSum += w;
+                    }
+                    if (weightSum > 0) values[row * width + column] = (float) (sum / weightSum);
+                }
+            }
+        }
+    }
+}
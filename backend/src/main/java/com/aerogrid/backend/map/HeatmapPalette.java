@@ -0,0 +1,84 @@
+package com.aerogrid.backend.map;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Colours of the AQI bands, for heatmap images.
+ * <p>
+ * A value gets the colour of the first band whose upper bound is not below it, or the last colour
+ * above every bound. Images are written as 8-bit palette PNGs with a transparent entry for
+ * pixels without a value, which keeps mostly uniform tiles to a few hundred bytes.
+ * </p>
+ */
+public final class HeatmapPalette {
+
+    private final double[] upperBounds;
+    private final IndexColorModel colorModel;
+    private final int transparent;
+
+    /**
+     * @param upperBounds ascending upper bounds of every band but the last
+     * @param colors      one RGB hex colour per band, such as {@code 10b981}
+     */
+    public HeatmapPalette(double[] upperBounds, String[] colors) {
+        if (colors.length != upperBounds.length + 1 || colors.length > 255) {
+            throw new IllegalArgumentException("A heatmap palette needs one colour more than band bounds");
+        }
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Heatmap band bounds must be ascending");
+            }
+        }
+        int entries = colors.length + 1;
+        byte[] r = new byte[entries];
+        byte[] g = new byte[entries];
+        byte[] b = new byte[entries];
+        byte[] a = new byte[entries];
+        for (int i = 0; i < colors.length; i++) {
+            int rgb = Integer.parseInt(colors[i].trim().replace("#", ""), 16);
+            r[i] = (byte) (rgb >> 16);
+            g[i] = (byte) (rgb >> 8);
+            b[i] = (byte) rgb;
+            a[i] = (byte) 0xFF;
+        }
+        this.upperBounds = upperBounds.clone();
+        this.transparent = colors.length;
+        this.colorModel = new IndexColorModel(8, entries, r, g, b, a);
+    }
+
+    /**
+     * @return the band of a value, or -1 for NaN
+     */
+    public int band(float value) {
+        if (Float.isNaN(value)) return -1;
+        for (int i = 0; i < upperBounds.length; i++) {
+            if (value <= upperBounds[i]) return i;
+        }
+        return upperBounds.length;
+    }
+
+    /**
+     * Encodes square tile pixels, row by row from the top, as a PNG.
+     */
+    public byte[] toPng(float[] pixels, int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+        int[] indexes = new int[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            int band = band(pixels[i]);
+            indexes[i] = band >= 0 ? band : transparent;
+        }
+        image.getRaster().setSamples(0, 0, size, size, 0, indexes);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
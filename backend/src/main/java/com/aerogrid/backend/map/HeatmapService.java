@@ -0,0 +1,199 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.domain.Station;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import com.aerogrid.backend.service.AqiSnapshotListener;
+import com.aerogrid.backend.service.HourlyCache;
+import com.aerogrid.backend.service.SingleFlight;
+import com.aerogrid.backend.service.StationMapService;
+import com.aerogrid.backend.service.StationTileService;
+import com.aerogrid.backend.service.StationsChangedEvent;
+import com.aerogrid.backend.timeseries.EpochHours;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Serves the interpolated AQI surface of the region as raster tiles.
+ * <p>
+ * For each hour and AQI series a {@link HeatmapGrid} is interpolated once over the configured
+ * extent, from the latest snapshot of every station in the 48 hours up to that hour, and kept in an
+ * {@link HourlyCache} of {@code grid-cache-size} grids. Tiles only resample a grid, and are cached
+ * encoded up to {@code tile-cache-mb}. Both caches drop the past hours that can show changed
+ * snapshots and rebuild the current hour at most every {@code live-refresh-seconds}; station or
+ * trust changes drop everything. Concurrent misses of the same grid share one build.
+ * </p>
+ */
+@Slf4j
+@Service
+public class HeatmapService implements AqiSnapshotListener {
+
+    public static final int TILE_SIZE = 256;
+
+    public enum Format {
+        /** 8-bit palette PNG of the AQI bands */
+        PNG,
+        /** Little-endian float32 values row by row from the north, NaN without data */
+        RAW
+    }
+
+    private final StationMapService stationMapService;
+    private final HeatmapPalette palette;
+    private final ForkJoinPool pool;
+    private final double[] extent;
+    private final double cellDegrees;
+    private final double radiusKm;
+    private final double power;
+    private final Timer buildTimer;
+    private final Counter hits;
+    private final Counter misses;
+
+    private final HourlyCache<GridKey, HeatmapGrid> grids;
+    private final SingleFlight<GridBuild, HeatmapGrid> builds;
+    private final HourlyCache<TileKey, byte[]> tiles;
+
+    public HeatmapService(StationMapService stationMapService,
+                          MeterRegistry meterRegistry,
+                          @Value("${aerogrid.heatmap.extent:40.5,0.15,42.9,3.35}") double[] extent,
+                          @Value("${aerogrid.heatmap.cell-degrees:0.005}") double cellDegrees,
+                          @Value("${aerogrid.heatmap.radius-km:25}") double radiusKm,
+                          @Value("${aerogrid.heatmap.power:2}") double power,
+                          @Value("${aerogrid.heatmap.breakpoints:1.5,2.5,3.5,4.5,5.5}") double[] breakpoints,
+                          @Value("${aerogrid.heatmap.colors:10b981,facc15,fb923c,ef4444,9f1239,7e22ce}") String[] colors,
+                          @Value("${aerogrid.heatmap.grid-cache-size:48}") int gridCacheSize,
+                          @Value("${aerogrid.heatmap.tile-cache-mb:64}") long tileCacheMb,
+                          @Value("${aerogrid.heatmap.parallelism:0}") int parallelism,
+                          @Value("${aerogrid.heatmap.live-refresh-seconds:30}") long liveRefreshSeconds) {
+        if (extent.length != 4) {
+            throw new IllegalArgumentException("Heatmap extent must be minLat,minLon,maxLat,maxLon");
+        }
+        this.stationMapService = stationMapService;
+        this.palette = new HeatmapPalette(breakpoints, colors);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.extent = extent.clone();
+        this.cellDegrees = cellDegrees;
+        this.radiusKm = radiusKm;
+        this.power = power;
+        this.grids = new HourlyCache<>(GridKey::hour, gridCacheSize, liveRefreshSeconds * 1000);
+        this.tiles = new HourlyCache<>(TileKey::hour, tile -> tile.length, tileCacheMb * 1024 * 1024,
+                liveRefreshSeconds * 1000);
+        this.builds = new SingleFlight<>("heatmap-grid", meterRegistry);
+        this.buildTimer = Timer.builder("aerogrid.heatmap.grid.build")
+                .description("Time spent interpolating a heatmap grid")
+                .register(meterRegistry);
+        this.hits = Counter.builder("aerogrid.heatmap.requests").tag("cache", "hit")
+                .description("Heatmap tile requests").register(meterRegistry);
+        this.misses = Counter.builder("aerogrid.heatmap.requests").tag("cache", "miss")
+                .description("Heatmap tile requests").register(meterRegistry);
+    }
+
+    /**
+     * Gets a heatmap tile of the AQI at a target time.
+     *
+     * @param rolling whether to interpolate the rolling AQI instead of the hourly one
+     * @throws IllegalArgumentException if the tile does not exist
+     */
+    public byte[] getTile(int z, int x, int y, LocalDateTime targetTime, boolean rolling, Format format) {
+        if (z < 0 || z > StationTileService.MAX_ZOOM || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            throw new IllegalArgumentException("Tile " + z + "/" + x + "/" + y + " does not exist");
+        }
+        LocalDateTime hour = targetTime.truncatedTo(ChronoUnit.HOURS);
+        TileKey key = new TileKey(z, x, y, EpochHours.of(hour), rolling, format);
+
+        byte[] cached = tiles.getIfFresh(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        return tiles.load(key, ticket -> {
+            float[] pixels = getGrid(hour, rolling).sampleTile(z, x, y, TILE_SIZE);
+            return format == Format.PNG ? palette.toPng(pixels, TILE_SIZE) : toRaw(pixels);
+        });
+    }
+
+    /**
+     * Gets the interpolated grid of an hour, building it on a miss.
+     */
+    public HeatmapGrid getGrid(LocalDateTime hour, boolean rolling) {
+        GridKey key = new GridKey(EpochHours.of(hour), rolling);
+        HeatmapGrid cached = grids.getIfFresh(key);
+        if (cached != null) return cached;
+
+        return grids.load(key, ticket -> builds.execute(new GridBuild(key, ticket.generation(), ticket.liveVersion()),
+                () -> buildTimer.record(() -> build(hour, rolling))));
+    }
+
+    private HeatmapGrid build(LocalDateTime hour, boolean rolling) {
+        List<StationMapProjection> stations = stationMapService.findStations(null, null, null, null, null, hour);
+        double[] latitudes = new double[stations.size()];
+        double[] longitudes = new double[stations.size()];
+        double[] aqis = new double[stations.size()];
+        double[] weights = new double[stations.size()];
+        int n = 0;
+        for (StationMapProjection station : stations) {
+            Integer aqi = rolling ? station.getRollingAqi() : station.getAqi();
+            if (aqi == null || aqi < 0 || station.getLatitude() == null || station.getLongitude() == null) continue;
+            latitudes[n] = station.getLatitude();
+            longitudes[n] = station.getLongitude();
+            aqis[n] = aqi;
+            // A station nobody trusts still counts a little, so areas covered only by it are not left blank
+            weights[n] = Math.max(1, station.getTrustScore() != null ? station.getTrustScore() : Station.DEFAULT_TRUST_SCORE);
+            n++;
+        }
+        log.debug("Interpolating heatmap of {} ({}) from {} stations", hour, rolling ? "rolling" : "hourly", n);
+        return HeatmapGrid.build(Arrays.copyOf(latitudes, n), Arrays.copyOf(longitudes, n),
+                Arrays.copyOf(aqis, n), Arrays.copyOf(weights, n),
+                extent[0], extent[1], extent[2], extent[3], cellDegrees, radiusKm, power, pool);
+    }
+
+    @Override
+    public void onSnapshotsChanged(LocalDateTime start, LocalDateTime end) {
+        grids.onSnapshotsChanged(start, end);
+        tiles.onSnapshotsChanged(start, end);
+    }
+
+    /**
+     * Drops every grid and tile once a station or trust score change is committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationsChanged(StationsChangedEvent event) {
+        grids.clear();
+        tiles.clear();
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private static byte[] toRaw(float[] pixels) {
+        ByteBuffer buffer = ByteBuffer.allocate(pixels.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(pixels);
+        return buffer.array();
+    }
+
+    private record GridKey(long hour, boolean rolling) {
+    }
+
+    /** A build only serves callers of its generation and live version, which may cache its result */
+    private record GridBuild(GridKey key, long generation, long liveVersion) {
+    }
+
+    private record TileKey(int z, int x, int y, long hour, boolean rolling, Format format) {
+    }
+}
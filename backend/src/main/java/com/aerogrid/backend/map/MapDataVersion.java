@@ -0,0 +1,86 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.service.AqiSnapshotListener;
+import com.aerogrid.backend.service.StationsChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Version of the data behind the map endpoints, used to build their cache validators.
+ * <p>
+ * The version changes whenever a map response could change: hourly snapshots written by the
+ * aggregation jobs, station attributes or trust scores, and the status cube applying them. It
+ * starts from the startup time, so validators issued before a restart are not reused.
+ * Responses for a target time older than {@code historical-after-hours} are treated as final and
+ * may be cached for {@code historical-max-age-hours}; newer ones must be revalidated.
+ * </p>
+ */
+@Component
+public class MapDataVersion implements AqiSnapshotListener {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private final Duration historicalAfter;
+    private final Duration historicalMaxAge;
+
+    public MapDataVersion(@Value("${aerogrid.map.cache.historical-after-hours:6}") long historicalAfterHours,
+                          @Value("${aerogrid.map.cache.historical-max-age-hours:24}") long historicalMaxAgeHours) {
+        this.historicalAfter = Duration.ofHours(historicalAfterHours);
+        this.historicalMaxAge = Duration.ofHours(historicalMaxAgeHours);
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onSnapshotsChanged(LocalDateTime start, LocalDateTime end) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationsChanged(StationsChangedEvent event) {
+        bump();
+    }
+
+    /**
+     * Builds a strong ETag from the current version and the request parameters. Requests without
+     * a target time also depend on the current hour, since their 48 hour window moves with it.
+     *
+     * @param targetTime the requested target time, or null for now
+     * @param parts      the other parameters that select the response
+     */
+    public String etag(LocalDateTime targetTime, Object... parts) {
+        StringBuilder key = new StringBuilder();
+        key.append(targetTime != null ? targetTime : "now@" + LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+        for (Object part : parts) {
+            key.append('|').append(part);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(key.toString().getBytes(StandardCharsets.UTF_8));
+        return "\"" + Long.toHexString(current()) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    /**
+     * Picks the caching policy of a response: long-lived for historical target times, revalidated
+     * on every use otherwise.
+     */
+    public CacheControl cacheControl(LocalDateTime targetTime) {
+        if (targetTime != null && targetTime.isBefore(LocalDateTime.now().minus(historicalAfter))) {
+            return CacheControl.maxAge(historicalMaxAge).cachePublic();
+        }
+        return CacheControl.noCache().cachePublic();
+    }
+}
@@ -0,0 +1,180 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.domain.Station;
+import com.aerogrid.backend.geo.Haversine;
+import com.aerogrid.backend.geo.KdTree;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import com.aerogrid.backend.service.SingleFlight;
+import com.aerogrid.backend.service.StationMapService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Answers point queries against the current station status: the nearest stations to a location
+ * and the AQI estimated there.
+ * <p>
+ * The stations with an AQI in the last 48 hours are kept in a {@link KdTree} over their
+ * longitude and latitude, rebuilt when the {@link MapDataVersion} or the current hour changes,
+ * that is after snapshot, station or trust changes. A rebuild runs outside of any lock, shared by
+ * the queries that need the same version, and queries keep using the previous index meanwhile.
+ * Distances are great-circle distances. The
+ * estimate is the inverse distance weighted mean of the nearest stations, each also weighted by
+ * its trust score, like the heatmap.
+ * </p>
+ */
+@Slf4j
+@Service
+public class NearestStationService {
+
+    /** Distances below this are treated as this, so a point on top of a station stays finite */
+    private static final double MIN_DISTANCE_KM = 0.05;
+
+    private final StationMapService stationMapService;
+    private final MapDataVersion mapDataVersion;
+    private final int maxStations;
+    private final double maxRadiusKm;
+    private final int maxLocations;
+
+    private final SingleFlight<IndexKey, CurrentIndex> builds;
+    private final AtomicReference<CurrentIndex> current = new AtomicReference<>();
+
+    public NearestStationService(StationMapService stationMapService,
+                                 MapDataVersion mapDataVersion,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${aerogrid.nearest.max-stations:50}") int maxStations,
+                                 @Value("${aerogrid.nearest.max-radius-km:500}") double maxRadiusKm,
+                                 @Value("${aerogrid.nearest.max-locations:10000}") int maxLocations) {
+        this.stationMapService = stationMapService;
+        this.mapDataVersion = mapDataVersion;
+        this.maxStations = maxStations;
+        this.maxRadiusKm = maxRadiusKm;
+        this.maxLocations = maxLocations;
+        this.builds = new SingleFlight<>("nearest-index", meterRegistry);
+    }
+
+    /**
+     * Estimates the AQI at a location from its nearest stations.
+     *
+     * @param count    how many stations to use at most
+     * @param radiusKm stations farther than this are ignored
+     * @throws IllegalArgumentException if the location, count or radius is out of range
+     */
+    public PointEstimate estimate(double latitude, double longitude, int count, double radiusKm) {
+        return estimateAll(new double[]{latitude}, new double[]{longitude}, count, radiusKm).get(0);
+    }
+
+    /**
+     * Estimates the AQI at many locations against one version of the index.
+     *
+     * @see #estimate
+     */
+    public List<PointEstimate> estimateAll(double[] latitudes, double[] longitudes, int count, double radiusKm) {
+        if (latitudes.length > maxLocations) {
+            throw new IllegalArgumentException("At most " + maxLocations + " locations per query");
+        }
+        if (count < 1 || count > maxStations) {
+            throw new IllegalArgumentException("Station count must be between 1 and " + maxStations);
+        }
+        if (!(radiusKm > 0) || radiusKm > maxRadiusKm) {
+            throw new IllegalArgumentException("Radius must be positive and at most " + maxRadiusKm + " km");
+        }
+        for (int i = 0; i < latitudes.length; i++) {
+            if (!(latitudes[i] >= -90 && latitudes[i] <= 90 && longitudes[i] >= -180 && longitudes[i] <= 180)) {
+                throw new IllegalArgumentException("Invalid location " + latitudes[i] + ", " + longitudes[i]);
+            }
+        }
+
+        CurrentIndex index = currentIndex();
+        List<PointEstimate> estimates = new ArrayList<>(latitudes.length);
+        for (int i = 0; i < latitudes.length; i++) {
+            estimates.add(index.estimate(latitudes[i], longitudes[i], count, radiusKm));
+        }
+        return estimates;
+    }
+
+    private CurrentIndex currentIndex() {
+        CurrentIndex index = current.get();
+        long version = mapDataVersion.current();
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        if (index != null && index.version == version && index.hour.equals(hour)) {
+            return index;
+        }
+        CurrentIndex built = builds.execute(new IndexKey(version, hour), () -> build(version, hour));
+        // A slow build must not replace the index of a later version
+        current.accumulateAndGet(built, (old, next) -> old != null && old.isNewerThan(next) ? old : next);
+        return built;
+    }
+
+    private CurrentIndex build(long version, LocalDateTime hour) {
+        List<StationMapProjection> stations = stationMapService.findStations(null, null, null, null, null, null)
+                .stream()
+                .filter(s -> s.getAqi() != null && s.getLatitude() != null && s.getLongitude() != null)
+                .toList();
+        double[] longitudes = new double[stations.size()];
+        double[] latitudes = new double[stations.size()];
+        for (int i = 0; i < stations.size(); i++) {
+            longitudes[i] = stations.get(i).getLongitude();
+            latitudes[i] = stations.get(i).getLatitude();
+        }
+        log.debug("Nearest station index rebuilt: {} stations", stations.size());
+        return new CurrentIndex(version, hour, stations, new KdTree(longitudes, latitudes));
+    }
+
+    /**
+     * A station near a queried location.
+     */
+    public record NearbyStation(StationMapProjection station, double distanceKm) {
+    }
+
+    /**
+     * The AQI estimated at a location.
+     *
+     * @param latitude  queried latitude
+     * @param longitude queried longitude
+     * @param aqi       weighted mean AQI of the stations, null without stations in range
+     * @param pollutant worst pollutant of the nearest station, null without stations in range
+     * @param stations  the stations used, closest first
+     */
+    public record PointEstimate(double latitude, double longitude, Double aqi, String pollutant,
+                                List<NearbyStation> stations) {
+    }
+
+    private record IndexKey(long version, LocalDateTime hour) {
+    }
+
+    private record CurrentIndex(long version, LocalDateTime hour, List<StationMapProjection> stations, KdTree tree) {
+
+        boolean isNewerThan(CurrentIndex other) {
+            return hour.isAfter(other.hour) || (hour.equals(other.hour) && version > other.version);
+        }
+
+        PointEstimate estimate(double latitude, double longitude, int count, double radiusKm) {
+            int[] nearest = tree.nearest(longitude, latitude, count, radiusKm, Haversine.METRIC);
+            List<NearbyStation> found = new ArrayList<>(nearest.length);
+            double sum = 0;
+            double weightSum = 0;
+            for (int i : nearest) {
+                StationMapProjection station = stations.get(i);
+                double distance = Haversine.distanceKm(latitude, longitude, station.getLatitude(), station.getLongitude());
+                found.add(new NearbyStation(station, distance));
+                double trust = Math.max(1, station.getTrustScore() != null ? station.getTrustScore() : Station.DEFAULT_TRUST_SCORE);
+                double d = Math.max(distance, MIN_DISTANCE_KM);
+                double w = trust / (d * d);
+                sum += station.getAqi() * w;
+                weightSum += w;
+            }
+            return new PointEstimate(latitude, longitude,
+                    weightSum > 0 ? sum / weightSum : null,
+                    found.isEmpty() ? null : found.get(0).station().getPollutant(),
+                    found);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.geo.KdTree;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical clusters of stations for every zoom level, after the supercluster algorithm.
+ * <p>
+ * Stations are projected to Web Mercator in [0, 1]. Starting from the stations themselves at
+ * {@code maxZoom + 1}, each zoom level is built from the one above by merging every point with its
+ * unvisited neighbours within {@code radius} pixels, found through a {@link KdTree} of that level.
+ * A cluster sits at the weighted centre of its members and carries their count and AQI aggregates.
+ * Queries read the level of the requested zoom, so their size depends on the viewport only.
+ * </p>
+ */
+public final class StationClusterIndex {
+
+    /** Tile size in pixels the radius is measured against */
+    private static final double EXTENT = 512;
+
+    private final List<StationMapProjection> stations;
+    private final int maxZoom;
+    /** Levels by zoom, 0 to maxZoom + 1, the last one holding the stations */
+    private final Level[] levels;
+
+    /**
+     * @param stations  the stations to cluster, with their AQI
+     * @param maxZoom   highest zoom with clusters; above it every station is returned alone
+     * @param radiusPx  cluster radius in pixels of a 512 pixel tile
+     */
+    public StationClusterIndex(List<StationMapProjection> stations, int maxZoom, double radiusPx) {
+        this.stations = stations;
+        this.maxZoom = maxZoom;
+        this.levels = new Level[maxZoom + 2];
+
+        levels[maxZoom + 1] = stationLevel(stations);
+        for (int zoom = maxZoom; zoom >= 0; zoom--) {
+            levels[zoom] = cluster(levels[zoom + 1], radiusPx / (EXTENT * Math.pow(2, zoom)));
+        }
+    }
+
+    /**
+     * Finds the clusters and lone stations of a zoom level inside the bounding box.
+     */
+    public List<StationCluster> getClusters(double minLat, double minLon, double maxLat, double maxLon, int zoom) {
+        Level level = levels[Math.max(0, Math.min(zoom, maxZoom + 1))];
+        List<StationCluster> result = new ArrayList<>();
+        // Mercator y grows southwards, so the north edge gives the minimum
+        level.tree.range(x(minLon), y(maxLat), x(maxLon), y(minLat), i -> result.add(level.toCluster(i)));
+        return result;
+    }
+
+    public int size() {
+        return stations.size();
+    }
+
+    private Level stationLevel(List<StationMapProjection> rows) {
+        Level level = new Level(rows.size());
+        for (StationMapProjection row : rows) {
+            Integer aqi = row.getAqi();
+            level.add(x(row.getLongitude()), y(row.getLatitude()), 1,
+                    aqi != null ? aqi : -1, aqi != null ? aqi : 0, aqi != null ? 1 : 0, level.size);
+        }
+        return level.build();
+    }
+
+    private Level cluster(Level points, double radius) {
+        Level level = new Level(points.size);
+        boolean[] visited = new boolean[points.size];
+        int[] neighbours = new int[Math.max(16, points.size)];
+
+        for (int i = 0; i < points.size; i++) {
+            if (visited[i]) continue;
+            visited[i] = true;
+
+            int[] found = {0};
+            points.tree.within(points.xs[i], points.ys[i], radius, j -> {
+                if (!visited[j]) neighbours[found[0]++] = j;
+            });
+
+            if (found[0] == 0) {
+                level.add(points.xs[i], points.ys[i], points.counts[i], points.maxAqis[i],
+                        points.aqiSums[i], points.aqiCounts[i], points.stationIndexes[i]);
+                continue;
+            }
+
+            int count = points.counts[i];
+            double wx = points.xs[i] * count;
+            double wy = points.ys[i] * count;
+            int maxAqi = points.maxAqis[i];
+            long aqiSum = points.aqiSums[i];
+            int aqiCount = points.aqiCounts[i];
+            for (int n = 0; n < found[0]; n++) {
+                int j = neighbours[n];
+                visited[j] = true;
+                int weight = points.counts[j];
+                count += weight;
+                wx += points.xs[j] * weight;
+                wy += points.ys[j] * weight;
+                maxAqi = Math.max(maxAqi, points.maxAqis[j]);
+                aqiSum += points.aqiSums[j];
+                aqiCount += points.aqiCounts[j];
+            }
+            level.add(wx / count, wy / count, count, maxAqi, aqiSum, aqiCount, -1);
+        }
+        return level.build();
+    }
+
+    private static double x(double longitude) {
+        return longitude / 360 + 0.5;
+    }
+
+    private static double y(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return Math.max(0, Math.min(1, y));
+    }
+
+    private static double longitude(double x) {
+        return (x - 0.5) * 360;
+    }
+
+    private static double latitude(double y) {
+        double y2 = (180 - y * 360) * Math.PI / 180;
+        return 360 * Math.atan(Math.exp(y2)) / Math.PI - 90;
+    }
+
+    /**
+     * One cluster, or a lone station when {@code station} is set.
+     *
+     * @param latitude  latitude of the centre
+     * @param longitude longitude of the centre
+     * @param count     number of stations
+     * @param maxAqi    highest AQI of the stations, or null if none has one
+     * @param meanAqi   mean AQI of the stations that have one, or null
+     * @param station   the station of a single-station point, null for clusters
+     */
+    public record StationCluster(double latitude, double longitude, int count, Integer maxAqi, Double meanAqi,
+                                 StationMapProjection station) {
+    }
+
+    /**
+     * Points of one zoom level as parallel arrays, with the tree over them.
+     */
+    private final class Level {
+        private double[] xs;
+        private double[] ys;
+        private int[] counts;
+        private int[] maxAqis;
+        private long[] aqiSums;
+        private int[] aqiCounts;
+        /** Index in {@link #stations} of a single-station point, -1 for clusters */
+        private int[] stationIndexes;
+        private int size;
+        private KdTree tree;
+
+        Level(int capacity) {
+            xs = new double[capacity];
+            ys = new double[capacity];
+            counts = new int[capacity];
+            maxAqis = new int[capacity];
+            aqiSums = new long[capacity];
+            aqiCounts = new int[capacity];
+            stationIndexes = new int[capacity];
+        }
+
+        void add(double x, double y, int count, int maxAqi, long aqiSum, int aqiCount, int stationIndex) {
+            xs[size] = x;
+            ys[size] = y;
+            counts[size] = count;
+            maxAqis[size] = maxAqi;
+            aqiSums[size] = aqiSum;
+            aqiCounts[size] = aqiCount;
+            stationIndexes[size] = stationIndex;
+            size++;
+        }
+
+        Level build() {
+            if (size < xs.length) {
+                xs = Arrays.copyOf(xs, size);
+                ys = Arrays.copyOf(ys, size);
+                counts = Arrays.copyOf(counts, size);
+                maxAqis = Arrays.copyOf(maxAqis, size);
+                aqiSums = Arrays.copyOf(aqiSums, size);
+                aqiCounts = Arrays.copyOf(aqiCounts, size);
+                stationIndexes = Arrays.copyOf(stationIndexes, size);
+            }
+            tree = new KdTree(xs, ys);
+            return this;
+        }
+
+        StationCluster toCluster(int i) {
+            StationMapProjection station = stationIndexes[i] >= 0 ? stations.get(stationIndexes[i]) : null;
+            return new StationCluster(
+                    station != null ? station.getLatitude() : latitude(ys[i]),
+                    station != null ? station.getLongitude() : longitude(xs[i]),
+                    counts[i],
+                    maxAqis[i] >= 0 ? maxAqis[i] : null,
+                    aqiCounts[i] > 0 ? (double) aqiSums[i] / aqiCounts[i] : null,
+                    station);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.map.StationClusterIndex.StationCluster;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import com.aerogrid.backend.service.SingleFlight;
+import com.aerogrid.backend.service.StationMapService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves zoom-dependent station clusters.
+ * <p>
+ * The index of the current status is kept in memory and rebuilt in the background whenever the
+ * {@link MapDataVersion} or the current hour changes, that is after snapshot or station changes.
+ * Requests for another target time are served from the index of their hour, built on first use
+ * and kept in an LRU cache of {@code historical-cache-size} entries per hour and data version.
+ * </p>
+ */
+@Slf4j
+@Service
+public class StationClusterService {
+
+    private final StationMapService stationMapService;
+    private final MapDataVersion mapDataVersion;
+    private final Timer buildTimer;
+    private final int maxZoom;
+    private final double radiusPx;
+    private final Map<HistoricalKey, StationClusterIndex> historical;
+    private final SingleFlight<HistoricalKey, StationClusterIndex> historicalBuilds;
+
+    private volatile CurrentIndex current;
+
+    public StationClusterService(StationMapService stationMapService,
+                                 MapDataVersion mapDataVersion,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${aerogrid.map.clusters.max-zoom:16}") int maxZoom,
+                                 @Value("${aerogrid.map.clusters.radius-px:60}") double radiusPx,
+                                 @Value("${aerogrid.map.clusters.historical-cache-size:16}") int historicalCacheSize) {
+        this.stationMapService = stationMapService;
+        this.mapDataVersion = mapDataVersion;
+        this.buildTimer = Timer.builder("aerogrid.map.clusters.build")
+                .description("Time spent building the station cluster index")
+                .register(meterRegistry);
+        this.maxZoom = maxZoom;
+        this.radiusPx = radiusPx;
+        this.historical = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<HistoricalKey, StationClusterIndex> eldest) {
+                return size() > historicalCacheSize;
+            }
+        };
+        this.historicalBuilds = new SingleFlight<>("cluster-index", meterRegistry);
+    }
+
+    /**
+     * Finds the clusters of a zoom level inside the bounding box.
+     *
+     * @param targetTime target time, null for now
+     * @throws IllegalArgumentException if the zoom is negative
+     */
+    public List<StationCluster> getClusters(double minLat, double minLon, double maxLat, double maxLon, int zoom,
+                                            LocalDateTime targetTime) {
+        if (zoom < 0) {
+            throw new IllegalArgumentException("Zoom must not be negative");
+        }
+        StationClusterIndex index = targetTime == null ? currentIndex() : historicalIndex(targetTime);
+        return index.getClusters(minLat, minLon, maxLat, maxLon, zoom);
+    }
+
+    /**
+     * Rebuilds the index of the current status once the data it was built from changed, so
+     * requests rarely wait for a build.
+     */
+    @Scheduled(fixedDelayString = "${aerogrid.map.clusters.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (current != null) currentIndex();
+    }
+
+    private StationClusterIndex currentIndex() {
+        CurrentIndex index = current;
+        long version = mapDataVersion.current();
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        if (index != null && index.version == version && index.hour.equals(hour)) {
+            return index.index;
+        }
+        synchronized (this) {
+            index = current;
+            if (index != null && index.version == version && index.hour.equals(hour)) {
+                return index.index;
+            }
+            StationClusterIndex built = build(null);
+            current = new CurrentIndex(version, hour, built);
+            log.debug("Station cluster index rebuilt: {} stations", built.size());
+            return built;
+        }
+    }
+
+    private StationClusterIndex historicalIndex(LocalDateTime targetTime) {
+        HistoricalKey key = new HistoricalKey(targetTime.truncatedTo(ChronoUnit.HOURS), mapDataVersion.current());
+        StationClusterIndex index;
+        synchronized (historical) {
+            index = historical.get(key);
+        }
+        if (index != null) return index;
+
+        return historicalBuilds.execute(key, () -> {
+            StationClusterIndex built = build(key.hour());
+            synchronized (historical) {
+                historical.put(key, built);
+            }
+            return built;
+        });
+    }
+
+    private StationClusterIndex build(LocalDateTime targetTime) {
+        List<StationMapProjection> stations = stationMapService.findStations(null, null, null, null, null, targetTime);
+        return buildTimer.record(() -> new StationClusterIndex(stations, maxZoom, radiusPx));
+    }
+
+    private record CurrentIndex(long version, LocalDateTime hour, StationClusterIndex index) {
+    }
+
+    private record HistoricalKey(LocalDateTime hour, long version) {
+    }
+}
@@ -0,0 +1,387 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.domain.HourlyAqiStatus;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import com.aerogrid.backend.service.AqiSnapshotListener;
+import com.aerogrid.backend.service.StationsChangedEvent;
+import com.aerogrid.backend.timeseries.EpochHours;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory copy of the station map data: station attributes in a {@link StationTable} and,
+ * for each of the last {@code days} days of hours, the snapshot of every station packed in one
+ * {@code long}.
+ * <p>
+ * Hours are held in a ring of columns, one {@code long[]} per hour indexed like the station table.
+ * Columns are never modified: a change builds a new column and swaps it in, so readers need no
+ * lock. The cube is loaded on the job executor at startup, follows the snapshot jobs through
+ * {@link AqiSnapshotListener} and reloads the station attributes every {@code metadata-refresh-ms}
+ * or after a station changes. Queries answer the same rows as the station map queries of
+ * {@link StationRepository}; they return empty while loading or when the range is older than the
+ * cube, and callers fall back to the database.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aerogrid.map.status-cube.enabled", havingValue = "true", matchIfMissing = true)
+public class StationStatusCube implements AqiSnapshotListener {
+
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    // Cell layout: aqi(16) pollutant(8) rollingAqi(16) rollingPollutant(8) present(1); 0 is "no snapshot"
+    private static final int NULL_AQI = 0xFFFF;
+    private static final int NULL_POLLUTANT = 0xFF;
+    private static final long PRESENT = 1L << 48;
+
+    private final StationRepository stationRepository;
+    private final HourlyAqiSnapshotRepository snapshotRepository;
+    private final MapDataVersion mapDataVersion;
+    private final TaskExecutor jobExecutor;
+    private final int capacity;
+    private final double cellDegrees;
+    private final long metadataRefreshMs;
+
+    private volatile State state;
+    /** Oldest hour held by the cube, or {@link Long#MAX_VALUE} while loading */
+    private volatile long loadedFromHour = Long.MAX_VALUE;
+    private volatile boolean stationsDirty;
+    private long stationsLoadedAt;
+
+    private final NavigableSet<Long> dirtyHours = new ConcurrentSkipListSet<>();
+
+    public StationStatusCube(StationRepository stationRepository,
+                             HourlyAqiSnapshotRepository snapshotRepository,
+                             MapDataVersion mapDataVersion,
+                             TaskExecutor jobExecutor,
+                             @Value("${aerogrid.map.status-cube.days:7}") int days,
+                             @Value("${aerogrid.map.status-cube.cell-degrees:0.25}") double cellDegrees,
+                             @Value("${aerogrid.map.status-cube.metadata-refresh-ms:60000}") long metadataRefreshMs) {
+        this.stationRepository = stationRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.mapDataVersion = mapDataVersion;
+        this.jobExecutor = jobExecutor;
+        // The map queries look 48 hours back, so the cube holds at least three days
+        this.capacity = Math.max(3, days) * 24;
+        this.cellDegrees = cellDegrees;
+        this.metadataRefreshMs = metadataRefreshMs;
+    }
+
+    /**
+     * Loads the cube from the database without blocking the startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            jobExecutor.execute(this::loadAll);
+        } catch (TaskRejectedException e) {
+            log.error("Could not start loading the station status cube, map queries use the database: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void loadAll() {
+        long start = System.currentTimeMillis();
+        try {
+            StationTable stations = new StationTable(stationRepository.findAllMetadata(), cellDegrees);
+            stationsLoadedAt = System.currentTimeMillis();
+            State loaded = new State(stations, new AtomicReferenceArray<>(capacity));
+
+            long fromHour = EpochHours.current() - capacity + 1;
+            long toHour = EpochHours.current() + 1;
+            int[] rows = {0};
+            ColumnBuilder builder = new ColumnBuilder(loaded, fromHour);
+            snapshotRepository.streamBetween(EpochHours.start(fromHour), EpochHours.start(toHour), status -> {
+                builder.add(status);
+                rows[0]++;
+            });
+            builder.finishTo(toHour);
+
+            state = loaded;
+            loadedFromHour = fromHour;
+            log.info("Station status cube loaded: {} stations, {} snapshots in {} ms",
+                    stations.size, rows[0], System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Could not load the station status cube, map queries use the database: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onSnapshotsChanged(LocalDateTime start, LocalDateTime end) {
+        long endHour = EpochHours.ceil(end);
+        for (long hour = EpochHours.of(start); hour < endHour; hour++) {
+            dirtyHours.add(hour);
+        }
+    }
+
+    /**
+     * Reloads the station attributes on the next run, once a station change is committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationsChanged(StationsChangedEvent event) {
+        stationsDirty = true;
+    }
+
+    /**
+     * Applies the changes since the last run: station attributes first, then the changed hours.
+     */
+    @Scheduled(fixedDelayString = "${aerogrid.map.status-cube.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        if (state == null) return;
+
+        boolean changed = stationsDirty;
+        if (stationsDirty || System.currentTimeMillis() - stationsLoadedAt >= metadataRefreshMs) {
+            stationsDirty = false;
+            reloadStations();
+        }
+        loadedFromHour = Math.max(loadedFromHour, EpochHours.current() - capacity + 1);
+
+        List<Long> hours = new ArrayList<>();
+        Long hour;
+        while ((hour = dirtyHours.pollFirst()) != null) {
+            hours.add(hour);
+        }
+        int i = 0;
+        while (i < hours.size()) {
+            long start = hours.get(i);
+            long end = start + 1;
+            while (++i < hours.size() && hours.get(i) == end) {
+                end++;
+            }
+            reloadHours(start, end);
+            changed = true;
+        }
+        // Responses served before this run were built from older data
+        if (changed) mapDataVersion.bump();
+    }
+
+    /**
+     * Same rows as {@link StationRepository#findAllStationsWithStatus}.
+     */
+    public Optional<List<StationMapProjection>> findAllStationsWithStatus(LocalDateTime targetTime, LocalDateTime minTime) {
+        return query(targetTime, minTime, (current, visitor) -> {
+            for (int i = 0; i < current.stations.size; i++) {
+                if (current.stations.active[i]) visitor.accept(i);
+            }
+        });
+    }
+
+    /**
+     * Same rows as {@link StationRepository#findStationsInBoundingBox}.
+     */
+    public Optional<List<StationMapProjection>> findStationsInBoundingBox(double minLon, double minLat, double maxLon, double maxLat,
+                                                                         LocalDateTime targetTime, LocalDateTime minTime) {
+        return query(targetTime, minTime, (current, visitor) ->
+                current.stations.forEachInBox(minLat, minLon, maxLat, maxLon, i -> {
+                    if (current.stations.active[i]) visitor.accept(i);
+                }));
+    }
+
+    /**
+     * Same rows as {@link StationRepository#findByOwnerIdProjection}.
+     */
+    public Optional<List<StationMapProjection>> findByOwnerId(long userId, LocalDateTime targetTime, LocalDateTime minTime) {
+        return query(targetTime, minTime, (current, visitor) -> {
+            for (int i = 0; i < current.stations.size; i++) {
+                if (current.stations.owners[i] == userId) visitor.accept(i);
+            }
+        });
+    }
+
+    /**
+     * Picks, for every selected station, the newest snapshot in [minTime, targetTime].
+     */
+    private Optional<List<StationMapProjection>> query(LocalDateTime targetTime, LocalDateTime minTime, Selector selector) {
+        State current = state;
+        long lowHour = EpochHours.ceil(minTime);
+        if (current == null || lowHour < loadedFromHour) {
+            return Optional.empty();
+        }
+        long highHour = Math.min(EpochHours.of(targetTime), lowHour + capacity - 1);
+
+        int hours = (int) Math.max(0, highHour - lowHour + 1);
+        long[][] cells = new long[hours][];
+        for (int h = 0; h < hours; h++) {
+            HourColumn column = current.columns.get(slot(lowHour + h));
+            cells[h] = column != null && column.epochHour == lowHour + h ? column.cells : null;
+        }
+
+        StationTable stations = current.stations;
+        List<StationMapProjection> result = new ArrayList<>();
+        selector.select(current, i -> {
+            long cell = 0;
+            for (int h = hours - 1; h >= 0 && cell == 0; h--) {
+                if (cells[h] != null) cell = cells[h][i];
+            }
+            result.add(new CubeStationStatus(stations.ids[i], stations.codes[i], stations.names[i],
+                    stations.latitudes[i], stations.longitudes[i],
+                    aqi(cell, 0), pollutant(cell, 16), aqi(cell, 24), pollutant(cell, 40),
+                    stations.trustScores[i], stations.sourceTypes[i]));
+        });
+        return Optional.of(result);
+    }
+
+    private void reloadStations() {
+        State current = state;
+        StationTable stations;
+        try {
+            stations = new StationTable(stationRepository.findAllMetadata(), cellDegrees);
+        } catch (RuntimeException e) {
+            log.warn("Could not reload stations for the status cube: {}", e.getMessage());
+            return;
+        }
+        stationsLoadedAt = System.currentTimeMillis();
+
+        // Move every column to the order of the new table
+        int[] newIndexes = new int[current.stations.size];
+        for (int i = 0; i < newIndexes.length; i++) {
+            newIndexes[i] = stations.indexOf(current.stations.ids[i]);
+        }
+        AtomicReferenceArray<HourColumn> columns = new AtomicReferenceArray<>(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            HourColumn column = current.columns.get(slot);
+            if (column == null) continue;
+            long[] cells = new long[stations.size];
+            for (int i = 0; i < newIndexes.length; i++) {
+                if (newIndexes[i] >= 0) cells[newIndexes[i]] = column.cells[i];
+            }
+            columns.set(slot, new HourColumn(column.epochHour, cells));
+        }
+        state = new State(stations, columns);
+    }
+
+    /**
+     * Rebuilds the columns of the hours in [fromHour, toHour) from the database.
+     */
+    private void reloadHours(long fromHour, long toHour) {
+        long from = Math.max(fromHour, loadedFromHour);
+        long to = Math.min(toHour, EpochHours.current() + 1);
+        if (from >= to) return;
+
+        ColumnBuilder builder = new ColumnBuilder(state, from);
+        try {
+            snapshotRepository.streamBetween(EpochHours.start(from), EpochHours.start(to), builder::add);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the status cube for {} hours, retrying on next run: {}", to - from, e.getMessage());
+            for (long hour = from; hour < to; hour++) dirtyHours.add(hour);
+            return;
+        }
+        builder.finishTo(to);
+    }
+
+    private int slot(long epochHour) {
+        return (int) Math.floorMod(epochHour, (long) capacity);
+    }
+
+    private static long pack(HourlyAqiStatus status) {
+        return PRESENT
+                | packAqi(status.maxAqi())
+                | (long) packPollutant(status.pollutant()) << 16
+                | (long) packAqi(status.rollingAqi()) << 24
+                | (long) packPollutant(status.rollingPollutant()) << 40;
+    }
+
+    private static long packAqi(Integer aqi) {
+        return aqi == null || aqi < 0 ? NULL_AQI : Math.min(aqi, NULL_AQI - 1);
+    }
+
+    private static int packPollutant(String pollutant) {
+        if (pollutant == null) return NULL_POLLUTANT;
+        for (Pollutant candidate : POLLUTANTS) {
+            if (candidate.name().equals(pollutant)) return candidate.ordinal();
+        }
+        return NULL_POLLUTANT;
+    }
+
+    private static Integer aqi(long cell, int shift) {
+        if (cell == 0) return null;
+        int aqi = (int) (cell >>> shift) & 0xFFFF;
+        return aqi == NULL_AQI ? null : aqi;
+    }
+
+    private static String pollutant(long cell, int shift) {
+        if (cell == 0) return null;
+        int code = (int) (cell >>> shift) & 0xFF;
+        return code == NULL_POLLUTANT ? null : POLLUTANTS[code].name();
+    }
+
+    /**
+     * Selects the station indexes a query reads.
+     */
+    @FunctionalInterface
+    private interface Selector {
+        void select(State state, IntConsumer visitor);
+    }
+
+    private record State(StationTable stations, AtomicReferenceArray<HourColumn> columns) {
+    }
+
+    private record HourColumn(long epochHour, long[] cells) {
+    }
+
+    /**
+     * Builds the columns of consecutive hours from snapshots ordered by hour, swapping each one in
+     * when complete. Hours without snapshots get an empty column.
+     */
+    private final class ColumnBuilder {
+        private final State target;
+        private long hour;
+        private long[] cells;
+
+        ColumnBuilder(State target, long fromHour) {
+            this.target = target;
+            this.hour = fromHour - 1;
+        }
+
+        void add(HourlyAqiStatus status) {
+            long statusHour = EpochHours.of(status.hour());
+            if (statusHour < hour) return;
+            moveTo(statusHour);
+            int index = target.stations.indexOf(status.stationId());
+            if (index < 0) {
+                // Station created after the table was loaded: reload both on the next run
+                stationsDirty = true;
+                dirtyHours.add(statusHour);
+                return;
+            }
+            cells[index] = pack(status);
+        }
+
+        /**
+         * Completes every column before {@code endHour}.
+         */
+        void finishTo(long endHour) {
+            moveTo(endHour);
+            cells = null;
+        }
+
+        private void moveTo(long epochHour) {
+            while (hour < epochHour) {
+                if (cells != null) {
+                    target.columns.set(slot(hour), new HourColumn(hour, cells));
+                }
+                hour++;
+                cells = new long[target.stations.size];
+            }
+        }
+    }
+}
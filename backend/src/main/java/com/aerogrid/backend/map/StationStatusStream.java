@@ -0,0 +1,442 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.controller.dto.StationStatusDeltaDto;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import com.aerogrid.backend.service.StationMapService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes station status changes to open maps as server-sent events.
+ * <p>
+ * Whenever the {@link MapDataVersion} or the current hour changes, the current status of every
+ * station is diffed against the last one sent, so a change costs one query whatever the number of
+ * clients. The deltas are fanned out through a grid of {@code cell-degrees} cells holding the
+ * subscribers whose viewport overlaps them; viewports spanning more than {@code max-cells} cells
+ * are kept apart and checked against every delta.
+ * </p>
+ * <p>
+ * Each subscriber keeps only the latest delta per station until it is sent, with at most one send
+ * in flight, so a slow client gets fewer and larger batches instead of a growing queue. A client
+ * more than {@code max-pending} stations behind gets a {@code resync} event instead, asking it to
+ * reload its viewport. Every client also gets one right after subscribing, once the stream knows
+ * the status its deltas are relative to.
+ * </p>
+ * <p>
+ * Sends run on the {@code streamExecutor} pool. A client whose send is still blocked after
+ * {@code send-timeout-ms} is closed on the next publish, so a stalled connection holds a sender
+ * thread for a bounded time only.
+ * </p>
+ */
+@Slf4j
+@Service
+public class StationStatusStream {
+
+    public static final String STATUS_EVENT = "status";
+    public static final String RESYNC_EVENT = "resync";
+
+    private final StationMapService stationMapService;
+    private final MapDataVersion mapDataVersion;
+    private final Executor sender;
+    private final double cellDegrees;
+    private final int maxCells;
+    private final int maxPending;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private final long sendTimeoutNanos;
+    private final Counter deltaCounter;
+    private final Counter overflowCounter;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    /** Subscribers by grid cell of their viewport */
+    private final Map<Long, Set<Subscriber>> cells = new ConcurrentHashMap<>();
+    /** Subscribers whose viewport spans too many cells, or the whole map */
+    private final Set<Subscriber> wide = ConcurrentHashMap.newKeySet();
+
+    /** Status last sent per station, null while nobody listens */
+    private volatile Map<Long, StationState> sent;
+    private long sentVersion;
+    private LocalDateTime sentHour;
+
+    public StationStatusStream(StationMapService stationMapService,
+                               MapDataVersion mapDataVersion,
+                               MeterRegistry meterRegistry,
+                               Executor streamExecutor,
+                               @Value("${aerogrid.map.stream.cell-degrees:1.0}") double cellDegrees,
+                               @Value("${aerogrid.map.stream.max-cells:1024}") int maxCells,
+                               @Value("${aerogrid.map.stream.max-pending:5000}") int maxPending,
+                               @Value("${aerogrid.map.stream.max-subscribers:10000}") int maxSubscribers,
+                               @Value("${aerogrid.map.stream.timeout-ms:1800000}") long timeoutMs,
+                               @Value("${aerogrid.map.stream.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.stationMapService = stationMapService;
+        this.mapDataVersion = mapDataVersion;
+        this.sender = streamExecutor;
+        this.cellDegrees = cellDegrees;
+        this.maxCells = maxCells;
+        this.maxPending = maxPending;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.deltaCounter = Counter.builder("aerogrid.map.stream.deltas")
+                .description("Station status changes broadcast to the station stream")
+                .register(meterRegistry);
+        this.overflowCounter = Counter.builder("aerogrid.map.stream.overflows")
+                .description("Station stream clients asked to reload after falling behind")
+                .register(meterRegistry);
+        Gauge.builder("aerogrid.map.stream.subscribers", subscribers, Set::size)
+                .description("Open station streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the status changes of the stations in the bounding box, or of every
+     * station when the box is incomplete.
+     *
+     * @throws IllegalArgumentException if the bounding box is inverted
+     * @throws IllegalStateException    if too many streams are open
+     */
+    public SseEmitter subscribe(Double minLat, Double minLon, Double maxLat, Double maxLon) {
+        return subscribe(minLat, minLon, maxLat, maxLon, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(Double minLat, Double minLon, Double maxLat, Double maxLon, SseEmitter emitter) {
+        boolean bounded = minLat != null && minLon != null && maxLat != null && maxLon != null;
+        if (bounded && (minLat > maxLat || minLon > maxLon)) {
+            throw new IllegalArgumentException("Bounding box minimums must not exceed its maximums");
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many open station streams");
+        }
+        Subscriber subscriber = bounded
+                ? new Subscriber(emitter, minLat, minLon, maxLat, maxLon)
+                : new Subscriber(emitter, -90, -180, 90, 180);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        register(subscriber, bounded);
+        synchronized (this) {
+            subscribers.add(subscriber);
+            if (sent != null) subscriber.schedule();
+        }
+        return emitter;
+    }
+
+    /**
+     * Diffs the current station status against the last one sent and broadcasts the changes.
+     * Does nothing while nobody listens or the data has not changed.
+     */
+    @Scheduled(fixedDelayString = "${aerogrid.map.stream.interval-ms:2000}")
+    public void publish() {
+        closeStalled();
+        Map<Long, StationState> previous;
+        synchronized (this) {
+            if (subscribers.isEmpty()) {
+                sent = null;
+                return;
+            }
+            previous = sent;
+        }
+        long version = mapDataVersion.current();
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        if (previous != null && version == sentVersion && hour.equals(sentHour)) return;
+
+        List<StationMapProjection> stations = stationMapService.findStations(null, null, null, null, null, null);
+        Map<Long, StationState> current = HashMap.newHashMap(stations.size());
+        List<StationStatusDeltaDto> deltas = new ArrayList<>();
+        for (StationMapProjection station : stations) {
+            StationState state = StationState.of(station);
+            current.put(station.getId(), state);
+            if (previous != null && !state.equals(previous.get(station.getId()))) {
+                deltas.add(state.toDelta(station.getId(), false));
+            }
+        }
+        if (previous != null) {
+            previous.forEach((id, state) -> {
+                if (!current.containsKey(id)) deltas.add(state.toDelta(id, true));
+            });
+        }
+
+        synchronized (this) {
+            sent = current;
+            sentVersion = version;
+            sentHour = hour;
+        }
+        if (previous == null) {
+            subscribers.forEach(Subscriber::schedule);
+        } else {
+            broadcast(deltas);
+        }
+    }
+
+    /**
+     * Sends a comment to idle streams, so proxies keep them open and closed ones are noticed.
+     */
+    @Scheduled(fixedDelayString = "${aerogrid.map.stream.heartbeat-ms:30000}")
+    public void heartbeat() {
+        subscribers.forEach(Subscriber::ping);
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Closes the clients whose send has been blocked for longer than the send timeout.
+     */
+    private void closeStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince;
+            if (since != 0 && now - since >= sendTimeoutNanos) {
+                log.debug("Closing station stream blocked in a send");
+                subscriber.close();
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private void broadcast(List<StationStatusDeltaDto> deltas) {
+        if (deltas.isEmpty()) return;
+        deltaCounter.increment(deltas.size());
+        Set<Subscriber> touched = new HashSet<>();
+        for (StationStatusDeltaDto delta : deltas) {
+            if (delta.getLatitude() == null || delta.getLongitude() == null) continue;
+            Set<Subscriber> cell = cells.get(cellKey(row(delta.getLatitude()), column(delta.getLongitude())));
+            if (cell != null) offer(cell, delta, touched);
+            offer(wide, delta, touched);
+        }
+        touched.forEach(Subscriber::schedule);
+    }
+
+    private static void offer(Set<Subscriber> candidates, StationStatusDeltaDto delta, Set<Subscriber> touched) {
+        for (Subscriber subscriber : candidates) {
+            if (subscriber.contains(delta.getLatitude(), delta.getLongitude()) && subscriber.offer(delta)) {
+                touched.add(subscriber);
+            }
+        }
+    }
+
+    private void register(Subscriber subscriber, boolean bounded) {
+        int minRow = row(subscriber.minLat);
+        int maxRow = row(subscriber.maxLat);
+        int minColumn = column(subscriber.minLon);
+        int maxColumn = column(subscriber.maxLon);
+        long cellCount = (long) (maxRow - minRow + 1) * (maxColumn - minColumn + 1);
+        if (!bounded || cellCount > maxCells) {
+            wide.add(subscriber);
+            return;
+        }
+        long[] keys = new long[(int) cellCount];
+        int k = 0;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                long key = cellKey(row, column);
+                keys[k++] = key;
+                cells.compute(key, (ignored, set) -> {
+                    Set<Subscriber> members = set != null ? set : ConcurrentHashMap.newKeySet();
+                    members.add(subscriber);
+                    return members;
+                });
+            }
+        }
+        subscriber.cellKeys = keys;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) return;
+        wide.remove(subscriber);
+        for (long key : subscriber.cellKeys) {
+            cells.computeIfPresent(key, (ignored, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((Math.max(-90, Math.min(90, latitude)) + 90) / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor((Math.max(-180, Math.min(180, longitude)) + 180) / cellDegrees);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | column;
+    }
+
+    /**
+     * The fields of a station a map client shows, as last sent.
+     */
+    private record StationState(Double latitude, Double longitude, Integer aqi, String pollutant,
+                                Integer rollingAqi, String rollingPollutant, Integer trustScore) {
+
+        static StationState of(StationMapProjection station) {
+            return new StationState(station.getLatitude(), station.getLongitude(), station.getAqi(),
+                    station.getPollutant(), station.getRollingAqi(), station.getRollingPollutant(),
+                    station.getTrustScore());
+        }
+
+        StationStatusDeltaDto toDelta(Long id, boolean removed) {
+            return StationStatusDeltaDto.builder()
+                    .id(id)
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .aqi(removed ? null : aqi)
+                    .pollutant(removed ? null : pollutant)
+                    .rollingAqi(removed ? null : rollingAqi)
+                    .rollingPollutant(removed ? null : rollingPollutant)
+                    .trustScore(removed ? null : trustScore)
+                    .removed(removed)
+                    .build();
+        }
+    }
+
+    /**
+     * One open stream: its viewport, the deltas not sent yet and whether a send is in flight.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final double minLat;
+        private final double minLon;
+        private final double maxLat;
+        private final double maxLon;
+        private long[] cellKeys = new long[0];
+
+        /** Latest unsent delta per station, in arrival order */
+        private final Map<Long, StationStatusDeltaDto> pending = new LinkedHashMap<>();
+        private boolean resync = true;
+        private boolean ping;
+        private boolean sending;
+        private boolean closed;
+        /** When the send in progress started, 0 when not in a send */
+        private volatile long sendingSince;
+
+        Subscriber(SseEmitter emitter, double minLat, double minLon, double maxLat, double maxLon) {
+            this.emitter = emitter;
+            this.minLat = minLat;
+            this.minLon = minLon;
+            this.maxLat = maxLat;
+            this.maxLon = maxLon;
+        }
+
+        boolean contains(double latitude, double longitude) {
+            return latitude >= minLat && latitude <= maxLat && longitude >= minLon && longitude <= maxLon;
+        }
+
+        /**
+         * Queues a delta, replacing the one of the same station. Returns false when the client is
+         * going to reload anyway.
+         */
+        synchronized boolean offer(StationStatusDeltaDto delta) {
+            if (resync) return false;
+            pending.put(delta.getId(), delta);
+            if (pending.size() > maxPending) {
+                pending.clear();
+                resync = true;
+                overflowCounter.increment();
+            }
+            return true;
+        }
+
+        /**
+         * Stops sending to this client; a send in progress still finishes or fails on its own.
+         */
+        void close() {
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+            }
+            unsubscribe(this);
+        }
+
+        void ping() {
+            synchronized (this) {
+                ping = true;
+            }
+            schedule();
+        }
+
+        void schedule() {
+            synchronized (this) {
+                if (sending || (!resync && !ping && pending.isEmpty())) return;
+                sending = true;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    sending = false;
+                }
+            }
+        }
+
+        /**
+         * Sends until nothing is left, picking up what was queued during each send.
+         */
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    } else if (resync) {
+                        event = SseEmitter.event().name(RESYNC_EVENT).data(mapDataVersion.current());
+                    } else if (!pending.isEmpty()) {
+                        event = SseEmitter.event().name(STATUS_EVENT)
+                                .data(new ArrayList<>(pending.values()), MediaType.APPLICATION_JSON);
+                    } else if (ping) {
+                        event = SseEmitter.event().comment("ping");
+                    } else {
+                        sending = false;
+                        return;
+                    }
+                    pending.clear();
+                    resync = false;
+                    ping = false;
+                }
+                try {
+                    sendingSince = System.nanoTime();
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away; keep sending set so nothing is scheduled for it again
+                    log.debug("Closing station stream: {}", e.getMessage());
+                    unsubscribe(this);
+                    emitter.completeWithError(e);
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable map attributes of every station, stored as parallel arrays.
+ * <p>
+ * Stations are sorted by grid cell, so the stations of one cell are contiguous and the spatial
+ * index is just the sorted list of non-empty cells with the offset of their first station
+ * (a packed, CSR-like grid). A bounding box query visits the rows of cells it overlaps and
+ * binary-searches each row. Station ids are looked up through a sorted copy of the ids.
+ * </p>
+ */
+final class StationTable {
+
+    /** Number of cells per row of the grid, large enough for any cell size used here */
+    private static final long ROW_WIDTH = 1L << 32;
+
+    final int size;
+    final long[] ids;
+    final String[] codes;
+    final String[] names;
+    final double[] latitudes;
+    final double[] longitudes;
+    final int[] trustScores;
+    final String[] sourceTypes;
+    final boolean[] active;
+    /** Owner user id, or 0 for official stations */
+    final long[] owners;
+
+    private final double cellDegrees;
+    private final long[] cellKeys;
+    private final int[] cellStarts;
+    private final long[] sortedIds;
+    private final int[] sortedIdIndexes;
+
+    StationTable(List<StationMetadataProjection> rows, double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+
+        StationMetadataProjection[] sorted = rows.toArray(new StationMetadataProjection[0]);
+        long[] keys = new long[sorted.length];
+        Integer[] order = new Integer[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            keys[i] = cellKey(sorted[i].getLatitude(), sorted[i].getLongitude());
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        size = sorted.length;
+        ids = new long[size];
+        codes = new String[size];
+        names = new String[size];
+        latitudes = new double[size];
+        longitudes = new double[size];
+        trustScores = new int[size];
+        sourceTypes = new String[size];
+        active = new boolean[size];
+        owners = new long[size];
+
+        long[] cellKeyBuffer = new long[size];
+        int[] cellStartBuffer = new int[size + 1];
+        int cells = 0;
+        for (int i = 0; i < size; i++) {
+            StationMetadataProjection row = sorted[order[i]];
+            ids[i] = row.getId();
+            codes[i] = row.getCode();
+            names[i] = row.getName();
+            latitudes[i] = row.getLatitude();
+            longitudes[i] = row.getLongitude();
+            trustScores[i] = row.getTrustScore() != null ? row.getTrustScore() : 0;
+            sourceTypes[i] = row.getSourceType();
+            active[i] = Boolean.TRUE.equals(row.getIsActive());
+            owners[i] = row.getOwnerId() != null ? row.getOwnerId() : 0;
+
+            long key = keys[order[i]];
+            if (cells == 0 || cellKeyBuffer[cells - 1] != key) {
+                cellKeyBuffer[cells] = key;
+                cellStartBuffer[cells] = i;
+                cells++;
+            }
+        }
+        cellStartBuffer[cells] = size;
+        cellKeys = Arrays.copyOf(cellKeyBuffer, cells);
+        cellStarts = Arrays.copyOf(cellStartBuffer, cells + 1);
+
+        Integer[] byId = new Integer[size];
+        for (int i = 0; i < size; i++) byId[i] = i;
+        Arrays.sort(byId, (a, b) -> Long.compare(ids[a], ids[b]));
+        sortedIds = new long[size];
+        sortedIdIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = ids[byId[i]];
+            sortedIdIndexes[i] = byId[i];
+        }
+    }
+
+    /**
+     * @return the index of the station, or -1 if it is not in the table
+     */
+    int indexOf(long stationId) {
+        int found = Arrays.binarySearch(sortedIds, stationId);
+        return found >= 0 ? sortedIdIndexes[found] : -1;
+    }
+
+    /**
+     * Visits the index of every station inside the bounding box.
+     */
+    void forEachInBox(double minLat, double minLon, double maxLat, double maxLon, IntConsumer visitor) {
+        long minRow = row(minLat);
+        long maxRow = row(maxLat);
+        long minColumn = column(minLon);
+        long maxColumn = column(maxLon);
+
+        for (long row = minRow; row <= maxRow; row++) {
+            int cell = lowerBound(row * ROW_WIDTH + minColumn);
+            long lastKey = row * ROW_WIDTH + maxColumn;
+            for (; cell < cellKeys.length && cellKeys[cell] <= lastKey; cell++) {
+                boolean inner = row > minRow && row < maxRow
+                        && cellKeys[cell] - row * ROW_WIDTH > minColumn && cellKeys[cell] - row * ROW_WIDTH < maxColumn;
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                    // Stations of inner cells are inside the box, border cells need the exact test
+                    if (inner || (latitudes[i] >= minLat && latitudes[i] <= maxLat
+                            && longitudes[i] >= minLon && longitudes[i] <= maxLon)) {
+                        visitor.accept(i);
+                    }
+                }
+            }
+        }
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = cellKeys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cellKeys[mid] < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return row(latitude) * ROW_WIDTH + column(longitude);
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor((Math.max(-90, Math.min(90, latitude)) + 90) / cellDegrees);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor((Math.max(-180, Math.min(180, longitude)) + 180) / cellDegrees);
+    }
+}
@@ -0,0 +1,522 @@
+package com.aerogrid.backend.parquet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes flat tables as Parquet files, row by row.
+ * <p>
+ * Rows are buffered per column and flushed as a row group every {@code rowGroupRows} rows, so
+ * memory is bounded by one row group. Every column chunk is one gzip-compressed v1 data page.
+ * String columns are dictionary encoded, with their indices written as RLE runs, which makes a
+ * column sorted by value, like the station of rows grouped by station, take a few bytes per run.
+ * Optional columns store their definition levels as RLE runs too. Numbers are written PLAIN.
+ * Timestamps are local (not adjusted to UTC) with millisecond precision. No statistics are
+ * written.
+ * </p>
+ * <p>
+ * Usage: set the values of a row with the {@code set} methods, leaving optional columns unset
+ * for null, then call {@link #endRow}. {@link #close} writes the footer and closes the stream.
+ * </p>
+ */
+public final class ParquetWriter implements Closeable {
+
+    public enum Type {
+        /** UTF-8 string, dictionary encoded */
+        STRING,
+        INT32,
+        INT64,
+        DOUBLE,
+        /** Local date-time as milliseconds since the epoch */
+        TIMESTAMP_MILLIS
+    }
+
+    /**
+     * A column of the schema.
+     */
+    public record Column(String name, Type type, boolean optional) {
+
+        public static Column required(String name, Type type) {
+            return new Column(name, type, false);
+        }
+
+        public static Column optional(String name, Type type) {
+            return new Column(name, type, true);
+        }
+    }
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final String CREATED_BY = "aerogrid";
+
+    // Parquet enums, see parquet.thrift
+    private static final int PHYSICAL_INT32 = 1;
+    private static final int PHYSICAL_INT64 = 2;
+    private static final int PHYSICAL_DOUBLE = 5;
+    private static final int PHYSICAL_BYTE_ARRAY = 6;
+    private static final int REQUIRED = 0;
+    private static final int OPTIONAL = 1;
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_RLE = 3;
+    private static final int ENCODING_RLE_DICTIONARY = 8;
+    private static final int CODEC_GZIP = 2;
+    private static final int PAGE_DATA = 0;
+    private static final int PAGE_DICTIONARY = 2;
+
+    private final OutputStream out;
+    private final List<Column> columns;
+    private final ColumnBuffer[] buffers;
+    private final int rowGroupRows;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private long offset;
+    private int groupRows;
+    private long totalRows;
+
+    /**
+     * Starts a file on the stream, which is closed by {@link #close}.
+     *
+     * @param rowGroupRows rows per row group
+     */
+    public ParquetWriter(OutputStream out, List<Column> columns, int rowGroupRows) throws IOException {
+        if (columns.isEmpty()) throw new IllegalArgumentException("A Parquet file needs at least one column");
+        if (rowGroupRows < 1) throw new IllegalArgumentException("Row groups must hold at least one row");
+        this.out = out;
+        this.columns = List.copyOf(columns);
+        this.rowGroupRows = rowGroupRows;
+        this.buffers = new ColumnBuffer[columns.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new ColumnBuffer(columns.get(i), Math.min(rowGroupRows, 1024));
+        }
+        write(MAGIC);
+    }
+
+    public void set(int column, String value) {
+        if (value == null) return;
+        buffer(column, Type.STRING).addString(value);
+    }
+
+    public void set(int column, int value) {
+        buffer(column, Type.INT32).addInt(value);
+    }
+
+    public void set(int column, Integer value) {
+        if (value != null) set(column, value.intValue());
+    }
+
+    public void set(int column, long value) {
+        buffer(column, Type.INT64).addLong(value);
+    }
+
+    public void set(int column, double value) {
+        buffer(column, Type.DOUBLE).addDouble(value);
+    }
+
+    public void set(int column, LocalDateTime value) {
+        if (value == null) return;
+        buffer(column, Type.TIMESTAMP_MILLIS).addLong(value.toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    /**
+     * Ends the current row, storing null in the optional columns that were not set.
+     *
+     * @throws IllegalStateException if a required column was not set
+     */
+    public void endRow() throws IOException {
+        for (ColumnBuffer buffer : buffers) {
+            if (buffer.rows == groupRows) {
+                if (!buffer.column.optional()) {
+                    throw new IllegalStateException("Required column " + buffer.column.name() + " not set");
+                }
+                buffer.addNull();
+            }
+        }
+        groupRows++;
+        totalRows++;
+        if (groupRows == rowGroupRows) {
+            flushRowGroup();
+        }
+    }
+
+    /**
+     * @return the rows ended so far
+     */
+    public long rows() {
+        return totalRows;
+    }
+
+    /**
+     * Flushes the last row group, writes the footer and closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (groupRows > 0) flushRowGroup();
+            byte[] footer = footer();
+            write(footer);
+            write(new byte[]{(byte) footer.length, (byte) (footer.length >>> 8),
+                    (byte) (footer.length >>> 16), (byte) (footer.length >>> 24)});
+            write(MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+
+    private ColumnBuffer buffer(int column, Type type) {
+        ColumnBuffer buffer = buffers[column];
+        if (buffer.column.type() != type) {
+            throw new IllegalArgumentException("Column " + buffer.column.name() + " is " + buffer.column.type());
+        }
+        if (buffer.rows > groupRows) {
+            throw new IllegalStateException("Column " + buffer.column.name() + " already set in this row");
+        }
+        return buffer;
+    }
+
+    private void flushRowGroup() throws IOException {
+        List<ColumnChunk> chunks = new ArrayList<>(buffers.length);
+        long groupBytes = 0;
+        for (ColumnBuffer buffer : buffers) {
+            ColumnChunk chunk = writeChunk(buffer);
+            chunks.add(chunk);
+            groupBytes += chunk.uncompressedSize;
+            buffer.clear();
+        }
+        rowGroups.add(new RowGroup(chunks, groupBytes, groupRows));
+        groupRows = 0;
+    }
+
+    private ColumnChunk writeChunk(ColumnBuffer buffer) throws IOException {
+        ColumnChunk chunk = new ColumnChunk(buffer.column, offset, buffer.rows);
+        Bytes body = new Bytes(buffer.rows * 8 + 64);
+
+        if (buffer.column.type() == Type.STRING) {
+            chunk.dictionaryPageOffset = offset;
+            Bytes dictionary = new Bytes(buffer.dictionaryValues.size() * 16);
+            for (byte[] value : buffer.dictionaryValues) {
+                dictionary.int32(value.length);
+                dictionary.bytes(value, value.length);
+            }
+            writePage(chunk, PAGE_DICTIONARY, dictionary, buffer.dictionaryValues.size(), ENCODING_PLAIN);
+        }
+
+        if (buffer.column.optional()) {
+            Bytes levels = new Bytes(32);
+            rle(levels, buffer.definitionLevels, buffer.rows, 1);
+            body.int32(levels.size());
+            body.bytes(levels.array(), levels.size());
+        }
+        int encoding = ENCODING_PLAIN;
+        switch (buffer.column.type()) {
+            case STRING -> {
+                int bitWidth = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(0, buffer.dictionaryValues.size() - 1)));
+                body.write(bitWidth);
+                rle(body, buffer.ints, buffer.values, bitWidth);
+                encoding = ENCODING_RLE_DICTIONARY;
+            }
+            case INT32 -> {
+                for (int i = 0; i < buffer.values; i++) body.int32(buffer.ints[i]);
+            }
+            case INT64, TIMESTAMP_MILLIS -> {
+                for (int i = 0; i < buffer.values; i++) body.int64(buffer.longs[i]);
+            }
+            case DOUBLE -> {
+                for (int i = 0; i < buffer.values; i++) body.int64(Double.doubleToRawLongBits(buffer.doubles[i]));
+            }
+        }
+        chunk.dataPageOffset = offset;
+        writePage(chunk, PAGE_DATA, body, buffer.rows, encoding);
+        return chunk;
+    }
+
+    private void writePage(ColumnChunk chunk, int pageType, Bytes body, int values, int encoding) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.size() / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+            gzip.write(body.array(), 0, body.size());
+        }
+
+        ThriftCompactWriter header = new ThriftCompactWriter();
+        header.i32(1, pageType);
+        header.i32(2, body.size());
+        header.i32(3, compressed.size());
+        if (pageType == PAGE_DATA) {
+            header.beginStruct(5);
+            header.i32(1, values);
+            header.i32(2, encoding);
+            header.i32(3, ENCODING_RLE);
+            header.i32(4, ENCODING_RLE);
+            header.endStruct();
+        } else {
+            header.beginStruct(7);
+            header.i32(1, values);
+            header.i32(2, encoding);
+            header.endStruct();
+        }
+        byte[] headerBytes = header.finish();
+
+        write(headerBytes);
+        write(compressed.toByteArray());
+        chunk.uncompressedSize += headerBytes.length + body.size();
+        chunk.compressedSize += headerBytes.length + compressed.size();
+    }
+
+    private byte[] footer() {
+        ThriftCompactWriter t = new ThriftCompactWriter();
+        t.i32(1, 2);
+        t.beginList(2, ThriftCompactWriter.TYPE_STRUCT, columns.size() + 1);
+        t.beginStructElement();
+        t.string(4, "schema");
+        t.i32(5, columns.size());
+        t.endStruct();
+        for (Column column : columns) {
+            t.beginStructElement();
+            t.i32(1, physicalType(column.type()));
+            t.i32(3, column.optional() ? OPTIONAL : REQUIRED);
+            t.string(4, column.name());
+            if (column.type() == Type.STRING) {
+                t.i32(6, CONVERTED_UTF8);
+                t.beginStruct(10);
+                t.beginStruct(1);   // LogicalType.STRING
+                t.endStruct();
+                t.endStruct();
+            } else if (column.type() == Type.TIMESTAMP_MILLIS) {
+                t.beginStruct(10);
+                t.beginStruct(8);   // LogicalType.TIMESTAMP
+                t.bool(1, false);   // isAdjustedToUTC
+                t.beginStruct(2);   // unit
+                t.beginStruct(1);   // MILLIS
+                t.endStruct();
+                t.endStruct();
+                t.endStruct();
+                t.endStruct();
+            }
+            t.endStruct();
+        }
+        t.i64(3, totalRows);
+        t.beginList(4, ThriftCompactWriter.TYPE_STRUCT, rowGroups.size());
+        for (RowGroup group : rowGroups) {
+            t.beginStructElement();
+            t.beginList(1, ThriftCompactWriter.TYPE_STRUCT, group.chunks().size());
+            for (ColumnChunk chunk : group.chunks()) {
+                t.beginStructElement();
+                t.i64(2, chunk.startOffset);
+                t.beginStruct(3);
+                t.i32(1, physicalType(chunk.column.type()));
+                boolean dictionary = chunk.dictionaryPageOffset >= 0;
+                t.beginList(2, ThriftCompactWriter.TYPE_I32, dictionary ? 3 : 2);
+                t.i32Element(ENCODING_PLAIN);
+                t.i32Element(ENCODING_RLE);
+                if (dictionary) t.i32Element(ENCODING_RLE_DICTIONARY);
+                t.beginList(3, ThriftCompactWriter.TYPE_BINARY, 1);
+                t.stringElement(chunk.column.name());
+                t.i32(4, CODEC_GZIP);
+                t.i64(5, chunk.values);
+                t.i64(6, chunk.uncompressedSize);
+                t.i64(7, chunk.compressedSize);
+                t.i64(9, chunk.dataPageOffset);
+                if (dictionary) t.i64(11, chunk.dictionaryPageOffset);
+                t.endStruct();
+                t.endStruct();
+            }
+            t.i64(2, group.totalBytes());
+            t.i64(3, group.rows());
+            t.endStruct();
+        }
+        t.string(6, CREATED_BY);
+        return t.finish();
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        out.write(bytes);
+        offset += bytes.length;
+    }
+
+    private static int physicalType(Type type) {
+        return switch (type) {
+            case STRING -> PHYSICAL_BYTE_ARRAY;
+            case INT32 -> PHYSICAL_INT32;
+            case INT64, TIMESTAMP_MILLIS -> PHYSICAL_INT64;
+            case DOUBLE -> PHYSICAL_DOUBLE;
+        };
+    }
+
+    /**
+     * Writes values with the RLE/bit-packing hybrid encoding, using RLE runs only.
+     */
+    static void rle(Bytes out, int[] values, int count, int bitWidth) {
+        int byteWidth = (bitWidth + 7) / 8;
+        int i = 0;
+        while (i < count) {
+            int value = values[i];
+            int run = 1;
+            while (i + run < count && values[i + run] == value) run++;
+            out.varint((long) run << 1);
+            for (int b = 0; b < byteWidth; b++) out.write(value >>> (8 * b));
+            i += run;
+        }
+    }
+
+    private static final class ColumnBuffer {
+
+        final Column column;
+        /** Rows of the current row group, null included */
+        int rows;
+        /** Non-null values of the current row group */
+        int values;
+        int[] definitionLevels;
+        int[] ints;
+        long[] longs;
+        double[] doubles;
+        Map<String, Integer> dictionary;
+        List<byte[]> dictionaryValues;
+
+        ColumnBuffer(Column column, int capacity) {
+            this.column = column;
+            if (column.optional()) definitionLevels = new int[capacity];
+            switch (column.type()) {
+                case STRING -> {
+                    ints = new int[capacity];
+                    dictionary = new HashMap<>();
+                    dictionaryValues = new ArrayList<>();
+                }
+                case INT32 -> ints = new int[capacity];
+                case INT64, TIMESTAMP_MILLIS -> longs = new long[capacity];
+                case DOUBLE -> doubles = new double[capacity];
+            }
+        }
+
+        void addString(String value) {
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = dictionaryValues.size();
+                dictionary.put(value, index);
+                dictionaryValues.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+            addInt(index);
+        }
+
+        void addInt(int value) {
+            if (values == ints.length) ints = Arrays.copyOf(ints, values * 2);
+            ints[values] = value;
+            added(true);
+        }
+
+        void addLong(long value) {
+            if (values == longs.length) longs = Arrays.copyOf(longs, values * 2);
+            longs[values] = value;
+            added(true);
+        }
+
+        void addDouble(double value) {
+            if (values == doubles.length) doubles = Arrays.copyOf(doubles, values * 2);
+            doubles[values] = value;
+            added(true);
+        }
+
+        void addNull() {
+            added(false);
+        }
+
+        private void added(boolean defined) {
+            if (column.optional()) {
+                if (rows == definitionLevels.length) definitionLevels = Arrays.copyOf(definitionLevels, rows * 2);
+                definitionLevels[rows] = defined ? 1 : 0;
+            }
+            rows++;
+            if (defined) values++;
+        }
+
+        void clear() {
+            rows = 0;
+            values = 0;
+            if (dictionary != null) {
+                dictionary.clear();
+                dictionaryValues.clear();
+            }
+        }
+    }
+
+    private static final class ColumnChunk {
+
+        final Column column;
+        final long startOffset;
+        final int values;
+        long dictionaryPageOffset = -1;
+        long dataPageOffset;
+        long uncompressedSize;
+        long compressedSize;
+
+        ColumnChunk(Column column, long startOffset, int values) {
+            this.column = column;
+            this.startOffset = startOffset;
+            this.values = values;
+        }
+    }
+
+    private record RowGroup(List<ColumnChunk> chunks, long totalBytes, int rows) {
+    }
+
+    /**
+     * Growable little-endian byte buffer.
+     */
+    static final class Bytes {
+
+        private byte[] data;
+        private int size;
+
+        Bytes(int capacity) {
+            data = new byte[Math.max(16, capacity)];
+        }
+
+        void write(int b) {
+            ensure(1);
+            data[size++] = (byte) b;
+        }
+
+        void bytes(byte[] bytes, int length) {
+            ensure(length);
+            System.arraycopy(bytes, 0, data, size, length);
+            size += length;
+        }
+
+        void int32(int value) {
+            ensure(4);
+            for (int b = 0; b < 4; b++) data[size++] = (byte) (value >>> (8 * b));
+        }
+
+        void int64(long value) {
+            ensure(8);
+            for (int b = 0; b < 8; b++) data[size++] = (byte) (value >>> (8 * b));
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        byte[] array() {
+            return data;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void ensure(int more) {
+            if (size + more > data.length) data = Arrays.copyOf(data, Math.max(size + more, data.length * 2));
+        }
+    }
+}
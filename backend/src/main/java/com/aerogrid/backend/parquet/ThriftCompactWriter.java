@@ -0,0 +1,127 @@
+package com.aerogrid.backend.parquet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Encodes the Parquet metadata structures with the Thrift compact protocol.
+ * <p>
+ * Only what the Parquet footer and page headers use is supported: i32, i64, bool and binary
+ * fields, nested structs and lists. The writer starts inside the top-level struct, which
+ * {@link #finish} closes.
+ * </p>
+ */
+final class ThriftCompactWriter {
+
+    static final byte TYPE_I32 = 5;
+    static final byte TYPE_BINARY = 8;
+    static final byte TYPE_STRUCT = 12;
+
+    private static final byte TYPE_TRUE = 1;
+    private static final byte TYPE_FALSE = 2;
+    private static final byte TYPE_I64 = 6;
+    private static final byte TYPE_LIST = 9;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    /** Last field id of each enclosing struct, deltas are relative to it */
+    private final Deque<Integer> enclosing = new ArrayDeque<>();
+    private int lastField;
+
+    void i32(int field, int value) {
+        fieldHeader(field, TYPE_I32);
+        varint(zigzag(value));
+    }
+
+    void i64(int field, long value) {
+        fieldHeader(field, TYPE_I64);
+        varint(zigzag(value));
+    }
+
+    void bool(int field, boolean value) {
+        fieldHeader(field, value ? TYPE_TRUE : TYPE_FALSE);
+    }
+
+    void string(int field, String value) {
+        fieldHeader(field, TYPE_BINARY);
+        binary(value);
+    }
+
+    void beginStruct(int field) {
+        fieldHeader(field, TYPE_STRUCT);
+        beginStructElement();
+    }
+
+    void endStruct() {
+        out.write(0);
+        lastField = enclosing.pop();
+    }
+
+    void beginList(int field, byte elementType, int size) {
+        fieldHeader(field, TYPE_LIST);
+        if (size < 15) {
+            out.write(size << 4 | elementType);
+        } else {
+            out.write(0xF0 | elementType);
+            varint(size);
+        }
+    }
+
+    void i32Element(int value) {
+        varint(zigzag(value));
+    }
+
+    void stringElement(String value) {
+        binary(value);
+    }
+
+    /** Starts a struct that is an element of a list, which has no field header */
+    void beginStructElement() {
+        enclosing.push(lastField);
+        lastField = 0;
+    }
+
+    /**
+     * Closes the top-level struct.
+     *
+     * @return the encoded struct
+     */
+    byte[] finish() {
+        out.write(0);
+        return out.toByteArray();
+    }
+
+    private void fieldHeader(int field, byte type) {
+        int delta = field - lastField;
+        if (delta > 0 && delta <= 15) {
+            out.write(delta << 4 | type);
+        } else {
+            out.write(type);
+            varint(zigzag(field));
+        }
+        lastField = field;
+    }
+
+    private void binary(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private void varint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(int value) {
+        return (value << 1 ^ value >> 31) & 0xFFFFFFFFL;
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+}
@@ -2,11 +2,43 @@ package com.aerogrid.backend.repository;
 
 import com.aerogrid.backend.domain.HourlyAqiSnapshot;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 
 @Repository
-public interface HourlyAqiSnapshotRepository extends JpaRepository<HourlyAqiSnapshot, Long> {
-    boolean existsByStationIdAndTimestamp(Long stationId, LocalDateTime timestamp);
+public interface HourlyAqiSnapshotRepository extends JpaRepository<HourlyAqiSnapshot, Long>, HourlyAqiSnapshotRepositoryCustom {
+    /**
+     * Finds the hour of the oldest snapshot.
+     *
+     * @return the oldest hour, or null if there are no snapshots
+     */
+    @Query("SELECT MIN(h.timestamp) FROM HourlyAqiSnapshot h")
+    LocalDateTime findOldestTimestamp();
+
+    /**
+     * Computes the snapshots of every station-hour in [start, end) from the HOUR rollups and
+     * upserts them in one statement. Each snapshot keeps the highest AQI of the hour and the
+     * pollutant that caused it. Rows whose values did not change are not rewritten.
+     *
+     * @param start range start (inclusive), aligned to the hour
+     * @param end   range end (exclusive)
+     * @return the number of snapshots inserted or updated
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO hourly_aqi_snapshots AS h (station_id, timestamp, max_aqi, pollutant)
+        SELECT DISTINCT ON (r.station_id, r.bucket_start) r.station_id, r.bucket_start, r.aqi_max, r.pollutant
+        FROM measurement_rollups r
+        WHERE r.resolution = 'HOUR' AND r.bucket_start >= :start AND r.bucket_start < :end
+        ORDER BY r.station_id, r.bucket_start, r.aqi_max DESC NULLS LAST, r.pollutant
+        ON CONFLICT (station_id, timestamp) DO UPDATE SET
+            max_aqi = EXCLUDED.max_aqi,
+            pollutant = EXCLUDED.pollutant
+        WHERE h.max_aqi IS DISTINCT FROM EXCLUDED.max_aqi OR h.pollutant IS DISTINCT FROM EXCLUDED.pollutant
+        """, nativeQuery = true)
+    int upsertFromRollups(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
@@ -0,0 +1,54 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.HourlyAqiPeak;
+import com.aerogrid.backend.domain.HourlyAqiStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Custom fragment of {@link HourlyAqiSnapshotRepository} for batch writes and bulk reads.
+ */
+public interface HourlyAqiSnapshotRepositoryCustom {
+
+    /**
+     * Raises the snapshots of the given hours to the given peaks in a single statement.
+     * Snapshots that already hold a higher AQI are left untouched, and peaks of stations
+     * that no longer exist are ignored.
+     *
+     * @param peaks at most one peak per station and hour
+     * @return the number of snapshots inserted or updated
+     */
+    int raiseToPeaks(List<HourlyAqiPeak> peaks);
+
+    /**
+     * Sets the rolling AQI of the given hours in a single statement. Hours without a snapshot
+     * are skipped.
+     *
+     * @param rolling at most one value per station and hour
+     * @return the number of snapshots updated
+     */
+    int updateRolling(List<HourlyAqiPeak> rolling);
+
+    /**
+     * Streams the snapshots of the hours in [start, end), ordered by hour, without loading them
+     * all in memory.
+     *
+     * @param start    range start (inclusive)
+     * @param end      range end (exclusive)
+     * @param consumer receives each snapshot
+     */
+    void streamBetween(LocalDateTime start, LocalDateTime end, Consumer<HourlyAqiStatus> consumer);
+
+    /**
+     * Streams the snapshots of some stations in [start, end), ordered by station and hour, in one
+     * range scan of the (station, hour) index per station.
+     *
+     * @param stationIds the stations
+     * @param start      range start (inclusive)
+     * @param end        range end (exclusive)
+     * @param consumer   receives each snapshot
+     */
+    void streamForStations(long[] stationIds, LocalDateTime start, LocalDateTime end, Consumer<HourlyAqiStatus> consumer);
+}
@@ -0,0 +1,142 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.HourlyAqiPeak;
+import com.aerogrid.backend.domain.HourlyAqiStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JDBC-backed implementation of {@link HourlyAqiSnapshotRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@RequiredArgsConstructor
+public class HourlyAqiSnapshotRepositoryImpl implements HourlyAqiSnapshotRepositoryCustom {
+
+    private static final String RAISE_SQL = """
+        INSERT INTO hourly_aqi_snapshots AS h (station_id, timestamp, max_aqi, pollutant)
+        SELECT p.station_id, p.hour, p.aqi, p.pollutant
+        FROM unnest(?::bigint[], ?::timestamp[], ?::int[], ?::varchar[]) AS p(station_id, hour, aqi, pollutant)
+        JOIN stations s ON s.id = p.station_id
+        ON CONFLICT (station_id, timestamp) DO UPDATE SET
+            max_aqi = EXCLUDED.max_aqi,
+            pollutant = EXCLUDED.pollutant
+        WHERE h.max_aqi IS NULL OR EXCLUDED.max_aqi > h.max_aqi
+        """;
+
+    // Only updates: a snapshot created here would have no max_aqi and hide the hour before it on the map
+    private static final String ROLLING_SQL = """
+        UPDATE hourly_aqi_snapshots AS h
+        SET rolling_aqi = p.aqi, rolling_pollutant = p.pollutant
+        FROM unnest(?::bigint[], ?::timestamp[], ?::int[], ?::varchar[]) AS p(station_id, hour, aqi, pollutant)
+        WHERE h.station_id = p.station_id AND h.timestamp = p.hour
+          AND (h.rolling_aqi IS DISTINCT FROM p.aqi OR h.rolling_pollutant IS DISTINCT FROM p.pollutant)
+        """;
+
+    private static final String STREAM_SQL = """
+        SELECT station_id, timestamp, max_aqi, pollutant, rolling_aqi, rolling_pollutant
+        FROM hourly_aqi_snapshots
+        WHERE timestamp >= ? AND timestamp < ?
+        ORDER BY timestamp
+        """;
+
+    private static final String STATIONS_SQL = """
+        SELECT station_id, timestamp, max_aqi, pollutant, rolling_aqi, rolling_pollutant
+        FROM hourly_aqi_snapshots
+        WHERE station_id = ANY(?) AND timestamp >= ? AND timestamp < ?
+        ORDER BY station_id, timestamp
+        """;
+
+    private static final int STREAM_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public int raiseToPeaks(List<HourlyAqiPeak> peaks) {
+        return upsertPeaks(RAISE_SQL, peaks);
+    }
+
+    @Override
+    @Transactional
+    public int updateRolling(List<HourlyAqiPeak> rolling) {
+        return upsertPeaks(ROLLING_SQL, rolling);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamBetween(LocalDateTime start, LocalDateTime end, Consumer<HourlyAqiStatus> consumer) {
+        // A fetch size inside a transaction makes the driver use a cursor instead of loading every row
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STREAM_SQL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setTimestamp(2, Timestamp.valueOf(end));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(toStatus(rs)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamForStations(long[] stationIds, LocalDateTime start, LocalDateTime end, Consumer<HourlyAqiStatus> consumer) {
+        if (stationIds.length == 0) {
+            return;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STATIONS_SQL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            ps.setArray(1, con.createArrayOf("int8", Arrays.stream(stationIds).boxed().toArray(Long[]::new)));
+            ps.setTimestamp(2, Timestamp.valueOf(start));
+            ps.setTimestamp(3, Timestamp.valueOf(end));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(toStatus(rs)));
+    }
+
+    private static HourlyAqiStatus toStatus(ResultSet rs) throws SQLException {
+        return new HourlyAqiStatus(
+                rs.getLong("station_id"),
+                rs.getTimestamp("timestamp").toLocalDateTime(),
+                rs.getObject("max_aqi", Integer.class),
+                rs.getString("pollutant"),
+                rs.getObject("rolling_aqi", Integer.class),
+                rs.getString("rolling_pollutant"));
+    }
+
+    private int upsertPeaks(String sql, List<HourlyAqiPeak> peaks) {
+        if (peaks.isEmpty()) {
+            return 0;
+        }
+
+        int size = peaks.size();
+        Long[] stationIds = new Long[size];
+        Timestamp[] hours = new Timestamp[size];
+        Integer[] aqis = new Integer[size];
+        String[] pollutants = new String[size];
+        for (int i = 0; i < size; i++) {
+            HourlyAqiPeak peak = peaks.get(i);
+            stationIds[i] = peak.stationId();
+            hours[i] = Timestamp.valueOf(peak.hour());
+            aqis[i] = peak.aqi();
+            pollutants[i] = peak.pollutant().name();
+        }
+
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("int8", stationIds));
+            ps.setArray(2, con.createArrayOf("timestamp", hours));
+            ps.setArray(3, con.createArrayOf("int4", aqis));
+            ps.setArray(4, con.createArrayOf("varchar", pollutants));
+            return ps;
+        });
+    }
+}
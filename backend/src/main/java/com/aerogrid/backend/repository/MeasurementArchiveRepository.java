@@ -0,0 +1,88 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.MeasurementArchive;
+import com.aerogrid.backend.repository.projection.ArchivedDaysProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for MeasurementArchive entity.
+ */
+@Repository
+public interface MeasurementArchiveRepository extends JpaRepository<MeasurementArchive, Long> {
+
+    /**
+     * Finds the archived days of a station within a range.
+     *
+     * @param stationCode the station code
+     * @param from        the first day (inclusive)
+     * @param to          the last day (inclusive)
+     * @return the archives, with their station loaded, ordered by day
+     */
+    @Query("SELECT a FROM MeasurementArchive a JOIN FETCH a.station s WHERE s.code = :stationCode AND a.day BETWEEN :from AND :to ORDER BY a.day ASC")
+    List<MeasurementArchive> findByStationCodeAndDayBetween(@Param("stationCode") String stationCode,
+                                                            @Param("from") LocalDate from,
+                                                            @Param("to") LocalDate to);
+
+    /**
+     * Finds the first and last archived day of a station.
+     *
+     * @param stationCode the station code
+     * @return the days, both null if nothing of the station is archived
+     */
+    @Query("SELECT MIN(a.day) AS firstDay, MAX(a.day) AS lastDay FROM MeasurementArchive a WHERE a.station.code = :stationCode")
+    ArchivedDaysProjection findArchivedDays(@Param("stationCode") String stationCode);
+
+    /**
+     * Finds the archives of a station for one day.
+     *
+     * @param stationId the station ID
+     * @param day       the day
+     * @return one archive per pollutant, with its station loaded
+     */
+    @Query("SELECT a FROM MeasurementArchive a JOIN FETCH a.station s WHERE s.id = :stationId AND a.day = :day")
+    List<MeasurementArchive> findByStationIdAndDay(@Param("stationId") long stationId, @Param("day") LocalDate day);
+
+    /**
+     * Finds every archive of the days within a range.
+     *
+     * @param from the first day (inclusive)
+     * @param to   the last day (inclusive)
+     * @return the archives of all stations
+     */
+    @Query("SELECT a FROM MeasurementArchive a WHERE a.day BETWEEN :from AND :to")
+    List<MeasurementArchive> findByDayBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Finds the newest archived day of every station and pollutant.
+     *
+     * @return one archive per station and pollutant, with its station loaded
+     */
+    @Query("SELECT a FROM MeasurementArchive a JOIN FETCH a.station s WHERE a.day = "
+            + "(SELECT MAX(b.day) FROM MeasurementArchive b WHERE b.station = a.station AND b.pollutant = a.pollutant)")
+    List<MeasurementArchive> findNewestDays();
+
+    /**
+     * Finds the oldest archived day.
+     *
+     * @return the oldest day, or null if nothing is archived
+     */
+    @Query("SELECT MIN(a.day) FROM MeasurementArchive a")
+    LocalDate findOldestDay();
+
+    /**
+     * Deletes every archive of a day before the given one.
+     *
+     * @param before the first day to keep
+     * @return the number of archives deleted
+     */
+    @Modifying
+    @Query(value = "DELETE FROM measurement_archives WHERE day < :before", nativeQuery = true)
+    int deleteByDayBefore(@Param("before") LocalDate before);
+}
@@ -1,14 +1,11 @@
 package com.aerogrid.backend.repository;
 
 import com.aerogrid.backend.domain.Measurement;
-import com.aerogrid.backend.repository.projection.AggregatedMeasurementProjection;
-import com.aerogrid.backend.repository.projection.HourlyAqiNativeProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -17,26 +14,8 @@ import java.util.List;
  * Repository for Measurement entity.
  */
 @Repository
-public interface MeasurementRepository extends JpaRepository<Measurement, Long> {
+public interface MeasurementRepository extends JpaRepository<Measurement, Long>, MeasurementRepositoryCustom {
 
-    /**
-     * Saves a measurement using native SQL with conflict resolution.
-     * If a measurement already exists for the same station, timestamp, and pollutant, it will be ignored.
-     *
-     * @param stationId the station ID
-     * @param pollutant the pollutant type
-     * @param value the measurement value
-     * @param timestamp the measurement timestamp
-     * @param aqi the calculated AQI value
-     */
-    @Modifying
-    @Transactional
-    @Query(value = """
-        INSERT INTO measurements (station_id, pollutant, value, timestamp, aqi)
-        VALUES (:stationId, :pollutant, :value, :timestamp, :aqi)
-        ON CONFLICT (station_id, timestamp, pollutant) DO NOTHING
-        """, nativeQuery = true)
-    void saveMeasurementNative(Long stationId, String pollutant, Double value, LocalDateTime timestamp, Integer aqi);
     /**
      * Finds the most recent measurement timestamp in the database.
      *
@@ -46,86 +25,32 @@ public interface MeasurementRepository extends JpaRepository<Measurement, Long>
     LocalDateTime findLatestTimestamp();
 
     /**
-     * Finds measurements for a specific station within a time range.
+     * Finds the oldest measurement timestamp before a cutoff.
      *
-     * @param stationCode the station code
-     * @param start the start timestamp (inclusive)
-     * @param end the end timestamp (inclusive)
-     * @return list of measurements ordered by timestamp
+     * @param cutoff the exclusive upper bound
+     * @return the oldest timestamp, or null if no measurement is older than the cutoff
      */
-    @Query("SELECT m FROM Measurement m WHERE m.station.code = :stationCode AND m.timestamp BETWEEN :start AND :end ORDER BY m.timestamp ASC")
-    List<Measurement> findByStationCodeAndTimestampBetween(@Param("stationCode") String stationCode,
-                                                            @Param("start") LocalDateTime start,
-                                                            @Param("end") LocalDateTime end);
-
-    @Query(value = """
-        SELECT m.station_id as stationId, 
-               DATE_TRUNC('hour', m.timestamp) as timestamp, 
-               MAX(m.aqi) as maxAqi, 
-               MAX(m.pollutant) as pollutant
-        FROM measurements m 
-        WHERE m.timestamp BETWEEN :start AND :end 
-        GROUP BY m.station_id, DATE_TRUNC('hour', m.timestamp)
-        """, nativeQuery = true)
-    List<HourlyAqiNativeProjection> findMaxAqiBetweenNative(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-
-    @Query(value = """
-        SELECT 
-            DATE_TRUNC('hour', m.timestamp) AS timestamp,
-            m.pollutant AS pollutant,
-            AVG(m.value) AS avgValue,
-            AVG(m.aqi) AS avgAqi
-        FROM measurements m JOIN stations s ON m.station_id = s.id
-        WHERE s.code = :stationCode AND m.timestamp BETWEEN :start AND :end
-        GROUP BY DATE_TRUNC('hour', m.timestamp), m.pollutant
-        ORDER BY timestamp ASC
-        """, nativeQuery = true)
-    List<AggregatedMeasurementProjection> aggregateHourly(@Param("stationCode") String stationCode,
-                                                        @Param("start") LocalDateTime start,
-                                                        @Param("end") LocalDateTime end);
-
-    @Query(value = """
-        SELECT 
-            date_bin('6 hours', m.timestamp, TIMESTAMP '2024-01-01 00:00:00') AS timestamp,
-            m.pollutant AS pollutant,
-            AVG(m.value) AS avgValue,
-            AVG(m.aqi) AS avgAqi
-        FROM measurements m JOIN stations s ON m.station_id = s.id
-        WHERE s.code = :stationCode AND m.timestamp BETWEEN :start AND :end
-        GROUP BY date_bin('6 hours', m.timestamp, TIMESTAMP '2024-01-01 00:00:00'), m.pollutant
-        ORDER BY timestamp ASC
-        """, nativeQuery = true)
-    List<AggregatedMeasurementProjection> aggregateSixHours(@Param("stationCode") String stationCode,
-                                                            @Param("start") LocalDateTime start,
-                                                            @Param("end") LocalDateTime end);
+    @Query("SELECT MIN(m.timestamp) FROM Measurement m WHERE m.timestamp < :cutoff")
+    LocalDateTime findOldestTimestampBefore(@Param("cutoff") LocalDateTime cutoff);
 
-    @Query(value = """
-        SELECT 
-            DATE_TRUNC('day', m.timestamp) AS timestamp,
-            m.pollutant AS pollutant,
-            AVG(m.value) AS avgValue,
-            AVG(m.aqi) AS avgAqi
-        FROM measurements m JOIN stations s ON m.station_id = s.id
-        WHERE s.code = :stationCode AND m.timestamp BETWEEN :start AND :end
-        GROUP BY DATE_TRUNC('day', m.timestamp), m.pollutant
-        ORDER BY timestamp ASC
-        """, nativeQuery = true)
-    List<AggregatedMeasurementProjection> aggregateDaily(@Param("stationCode") String stationCode,
-                                                        @Param("start") LocalDateTime start,
-                                                        @Param("end") LocalDateTime end);
+    /**
+     * Finds the stations with raw measurements in [start, end).
+     *
+     * @param start range start (inclusive)
+     * @param end   range end (exclusive)
+     * @return the station IDs
+     */
+    @Query(value = "SELECT DISTINCT station_id FROM measurements WHERE timestamp >= :start AND timestamp < :end", nativeQuery = true)
+    List<Long> findStationIdsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
-    @Query(value = """
-        SELECT 
-            DATE_TRUNC('week', m.timestamp) AS timestamp,
-            m.pollutant AS pollutant,
-            AVG(m.value) AS avgValue,
-            AVG(m.aqi) AS avgAqi
-        FROM measurements m JOIN stations s ON m.station_id = s.id
-        WHERE s.code = :stationCode AND m.timestamp BETWEEN :start AND :end
-        GROUP BY DATE_TRUNC('week', m.timestamp), m.pollutant
-        ORDER BY timestamp ASC
-        """, nativeQuery = true)
-    List<AggregatedMeasurementProjection> aggregateWeekly(@Param("stationCode") String stationCode,
-                                                        @Param("start") LocalDateTime start,
-                                                        @Param("end") LocalDateTime end);
-}
\ No newline at end of file
+    /**
+     * Deletes every raw measurement in [start, end).
+     *
+     * @param start slice start (inclusive)
+     * @param end   slice end (exclusive)
+     * @return the number of rows deleted
+     */
+    @Modifying
+    @Query(value = "DELETE FROM measurements WHERE timestamp >= :start AND timestamp < :end", nativeQuery = true)
+    int deleteRawBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
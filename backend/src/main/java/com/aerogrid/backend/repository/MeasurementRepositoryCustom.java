@@ -0,0 +1,100 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+
+import java.time.LocalDateTime;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Custom fragment of {@link MeasurementRepository} for bulk operations that
+ * are not expressible as derived or annotated queries.
+ */
+public interface MeasurementRepositoryCustom {
+
+    /** Order of the pages of {@link #findPage}: by timestamp, then by pollutant name */
+    Comparator<MeasurementRecord> PAGE_ORDER = Comparator
+            .comparing(MeasurementRecord::timestamp)
+            .thenComparing(r -> r.pollutant().name());
+
+    /**
+     * Finds one page of a station's measurements within a time range, including the measurements
+     * of archived days, in {@link #PAGE_ORDER}. Pages are selected by keyset:
+     * the page starts right after the given (timestamp, pollutant) position.
+     *
+     * @param stationCode    the station code
+     * @param start          the start timestamp (inclusive)
+     * @param end            the end timestamp (inclusive)
+     * @param afterTimestamp timestamp of the last measurement of the previous page, null for the first page
+     * @param afterPollutant pollutant of the last measurement of the previous page, null for the first page
+     * @param limit          the maximum number of measurements
+     * @return the measurements of the page
+     */
+    List<MeasurementRecord> findPage(String stationCode, LocalDateTime start, LocalDateTime end,
+                                     LocalDateTime afterTimestamp, Pollutant afterPollutant, int limit);
+
+    /**
+     * Inserts a batch of measurements in a single statement, adds the inserted rows to the
+     * HOUR, DAY and WEEK rollups and updates the latest reading of each station and pollutant.
+     * Rows that collide with an existing (station, timestamp, pollutant) are ignored.
+     *
+     * @param records the measurements to insert
+     * @return the rows actually inserted
+     */
+    List<MeasurementRecord> insertBatch(List<MeasurementRecord> records);
+
+    /**
+     * Recomputes the rollups of every bucket starting in [start, end) from the raw measurements
+     * and the given archived points. The range should be aligned to whole weeks so WEEK buckets
+     * are rebuilt completely.
+     *
+     * @param start    range start (inclusive)
+     * @param end      range end (exclusive)
+     * @param archived the archived points of the range
+     */
+    void rebuildRollups(LocalDateTime start, LocalDateTime end, List<MeasurementRecord> archived);
+
+    /**
+     * Subtracts measurements from the counts and sums of their rollups, for points that were
+     * folded into the rollups but then discarded as duplicates.
+     *
+     * @param records the discarded measurements
+     */
+    void retractFromRollups(List<MeasurementRecord> records);
+
+    /**
+     * Deletes every raw measurement of a station in [start, end) and returns the deleted rows.
+     *
+     * @param stationId the station ID
+     * @param start     range start (inclusive)
+     * @param end       range end (exclusive)
+     * @return the deleted measurements
+     */
+    List<MeasurementRecord> deleteRawReturning(long stationId, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Streams every raw measurement since an instant, without loading them all in memory.
+     *
+     * @param since    the first timestamp (inclusive)
+     * @param consumer receives each measurement
+     */
+    void streamSince(LocalDateTime since, Consumer<MeasurementRecord> consumer);
+
+    /**
+     * Streams a station's measurements of some pollutants within a time range, including the
+     * measurements of archived days, without loading them all in memory. Archived days come first,
+     * then the raw rows, each in {@link #PAGE_ORDER}.
+     *
+     * @param stationCode the station code
+     * @param pollutants  the pollutants to include
+     * @param start       the start timestamp (inclusive)
+     * @param end         the end timestamp (inclusive)
+     * @param consumer    receives each measurement
+     */
+    void streamRange(String stationCode, Collection<Pollutant> pollutants, LocalDateTime start, LocalDateTime end,
+                     Consumer<MeasurementRecord> consumer);
+}
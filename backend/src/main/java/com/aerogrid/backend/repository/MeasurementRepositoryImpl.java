@@ -0,0 +1,388 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.archive.GorillaCodec;
+import com.aerogrid.backend.domain.MeasurementArchive;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.projection.ArchivedDaysProjection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JDBC-backed implementation of {@link MeasurementRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ * Range reads also decode the archived days of the range, so callers never see where a
+ * measurement is stored.
+ */
+@RequiredArgsConstructor
+public class MeasurementRepositoryImpl implements MeasurementRepositoryCustom {
+
+    /**
+     * Folds the rows of the {@code src} relation into HOUR, DAY and WEEK rollups. Counts and sums
+     * are added to existing buckets, so the same statement serves incremental updates and rebuilds.
+     */
+    private static final String ROLLUP_UPSERT = """
+        INSERT INTO measurement_rollups AS r (station_id, pollutant, resolution, bucket_start, sample_count,
+                                              value_sum, value_min, value_max, aqi_count, aqi_sum, aqi_max)
+        SELECT src.station_id, src.pollutant, t.resolution, DATE_TRUNC(t.unit, src.timestamp), COUNT(*),
+               SUM(src.value), MIN(src.value), MAX(src.value), COUNT(src.aqi), COALESCE(SUM(src.aqi), 0), MAX(src.aqi)
+        FROM src CROSS JOIN (VALUES ('HOUR', 'hour'), ('DAY', 'day'), ('WEEK', 'week')) AS t(resolution, unit)
+        GROUP BY 1, 2, 3, 4
+        ON CONFLICT (station_id, pollutant, resolution, bucket_start) DO UPDATE SET
+            sample_count = r.sample_count + EXCLUDED.sample_count,
+            value_sum = r.value_sum + EXCLUDED.value_sum,
+            value_min = LEAST(r.value_min, EXCLUDED.value_min),
+            value_max = GREATEST(r.value_max, EXCLUDED.value_max),
+            aqi_count = r.aqi_count + EXCLUDED.aqi_count,
+            aqi_sum = r.aqi_sum + EXCLUDED.aqi_sum,
+            aqi_max = GREATEST(r.aqi_max, EXCLUDED.aqi_max)
+        """;
+
+    /**
+     * Moves the latest reading of each (station, pollutant) of the {@code src} relation into
+     * {@code station_latest}, unless a newer reading is already there.
+     */
+    private static final String LATEST_UPSERT = """
+        INSERT INTO station_latest AS l (station_id, pollutant, timestamp, value, aqi)
+        SELECT DISTINCT ON (src.station_id, src.pollutant) src.station_id, src.pollutant, src.timestamp, src.value, src.aqi
+        FROM src
+        ORDER BY src.station_id, src.pollutant, src.timestamp DESC
+        ON CONFLICT (station_id, pollutant) DO UPDATE SET
+            timestamp = EXCLUDED.timestamp,
+            value = EXCLUDED.value,
+            aqi = EXCLUDED.aqi
+        WHERE EXCLUDED.timestamp >= l.timestamp
+        """;
+
+    /**
+     * Inserts the batch and feeds only the rows that were actually inserted into the rollups
+     * and the latest readings, so duplicates never count twice. Returns the inserted rows.
+     */
+    private static final String INSERT_SQL = """
+        WITH src AS (
+            INSERT INTO measurements (station_id, pollutant, value, timestamp, aqi)
+            SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::float8[], ?::timestamp[], ?::int[])
+            ON CONFLICT (station_id, timestamp, pollutant) DO NOTHING
+            RETURNING station_id, pollutant, value, timestamp, aqi
+        ), rolled AS (
+        """ + ROLLUP_UPSERT + """
+        ), latest AS (
+        """ + LATEST_UPSERT + """
+        )
+        SELECT station_id, pollutant, value, timestamp, aqi FROM src
+        """;
+
+    /**
+     * Rebuilds from the raw rows of the range plus the archived points passed as arrays.
+     */
+    private static final String REBUILD_SQL = """
+        WITH src AS (
+            SELECT m.station_id, m.pollutant, m.value, m.timestamp, m.aqi
+            FROM measurements m
+            WHERE m.timestamp >= ? AND m.timestamp < ?
+            UNION ALL
+            SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::float8[], ?::timestamp[], ?::int[])
+        )
+        """ + ROLLUP_UPSERT;
+
+    /**
+     * Subtracts the given points from the counts and sums of their buckets. Minimums and maximums
+     * cannot be retracted and are left as they are.
+     */
+    private static final String RETRACT_SQL = """
+        UPDATE measurement_rollups r SET
+            sample_count = r.sample_count - d.sample_count,
+            value_sum = r.value_sum - d.value_sum,
+            aqi_count = r.aqi_count - d.aqi_count,
+            aqi_sum = r.aqi_sum - d.aqi_sum
+        FROM (
+            SELECT src.station_id, src.pollutant, t.resolution, DATE_TRUNC(t.unit, src.timestamp) AS bucket_start,
+                   COUNT(*) AS sample_count, SUM(src.value) AS value_sum,
+                   COUNT(src.aqi) AS aqi_count, COALESCE(SUM(src.aqi), 0) AS aqi_sum
+            FROM unnest(?::bigint[], ?::varchar[], ?::float8[], ?::timestamp[], ?::int[]) AS src(station_id, pollutant, value, timestamp, aqi)
+            CROSS JOIN (VALUES ('HOUR', 'hour'), ('DAY', 'day'), ('WEEK', 'week')) AS t(resolution, unit)
+            GROUP BY 1, 2, 3, 4
+        ) d
+        WHERE r.station_id = d.station_id AND r.pollutant = d.pollutant
+          AND r.resolution = d.resolution AND r.bucket_start = d.bucket_start
+        """;
+
+    private static final String STREAM_SQL = """
+        SELECT station_id, pollutant, value, timestamp, aqi
+        FROM measurements
+        WHERE timestamp >= ?
+        """;
+
+    private static final String RANGE_SQL = """
+        SELECT m.station_id, m.pollutant, m.value, m.timestamp, m.aqi
+        FROM measurements m
+        WHERE m.station_id = (SELECT s.id FROM stations s WHERE s.code = ?)
+          AND m.pollutant = ANY(?::varchar[])
+          AND m.timestamp BETWEEN ? AND ?
+        ORDER BY m.timestamp, m.pollutant COLLATE "C"
+        """;
+
+    private static final String DELETE_RETURNING_SQL = """
+        DELETE FROM measurements
+        WHERE station_id = ? AND timestamp >= ? AND timestamp < ?
+        RETURNING station_id, pollutant, value, timestamp, aqi
+        """;
+
+    /**
+     * One keyset page of raw rows. Pollutants are compared byte-wise so the order does not depend
+     * on the database collation and matches {@link #PAGE_ORDER}.
+     */
+    private static final String PAGE_SQL = """
+        SELECT m.station_id, m.pollutant, m.value, m.timestamp, m.aqi
+        FROM measurements m
+        WHERE m.station_id = (SELECT s.id FROM stations s WHERE s.code = ?)
+          AND m.timestamp BETWEEN ? AND ?
+          AND (m.timestamp > ? OR (m.timestamp = ? AND m.pollutant COLLATE "C" > ?))
+        ORDER BY m.timestamp, m.pollutant COLLATE "C"
+        LIMIT ?
+        """;
+
+    private static final int STREAM_FETCH_SIZE = 10_000;
+    /** Archived days read per query while filling a page */
+    private static final int ARCHIVE_DAYS_PER_READ = 31;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeasurementArchiveRepository archiveRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MeasurementRecord> findPage(String stationCode, LocalDateTime start, LocalDateTime end,
+                                            LocalDateTime afterTimestamp, Pollutant afterPollutant, int limit) {
+        // Without a cursor the page starts before every measurement of the range
+        LocalDateTime after = afterTimestamp != null ? afterTimestamp : start;
+        String afterName = afterTimestamp != null && afterPollutant != null ? afterPollutant.name() : "";
+        List<MeasurementRecord> page = new ArrayList<>(jdbcTemplate.query(PAGE_SQL, MeasurementRepositoryImpl::mapRecord,
+                stationCode, Timestamp.valueOf(start), Timestamp.valueOf(end),
+                Timestamp.valueOf(after), Timestamp.valueOf(after), afterName, limit));
+
+        // Archived days are decoded in order, and later days cannot hold earlier positions, so
+        // reading stops at the first complete day that fills the page
+        long from = start.toEpochSecond(ZoneOffset.UTC);
+        long to = end.toEpochSecond(ZoneOffset.UTC);
+        List<MeasurementRecord> archived = new ArrayList<>();
+        DaySpan span = archivedSpan(stationCode, (after.isAfter(start) ? after : start).toLocalDate(), end.toLocalDate());
+        LocalDate lastDay = span.last();
+        for (LocalDate day = span.first();
+             !day.isAfter(lastDay) && archived.size() < limit;
+             day = day.plusDays(ARCHIVE_DAYS_PER_READ)) {
+            LocalDate readEnd = day.plusDays(ARCHIVE_DAYS_PER_READ - 1);
+            List<MeasurementArchive> archives = archiveRepository.findByStationCodeAndDayBetween(
+                    stationCode, day, readEnd.isAfter(lastDay) ? lastDay : readEnd);
+            for (int i = 0; i < archives.size() && archived.size() < limit; ) {
+                LocalDate archiveDay = archives.get(i).getDay();
+                for (; i < archives.size() && archives.get(i).getDay().equals(archiveDay); i++) {
+                    MeasurementArchive archive = archives.get(i);
+                    GorillaCodec.Series series = GorillaCodec.decode(archive.getData(), from, to);
+                    for (int j = 0; j < series.size(); j++) {
+                        MeasurementRecord record = new MeasurementRecord(archive.getStation().getId(),
+                                archive.getPollutant(), series.value(j),
+                                series.aqi(j) == GorillaCodec.NO_AQI ? null : series.aqi(j), series.timestamp(j));
+                        if (isAfter(record, after, afterName)) archived.add(record);
+                    }
+                }
+            }
+        }
+        if (archived.isEmpty()) {
+            return page;
+        }
+
+        page.addAll(archived);
+        page.sort(PAGE_ORDER);
+        return page.size() > limit ? new ArrayList<>(page.subList(0, limit)) : page;
+    }
+
+    @Override
+    @Transactional
+    public List<MeasurementRecord> insertBatch(List<MeasurementRecord> records) {
+        if (records.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL);
+            bindRecords(con, ps, 1, records);
+            return ps;
+        }, MeasurementRepositoryImpl::mapRecord);
+    }
+
+    @Override
+    @Transactional
+    public void rebuildRollups(LocalDateTime start, LocalDateTime end, List<MeasurementRecord> archived) {
+        Timestamp from = Timestamp.valueOf(start);
+        Timestamp to = Timestamp.valueOf(end);
+        jdbcTemplate.update("DELETE FROM measurement_rollups WHERE bucket_start >= ? AND bucket_start < ?", from, to);
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(REBUILD_SQL);
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            bindRecords(con, ps, 3, archived);
+            return ps;
+        });
+    }
+
+    @Override
+    @Transactional
+    public void retractFromRollups(List<MeasurementRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(RETRACT_SQL);
+            bindRecords(con, ps, 1, records);
+            return ps;
+        });
+    }
+
+    @Override
+    @Transactional
+    public List<MeasurementRecord> deleteRawReturning(long stationId, LocalDateTime start, LocalDateTime end) {
+        return jdbcTemplate.query(DELETE_RETURNING_SQL, MeasurementRepositoryImpl::mapRecord,
+                stationId, Timestamp.valueOf(start), Timestamp.valueOf(end));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamSince(LocalDateTime since, Consumer<MeasurementRecord> consumer) {
+        // A fetch size inside a transaction makes the driver use a cursor instead of loading every row
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STREAM_SQL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRecord(rs, 0)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamRange(String stationCode, Collection<Pollutant> pollutants, LocalDateTime start,
+                            LocalDateTime end, Consumer<MeasurementRecord> consumer) {
+        if (pollutants.isEmpty()) {
+            return;
+        }
+
+        // Archived days are decoded one read window at a time
+        long from = start.toEpochSecond(ZoneOffset.UTC);
+        long to = end.toEpochSecond(ZoneOffset.UTC);
+        DaySpan span = archivedSpan(stationCode, start.toLocalDate(), end.toLocalDate());
+        LocalDate lastDay = span.last();
+        for (LocalDate day = span.first(); !day.isAfter(lastDay); day = day.plusDays(ARCHIVE_DAYS_PER_READ)) {
+            LocalDate readEnd = day.plusDays(ARCHIVE_DAYS_PER_READ - 1);
+            List<MeasurementRecord> archived = new ArrayList<>();
+            for (MeasurementArchive archive : archiveRepository.findByStationCodeAndDayBetween(
+                    stationCode, day, readEnd.isAfter(lastDay) ? lastDay : readEnd)) {
+                if (!pollutants.contains(archive.getPollutant())) {
+                    entityManager.detach(archive);
+                    continue;
+                }
+                GorillaCodec.Series series = GorillaCodec.decode(archive.getData(), from, to);
+                for (int i = 0; i < series.size(); i++) {
+                    archived.add(new MeasurementRecord(archive.getStation().getId(), archive.getPollutant(),
+                            series.value(i), series.aqi(i) == GorillaCodec.NO_AQI ? null : series.aqi(i),
+                            series.timestamp(i)));
+                }
+                // Decoded blocks are not needed anymore, do not let a long export accumulate them
+                entityManager.detach(archive);
+            }
+            archived.sort(PAGE_ORDER);
+            archived.forEach(consumer);
+        }
+
+        String[] names = pollutants.stream().map(Pollutant::name).toArray(String[]::new);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(RANGE_SQL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            ps.setString(1, stationCode);
+            ps.setArray(2, con.createArrayOf("varchar", names));
+            ps.setTimestamp(3, Timestamp.valueOf(start));
+            ps.setTimestamp(4, Timestamp.valueOf(end));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRecord(rs, 0)));
+    }
+
+    /**
+     * Narrows a range of days to the days archived for the station, so range reads do not query
+     * the archive for every window of a range that mostly holds raw rows. The returned span is
+     * empty (first after last) when nothing of the range is archived.
+     */
+    private DaySpan archivedSpan(String stationCode, LocalDate firstDay, LocalDate lastDay) {
+        ArchivedDaysProjection days = archiveRepository.findArchivedDays(stationCode);
+        if (days == null || days.getFirstDay() == null) {
+            return new DaySpan(firstDay, firstDay.minusDays(1));
+        }
+        return new DaySpan(
+                days.getFirstDay().isAfter(firstDay) ? days.getFirstDay() : firstDay,
+                days.getLastDay().isBefore(lastDay) ? days.getLastDay() : lastDay);
+    }
+
+    private static boolean isAfter(MeasurementRecord record, LocalDateTime timestamp, String pollutant) {
+        int cmp = record.timestamp().compareTo(timestamp);
+        return cmp > 0 || (cmp == 0 && record.pollutant().name().compareTo(pollutant) > 0);
+    }
+
+    private static MeasurementRecord mapRecord(ResultSet rs, int rowNum) throws SQLException {
+        int aqi = rs.getInt("aqi");
+        boolean noAqi = rs.wasNull();
+        return new MeasurementRecord(
+                rs.getLong("station_id"),
+                Pollutant.valueOf(rs.getString("pollutant")),
+                rs.getDouble("value"),
+                noAqi ? null : aqi,
+                rs.getTimestamp("timestamp").toLocalDateTime());
+    }
+
+    /**
+     * Binds the records as the five column arrays of an {@code unnest(...)} source.
+     */
+    private static void bindRecords(Connection con, PreparedStatement ps, int firstIndex,
+                                    List<MeasurementRecord> records) throws SQLException {
+        int size = records.size();
+        Long[] stationIds = new Long[size];
+        String[] pollutants = new String[size];
+        Double[] values = new Double[size];
+        Timestamp[] timestamps = new Timestamp[size];
+        Integer[] aqis = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            MeasurementRecord r = records.get(i);
+            stationIds[i] = r.stationId();
+            pollutants[i] = r.pollutant().name();
+            values[i] = r.value();
+            timestamps[i] = Timestamp.valueOf(r.timestamp());
+            aqis[i] = r.aqi();
+        }
+
+        ps.setArray(firstIndex, con.createArrayOf("int8", stationIds));
+        ps.setArray(firstIndex + 1, con.createArrayOf("varchar", pollutants));
+        ps.setArray(firstIndex + 2, con.createArrayOf("float8", values));
+        ps.setArray(firstIndex + 3, con.createArrayOf("timestamp", timestamps));
+        ps.setArray(firstIndex + 4, con.createArrayOf("int4", aqis));
+    }
+
+    private record DaySpan(LocalDate first, LocalDate last) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.MeasurementRollup;
+import com.aerogrid.backend.repository.projection.AggregatedMeasurementProjection;
+import com.aerogrid.backend.repository.projection.HourlyMeanProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for MeasurementRollup entity.
+ * <p>
+ * Rollups are written by {@link MeasurementRepositoryCustom#insertBatch} and
+ * {@link MeasurementRepositoryCustom#rebuildRollups}; this repository reads and expires them.
+ * </p>
+ */
+@Repository
+public interface MeasurementRollupRepository extends JpaRepository<MeasurementRollup, Long> {
+
+    /**
+     * Aggregates a station's rollups into chart buckets.
+     * <p>
+     * Buckets of {@code resolution} are read from {@code fallbackBefore} onwards and buckets of
+     * {@code fallbackResolution} before it, so charts keep working once the finer tier has expired.
+     * Pass the same resolution twice to read a single tier.
+     * </p>
+     *
+     * @param stationCode        the station code
+     * @param start              the start timestamp (inclusive), aligned to the rollup bucket
+     * @param end                the end timestamp (inclusive)
+     * @param bucketWidth        the chart bucket width as a PostgreSQL interval, e.g. {@code 6 hours}
+     * @param resolution         the rollup resolution to read
+     * @param fallbackResolution the coarser resolution to read before {@code fallbackBefore}
+     * @param fallbackBefore     the instant before which the fallback resolution is used
+     * @return one row per bucket and pollutant, ordered by bucket
+     */
+    @Query(value = """
+        SELECT
+            date_bin(CAST(:bucketWidth AS interval), r.bucket_start, TIMESTAMP '2024-01-01 00:00:00') AS timestamp,
+            r.pollutant AS pollutant,
+            SUM(r.value_sum) / SUM(r.sample_count) AS avgValue,
+            CAST(SUM(r.aqi_sum) AS float8) / NULLIF(SUM(r.aqi_count), 0) AS avgAqi
+        FROM measurement_rollups r JOIN stations s ON r.station_id = s.id
+        WHERE s.code = :stationCode AND r.bucket_start BETWEEN :start AND :end
+          AND ((r.resolution = :resolution AND r.bucket_start >= :fallbackBefore)
+               OR (r.resolution = :fallbackResolution AND r.bucket_start < :fallbackBefore))
+        GROUP BY 1, 2
+        ORDER BY 1 ASC
+        """, nativeQuery = true)
+    List<AggregatedMeasurementProjection> aggregate(@Param("stationCode") String stationCode,
+                                                    @Param("start") LocalDateTime start,
+                                                    @Param("end") LocalDateTime end,
+                                                    @Param("bucketWidth") String bucketWidth,
+                                                    @Param("resolution") String resolution,
+                                                    @Param("fallbackResolution") String fallbackResolution,
+                                                    @Param("fallbackBefore") LocalDateTime fallbackBefore);
+
+    /**
+     * Reads the HOUR rollups of the given pollutants from {@code since} onwards.
+     *
+     * @param since      the first hour to read
+     * @param pollutants pollutant names
+     * @return one row per station, pollutant and hour
+     */
+    @Query(value = """
+        SELECT r.station_id AS stationId, r.pollutant AS pollutant, r.bucket_start AS bucketStart,
+               r.value_sum AS valueSum, r.sample_count AS sampleCount
+        FROM measurement_rollups r
+        WHERE r.resolution = 'HOUR' AND r.bucket_start >= :since AND r.pollutant IN (:pollutants)
+        """, nativeQuery = true)
+    List<HourlyMeanProjection> findHourlySince(@Param("since") LocalDateTime since,
+                                               @Param("pollutants") List<String> pollutants);
+
+    /**
+     * @return whether any rollup exists
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM measurement_rollups)", nativeQuery = true)
+    boolean hasAny();
+
+    /**
+     * Deletes up to {@code limit} buckets of the given resolution that start before {@code before}.
+     *
+     * @param resolution the resolution name
+     * @param before     buckets starting before this instant are deleted
+     * @param limit      maximum number of rows to delete
+     * @return the number of rows deleted
+     */
+    @Modifying
+    @Query(value = """
+        DELETE FROM measurement_rollups
+        WHERE id IN (SELECT id FROM measurement_rollups
+                     WHERE resolution = :resolution AND bucket_start < :before
+                     LIMIT :limit)
+        """, nativeQuery = true)
+    int deleteExpiredChunk(@Param("resolution") String resolution,
+                           @Param("before") LocalDateTime before,
+                           @Param("limit") int limit);
+}
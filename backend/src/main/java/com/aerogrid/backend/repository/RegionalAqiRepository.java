@@ -0,0 +1,106 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.RegionalAqi;
+import com.aerogrid.backend.repository.projection.RegionalAqiProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for RegionalAqi entity.
+ */
+@Repository
+public interface RegionalAqiRepository extends JpaRepository<RegionalAqi, Long> {
+
+    /**
+     * Aggregates the hourly snapshots of [start, end) by region and upserts the results in one
+     * statement. Only active stations with an AQI count. Rows whose values did not change are
+     * not rewritten.
+     *
+     * @param start range start (inclusive), aligned to the hour
+     * @param end   range end (exclusive)
+     * @return the number of regional rows inserted or updated
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO regional_aqi AS g (region_type, resolution, region_key, timestamp,
+                                       max_aqi, avg_aqi, station_count, latitude, longitude)
+        SELECT m.region_type, m.resolution, m.region_key, h.timestamp,
+               MAX(h.max_aqi), CAST(AVG(h.max_aqi) AS float8), COUNT(*), AVG(m.latitude), AVG(m.longitude)
+        FROM hourly_aqi_snapshots h
+        JOIN station_regions m ON m.station_id = h.station_id
+        JOIN stations s ON s.id = h.station_id
+        WHERE h.timestamp >= :start AND h.timestamp < :end
+          AND h.max_aqi IS NOT NULL AND s.is_active = true
+        GROUP BY m.region_type, m.resolution, m.region_key, h.timestamp
+        ON CONFLICT (region_type, resolution, region_key, timestamp) DO UPDATE SET
+            max_aqi = EXCLUDED.max_aqi,
+            avg_aqi = EXCLUDED.avg_aqi,
+            station_count = EXCLUDED.station_count,
+            latitude = EXCLUDED.latitude,
+            longitude = EXCLUDED.longitude
+        WHERE (g.max_aqi, g.avg_aqi, g.station_count, g.latitude, g.longitude)
+              IS DISTINCT FROM (EXCLUDED.max_aqi, EXCLUDED.avg_aqi, EXCLUDED.station_count, EXCLUDED.latitude, EXCLUDED.longitude)
+        """, nativeQuery = true)
+    int upsertFromSnapshots(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Deletes the regional rows of [start, end) that no active station contributes to any more,
+     * e.g. after a station was moved, deactivated or deleted.
+     *
+     * @return the number of rows deleted
+     */
+    @Modifying
+    @Query(value = """
+        DELETE FROM regional_aqi g
+        WHERE g.timestamp >= :start AND g.timestamp < :end
+          AND NOT EXISTS (
+              SELECT 1
+              FROM station_regions m
+              JOIN hourly_aqi_snapshots h ON h.station_id = m.station_id AND h.timestamp = g.timestamp
+              JOIN stations s ON s.id = m.station_id
+              WHERE m.region_type = g.region_type AND m.resolution = g.resolution AND m.region_key = g.region_key
+                AND h.max_aqi IS NOT NULL AND s.is_active = true)
+        """, nativeQuery = true)
+    int deleteOrphans(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Finds the newest aggregate of every region of one type and resolution in
+     * [minTime, targetTime] whose centre lies inside the bounding box.
+     *
+     * @return one row per region
+     */
+    @Query(value = """
+        SELECT DISTINCT ON (g.region_key)
+               g.region_type AS regionType, g.resolution AS resolution, g.region_key AS regionKey,
+               g.timestamp AS timestamp, g.max_aqi AS maxAqi, g.avg_aqi AS avgAqi,
+               g.station_count AS stationCount, g.latitude AS latitude, g.longitude AS longitude
+        FROM regional_aqi g
+        WHERE g.region_type = :regionType AND g.resolution = :resolution
+          AND g.timestamp <= :targetTime AND g.timestamp >= :minTime
+          AND g.latitude BETWEEN :minLat AND :maxLat AND g.longitude BETWEEN :minLon AND :maxLon
+        ORDER BY g.region_key, g.timestamp DESC
+        """, nativeQuery = true)
+    List<RegionalAqiProjection> findLatest(@Param("regionType") String regionType,
+                                           @Param("resolution") int resolution,
+                                           @Param("targetTime") LocalDateTime targetTime,
+                                           @Param("minTime") LocalDateTime minTime,
+                                           @Param("minLat") double minLat,
+                                           @Param("minLon") double minLon,
+                                           @Param("maxLat") double maxLat,
+                                           @Param("maxLon") double maxLon);
+
+    /**
+     * Deletes the aggregates of hours before {@code before}.
+     *
+     * @return the number of rows deleted
+     */
+    @Modifying
+    @Query(value = "DELETE FROM regional_aqi WHERE timestamp < :before", nativeQuery = true)
+    int deleteBefore(@Param("before") LocalDateTime before);
+}
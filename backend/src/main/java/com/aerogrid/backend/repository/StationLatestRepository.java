@@ -0,0 +1,50 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.StationLatest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for StationLatest entity.
+ * <p>
+ * Rows are written by {@link MeasurementRepositoryCustom#insertBatch}; this repository reads them.
+ * </p>
+ */
+@Repository
+public interface StationLatestRepository extends JpaRepository<StationLatest, StationLatest.Key> {
+
+    /**
+     * Finds the latest reading of every pollutant of a station.
+     *
+     * @param stationCode the station code
+     * @return one row per pollutant
+     */
+    @Query("SELECT l FROM StationLatest l WHERE l.station.code = :stationCode ORDER BY l.pollutant ASC")
+    List<StationLatest> findByStationCode(@Param("stationCode") String stationCode);
+
+    /**
+     * @return whether any latest reading exists
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM station_latest)", nativeQuery = true)
+    boolean hasAny();
+
+    /**
+     * Fills the table from the newest raw measurement of every station and pollutant.
+     *
+     * @return the number of rows inserted
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO station_latest (station_id, pollutant, timestamp, value, aqi)
+        SELECT DISTINCT ON (m.station_id, m.pollutant) m.station_id, m.pollutant, m.timestamp, m.value, m.aqi
+        FROM measurements m
+        ORDER BY m.station_id, m.pollutant, m.timestamp DESC
+        ON CONFLICT (station_id, pollutant) DO NOTHING
+        """, nativeQuery = true)
+    int backfill();
+}
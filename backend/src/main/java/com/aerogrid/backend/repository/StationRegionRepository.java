@@ -0,0 +1,15 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.StationRegion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for StationRegion entity.
+ * <p>
+ * Rows are maintained by {@code RegionalAqiService} through {@link StationRegionRepositoryCustom#replaceForStations}.
+ * </p>
+ */
+@Repository
+public interface StationRegionRepository extends JpaRepository<StationRegion, StationRegion.Key>, StationRegionRepositoryCustom {
+}
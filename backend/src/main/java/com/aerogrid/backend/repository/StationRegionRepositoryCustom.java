@@ -0,0 +1,22 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.StationRegion;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Custom fragment of {@link StationRegionRepository} for batch writes.
+ */
+public interface StationRegionRepositoryCustom {
+
+    /**
+     * Replaces the regions of the given stations: their current rows are deleted and the given
+     * ones inserted, in one transaction.
+     *
+     * @param stationIds the stations whose regions are replaced
+     * @param regions    the new regions, all belonging to {@code stationIds}
+     * @return the number of rows inserted
+     */
+    int replaceForStations(Collection<Long> stationIds, List<StationRegion> regions);
+}
@@ -0,0 +1,78 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.domain.StationRegion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC-backed implementation of {@link StationRegionRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@RequiredArgsConstructor
+public class StationRegionRepositoryImpl implements StationRegionRepositoryCustom {
+
+    private static final String DELETE_SQL = """
+        DELETE FROM station_regions WHERE station_id = ANY(?::bigint[])
+        """;
+
+    private static final String INSERT_SQL = """
+        INSERT INTO station_regions (station_id, region_type, resolution, region_key, latitude, longitude)
+        SELECT r.station_id, r.region_type, r.resolution, r.region_key, r.latitude, r.longitude
+        FROM unnest(?::bigint[], ?::varchar[], ?::int[], ?::varchar[], ?::float8[], ?::float8[])
+             AS r(station_id, region_type, resolution, region_key, latitude, longitude)
+        JOIN stations s ON s.id = r.station_id
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public int replaceForStations(Collection<Long> stationIds, List<StationRegion> regions) {
+        if (stationIds.isEmpty()) {
+            return 0;
+        }
+
+        Long[] ids = stationIds.toArray(new Long[0]);
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_SQL);
+            ps.setArray(1, con.createArrayOf("int8", ids));
+            return ps;
+        });
+        if (regions.isEmpty()) {
+            return 0;
+        }
+
+        int size = regions.size();
+        Long[] regionStationIds = new Long[size];
+        String[] types = new String[size];
+        Integer[] resolutions = new Integer[size];
+        String[] keys = new String[size];
+        Double[] latitudes = new Double[size];
+        Double[] longitudes = new Double[size];
+        for (int i = 0; i < size; i++) {
+            StationRegion region = regions.get(i);
+            regionStationIds[i] = region.getStationId();
+            types[i] = region.getRegionType().name();
+            resolutions[i] = region.getResolution();
+            keys[i] = region.getRegionKey();
+            latitudes[i] = region.getLatitude();
+            longitudes[i] = region.getLongitude();
+        }
+
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL);
+            ps.setArray(1, con.createArrayOf("int8", regionStationIds));
+            ps.setArray(2, con.createArrayOf("varchar", types));
+            ps.setArray(3, con.createArrayOf("int4", resolutions));
+            ps.setArray(4, con.createArrayOf("varchar", keys));
+            ps.setArray(5, con.createArrayOf("float8", latitudes));
+            ps.setArray(6, con.createArrayOf("float8", longitudes));
+            return ps;
+        });
+    }
+}
@@ -3,6 +3,7 @@ package com.aerogrid.backend.repository;
 import com.aerogrid.backend.controller.dto.StationMapDto;
 import com.aerogrid.backend.domain.Station;
 import com.aerogrid.backend.repository.projection.StationMapProjection;
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -14,7 +15,7 @@ import java.util.Optional;
  * Repository for Station entity.
  */
 @Repository
-public interface StationRepository extends JpaRepository<Station, Long> {
+public interface StationRepository extends JpaRepository<Station, Long>, StationRepositoryCustom {
 
     /**
      * Finds a station by its unique code.
@@ -35,10 +36,11 @@ public interface StationRepository extends JpaRepository<Station, Long> {
         SELECT s.id as id, s.code as code, s.name as name,
                CAST(ST_Y(s.location) AS double precision) as latitude,
                CAST(ST_X(s.location) AS double precision) as longitude,
-               a.max_aqi as aqi, a.pollutant as pollutant, s.trust_score as trustScore, s.source_type as sourceType
+               a.max_aqi as aqi, a.pollutant as pollutant,
+               a.rolling_aqi as rollingAqi, a.rolling_pollutant as rollingPollutant, s.trust_score as trustScore, s.source_type as sourceType
         FROM stations s
         LEFT JOIN LATERAL (
-            SELECT max_aqi, pollutant
+            SELECT max_aqi, pollutant, rolling_aqi, rolling_pollutant
             FROM hourly_aqi_snapshots h
             WHERE h.station_id = s.id 
               AND h.timestamp <= CAST(:targetTime AS timestamp)
@@ -53,24 +55,53 @@ public interface StationRepository extends JpaRepository<Station, Long> {
             @org.springframework.data.repository.query.Param("minTime") java.time.LocalDateTime minTime);
 
     /**
-     * Finds all active stations within a specified distance from a geographic point.
-     * Uses PostGIS spatial functions with SRID 4326.
+     * Reads the map attributes of every station, active or not, without loading the entities.
      *
-     * @param lat latitude of the center point
-     * @param lon longitude of the center point
-     * @param distanceInDegrees search radius in degrees
-     * @return list of stations within the specified distance
+     * @return one row per station
      */
     @Query(value = """
-        SELECT s.* FROM stations s
-        WHERE ST_DWithin(
-            s.location, 
-            ST_SetSRID(ST_MakePoint(:lon, :lat), 4326), 
-            :distanceInDegrees
-        )
+        SELECT s.id as id, s.code as code, s.name as name,
+               CAST(ST_Y(s.location) AS double precision) as latitude,
+               CAST(ST_X(s.location) AS double precision) as longitude,
+               s.trust_score as trustScore, s.source_type as sourceType,
+               s.is_active as isActive, s.user_id as ownerId
+        FROM stations s
+        """, nativeQuery = true)
+    List<StationMetadataProjection> findAllMetadata();
+
+    /**
+     * Reads the map attributes of the active stations, optionally inside a bounding box.
+     *
+     * @return one row per station, ordered by id
+     */
+    @Query(value = """
+        SELECT s.id as id, s.code as code, s.name as name,
+               CAST(ST_Y(s.location) AS double precision) as latitude,
+               CAST(ST_X(s.location) AS double precision) as longitude,
+               s.trust_score as trustScore, s.source_type as sourceType,
+               s.is_active as isActive, s.user_id as ownerId
+        FROM stations s
+        WHERE s.is_active = true
+        ORDER BY s.id
+        """, nativeQuery = true)
+    List<StationMetadataProjection> findActiveMetadata();
+
+    @Query(value = """
+        SELECT s.id as id, s.code as code, s.name as name,
+               CAST(ST_Y(s.location) AS double precision) as latitude,
+               CAST(ST_X(s.location) AS double precision) as longitude,
+               s.trust_score as trustScore, s.source_type as sourceType,
+               s.is_active as isActive, s.user_id as ownerId
+        FROM stations s
+        WHERE s.location && ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326)
         AND s.is_active = true
+        ORDER BY s.id
         """, nativeQuery = true)
-    List<Station> findStationsNearby(double lat, double lon, double distanceInDegrees);
+    List<StationMetadataProjection> findActiveMetadataInBoundingBox(
+            @org.springframework.data.repository.query.Param("minLon") double minLon,
+            @org.springframework.data.repository.query.Param("minLat") double minLat,
+            @org.springframework.data.repository.query.Param("maxLon") double maxLon,
+            @org.springframework.data.repository.query.Param("maxLat") double maxLat);
 
     /**
      * Retrieves all active stations with their latest AQI and worst pollutant.
@@ -82,10 +113,11 @@ public interface StationRepository extends JpaRepository<Station, Long> {
         SELECT s.id as id, s.code as code, s.name as name,
                CAST(ST_Y(s.location) AS double precision) as latitude,
                CAST(ST_X(s.location) AS double precision) as longitude,
-               a.max_aqi as aqi, a.pollutant as pollutant, s.trust_score as trustScore, s.source_type as sourceType
+               a.max_aqi as aqi, a.pollutant as pollutant,
+               a.rolling_aqi as rollingAqi, a.rolling_pollutant as rollingPollutant, s.trust_score as trustScore, s.source_type as sourceType
         FROM stations s
         LEFT JOIN LATERAL (
-            SELECT max_aqi, pollutant
+            SELECT max_aqi, pollutant, rolling_aqi, rolling_pollutant
             FROM hourly_aqi_snapshots h
             WHERE h.station_id = s.id
               AND h.timestamp <= CAST(:targetTime AS timestamp)
@@ -111,10 +143,11 @@ public interface StationRepository extends JpaRepository<Station, Long> {
         SELECT s.id as id, s.code as code, s.name as name,
                CAST(ST_Y(s.location) AS double precision) as latitude,
                CAST(ST_X(s.location) AS double precision) as longitude,
-               a.max_aqi as aqi, a.pollutant as pollutant, s.trust_score as trustScore, s.source_type as sourceType
+               a.max_aqi as aqi, a.pollutant as pollutant,
+               a.rolling_aqi as rollingAqi, a.rolling_pollutant as rollingPollutant, s.trust_score as trustScore, s.source_type as sourceType
         FROM stations s
         LEFT JOIN LATERAL (
-            SELECT max_aqi, pollutant
+            SELECT max_aqi, pollutant, rolling_aqi, rolling_pollutant
             FROM hourly_aqi_snapshots h
             WHERE h.station_id = s.id
               AND h.timestamp <= CAST(:targetTime AS timestamp)
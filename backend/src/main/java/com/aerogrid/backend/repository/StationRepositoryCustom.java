@@ -0,0 +1,22 @@
+package com.aerogrid.backend.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Custom fragment of {@link StationRepository} for queries that do not map to entities or projections.
+ */
+public interface StationRepositoryCustom {
+
+    /**
+     * Encodes the active stations of one map tile as a Mapbox Vector Tile, with the latest hourly
+     * AQI snapshot of each station in [minTime, targetTime] as feature properties.
+     *
+     * @param z          zoom level
+     * @param x          tile column
+     * @param y          tile row, counted from the north
+     * @param targetTime newest snapshot considered
+     * @param minTime    oldest snapshot considered
+     * @return the tile, empty if it has no stations
+     */
+    byte[] findStatusTile(int z, int x, int y, LocalDateTime targetTime, LocalDateTime minTime);
+}
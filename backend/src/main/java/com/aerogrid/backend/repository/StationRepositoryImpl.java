@@ -0,0 +1,61 @@
+package com.aerogrid.backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * JDBC-backed implementation of {@link StationRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@RequiredArgsConstructor
+public class StationRepositoryImpl implements StationRepositoryCustom {
+
+    /** Tile extent in MVT coordinates and the buffer kept around it, so symbols are not cut at tile edges */
+    private static final int EXTENT = 4096;
+    private static final int BUFFER = 64;
+
+    // The stations are filtered on their own index with the buffered tile in WGS84,
+    // then projected to Web Mercator for ST_AsMVTGeom
+    private static final String TILE_SQL = """
+        WITH bounds AS (
+            SELECT ST_TileEnvelope(?, ?, ?) AS tile,
+                   ST_Transform(ST_TileEnvelope(?, ?, ?, margin => ?), 4326) AS area
+        ),
+        features AS (
+            SELECT s.id AS id, s.code AS code, s.name AS name,
+                   a.max_aqi AS aqi, a.pollutant AS pollutant,
+                   a.rolling_aqi AS "rollingAqi", a.rolling_pollutant AS "rollingPollutant",
+                   s.trust_score AS "trustScore", s.source_type AS "sourceType",
+                   ST_AsMVTGeom(ST_Transform(s.location, 3857), b.tile, ?, ?, true) AS geom
+            FROM bounds b
+            JOIN stations s ON s.location && b.area
+            LEFT JOIN LATERAL (
+                SELECT max_aqi, pollutant, rolling_aqi, rolling_pollutant
+                FROM hourly_aqi_snapshots h
+                WHERE h.station_id = s.id
+                  AND h.timestamp <= ?
+                  AND h.timestamp >= ?
+                ORDER BY h.timestamp DESC LIMIT 1
+            ) a ON true
+            WHERE s.is_active = true
+        )
+        SELECT ST_AsMVT(features, 'stations', ?, 'geom', 'id')
+        FROM features
+        WHERE geom IS NOT NULL
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public byte[] findStatusTile(int z, int x, int y, LocalDateTime targetTime, LocalDateTime minTime) {
+        byte[] tile = jdbcTemplate.queryForObject(TILE_SQL, byte[].class,
+                z, x, y, z, x, y, (double) BUFFER / EXTENT,
+                EXTENT, BUFFER,
+                Timestamp.valueOf(targetTime), Timestamp.valueOf(minTime),
+                EXTENT);
+        return tile != null ? tile : new byte[0];
+    }
+}
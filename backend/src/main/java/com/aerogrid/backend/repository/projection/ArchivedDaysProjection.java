@@ -0,0 +1,8 @@
+package com.aerogrid.backend.repository.projection;
+
+import java.time.LocalDate;
+
+public interface ArchivedDaysProjection {
+    LocalDate getFirstDay();
+    LocalDate getLastDay();
+}
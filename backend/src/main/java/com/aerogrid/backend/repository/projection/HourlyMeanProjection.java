@@ -0,0 +1,14 @@
+package com.aerogrid.backend.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sum and count of one station, pollutant and hour, read from the HOUR rollups.
+ */
+public interface HourlyMeanProjection {
+    Long getStationId();
+    String getPollutant();
+    LocalDateTime getBucketStart();
+    Double getValueSum();
+    Long getSampleCount();
+}
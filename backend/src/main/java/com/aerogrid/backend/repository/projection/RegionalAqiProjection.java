@@ -0,0 +1,15 @@
+package com.aerogrid.backend.repository.projection;
+
+import java.time.LocalDateTime;
+
+public interface RegionalAqiProjection {
+    String getRegionType();
+    Integer getResolution();
+    String getRegionKey();
+    LocalDateTime getTimestamp();
+    Integer getMaxAqi();
+    Double getAvgAqi();
+    Integer getStationCount();
+    Double getLatitude();
+    Double getLongitude();
+}
@@ -8,6 +8,8 @@ public interface StationMapProjection {
     Double getLongitude();
     Integer getAqi();
     String getPollutant();
+    Integer getRollingAqi();
+    String getRollingPollutant();
     Integer getTrustScore();
     String getSourceType();
 }
@@ -0,0 +1,13 @@
+package com.aerogrid.backend.repository.projection;
+
+public interface StationMetadataProjection {
+    Long getId();
+    String getCode();
+    String getName();
+    Double getLatitude();
+    Double getLongitude();
+    Integer getTrustScore();
+    String getSourceType();
+    Boolean getIsActive();
+    Long getOwnerId();
+}
@@ -93,6 +93,11 @@ public class SecurityConfig {
                         .requestMatchers("/api/v1/auth/**").permitAll()
                         .requestMatchers("/api/v1/ingest/**").permitAll()
                         .requestMatchers(HttpMethod.GET,"/api/v1/stations/**").permitAll()
+                        .requestMatchers(HttpMethod.GET,"/api/v1/regions/**").permitAll()
+                        .requestMatchers(HttpMethod.GET,"/api/v1/tiles/**").permitAll()
+
+                        // -- Admin: starting export jobs --
+                        .requestMatchers(HttpMethod.POST, "/api/v1/exports/**").hasRole("ADMIN")
 
                         // -- Protected: every other route requires a valid JWT --
                         .anyRequest().authenticated()
@@ -116,6 +121,7 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(allowedOrigins); 
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-API-KEY"));
+        configuration.setExposedHeaders(List.of("X-Next-Cursor"));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -1,68 +1,160 @@
 package com.aerogrid.backend.service;
 
-import com.aerogrid.backend.domain.HourlyAqiSnapshot;
-import com.aerogrid.backend.domain.Station;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.ingestion.common.MeasurementIngestListener;
 import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
-import com.aerogrid.backend.repository.MeasurementRepository;
-import com.aerogrid.backend.repository.StationRepository;
-import com.aerogrid.backend.repository.projection.HourlyAqiNativeProjection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Refreshes the hourly AQI snapshots used by the station map.
+ * <p>
+ * Snapshots are recomputed from the HOUR rollups with one upsert per run of consecutive hours,
+ * at most {@code chunk-hours} long. At startup the last two days are recomputed; after that each
+ * hourly run only recomputes the hours that received readings since the previous run, however
+ * old, so late data updates hours that were already stored. Run time and rows
+ * written are published as the {@code aerogrid.aqi.snapshot.duration} and
+ * {@code aerogrid.aqi.snapshot.rows} metrics. Chunks that changed are announced to the
+ * {@link AqiSnapshotListener}s.
+ * </p>
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
-public class AqiAggregationService {
+public class AqiAggregationService implements MeasurementIngestListener {
+
+    private static final int WINDOW_DAYS = 2;
 
-    private final MeasurementRepository measurementRepository;
     private final HourlyAqiSnapshotRepository hourlyAqiSnapshotRepository;
-    private final StationRepository stationRepository;
+    private final AqiSnapshotNotifier snapshotNotifier;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer duration;
+    private final Counter rows;
+    private final int chunkHours;
 
-    @Scheduled(cron = "0 0 * * * *")
-    @Transactional
+    /** Hours that received readings since the last run */
+    private final Set<LocalDateTime> changedHours = ConcurrentHashMap.newKeySet();
+
+    public AqiAggregationService(HourlyAqiSnapshotRepository hourlyAqiSnapshotRepository,
+                                 AqiSnapshotNotifier snapshotNotifier,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${aerogrid.aqi.snapshot.chunk-hours:12}") int chunkHours) {
+        this.hourlyAqiSnapshotRepository = hourlyAqiSnapshotRepository;
+        this.snapshotNotifier = snapshotNotifier;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.duration = Timer.builder("aerogrid.aqi.snapshot.duration")
+                .description("Time spent refreshing the hourly AQI snapshots")
+                .register(meterRegistry);
+        this.rows = Counter.builder("aerogrid.aqi.snapshot.rows")
+                .description("Hourly AQI snapshots inserted or updated")
+                .register(meterRegistry);
+        this.chunkHours = Math.max(1, chunkHours);
+    }
+
+    @Override
+    public void onMeasurementsStored(List<MeasurementRecord> records) {
+        for (MeasurementRecord record : records) {
+            changedHours.add(record.timestamp().truncatedTo(ChronoUnit.HOURS));
+        }
+    }
+
+    /**
+     * Recomputes the whole window once, for the readings stored while the application was down.
+     */
     @PostConstruct
+    public void aggregateWindow() {
+        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        recompute(end.minusDays(WINDOW_DAYS), end);
+    }
+
+    /**
+     * Recomputes the hours that received readings since the last run. Hours older than the
+     * lateness window of the streaming aggregator are only updated here.
+     */
+    @Scheduled(cron = "0 0 * * * *")
     public void aggregateHourlyAqi() {
-        LocalDateTime end = LocalDateTime.now();
-        LocalDateTime start = end.minusDays(2);
-
-        log.info("Starting AQI aggregation for window: {} to {}", start, end);
-
-        List<HourlyAqiNativeProjection> aggregates = measurementRepository.findMaxAqiBetweenNative(start, end);
-        int savedCount = 0;
-
-        for (HourlyAqiNativeProjection proj : aggregates) {
-            try {
-                boolean exists = hourlyAqiSnapshotRepository.existsByStationIdAndTimestamp(
-                        proj.getStationId(), proj.getTimestamp()
-                );
-
-                if (!exists) {
-                    Station station = stationRepository.findById(proj.getStationId()).orElse(null);
-                    if (station != null) {
-                        HourlyAqiSnapshot snapshot = HourlyAqiSnapshot.builder()
-                                .station(station)
-                                .timestamp(proj.getTimestamp())
-                                .maxAqi(proj.getMaxAqi())
-                                .pollutant(proj.getPollutant())
-                                .build();
-
-                        hourlyAqiSnapshotRepository.save(snapshot);
-                        savedCount++;
-                    }
+        List<LocalDateTime> hours = new ArrayList<>();
+        for (Iterator<LocalDateTime> it = changedHours.iterator(); it.hasNext(); ) {
+            hours.add(it.next());
+            it.remove();
+        }
+        if (hours.isEmpty()) return;
+        hours.sort(null);
+
+        log.info("Starting AQI aggregation for {} changed hours from {} to {}",
+                hours.size(), hours.get(0), hours.get(hours.size() - 1));
+
+        long written = duration.record(() -> {
+            long total = 0;
+            int i = 0;
+            while (i < hours.size()) {
+                LocalDateTime rangeStart = hours.get(i);
+                LocalDateTime rangeEnd = rangeStart.plusHours(1);
+                i++;
+                while (i < hours.size() && hours.get(i).equals(rangeEnd)
+                        && rangeEnd.isBefore(rangeStart.plusHours(chunkHours))) {
+                    rangeEnd = rangeEnd.plusHours(1);
+                    i++;
+                }
+                try {
+                    total += upsert(rangeStart, rangeEnd);
+                } catch (RuntimeException e) {
+                    // Retried on the next run
+                    hours.subList(hours.indexOf(rangeStart), hours.size()).forEach(changedHours::add);
+                    throw e;
                 }
-            } catch (Exception e) {
-                log.error("Failed to save snapshot for stationId: {} at {}", proj.getStationId(), proj.getTimestamp(), e);
             }
-        }
+            return total;
+        });
+        rows.increment(written);
+
+        log.info("Completed AQI aggregation. Inserted or updated {} hourly snapshots.", written);
+    }
+
+    /**
+     * Recomputes every hour of a range, e.g. after its rollups were rebuilt.
+     *
+     * @param start range start, aligned down to the hour
+     * @param end   range end (exclusive)
+     */
+    public void recompute(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime first = start.truncatedTo(ChronoUnit.HOURS);
+        log.info("Starting AQI aggregation for window: {} to {}", first, end);
+
+        long written = duration.record(() -> {
+            long total = 0;
+            for (LocalDateTime from = first; from.isBefore(end); from = from.plusHours(chunkHours)) {
+                LocalDateTime chunkEnd = from.plusHours(chunkHours).isAfter(end) ? end : from.plusHours(chunkHours);
+                total += upsert(from, chunkEnd);
+            }
+            return total;
+        });
+        rows.increment(written);
+
+        log.info("Completed AQI aggregation. Inserted or updated {} hourly snapshots.", written);
+    }
+
+    private int upsert(LocalDateTime start, LocalDateTime end) {
+        Integer count = transactionTemplate.execute(status -> hourlyAqiSnapshotRepository.upsertFromRollups(start, end));
+        if (count == null || count == 0) return 0;
 
-        log.info("Completed AQI aggregation. Processed {} hourly aggregates, saved {} new snapshots.", aggregates.size(), savedCount);
+        snapshotNotifier.snapshotsChanged(start, end);
+        return count;
     }
 }
@@ -1,26 +1,60 @@
 package com.aerogrid.backend.service;
 
 import com.aerogrid.backend.domain.Pollutant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
+import java.util.Locale;
+
 /**
  * Service responsible for calculating the Air Quality Index (AQI) based on pollutant concentrations.
  * <p>
- * This service implements the logic to map raw concentration values (e.g., µg/m³)
- * to a standardized index, following European and Spanish national standards.
+ * Concentrations are mapped to an index with the breakpoint table of the configured scale
+ * ({@code aerogrid.aqi.scale}). The scales shipped in {@code aqi-scales.properties} are:
+ * <ul>
+ * <li><b>eu</b> (default): <b>Spanish National Air Quality Index (ICA)</b> and
+ * <b>European Air Quality Index (EAQI)</b> levels 1 to 6.</li>
+ * <li><b>us-epa</b>: US EPA AQI, 0 to 500.</li>
+ * <li><b>caqi</b>: hourly Common Air Quality Index, 0 to 100.</li>
+ * </ul>
+ * All breakpoints are in µg/m³, except CO in mg/m³. A scale is defined by the properties
+ * {@code aerogrid.aqi.scales.<name>.kind}, {@code .indexes} (linear scales only) and one
+ * comma separated list of breakpoints per pollutant, e.g. {@code aerogrid.aqi.scales.eu.NO2}.
  * </p>
  */
+@Slf4j
 @Service
+@PropertySource("classpath:aqi-scales.properties")
 public class AqiCalculatorService {
 
+    /** Returned by the primitive methods when a value is not scored */
+    public static final int NO_AQI = AqiScale.NO_AQI;
+
+    private static final String SCALES_PREFIX = "aerogrid.aqi.scales.";
+
+    private final AqiScale scale;
+
+    public AqiCalculatorService(Environment environment,
+                                @Value("${aerogrid.aqi.scale:eu}") String scaleName) {
+        this.scale = loadScale(environment, scaleName);
+        log.info("AQI scale {} loaded", scale);
+    }
+
     /**
-     * Calculates the Air Quality Index (AQI) for a given pollutant and value.
-     * <p>
-     * The AQI is calculated based on the <b>Spanish National Air Quality Index (ICA)</b>
-     * and the <b>European Air Quality Index (EAQI)</b> standards.
-     * </p>
+     * @return the active scale
+     */
+    public AqiScale getScale() {
+        return scale;
+    }
+
+    /**
+     * Calculates the AQI of one value.
      * <p>
-     * <b>AQI Scale (1-6):</b>
+     * <b>EU scale (1-6):</b>
      * <ul>
      * <li><b>1: Good</b> (Satisfactory air quality, little or no risk)</li>
      * <li><b>2: Fair</b> (Acceptable quality, matches legal limits)</li>
@@ -30,123 +64,82 @@ public class AqiCalculatorService {
      * <li><b>6: Extremely Poor</b> (Serious health effects for everyone)</li>
      * </ul>
      *
-     * @param pollutantName The name of the pollutant (e.g., "NO2", "PM10", "CO").
-     * @param value         The measured concentration value.
-     * @return The AQI level (1 to 6), or {@code null} if the pollutant is not supported
-     * (e.g., H2S, C6H6) or the value is invalid.
+     * @param pollutant The pollutant.
+     * @param value     The measured concentration value.
+     * @return The AQI, or {@link #NO_AQI} if the pollutant is not scored (e.g., H2S, C6H6)
+     * or the value is negative.
      */
-    public Integer calculateAqi(String pollutantName, Double value) {
-        if (value == null || value < 0) return null;
-
-        try {
-            Pollutant pollutant = Pollutant.valueOf(pollutantName);
-            return switch (pollutant) {
-                case NO2 -> calculateNo2(value);
-                case PM10 -> calculatePm10(value);
-                case PM25 -> calculatePm25(value);
-                case O3 -> calculateO3(value);
-                case SO2 -> calculateSo2(value);
-                case CO -> calculateCo(value);
-                default -> null;
-            };
-        } catch (IllegalArgumentException e) {
-            return null;
-        }
+    public int calculate(Pollutant pollutant, double value) {
+        return scale.score(pollutant, value);
     }
 
     /**
-     * Calculates AQI for Nitrogen Dioxide (NO2).
-     * <br>
-     * <b>Unit:</b> µg/m³ (micrograms per cubic meter).
-     * <br>
-     * <b>Standard:</b> European Air Quality Index (EAQI) / ICA (Spain).
+     * Calculates the AQI of a batch of values of one pollutant.
+     *
+     * @param pollutant The pollutant.
+     * @param values    The measured concentration values.
+     * @param out       Receives the AQI of each value, or {@link #NO_AQI}; at least as long as {@code values}.
      */
-    private Integer calculateNo2(Double v) {
-        if (v <= 40) return 1;
-        if (v <= 90) return 2;
-        if (v <= 120) return 3;
-        if (v <= 230) return 4;
-        if (v <= 340) return 5;
-        return 6;
+    public void calculate(Pollutant pollutant, double[] values, int[] out) {
+        scale.score(pollutant, values, out, values.length);
     }
 
     /**
-     * Calculates AQI for Particulate Matter < 10 µm (PM10).
-     * <br>
-     * <b>Unit:</b> µg/m³ (micrograms per cubic meter).
-     * <br>
-     * <b>Standard:</b> European Air Quality Index (EAQI) / ICA (Spain).
+     * Boxed variant of {@link #calculate(Pollutant, double)} for building measurement records.
+     *
+     * @return The AQI, or {@code null} if the value is not scored.
      */
-    private Integer calculatePm10(Double v) {
-        if (v <= 20) return 1;
-        if (v <= 40) return 2;
-        if (v <= 50) return 3;
-        if (v <= 100) return 4;
-        if (v <= 150) return 5;
-        return 6;
+    public Integer calculateAqi(Pollutant pollutant, Double value) {
+        if (value == null) return null;
+        int aqi = scale.score(pollutant, value);
+        return aqi == NO_AQI ? null : aqi;
     }
 
     /**
-     * Calculates AQI for Particulate Matter < 2.5 µm (PM2.5).
-     * <br>
-     * <b>Unit:</b> µg/m³ (micrograms per cubic meter).
-     * <br>
-     * <b>Standard:</b> European Air Quality Index (EAQI) / ICA (Spain).
+     * Calculates the AQI for a pollutant given by name.
+     *
+     * @param pollutantName The name of the pollutant (e.g., "NO2", "PM10", "CO").
+     * @param value         The measured concentration value.
+     * @return The AQI, or {@code null} if the pollutant is unknown or not scored, or the value is invalid.
      */
-    private Integer calculatePm25(Double v) {
-        if (v <= 10) return 1;
-        if (v <= 20) return 2;
-        if (v <= 25) return 3;
-        if (v <= 50) return 4;
-        if (v <= 75) return 5;
-        return 6;
+    public Integer calculateAqi(String pollutantName, Double value) {
+        if (pollutantName == null || value == null) return null;
+        for (Pollutant pollutant : Pollutant.values()) {
+            if (pollutant.name().equals(pollutantName)) return calculateAqi(pollutant, value);
+        }
+        return null;
     }
 
     /**
-     * Calculates AQI for Ozone (O3).
-     * <br>
-     * <b>Unit:</b> µg/m³ (micrograms per cubic meter).
-     * <br>
-     * <b>Standard:</b> European Air Quality Index (EAQI) / ICA (Spain).
+     * Builds a scale from its {@code aerogrid.aqi.scales.<name>.*} properties.
+     *
+     * @throws IllegalStateException if the scale is not defined or its breakpoints are invalid
      */
-    private Integer calculateO3(Double v) {
-        if (v <= 50) return 1;
-        if (v <= 100) return 2;
-        if (v <= 130) return 3;
-        if (v <= 240) return 4;
-        if (v <= 380) return 5;
-        return 6;
-    }
+    static AqiScale loadScale(Environment environment, String name) {
+        String prefix = SCALES_PREFIX + name + ".";
+        String kind = environment.getProperty(prefix + "kind");
+        if (kind == null) {
+            throw new IllegalStateException("AQI scale '" + name + "' is not defined (missing " + prefix + "kind)");
+        }
 
-    /**
-     * Calculates AQI for Sulfur Dioxide (SO2).
-     * <br>
-     * <b>Unit:</b> µg/m³ (micrograms per cubic meter).
-     * <br>
-     * <b>Standard:</b> European Air Quality Index (EAQI) / ICA (Spain).
-     */
-    private Integer calculateSo2(Double v) {
-        if (v <= 100) return 1;
-        if (v <= 200) return 2;
-        if (v <= 350) return 3;
-        if (v <= 500) return 4;
-        if (v <= 750) return 5;
-        return 6;
+        double[][] breakpoints = new double[Pollutant.values().length][];
+        for (Pollutant pollutant : Pollutant.values()) {
+            breakpoints[pollutant.ordinal()] = parse(environment.getProperty(prefix + pollutant.name()));
+        }
+
+        try {
+            return new AqiScale(name, AqiScale.Kind.valueOf(kind.trim().toUpperCase(Locale.ROOT)),
+                    breakpoints, parse(environment.getProperty(prefix + "indexes")));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid AQI scale '" + name + "': " + e.getMessage(), e);
+        }
     }
 
-    /**
-     * Calculates AQI for Carbon Monoxide (CO).
-     * <br>
-     * <b>Unit:</b> mg/m³ (milligrams per cubic meter).
-     * <br>
-     * <b>Standard:</b> National Air Quality Index (ICA) - MITECO (Spain).
-     */
-    private Integer calculateCo(Double v) {
-        if (v <= 5) return 1;
-        if (v <= 10) return 2;
-        if (v <= 15) return 3;
-        if (v <= 25) return 4;
-        if (v <= 50) return 5;
-        return 6;
+    private static double[] parse(String list) {
+        if (list == null || list.isBlank()) return null;
+        return Arrays.stream(list.split(","))
+                .map(String::trim)
+                .mapToDouble(Double::parseDouble)
+                .toArray();
     }
-}
\ No newline at end of file
+}
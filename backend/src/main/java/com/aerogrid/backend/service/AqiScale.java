@@ -0,0 +1,144 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.Pollutant;
+
+import java.util.Arrays;
+
+/**
+ * Breakpoint table of one air quality index scale.
+ * <p>
+ * Each pollutant has an ascending list of concentration breakpoints, stored in an array indexed
+ * by {@link Pollutant#ordinal()}. A breakpoint is the inclusive upper bound of a band. Two kinds
+ * of scale are supported:
+ * <ul>
+ * <li>{@link Kind#LEVEL}: the index is the number of the band the value falls in, starting at 1,
+ * and values above the last breakpoint get one level more (EAQI, ICA).</li>
+ * <li>{@link Kind#LINEAR}: the index is interpolated linearly inside the band between the index
+ * values of its bounds, and capped at the last one (US EPA AQI, CAQI).</li>
+ * </ul>
+ * Pollutants without breakpoints are not scored.
+ * </p>
+ */
+public final class AqiScale {
+
+    /** Returned for unscored pollutants and for negative or NaN values */
+    public static final int NO_AQI = -1;
+
+    public enum Kind {
+        LEVEL,
+        LINEAR
+    }
+
+    private final String name;
+    private final Kind kind;
+    private final double[][] breakpoints;
+    private final double[] indexes;
+
+    /**
+     * @param name        the scale name, for logs
+     * @param kind        how values are mapped to the index
+     * @param breakpoints ascending breakpoints indexed by pollutant ordinal, {@code null} for unscored pollutants
+     * @param indexes     for {@link Kind#LINEAR}, the index at concentration 0 followed by the index at
+     *                    each breakpoint; ignored for {@link Kind#LEVEL}
+     */
+    public AqiScale(String name, Kind kind, double[][] breakpoints, double[] indexes) {
+        if (breakpoints.length != Pollutant.values().length) {
+            throw new IllegalArgumentException("Scale " + name + " must have one breakpoint row per pollutant");
+        }
+        for (Pollutant pollutant : Pollutant.values()) {
+            double[] row = breakpoints[pollutant.ordinal()];
+            if (row == null) continue;
+            for (int i = 1; i < row.length; i++) {
+                if (row[i] <= row[i - 1]) {
+                    throw new IllegalArgumentException("Breakpoints of " + pollutant + " in scale " + name + " must be ascending");
+                }
+            }
+            if (kind == Kind.LINEAR && (indexes == null || indexes.length != row.length + 1)) {
+                throw new IllegalArgumentException("Scale " + name + " needs " + (row.length + 1) + " index values for " + pollutant);
+            }
+        }
+        this.name = name;
+        this.kind = kind;
+        this.breakpoints = breakpoints.clone();
+        this.indexes = indexes != null ? indexes.clone() : new double[0];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return whether the scale scores the pollutant
+     */
+    public boolean supports(Pollutant pollutant) {
+        return breakpoints[pollutant.ordinal()] != null;
+    }
+
+    /**
+     * @return the breakpoints of the pollutant, or {@code null} if it is not scored
+     */
+    public double[] breakpoints(Pollutant pollutant) {
+        double[] row = breakpoints[pollutant.ordinal()];
+        return row != null ? row.clone() : null;
+    }
+
+    /**
+     * Scores one value.
+     *
+     * @return the index, or {@link #NO_AQI}
+     */
+    public int score(Pollutant pollutant, double value) {
+        double[] row = breakpoints[pollutant.ordinal()];
+        if (row == null || !(value >= 0)) return NO_AQI;
+        return kind == Kind.LEVEL ? level(row, value) : interpolate(row, value);
+    }
+
+    /**
+     * Scores {@code count} values of one pollutant into {@code out}. Unscored values are set to
+     * {@link #NO_AQI}.
+     */
+    public void score(Pollutant pollutant, double[] values, int[] out, int count) {
+        double[] row = breakpoints[pollutant.ordinal()];
+        if (row == null) {
+            Arrays.fill(out, 0, count, NO_AQI);
+            return;
+        }
+        if (kind == Kind.LEVEL) {
+            for (int i = 0; i < count; i++) {
+                double value = values[i];
+                out[i] = value >= 0 ? level(row, value) : NO_AQI;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                double value = values[i];
+                out[i] = value >= 0 ? interpolate(row, value) : NO_AQI;
+            }
+        }
+    }
+
+    private static int level(double[] row, double value) {
+        // Rows have five or six bands, a linear scan beats a binary search here
+        int band = 0;
+        while (band < row.length && value > row[band]) band++;
+        return band + 1;
+    }
+
+    private int interpolate(double[] row, double value) {
+        int band = 0;
+        while (band < row.length && value > row[band]) band++;
+        if (band == row.length) return (int) Math.round(indexes[band]);
+
+        double low = band == 0 ? 0 : row[band - 1];
+        double fraction = (value - low) / (row[band] - low);
+        return (int) Math.round(indexes[band] + fraction * (indexes[band + 1] - indexes[band]));
+    }
+
+    @Override
+    public String toString() {
+        return "AqiScale[" + name + ", " + kind + "]";
+    }
+}
@@ -0,0 +1,18 @@
+package com.aerogrid.backend.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Interface for components that follow changes to the hourly AQI snapshots.
+ * Implementations are notified through {@link AqiSnapshotNotifier} after the changes are committed.
+ */
+public interface AqiSnapshotListener {
+
+    /**
+     * Called after snapshots of the hours in [start, end) were inserted or updated.
+     *
+     * @param start first changed hour
+     * @param end   end of the changed range (exclusive)
+     */
+    void onSnapshotsChanged(LocalDateTime start, LocalDateTime end);
+}
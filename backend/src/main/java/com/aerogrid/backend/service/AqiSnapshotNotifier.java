@@ -0,0 +1,50 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.HourlyAqiPeak;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Hands snapshot changes to every {@link AqiSnapshotListener}. Called by the jobs that write
+ * {@code hourly_aqi_snapshots} once their transaction is committed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AqiSnapshotNotifier {
+
+    private final ObjectProvider<AqiSnapshotListener> listeners;
+
+    /**
+     * Announces the hours spanned by a batch of peaks written to the snapshots.
+     */
+    public void snapshotsChanged(List<HourlyAqiPeak> peaks) {
+        if (peaks.isEmpty()) return;
+        LocalDateTime first = peaks.get(0).hour();
+        LocalDateTime last = first;
+        for (HourlyAqiPeak peak : peaks) {
+            if (peak.hour().isBefore(first)) first = peak.hour();
+            if (peak.hour().isAfter(last)) last = peak.hour();
+        }
+        snapshotsChanged(first, last.plusHours(1));
+    }
+
+    /**
+     * Announces that snapshots of the hours in [start, end) changed.
+     */
+    public void snapshotsChanged(LocalDateTime start, LocalDateTime end) {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onSnapshotsChanged(start, end);
+            } catch (RuntimeException e) {
+                // The snapshots are already stored; a failing listener must not fail the job
+                log.error("Snapshot listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        });
+    }
+}
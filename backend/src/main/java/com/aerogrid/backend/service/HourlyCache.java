@@ -0,0 +1,158 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.timeseries.EpochHours;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU cache of data derived from the hourly snapshots, such as map tiles, keyed by the hour they
+ * show.
+ * <p>
+ * Entries are bounded by a total weight, their count unless a weigher is given. When snapshots
+ * change, the entries of the past hours that can show them are dropped; a station change drops
+ * everything. Entries of the current hour change with every streamed reading, so they are not
+ * dropped: once their snapshots changed they are read again on the next request at least
+ * {@code liveRefreshMs} after they were read. A value read before an invalidation is not cached
+ * after it.
+ * </p>
+ *
+ * @param <K> the key
+ * @param <V> the cached value, shared between callers and never modified
+ */
+public final class HourlyCache<K, V> {
+
+    /**
+     * The state of the cache when a read started. Reads of the same generation and live version
+     * may share their result.
+     */
+    public record Ticket(long generation, long liveVersion, long readAt, long readHour) {
+    }
+
+    private final ToLongFunction<K> hourOf;
+    private final ToLongFunction<V> weigher;
+    private final long maxWeight;
+    private final long liveRefreshMs;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+    /** Bumped on every invalidation, so a value read before it is not cached after it */
+    private final AtomicLong generation = new AtomicLong();
+    /** Bumped on every change to snapshots shown by the current hour */
+    private final AtomicLong liveVersion = new AtomicLong();
+
+    /**
+     * A cache of at most {@code maxEntries} entries.
+     *
+     * @param hourOf the hour a key shows, in hours since the epoch
+     */
+    public HourlyCache(ToLongFunction<K> hourOf, int maxEntries, long liveRefreshMs) {
+        this(hourOf, value -> 1, maxEntries, liveRefreshMs);
+    }
+
+    /**
+     * A cache of at most {@code maxWeight} in total, such as bytes.
+     *
+     * @param hourOf the hour a key shows, in hours since the epoch
+     */
+    public HourlyCache(ToLongFunction<K> hourOf, ToLongFunction<V> weigher, long maxWeight, long liveRefreshMs) {
+        this.hourOf = hourOf;
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+        this.liveRefreshMs = liveRefreshMs;
+    }
+
+    /**
+     * @return the cached value, or null if missing or to be read again
+     */
+    public V getIfFresh(K key) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        return entry != null && isFresh(hourOf.applyAsLong(key), entry) ? entry.value : null;
+    }
+
+    /**
+     * Reads a value and caches it, unless the cache was invalidated during the read.
+     *
+     * @param reader reads the value; reads with the same ticket generation may be coalesced
+     */
+    public V load(K key, Function<Ticket, V> reader) {
+        Ticket ticket = new Ticket(generation.get(), liveVersion.get(), System.currentTimeMillis(),
+                EpochHours.current());
+        V value = reader.apply(ticket);
+        synchronized (entries) {
+            if (generation.get() == ticket.generation()) {
+                Entry<V> previous = entries.put(key, new Entry<>(value, ticket));
+                weight += weigher.applyAsLong(value) - (previous != null ? weigher.applyAsLong(previous.value) : 0);
+                Iterator<Entry<V>> eldest = entries.values().iterator();
+                while (weight > maxWeight && eldest.hasNext()) {
+                    weight -= weigher.applyAsLong(eldest.next().value);
+                    eldest.remove();
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drops the past hours that can show the changed snapshots, and marks the current hour as
+     * changed.
+     *
+     * @param start the first changed snapshot hour
+     * @param end   the end of the changed snapshots
+     */
+    public void onSnapshotsChanged(LocalDateTime start, LocalDateTime end) {
+        long firstHour = EpochHours.of(start.truncatedTo(ChronoUnit.HOURS));
+        long lastHour = EpochHours.of(end) + StationMapService.RECENT_HOURS;
+        long currentHour = EpochHours.current();
+        if (lastHour >= currentHour) {
+            liveVersion.incrementAndGet();
+        }
+        if (firstHour >= currentHour) return;
+
+        long lastPastHour = Math.min(lastHour, currentHour - 1);
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, Entry<V>> entry = iterator.next();
+                long hour = hourOf.applyAsLong(entry.getKey());
+                if (hour >= firstHour && hour <= lastPastHour) {
+                    weight -= weigher.applyAsLong(entry.getValue().value);
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * A value read while its hour was not over yet may have missed later changes; it is served
+     * until the live refresh interval passed, then read again.
+     */
+    private boolean isFresh(long hour, Entry<V> entry) {
+        Ticket ticket = entry.ticket;
+        if (hour < ticket.readHour()) return true;
+        return ticket.liveVersion() == liveVersion.get() || System.currentTimeMillis() - ticket.readAt() < liveRefreshMs;
+    }
+
+    private record Entry<V>(V value, Ticket ticket) {
+    }
+}
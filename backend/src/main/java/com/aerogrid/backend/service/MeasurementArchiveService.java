@@ -0,0 +1,211 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.archive.GorillaCodec;
+import com.aerogrid.backend.domain.MeasurementArchive;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.MeasurementArchiveRepository;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compacts sealed days of raw measurements into {@link MeasurementArchive} blocks.
+ * <p>
+ * A day is sealed {@code seal-after-days} after it ends, when late data is no longer expected.
+ * Its raw rows are deleted and re-encoded as one block per station and pollutant, one station
+ * per transaction so only one station-day is held in memory at a time. Rows arriving later for an archived day are merged into the existing block on the
+ * next run; a row whose timestamp is already archived is discarded and retracted from the
+ * rollups it was added to on insert.
+ * </p>
+ */
+@Slf4j
+@Service
+public class MeasurementArchiveService {
+
+    private final MeasurementRepository measurementRepository;
+    private final MeasurementArchiveRepository archiveRepository;
+    private final StationRepository stationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int sealAfterDays;
+
+    public MeasurementArchiveService(MeasurementRepository measurementRepository,
+                                     MeasurementArchiveRepository archiveRepository,
+                                     StationRepository stationRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${aerogrid.storage.archive.enabled:true}") boolean enabled,
+                                     @Value("${aerogrid.storage.archive.seal-after-days:7}") int sealAfterDays) {
+        this.measurementRepository = measurementRepository;
+        this.archiveRepository = archiveRepository;
+        this.stationRepository = stationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        // Keep recent days raw so the hourly AQI snapshots never read archived data
+        this.sealAfterDays = Math.max(3, sealAfterDays);
+    }
+
+    @Scheduled(cron = "${aerogrid.storage.archive.cron:0 30 1 * * *}")
+    public void compactSealedDays() {
+        if (!enabled) return;
+
+        long start = System.currentTimeMillis();
+        LocalDateTime sealCutoff = LocalDate.now().minusDays(sealAfterDays).atStartOfDay();
+
+        int days = 0;
+        long points = 0;
+        LocalDateTime oldest;
+        while ((oldest = measurementRepository.findOldestTimestampBefore(sealCutoff)) != null) {
+            LocalDate day = oldest.toLocalDate();
+            points += compactDay(day);
+            days++;
+        }
+
+        if (days > 0) {
+            log.info("Archived {} measurements of {} days in {} ms",
+                    points, days, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Moves the raw measurements of a day into its archive blocks, one station per transaction.
+     *
+     * @param day the day to compact
+     * @return the number of raw measurements moved
+     */
+    public int compactDay(LocalDate day) {
+        int moved = 0;
+        for (Long stationId : measurementRepository.findStationIdsBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay())) {
+            Integer count = transactionTemplate.execute(status -> compactStationDay(stationId, day));
+            moved += count != null ? count : 0;
+        }
+        return moved;
+    }
+
+    /**
+     * Moves the raw measurements of one station and day into its archive blocks. Must run in a
+     * transaction.
+     */
+    private int compactStationDay(long stationId, LocalDate day) {
+        List<MeasurementRecord> rows = measurementRepository.deleteRawReturning(
+                stationId, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        if (rows.isEmpty()) return 0;
+
+        Map<SeriesKey, List<MeasurementRecord>> bySeries = new LinkedHashMap<>();
+        for (MeasurementRecord row : rows) {
+            bySeries.computeIfAbsent(new SeriesKey(row.stationId(), row.pollutant()), k -> new ArrayList<>()).add(row);
+        }
+
+        Map<SeriesKey, MeasurementArchive> existing = new HashMap<>();
+        for (MeasurementArchive archive : archiveRepository.findByStationIdAndDay(stationId, day)) {
+            existing.put(new SeriesKey(archive.getStation().getId(), archive.getPollutant()), archive);
+        }
+
+        List<MeasurementRecord> discarded = new ArrayList<>();
+        List<MeasurementArchive> archives = new ArrayList<>(bySeries.size());
+        for (Map.Entry<SeriesKey, List<MeasurementRecord>> entry : bySeries.entrySet()) {
+            SeriesKey key = entry.getKey();
+            List<MeasurementRecord> points = entry.getValue();
+
+            MeasurementArchive archive = existing.get(key);
+            if (archive != null) {
+                points = merge(archive, points, discarded);
+            } else {
+                archive = MeasurementArchive.builder()
+                        .station(stationRepository.getReferenceById(key.stationId()))
+                        .pollutant(key.pollutant())
+                        .day(day)
+                        .build();
+            }
+
+            points.sort(Comparator.comparing(MeasurementRecord::timestamp));
+            archive.setData(encode(points));
+            archive.setSampleCount(points.size());
+            archives.add(archive);
+        }
+
+        archiveRepository.saveAll(archives);
+        measurementRepository.retractFromRollups(discarded);
+        if (!discarded.isEmpty()) {
+            log.warn("Discarded {} late measurements of station {} on {} already present in the archive",
+                    discarded.size(), stationId, day);
+        }
+        return rows.size();
+    }
+
+    /**
+     * Decodes the archived measurements in [from, to), for rollup rebuilds.
+     *
+     * @param from range start (inclusive)
+     * @param to   range end (exclusive)
+     * @return the archived measurements of all stations
+     */
+    public List<MeasurementRecord> readArchived(LocalDateTime from, LocalDateTime to) {
+        long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+        long toSecond = to.toEpochSecond(ZoneOffset.UTC) - 1;
+
+        List<MeasurementRecord> records = new ArrayList<>();
+        for (MeasurementArchive archive : archiveRepository.findByDayBetween(from.toLocalDate(), to.minusNanos(1).toLocalDate())) {
+            records.addAll(GorillaCodec.decode(archive.getData(), fromSecond, toSecond)
+                    .toRecords(archive.getStation().getId(), archive.getPollutant()));
+        }
+        return records;
+    }
+
+    /**
+     * Adds the archived points to the new ones. Archived points win, so new points with an
+     * archived timestamp are moved to {@code discarded}.
+     */
+    private static List<MeasurementRecord> merge(MeasurementArchive archive, List<MeasurementRecord> points,
+                                                 List<MeasurementRecord> discarded) {
+        List<MeasurementRecord> merged = new ArrayList<>(GorillaCodec.decode(archive.getData())
+                .toRecords(archive.getStation().getId(), archive.getPollutant()));
+
+        Set<Long> archivedSeconds = new HashSet<>();
+        for (MeasurementRecord record : merged) {
+            archivedSeconds.add(record.timestamp().toEpochSecond(ZoneOffset.UTC));
+        }
+        for (MeasurementRecord point : points) {
+            if (archivedSeconds.contains(point.timestamp().toEpochSecond(ZoneOffset.UTC))) {
+                discarded.add(point);
+            } else {
+                merged.add(point);
+            }
+        }
+        return merged;
+    }
+
+    private static byte[] encode(List<MeasurementRecord> points) {
+        int size = points.size();
+        long[] epochSeconds = new long[size];
+        double[] values = new double[size];
+        int[] aqis = new int[size];
+        for (int i = 0; i < size; i++) {
+            MeasurementRecord point = points.get(i);
+            epochSeconds[i] = point.timestamp().toEpochSecond(ZoneOffset.UTC);
+            values[i] = point.value();
+            aqis[i] = point.aqi() != null ? point.aqi() : GorillaCodec.NO_AQI;
+        }
+        return GorillaCodec.encode(epochSeconds, values, aqis, size);
+    }
+
+    private record SeriesKey(long stationId, Pollutant pollutant) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes measurements to a gzip-compressed CSV or NDJSON stream, one row per measurement.
+ * <p>
+ * CSV starts with the header {@code station_code,pollutant,timestamp,value,aqi} and leaves the
+ * AQI empty when there is none; NDJSON writes one object per line with the fields of
+ * {@code MeasurementDto}. Timestamps are ISO local date-times with seconds. Rows are formatted
+ * by hand into a buffered writer, and the station code is escaped once per station.
+ * </p>
+ */
+public final class MeasurementExportWriter implements Closeable {
+
+    public enum Format {
+        CSV("csv"),
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /** File extension of the uncompressed format */
+        public String extension() {
+            return extension;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final GZIPOutputStream gzip;
+    private final Writer writer;
+    private final Format format;
+    private String stationCode;
+    private String encodedStationCode;
+    private long rows;
+
+    public MeasurementExportWriter(OutputStream out, Format format) throws IOException {
+        this.gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        this.writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+        if (format == Format.CSV) {
+            writer.write("station_code,pollutant,timestamp,value,aqi\n");
+        }
+    }
+
+    /**
+     * Writes one measurement of a station.
+     */
+    public void write(String stationCode, MeasurementRecord record) throws IOException {
+        if (!stationCode.equals(this.stationCode)) {
+            this.stationCode = stationCode;
+            this.encodedStationCode = format == Format.CSV ? csv(stationCode) : json(stationCode);
+        }
+
+        if (format == Format.CSV) {
+            writer.write(encodedStationCode);
+            writer.write(',');
+            writer.write(record.pollutant().name());
+            writer.write(',');
+            writer.write(TIMESTAMP.format(record.timestamp()));
+            writer.write(',');
+            if (Double.isFinite(record.value())) writer.write(Double.toString(record.value()));
+            writer.write(',');
+            if (record.aqi() != null) writer.write(Integer.toString(record.aqi()));
+        } else {
+            writer.write("{\"stationCode\":");
+            writer.write(encodedStationCode);
+            writer.write(",\"pollutant\":\"");
+            writer.write(record.pollutant().name());
+            writer.write("\",\"timestamp\":\"");
+            writer.write(TIMESTAMP.format(record.timestamp()));
+            writer.write("\",\"value\":");
+            writer.write(Double.isFinite(record.value()) ? Double.toString(record.value()) : "null");
+            writer.write(",\"aqi\":");
+            writer.write(record.aqi() != null ? Integer.toString(record.aqi()) : "null");
+            writer.write('}');
+        }
+        writer.write('\n');
+        rows++;
+    }
+
+    /**
+     * @return the measurements written so far
+     */
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Flushes the rows and writes the gzip trailer, without closing the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+        gzip.finish();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
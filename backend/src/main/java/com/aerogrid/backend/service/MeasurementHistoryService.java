@@ -0,0 +1,123 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.ChartResolution;
+import com.aerogrid.backend.domain.RollupResolution;
+import com.aerogrid.backend.repository.MeasurementRollupRepository;
+import com.aerogrid.backend.repository.projection.AggregatedMeasurementProjection;
+import com.aerogrid.backend.timeseries.RecentMeasurementStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+/**
+ * Serves aggregated measurement history for the station charts.
+ * <p>
+ * Charts are answered from the coarsest rollup that satisfies the requested resolution
+ * (HOUR for hourly and six-hour charts, DAY for daily, WEEK for weekly), so a one-year weekly
+ * chart reads one row per week and pollutant. Hourly ranges older than the hourly retention tier
+ * fall back to DAY rollups. Ranges held by the {@link RecentMeasurementStore} are aggregated in
+ * memory from the raw points instead, with the same bucket boundaries.
+ * </p>
+ * <p>
+ * Identical rollup queries running at the same time are coalesced into one. Rollup buckets start
+ * on whole hours, so the end of the range is truncated to the hour, which lets charts requested
+ * up to "now" within the same hour share a query.
+ * </p>
+ */
+@Service
+public class MeasurementHistoryService {
+
+    private final MeasurementRollupRepository rollupRepository;
+    private final MeasurementRetentionService retentionService;
+    private final ObjectProvider<RecentMeasurementStore> recentStore;
+    private final SingleFlight<HistoryQuery, List<AggregatedMeasurementProjection>> queries;
+
+    public MeasurementHistoryService(MeasurementRollupRepository rollupRepository,
+                                     MeasurementRetentionService retentionService,
+                                     ObjectProvider<RecentMeasurementStore> recentStore,
+                                     MeterRegistry meterRegistry) {
+        this.rollupRepository = rollupRepository;
+        this.retentionService = retentionService;
+        this.recentStore = recentStore;
+        this.queries = new SingleFlight<>("measurement-history", meterRegistry);
+    }
+
+    /**
+     * Aggregates a station's measurements into chart buckets.
+     *
+     * @param stationCode the station code
+     * @param start       the start timestamp (inclusive)
+     * @param end         the end timestamp (inclusive)
+     * @param resolution  the bucket width
+     * @return one row per bucket and pollutant, ordered by bucket
+     */
+    public List<AggregatedMeasurementProjection> aggregate(String stationCode, LocalDateTime start, LocalDateTime end,
+                                                           ChartResolution resolution) {
+        RecentMeasurementStore store = recentStore.getIfAvailable();
+        if (store != null) {
+            // Same range as the rollup buckets read below: whole hours, days or weeks
+            LocalDateTime alignedStart = switch (resolution) {
+                case HOURLY, SIX_HOURS -> start.truncatedTo(ChronoUnit.HOURS);
+                case DAILY -> start.truncatedTo(ChronoUnit.DAYS);
+                case WEEKLY -> weekStart(start);
+            };
+            if (store.covers(stationCode, alignedStart)) {
+                LocalDateTime alignedEnd = switch (resolution) {
+                    case HOURLY, SIX_HOURS -> end.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                    case DAILY -> end.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+                    case WEEKLY -> weekStart(end).plusWeeks(1);
+                };
+                return store.aggregate(stationCode, alignedStart, alignedEnd, bucketWidth(resolution));
+            }
+        }
+
+        LocalDateTime hourlyTierStart = retentionService.hourlyTierStart();
+        LocalDateTime fineStart = start.isBefore(hourlyTierStart)
+                ? start.truncatedTo(ChronoUnit.DAYS)
+                : start.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime hourEnd = end.truncatedTo(ChronoUnit.HOURS);
+
+        // Single-tier reads ignore the fallback instant, so it is left out of their key
+        HistoryQuery query = switch (resolution) {
+            case HOURLY -> new HistoryQuery(stationCode, fineStart, hourEnd, "1 hour",
+                    RollupResolution.HOUR, RollupResolution.DAY, hourlyTierStart);
+            case SIX_HOURS -> new HistoryQuery(stationCode, fineStart, hourEnd, "6 hours",
+                    RollupResolution.HOUR, RollupResolution.DAY, hourlyTierStart);
+            case DAILY -> new HistoryQuery(stationCode, start.truncatedTo(ChronoUnit.DAYS), hourEnd, "1 day",
+                    RollupResolution.DAY, RollupResolution.DAY, null);
+            case WEEKLY -> new HistoryQuery(stationCode, weekStart(start), hourEnd, "7 days",
+                    RollupResolution.WEEK, RollupResolution.WEEK, null);
+        };
+        return queries.execute(query, () -> rollupRepository.aggregate(query.stationCode, query.start, query.end,
+                query.bucketWidth, query.resolution.name(), query.fallbackResolution.name(),
+                query.fallbackBefore != null ? query.fallbackBefore : query.start));
+    }
+
+    private static Duration bucketWidth(ChartResolution resolution) {
+        return switch (resolution) {
+            case HOURLY -> Duration.ofHours(1);
+            case SIX_HOURS -> Duration.ofHours(6);
+            case DAILY -> Duration.ofDays(1);
+            case WEEKLY -> Duration.ofDays(7);
+        };
+    }
+
+    private static LocalDateTime weekStart(LocalDateTime time) {
+        return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+    }
+
+    /**
+     * Arguments of a rollup query, the key under which identical concurrent queries are coalesced.
+     */
+    private record HistoryQuery(String stationCode, LocalDateTime start, LocalDateTime end, String bucketWidth,
+                                RollupResolution resolution, RollupResolution fallbackResolution,
+                                LocalDateTime fallbackBefore) {
+    }
+}
@@ -0,0 +1,366 @@
+package com.aerogrid.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manages monthly range partitioning of the {@code measurements} table.
+ * <p>
+ * Hibernate creates {@code measurements} as a plain table. On startup this service converts it
+ * into a table partitioned by {@code RANGE (timestamp)} with one partition per month, so that the
+ * time-bounded queries in {@code MeasurementRepository} only touch the months they ask for.
+ * A daily job keeps partitions created a few months ahead and, when a retention is configured,
+ * detaches or drops the partitions that fall out of it. Rows that landed in the default
+ * partition are moved into the monthly partition created for them, and expire with the months
+ * they belong to.
+ * </p>
+ */
+@Slf4j
+@Service
+@DependsOn("entityManagerFactory") // the table must exist (ddl-auto) before it can be converted
+@ConditionalOnProperty(name = "aerogrid.storage.partitioning.enabled", havingValue = "true")
+public class MeasurementPartitionService {
+
+    static final String PARENT_TABLE = "measurements";
+    static final String DEFAULT_PARTITION = "measurements_default";
+    /** Plain table receiving the expired rows of the default partition when partitions are detached */
+    static final String EXPIRED_TABLE = "measurements_expired";
+    private static final String PARTITION_PREFIX = "measurements_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final boolean dropExpired;
+
+    public MeasurementPartitionService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       ObjectMapper objectMapper,
+                                       @Value("${aerogrid.storage.partitioning.premake-months:3}") int premakeMonths,
+                                       @Value("${aerogrid.storage.partitioning.retention-months:0}") int retentionMonths,
+                                       @Value("${aerogrid.storage.partitioning.drop-expired:false}") boolean dropExpired) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.premakeMonths = premakeMonths;
+        this.retentionMonths = retentionMonths;
+        this.dropExpired = dropExpired;
+    }
+
+    /**
+     * Partition information as seen by the catalog.
+     *
+     * @param name          partition table name
+     * @param month         month covered by the partition, or {@code null} for the default partition
+     * @param estimatedRows row estimate from the planner statistics
+     */
+    public record PartitionInfo(String name, YearMonth month, long estimatedRows) {
+    }
+
+    /**
+     * Result of checking whether the planner prunes partitions for a time range.
+     *
+     * @param from              start of the checked range
+     * @param to                end of the checked range
+     * @param scannedPartitions partitions that appear in the plan
+     * @param totalPartitions   partitions attached to {@code measurements}
+     */
+    public record PruningReport(LocalDateTime from, LocalDateTime to, List<String> scannedPartitions, int totalPartitions) {
+        public boolean pruned() {
+            return scannedPartitions.size() < totalPartitions;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!isPartitioned()) {
+            convertToPartitioned();
+        }
+        maintainPartitions();
+    }
+
+    /**
+     * Creates missing partitions up to {@code premake-months} ahead and applies the retention.
+     * Runs daily and on startup.
+     */
+    @Scheduled(cron = "${aerogrid.storage.partitioning.cron:0 30 0 * * *}")
+    public void maintainPartitions() {
+        YearMonth current = YearMonth.now();
+        int created = 0;
+        for (int i = 0; i <= premakeMonths; i++) {
+            if (createPartitionIfMissing(current.plusMonths(i))) {
+                created++;
+            }
+        }
+
+        int expired = 0;
+        if (retentionMonths > 0) {
+            expired = expirePartitionsBefore(current.minusMonths(retentionMonths));
+        }
+
+        if (created > 0 || expired > 0) {
+            log.info("Measurement partitions maintained: {} created, {} {}", created, expired, dropExpired ? "dropped" : "detached");
+        }
+
+        PruningReport report = checkPruning(LocalDateTime.now().minusDays(1), LocalDateTime.now());
+        if (!report.pruned() && report.totalPartitions() > 1) {
+            log.warn("Partition pruning is not effective: a one-day query scans {} of {} partitions",
+                    report.scannedPartitions().size(), report.totalPartitions());
+        }
+    }
+
+    /**
+     * Detaches (or drops, if {@code drop-expired} is set) every monthly partition that ends
+     * on or before the start of {@code month}. Rows of the default partition older than
+     * {@code month} are deleted, or moved to {@code measurements_expired} when partitions are
+     * detached.
+     *
+     * @param month first month to keep
+     * @return the number of partitions removed
+     */
+    public int expirePartitionsBefore(YearMonth month) {
+        expireDefaultRowsBefore(month);
+
+        int removed = 0;
+        for (PartitionInfo partition : listPartitions()) {
+            if (partition.month() == null || !partition.month().isBefore(month)) continue;
+
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition.name());
+            if (dropExpired) {
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+            }
+            log.info("Measurement partition {} {}", partition.name(), dropExpired ? "dropped" : "detached");
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Drops a monthly partition and the measurements it holds.
+     *
+     * @param month the month whose partition is dropped
+     */
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+        log.info("Measurement partition {} dropped", partitionName(month));
+    }
+
+    /**
+     * @return the partitions attached to {@code measurements}, oldest month first
+     */
+    public List<PartitionInfo> listPartitions() {
+        return jdbcTemplate.query("""
+                SELECT c.relname AS name, GREATEST(c.reltuples, 0)::bigint AS estimated_rows
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = ?
+                ORDER BY c.relname
+                """,
+                (rs, rowNum) -> new PartitionInfo(rs.getString("name"), monthOf(rs.getString("name")), rs.getLong("estimated_rows")),
+                PARENT_TABLE);
+    }
+
+    /**
+     * Explains the hourly aggregation query for the given range and reports which partitions
+     * the planner keeps. The planner sees the actual bounds, so the result reflects plan-time pruning.
+     *
+     * @param from range start
+     * @param to   range end
+     * @return the pruning report
+     */
+    public PruningReport checkPruning(LocalDateTime from, LocalDateTime to) {
+        String plan = jdbcTemplate.queryForObject("""
+                EXPLAIN (FORMAT JSON)
+                SELECT m.station_id, DATE_TRUNC('hour', m.timestamp), MAX(m.aqi)
+                FROM measurements m
+                WHERE m.timestamp BETWEEN ?::timestamp AND ?::timestamp
+                GROUP BY m.station_id, DATE_TRUNC('hour', m.timestamp)
+                """, String.class, from.toString(), to.toString());
+
+        List<String> scanned = new ArrayList<>();
+        try {
+            collectRelations(objectMapper.readTree(plan), scanned);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to parse query plan", e);
+        }
+        return new PruningReport(from, to, scanned.stream().distinct().sorted().toList(), listPartitions().size());
+    }
+
+    boolean isPartitioned() {
+        Integer count = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM pg_partitioned_table pt
+                JOIN pg_class c ON c.oid = pt.partrelid
+                WHERE c.relname = ? AND pg_table_is_visible(c.oid)
+                """, Integer.class, PARENT_TABLE);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Replaces the plain {@code measurements} table with a partitioned one holding the same rows.
+     * Runs in a single transaction and holds an exclusive lock on the table while copying, so on
+     * large installations it should be run during a maintenance window (ingestion keeps working
+     * through the write-ahead log meanwhile).
+     */
+    private void convertToPartitioned() {
+        log.info("Converting table '{}' to monthly range partitioning...", PARENT_TABLE);
+        long start = System.currentTimeMillis();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE measurements IN ACCESS EXCLUSIVE MODE");
+            jdbcTemplate.execute("ALTER TABLE measurements RENAME TO measurements_unpartitioned");
+            // Free the constraint and index names so the new table can reuse the ones Hibernate expects
+            jdbcTemplate.execute("""
+                    ALTER TABLE measurements_unpartitioned
+                        DROP CONSTRAINT IF EXISTS measurements_pkey,
+                        DROP CONSTRAINT IF EXISTS uk_measurement_station_time_pollutant
+                    """);
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_measurement_station_time");
+
+            // A partitioned table's primary key must include the partition column
+            jdbcTemplate.execute("""
+                    CREATE TABLE measurements
+                        (LIKE measurements_unpartitioned INCLUDING DEFAULTS INCLUDING IDENTITY INCLUDING CONSTRAINTS)
+                        PARTITION BY RANGE (timestamp)
+                    """);
+            jdbcTemplate.execute("""
+                    ALTER TABLE measurements
+                        ADD CONSTRAINT measurements_pkey PRIMARY KEY (id, timestamp),
+                        ADD CONSTRAINT uk_measurement_station_time_pollutant UNIQUE (station_id, timestamp, pollutant),
+                        ADD CONSTRAINT fk_measurements_station FOREIGN KEY (station_id) REFERENCES stations (id) ON DELETE CASCADE
+                    """);
+            jdbcTemplate.execute("CREATE INDEX idx_measurement_station_time ON measurements (station_id, timestamp)");
+
+            LocalDateTime oldest = jdbcTemplate.queryForObject(
+                    "SELECT MIN(timestamp) FROM measurements_unpartitioned", LocalDateTime.class);
+            YearMonth first = oldest != null ? YearMonth.from(oldest) : YearMonth.now();
+            for (YearMonth month = first; !month.isAfter(YearMonth.now()); month = month.plusMonths(1)) {
+                createPartitionIfMissing(month);
+            }
+            // Catches rows outside every monthly partition (e.g. backfills older than the oldest month)
+            jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF measurements DEFAULT");
+
+            int copied = jdbcTemplate.update("INSERT INTO measurements SELECT * FROM measurements_unpartitioned");
+            jdbcTemplate.execute("""
+                    SELECT setval(pg_get_serial_sequence('measurements', 'id'),
+                                  COALESCE((SELECT MAX(id) FROM measurements), 0) + 1, false)
+                    """);
+            jdbcTemplate.execute("DROP TABLE measurements_unpartitioned");
+
+            log.info("Copied {} measurements into partitioned table", copied);
+        });
+
+        log.info("Table '{}' partitioned in {} ms", PARENT_TABLE, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Creates the partition of a month. Rows of that month already in the default partition
+     * would make the creation fail, so they are moved aside in the same transaction and
+     * inserted again once the partition exists.
+     */
+    private boolean createPartitionIfMissing(YearMonth month) {
+        String name = partitionName(month);
+        if (tableExists(name)) {
+            return false;
+        }
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        Integer moved = transactionTemplate.execute(status -> {
+            boolean hasDefault = tableExists(DEFAULT_PARTITION);
+            int rows = 0;
+            if (hasDefault) {
+                jdbcTemplate.execute("CREATE TEMP TABLE measurements_moving (LIKE " + PARENT_TABLE + ")");
+                rows = jdbcTemplate.update("""
+                        WITH moved AS (
+                            DELETE FROM measurements_default WHERE timestamp >= ? AND timestamp < ? RETURNING *
+                        )
+                        INSERT INTO measurements_moving SELECT * FROM moved
+                        """, from, to);
+            }
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + PARENT_TABLE
+                    + " FOR VALUES FROM ('" + from.toLocalDate() + "') TO ('" + to.toLocalDate() + "')");
+            if (hasDefault) {
+                jdbcTemplate.update("INSERT INTO " + PARENT_TABLE + " SELECT * FROM measurements_moving");
+                jdbcTemplate.execute("DROP TABLE measurements_moving");
+            }
+            return rows;
+        });
+        if (moved != null && moved > 0) {
+            log.info("Created measurement partition {} and moved {} rows into it from {}", name, moved, DEFAULT_PARTITION);
+        } else {
+            log.debug("Created measurement partition {}", name);
+        }
+        return true;
+    }
+
+    private void expireDefaultRowsBefore(YearMonth month) {
+        if (!tableExists(DEFAULT_PARTITION)) return;
+
+        LocalDateTime end = month.atDay(1).atStartOfDay();
+        int expired;
+        if (dropExpired) {
+            expired = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp < ?", end);
+        } else {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + EXPIRED_TABLE + " (LIKE " + PARENT_TABLE + ")");
+            expired = jdbcTemplate.update("""
+                    WITH expired AS (
+                        DELETE FROM measurements_default WHERE timestamp < ? RETURNING *
+                    )
+                    INSERT INTO measurements_expired SELECT * FROM expired
+                    """, end);
+        }
+        if (expired > 0) {
+            log.info("{} expired measurements {} from {}", expired,
+                    dropExpired ? "deleted" : "moved to " + EXPIRED_TABLE, DEFAULT_PARTITION);
+        }
+    }
+
+    private boolean tableExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    static YearMonth monthOf(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static void collectRelations(JsonNode node, List<String> relations) {
+        if (node.isObject()) {
+            JsonNode relation = node.get("Relation Name");
+            if (relation != null && relation.asText().startsWith(PARENT_TABLE)) {
+                relations.add(relation.asText());
+            }
+        }
+        for (JsonNode child : node) {
+            collectRelations(child, relations);
+        }
+    }
+}
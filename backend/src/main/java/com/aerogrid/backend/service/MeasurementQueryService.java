@@ -0,0 +1,119 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.timeseries.RecentMeasurementStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Serves the raw measurement history of a station in pages.
+ * <p>
+ * Measurements are ordered by timestamp and pollutant name, and a page is selected by the
+ * position of the last measurement of the previous one (keyset pagination), so every page costs
+ * the same whatever its offset and a range of any size is read in bounded memory. Pages hold at
+ * most {@code max-page-size} measurements. Ranges held by the {@link RecentMeasurementStore} are
+ * paged from memory.
+ * </p>
+ */
+@Service
+public class MeasurementQueryService {
+
+    private final MeasurementRepository measurementRepository;
+    private final ObjectProvider<RecentMeasurementStore> recentStore;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public MeasurementQueryService(MeasurementRepository measurementRepository,
+                                   ObjectProvider<RecentMeasurementStore> recentStore,
+                                   @Value("${aerogrid.measurements.page-size:1000}") int defaultPageSize,
+                                   @Value("${aerogrid.measurements.max-page-size:10000}") int maxPageSize) {
+        this.measurementRepository = measurementRepository;
+        this.recentStore = recentStore;
+        this.defaultPageSize = Math.min(defaultPageSize, maxPageSize);
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Finds a page of a station's measurements within a time range.
+     *
+     * @param stationCode the station code
+     * @param start       the start timestamp (inclusive)
+     * @param end         the end timestamp (inclusive)
+     * @param after       the {@link MeasurementPage#nextCursor} of the previous page, null for the first page
+     * @param limit       the page size, null for the default; larger sizes are capped
+     * @throws IllegalArgumentException if the cursor or the limit is invalid
+     */
+    public MeasurementPage findPage(String stationCode, LocalDateTime start, LocalDateTime end,
+                                    String after, Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        int size = limit != null ? Math.min(limit, maxPageSize) : defaultPageSize;
+        Cursor cursor = after != null ? Cursor.parse(after) : null;
+
+        // One extra measurement tells whether there is a next page
+        List<MeasurementRecord> measurements;
+        RecentMeasurementStore store = recentStore.getIfAvailable();
+        if (store != null && store.covers(stationCode, start)) {
+            measurements = store.find(stationCode, start, end).stream()
+                    .filter(r -> cursor == null || MeasurementRepository.PAGE_ORDER.compare(r, cursor.position()) > 0)
+                    .sorted(MeasurementRepository.PAGE_ORDER)
+                    .limit(size + 1L)
+                    .toList();
+        } else {
+            measurements = measurementRepository.findPage(stationCode, start, end,
+                    cursor != null ? cursor.timestamp() : null,
+                    cursor != null ? cursor.pollutant() : null,
+                    size + 1);
+        }
+
+        if (measurements.size() <= size) {
+            return new MeasurementPage(measurements, null);
+        }
+        MeasurementRecord last = measurements.get(size - 1);
+        return new MeasurementPage(measurements.subList(0, size),
+                new Cursor(last.timestamp(), last.pollutant()).toString());
+    }
+
+    /**
+     * A page of measurements.
+     *
+     * @param measurements the measurements, ordered by timestamp and pollutant name
+     * @param nextCursor   the cursor of the next page, null on the last page
+     */
+    public record MeasurementPage(List<MeasurementRecord> measurements, String nextCursor) {
+    }
+
+    /**
+     * Position of a measurement in the page order, written as {@code <timestamp>,<pollutant>}.
+     */
+    private record Cursor(LocalDateTime timestamp, Pollutant pollutant) {
+
+        static Cursor parse(String value) {
+            int comma = value.lastIndexOf(',');
+            try {
+                if (comma < 0) throw new IllegalArgumentException("Missing pollutant");
+                return new Cursor(LocalDateTime.parse(value.substring(0, comma).trim()),
+                        Pollutant.valueOf(value.substring(comma + 1).trim()));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + value, e);
+            }
+        }
+
+        MeasurementRecord position() {
+            return new MeasurementRecord(0, pollutant, 0, null, timestamp);
+        }
+
+        @Override
+        public String toString() {
+            return timestamp + "," + pollutant.name();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.RollupResolution;
+import com.aerogrid.backend.repository.MeasurementArchiveRepository;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.repository.MeasurementRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Applies the tiered retention policy for measurements.
+ * <p>
+ * Raw measurements are kept for {@code raw-days}. They are already folded into the rollups
+ * when inserted, so expiring them only means deleting them. HOUR rollups are kept for
+ * {@code hourly-days}; DAY and WEEK rollups are kept forever. When the measurements table is
+ * partitioned, whole expired months are dropped instead of deleted row by row. Archived days
+ * belong to the raw tier and expire with it.
+ * </p>
+ */
+@Slf4j
+@Service
+public class MeasurementRetentionService {
+
+    private static final int ROLLUP_DELETE_CHUNK = 10_000;
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final MeasurementRepository measurementRepository;
+    private final MeasurementRollupRepository rollupRepository;
+    private final MeasurementArchiveRepository archiveRepository;
+    private final ObjectProvider<MeasurementPartitionService> partitionService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int rawDays;
+    private final int hourlyDays;
+    private final int chunkHours;
+
+    public MeasurementRetentionService(MeasurementRepository measurementRepository,
+                                       MeasurementRollupRepository rollupRepository,
+                                       MeasurementArchiveRepository archiveRepository,
+                                       ObjectProvider<MeasurementPartitionService> partitionService,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${aerogrid.storage.retention.enabled:true}") boolean enabled,
+                                       @Value("${aerogrid.storage.retention.raw-days:90}") int rawDays,
+                                       @Value("${aerogrid.storage.retention.hourly-days:1825}") int hourlyDays,
+                                       @Value("${aerogrid.storage.retention.chunk-hours:6}") int chunkHours) {
+        this.measurementRepository = measurementRepository;
+        this.rollupRepository = rollupRepository;
+        this.archiveRepository = archiveRepository;
+        this.partitionService = partitionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.rawDays = rawDays;
+        this.hourlyDays = hourlyDays;
+        this.chunkHours = Math.max(1, chunkHours);
+    }
+
+    /**
+     * @return the instant before which raw measurements are deleted
+     */
+    public LocalDateTime rawTierStart() {
+        return enabled ? LocalDate.now().minusDays(rawDays).atStartOfDay() : BEGINNING;
+    }
+
+    /**
+     * @return the instant before which HOUR rollups are deleted
+     */
+    public LocalDateTime hourlyTierStart() {
+        return enabled ? LocalDate.now().minusDays(hourlyDays).atStartOfDay() : BEGINNING;
+    }
+
+    @Scheduled(cron = "${aerogrid.storage.retention.cron:0 0 2 * * *}")
+    public void applyRetention() {
+        if (!enabled) return;
+
+        long start = System.currentTimeMillis();
+        LocalDateTime rawCutoff = rawTierStart();
+
+        int droppedPartitions = dropExpiredPartitions(rawCutoff);
+        long deletedRows = deleteExpiredRaw(rawCutoff);
+        Integer deletedArchives = transactionTemplate.execute(status ->
+                archiveRepository.deleteByDayBefore(rawCutoff.toLocalDate()));
+        long deletedRollups = deleteExpiredRollups(RollupResolution.HOUR, hourlyTierStart());
+
+        log.info("Retention applied in {} ms: {} partitions dropped, {} raw rows deleted, {} archived days deleted, {} hourly rollups expired",
+                System.currentTimeMillis() - start, droppedPartitions, deletedRows, deletedArchives, deletedRollups);
+    }
+
+    /**
+     * Drops every monthly partition that ends on or before the raw cutoff.
+     */
+    private int dropExpiredPartitions(LocalDateTime rawCutoff) {
+        MeasurementPartitionService partitions = partitionService.getIfAvailable();
+        if (partitions == null) return 0;
+
+        int dropped = 0;
+        for (MeasurementPartitionService.PartitionInfo partition : partitions.listPartitions()) {
+            YearMonth month = partition.month();
+            if (month == null || month.plusMonths(1).atDay(1).atStartOfDay().isAfter(rawCutoff)) continue;
+
+            partitions.dropPartition(month);
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * Deletes the remaining raw rows older than the cutoff, one slice per transaction.
+     */
+    private long deleteExpiredRaw(LocalDateTime rawCutoff) {
+        long deleted = 0;
+        LocalDateTime oldest;
+        while ((oldest = measurementRepository.findOldestTimestampBefore(rawCutoff)) != null) {
+            LocalDateTime from = oldest.truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime sliceEnd = from.plusHours(chunkHours);
+            LocalDateTime to = sliceEnd.isAfter(rawCutoff) ? rawCutoff : sliceEnd;
+
+            Integer count = transactionTemplate.execute(status -> measurementRepository.deleteRawBetween(from, to));
+            deleted += count != null ? count : 0;
+        }
+        return deleted;
+    }
+
+    private long deleteExpiredRollups(RollupResolution resolution, LocalDateTime before) {
+        long deleted = 0;
+        int chunk;
+        do {
+            Integer count = transactionTemplate.execute(status ->
+                    rollupRepository.deleteExpiredChunk(resolution.name(), before, ROLLUP_DELETE_CHUNK));
+            chunk = count != null ? count : 0;
+            deleted += chunk;
+        } while (chunk == ROLLUP_DELETE_CHUNK);
+        return deleted;
+    }
+}
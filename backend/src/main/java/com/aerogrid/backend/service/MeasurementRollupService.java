@@ -0,0 +1,81 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.repository.MeasurementRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Rebuilds measurement rollups from raw data.
+ * <p>
+ * Rollups are normally maintained incrementally by the ingestion writes. A rebuild is only needed
+ * for data that was written before rollups existed or after manual changes to {@code measurements}.
+ * Archived days are decoded and counted like raw rows. Only whole weeks still fully covered by raw
+ * data are rebuilt, so rollups that outlived their raw measurements are never lost.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MeasurementRollupService {
+
+    private final MeasurementRepository measurementRepository;
+    private final MeasurementRollupRepository rollupRepository;
+    private final MeasurementRetentionService retentionService;
+    private final MeasurementArchiveService archiveService;
+
+    /**
+     * Builds the rollups for the existing raw data the first time the application starts with
+     * an empty rollup table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (rollupRepository.hasAny()) return;
+
+        LocalDateTime oldest = measurementRepository.findOldestTimestampBefore(LocalDateTime.now().plusDays(1));
+        if (oldest == null) return;
+
+        // Nothing to preserve yet, so weeks older than the raw tier are rebuilt too
+        log.info("Rollup table is empty, building rollups from raw measurements since {}", oldest);
+        rebuildWeeks(weekStart(oldest), LocalDateTime.now());
+    }
+
+    /**
+     * Recomputes the rollups between two instants, one week per transaction.
+     *
+     * @param from range start, extended back to the start of its week
+     * @param to   range end, extended forward to the end of its week
+     * @return the number of weeks rebuilt
+     */
+    public int rebuild(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime firstWeek = weekStart(from);
+        LocalDateTime rawTierStart = retentionService.rawTierStart();
+        // A week that started before the raw tier has already lost part of its raw rows
+        while (firstWeek.isBefore(rawTierStart)) {
+            firstWeek = firstWeek.plusWeeks(1);
+        }
+        return rebuildWeeks(firstWeek, to);
+    }
+
+    private int rebuildWeeks(LocalDateTime firstWeek, LocalDateTime to) {
+        int weeks = 0;
+        for (LocalDateTime week = firstWeek; week.isBefore(to); week = week.plusWeeks(1)) {
+            LocalDateTime weekEnd = week.plusWeeks(1);
+            measurementRepository.rebuildRollups(week, weekEnd, archiveService.readArchived(week, weekEnd));
+            weeks++;
+        }
+        log.info("Rebuilt measurement rollups for {} weeks starting {}", weeks, firstWeek);
+        return weeks;
+    }
+
+    private static LocalDateTime weekStart(LocalDateTime time) {
+        return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+    }
+}
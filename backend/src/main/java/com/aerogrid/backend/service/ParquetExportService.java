@@ -0,0 +1,388 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.HourlyAqiStatus;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.parquet.ParquetWriter;
+import com.aerogrid.backend.parquet.ParquetWriter.Column;
+import com.aerogrid.backend.parquet.ParquetWriter.Type;
+import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
+import com.aerogrid.backend.repository.MeasurementArchiveRepository;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Exports closed months of measurements and hourly AQI snapshots to Parquet files for analytics.
+ * <p>
+ * Files are laid out as Hive partitions under {@code aerogrid.export.parquet.directory}, which
+ * pandas and Spark read as a dataset:
+ * </p>
+ * <pre>
+ * measurements/month=2025-01/pollutant=NO2/part-0.parquet   station_code, timestamp, value, aqi
+ * snapshots/month=2025-01/part-0.parquet                    station_code, hour, max_aqi, pollutant,
+ *                                                           rolling_aqi, rolling_pollutant
+ * </pre>
+ * <p>
+ * Rows are written station by station, so the dictionary-encoded {@code station_code} column is
+ * stored as one run per station. A month is closed once all its days are sealed, and exported
+ * once its snapshots directory exists: each run only writes the closed months that were not
+ * exported yet, into a staging directory that is moved into place when the month is complete,
+ * so readers never see half a month. Months older than the raw retention can no longer be
+ * exported, so the nightly run must not be disabled for longer than that.
+ * </p>
+ */
+@Slf4j
+@Service
+public class ParquetExportService {
+
+    static final String MEASUREMENTS = "measurements";
+    static final String SNAPSHOTS = "snapshots";
+    private static final String STAGING = ".staging";
+    private static final String PART = "part-0.parquet";
+
+    private static final List<Column> MEASUREMENT_COLUMNS = List.of(
+            Column.required("station_code", Type.STRING),
+            Column.required("timestamp", Type.TIMESTAMP_MILLIS),
+            Column.required("value", Type.DOUBLE),
+            Column.optional("aqi", Type.INT32));
+    private static final List<Column> SNAPSHOT_COLUMNS = List.of(
+            Column.required("station_code", Type.STRING),
+            Column.required("hour", Type.TIMESTAMP_MILLIS),
+            Column.optional("max_aqi", Type.INT32),
+            Column.optional("pollutant", Type.STRING),
+            Column.optional("rolling_aqi", Type.INT32),
+            Column.optional("rolling_pollutant", Type.STRING));
+
+    private final MeasurementRepository measurementRepository;
+    private final MeasurementArchiveRepository archiveRepository;
+    private final HourlyAqiSnapshotRepository snapshotRepository;
+    private final StationRepository stationRepository;
+    private final TaskExecutor jobExecutor;
+    private final Path root;
+    private final boolean enabled;
+    private final int rowGroupRows;
+    private final int sealAfterDays;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ParquetExportService(MeasurementRepository measurementRepository,
+                                MeasurementArchiveRepository archiveRepository,
+                                HourlyAqiSnapshotRepository snapshotRepository,
+                                StationRepository stationRepository,
+                                TaskExecutor jobExecutor,
+                                @Value("${aerogrid.export.parquet.directory:exports/parquet}") String directory,
+                                @Value("${aerogrid.export.parquet.enabled:true}") boolean enabled,
+                                @Value("${aerogrid.export.parquet.row-group-rows:131072}") int rowGroupRows,
+                                @Value("${aerogrid.storage.archive.seal-after-days:7}") int sealAfterDays) {
+        this.measurementRepository = measurementRepository;
+        this.archiveRepository = archiveRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.stationRepository = stationRepository;
+        this.jobExecutor = jobExecutor;
+        this.root = Path.of(directory).toAbsolutePath().normalize();
+        this.enabled = enabled;
+        this.rowGroupRows = rowGroupRows;
+        // Same bound as MeasurementArchiveService: a month is closed once its last day is sealed
+        this.sealAfterDays = Math.max(3, sealAfterDays);
+    }
+
+    @Scheduled(cron = "${aerogrid.export.parquet.cron:0 30 3 * * *}")
+    public void exportNightly() {
+        if (!enabled) return;
+        if (!running.compareAndSet(false, true)) {
+            log.info("Parquet export already running, skipping the nightly run");
+            return;
+        }
+        try {
+            exportPendingMonths();
+        } catch (IOException | RuntimeException e) {
+            log.error("Parquet export failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Starts an export of the pending months on the job executor.
+     *
+     * @return false if an export is already running
+     * @throws TaskRejectedException if the job executor is full
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) return false;
+        try {
+            jobExecutor.execute(() -> {
+                try {
+                    exportPendingMonths();
+                } catch (IOException | RuntimeException e) {
+                    log.error("Parquet export failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Exports the closed months that were not exported yet, in the calling thread.
+     *
+     * @return the months written
+     * @throws IllegalStateException if an export is already running
+     * @throws IOException           if a file cannot be written; months completed before stay exported
+     */
+    public List<YearMonth> exportClosedMonths() throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A Parquet export is already running");
+        }
+        try {
+            return exportPendingMonths();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * @return true while an export runs
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Lists the exported files.
+     *
+     * @return the files, by path
+     */
+    public List<ExportedFile> listFiles() throws IOException {
+        if (!Files.isDirectory(root)) return List.of();
+        Path staging = root.resolve(STAGING);
+        try (Stream<Path> files = Files.walk(root)) {
+            List<ExportedFile> result = new ArrayList<>();
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.startsWith(staging) || !isParquetFile(file)) continue;
+                result.add(new ExportedFile(root.relativize(file).toString().replace('\\', '/'),
+                        Files.size(file), Files.getLastModifiedTime(file).toInstant()));
+            }
+            result.sort(Comparator.comparing(ExportedFile::path));
+            return result;
+        }
+    }
+
+    /**
+     * Resolves the path of an exported file, as listed by {@link #listFiles}.
+     *
+     * @param path the relative path
+     * @return the file, or null if the path is not an exported file
+     */
+    public Path resolve(String path) {
+        Path file = root.resolve(path).normalize();
+        if (!file.startsWith(root) || file.startsWith(root.resolve(STAGING)) || !isParquetFile(file)) {
+            return null;
+        }
+        return file;
+    }
+
+    private List<YearMonth> exportPendingMonths() throws IOException {
+        YearMonth lastClosed = YearMonth.from(LocalDate.now().minusDays(sealAfterDays)).minusMonths(1);
+        YearMonth first = oldestMonth();
+        List<YearMonth> exported = new ArrayList<>();
+        if (first == null) return exported;
+
+        List<StationMetadataProjection> stations = new ArrayList<>(stationRepository.findAllMetadata());
+        stations.sort(Comparator.comparing(StationMetadataProjection::getCode));
+
+        for (YearMonth month = first; !month.isAfter(lastClosed); month = month.plusMonths(1)) {
+            if (Files.isDirectory(monthDirectory(root.resolve(SNAPSHOTS), month))) continue;
+            exportMonth(month, stations);
+            exported.add(month);
+        }
+        return exported;
+    }
+
+    private YearMonth oldestMonth() {
+        LocalDate oldest = null;
+        LocalDateTime raw = measurementRepository.findOldestTimestampBefore(LocalDateTime.now());
+        if (raw != null) oldest = raw.toLocalDate();
+        LocalDate archived = archiveRepository.findOldestDay();
+        if (archived != null && (oldest == null || archived.isBefore(oldest))) oldest = archived;
+        LocalDateTime snapshot = snapshotRepository.findOldestTimestamp();
+        if (snapshot != null && (oldest == null || snapshot.toLocalDate().isBefore(oldest))) {
+            oldest = snapshot.toLocalDate();
+        }
+        return oldest != null ? YearMonth.from(oldest) : null;
+    }
+
+    private void exportMonth(YearMonth month, List<StationMetadataProjection> stations) throws IOException {
+        long start = System.currentTimeMillis();
+        Path staging = root.resolve(STAGING).resolve(monthDirectory(month));
+        deleteRecursively(staging);
+        Path stagedMeasurements = Files.createDirectories(staging.resolve(MEASUREMENTS));
+        Path stagedSnapshots = Files.createDirectories(staging.resolve(SNAPSHOTS));
+
+        long measurements = writeMeasurements(month, stations, stagedMeasurements);
+        long snapshots = writeSnapshots(month, stations, stagedSnapshots);
+
+        // Snapshots last: their directory marks the month as exported
+        moveInto(stagedMeasurements, monthDirectory(root.resolve(MEASUREMENTS), month));
+        moveInto(stagedSnapshots, monthDirectory(root.resolve(SNAPSHOTS), month));
+        deleteRecursively(staging);
+
+        log.info("Exported {} to Parquet: {} measurements and {} hourly snapshots in {} ms",
+                month, measurements, snapshots, System.currentTimeMillis() - start);
+    }
+
+    private long writeMeasurements(YearMonth month, List<StationMetadataProjection> stations, Path directory)
+            throws IOException {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        // streamRange takes an inclusive end; timestamps are stored with microsecond precision
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay().minusNanos(1000);
+        Set<Pollutant> pollutants = EnumSet.allOf(Pollutant.class);
+        Map<Pollutant, ParquetWriter> writers = new EnumMap<>(Pollutant.class);
+        long rows = 0;
+        try {
+            for (StationMetadataProjection station : stations) {
+                String code = station.getCode();
+                measurementRepository.streamRange(code, pollutants, from, to, record -> {
+                    try {
+                        ParquetWriter writer = writers.get(record.pollutant());
+                        if (writer == null) {
+                            writer = open(directory.resolve("pollutant=" + record.pollutant().name()), MEASUREMENT_COLUMNS);
+                            writers.put(record.pollutant(), writer);
+                        }
+                        writeMeasurement(writer, code, record);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            for (ParquetWriter writer : writers.values()) rows += writer.rows();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (ParquetWriter writer : writers.values()) writer.close();
+        }
+        return rows;
+    }
+
+    private long writeSnapshots(YearMonth month, List<StationMetadataProjection> stations, Path directory)
+            throws IOException {
+        Map<Long, String> codes = new HashMap<>();
+        long[] ids = new long[stations.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = stations.get(i).getId();
+            codes.put(ids[i], stations.get(i).getCode());
+        }
+
+        try (ParquetWriter writer = open(directory, SNAPSHOT_COLUMNS)) {
+            try {
+                snapshotRepository.streamForStations(ids, month.atDay(1).atStartOfDay(),
+                        month.plusMonths(1).atDay(1).atStartOfDay(), status -> {
+                            try {
+                                writeSnapshot(writer, codes.get(status.stationId()), status);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return writer.rows();
+        }
+    }
+
+    private ParquetWriter open(Path directory, List<Column> columns) throws IOException {
+        Files.createDirectories(directory);
+        return new ParquetWriter(new BufferedOutputStream(Files.newOutputStream(directory.resolve(PART)), 256 * 1024),
+                columns, rowGroupRows);
+    }
+
+    static void writeMeasurement(ParquetWriter writer, String stationCode, MeasurementRecord record) throws IOException {
+        writer.set(0, stationCode);
+        writer.set(1, record.timestamp());
+        writer.set(2, record.value());
+        writer.set(3, record.aqi());
+        writer.endRow();
+    }
+
+    static void writeSnapshot(ParquetWriter writer, String stationCode, HourlyAqiStatus status) throws IOException {
+        writer.set(0, stationCode);
+        writer.set(1, status.hour());
+        writer.set(2, status.maxAqi());
+        writer.set(3, status.pollutant());
+        writer.set(4, status.rollingAqi());
+        writer.set(5, status.rollingPollutant());
+        writer.endRow();
+    }
+
+    /**
+     * Replaces the target directory, left over by an export that stopped between its two moves.
+     */
+    private static void moveInto(Path source, Path target) throws IOException {
+        deleteRecursively(target);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) return;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static Path monthDirectory(Path parent, YearMonth month) {
+        return parent.resolve(monthDirectory(month));
+    }
+
+    private static String monthDirectory(YearMonth month) {
+        return "month=" + month;
+    }
+
+    private static boolean isParquetFile(Path file) {
+        return file.getFileName() != null && file.getFileName().toString().endsWith(".parquet")
+                && Files.isRegularFile(file);
+    }
+
+    /**
+     * An exported file.
+     *
+     * @param path      the path relative to the export directory, with forward slashes
+     * @param sizeBytes the file size
+     * @param modified  when the file was written
+     */
+    public record ExportedFile(String path, long sizeBytes, Instant modified) {
+    }
+}
@@ -0,0 +1,218 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.RegionType;
+import com.aerogrid.backend.domain.Station;
+import com.aerogrid.backend.domain.StationRegion;
+import com.aerogrid.backend.geo.HexGrid;
+import com.aerogrid.backend.repository.RegionalAqiRepository;
+import com.aerogrid.backend.repository.StationRegionRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.RegionalAqiProjection;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Maintains the AQI aggregates of municipalities and hex grid cells.
+ * <p>
+ * Every station is mapped to its municipality and to one cell of each configured hex grid
+ * ({@code aerogrid.regions.hex-sizes-km}, coarsest first). Hours whose snapshots change are
+ * collected from the {@link AqiSnapshotListener} callbacks and recomputed every few seconds with one
+ * set-based upsert per run of consecutive hours, so only the touched hours are aggregated again.
+ * After a {@link StationsChangedEvent} the stations are mapped again on the next run.
+ * Low-zoom maps read the aggregates through {@link #findLatest}.
+ * </p>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "aerogrid.regions.enabled", havingValue = "true", matchIfMissing = true)
+public class RegionalAqiService implements AqiSnapshotListener {
+
+    private final StationRepository stationRepository;
+    private final StationRegionRepository stationRegionRepository;
+    private final RegionalAqiRepository regionalAqiRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer refreshTimer;
+    private final List<HexGrid> grids;
+    private final int retentionDays;
+
+    private final NavigableSet<LocalDateTime> dirtyHours = new ConcurrentSkipListSet<>();
+    private volatile boolean stationsDirty;
+
+    public RegionalAqiService(StationRepository stationRepository,
+                              StationRegionRepository stationRegionRepository,
+                              RegionalAqiRepository regionalAqiRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${aerogrid.regions.hex-sizes-km:40,12,4}") double[] hexSizesKm,
+                              @Value("${aerogrid.regions.retention-days:30}") int retentionDays) {
+        this.stationRepository = stationRepository;
+        this.stationRegionRepository = stationRegionRepository;
+        this.regionalAqiRepository = regionalAqiRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.refreshTimer = Timer.builder("aerogrid.regions.refresh")
+                .description("Time spent recomputing regional AQI aggregates")
+                .register(meterRegistry);
+        this.grids = new ArrayList<>();
+        for (int i = 0; i < hexSizesKm.length; i++) {
+            grids.add(new HexGrid(i, hexSizesKm[i] * 1000));
+        }
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Maps every station to its regions and schedules the recent hours for aggregation.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildStationRegions() {
+        long start = System.currentTimeMillis();
+        List<Station> stations = stationRepository.findAll();
+        List<Long> ids = new ArrayList<>(stations.size());
+        List<StationRegion> regions = new ArrayList<>(stations.size() * (grids.size() + 1));
+        for (Station station : stations) {
+            ids.add(station.getId());
+            regions.addAll(regionsOf(station));
+        }
+        int written = stationRegionRepository.replaceForStations(ids, regions);
+        markRecentHoursDirty();
+        log.info("Mapped {} stations to {} regions in {} ms", stations.size(), written, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Maps the stations again on the next run, once a station change is committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationsChanged(StationsChangedEvent event) {
+        stationsDirty = true;
+    }
+
+    @Override
+    public void onSnapshotsChanged(LocalDateTime start, LocalDateTime end) {
+        for (LocalDateTime hour = start.truncatedTo(ChronoUnit.HOURS); hour.isBefore(end); hour = hour.plusHours(1)) {
+            dirtyHours.add(hour);
+        }
+    }
+
+    /**
+     * Recomputes the aggregates of the hours changed since the last run, one transaction per run
+     * of consecutive hours. Changed stations are mapped again first.
+     */
+    @Scheduled(fixedDelayString = "${aerogrid.regions.refresh-interval-ms:15000}")
+    public void refresh() {
+        if (stationsDirty) {
+            stationsDirty = false;
+            try {
+                rebuildStationRegions();
+            } catch (RuntimeException e) {
+                log.warn("Could not map stations to regions, retrying on next run: {}", e.getMessage());
+                stationsDirty = true;
+            }
+        }
+        if (dirtyHours.isEmpty()) return;
+
+        List<LocalDateTime> hours = new ArrayList<>();
+        LocalDateTime hour;
+        while ((hour = dirtyHours.pollFirst()) != null) {
+            hours.add(hour);
+        }
+
+        refreshTimer.record(() -> {
+            int i = 0;
+            while (i < hours.size()) {
+                LocalDateTime start = hours.get(i);
+                LocalDateTime end = start.plusHours(1);
+                while (++i < hours.size() && hours.get(i).equals(end)) {
+                    end = end.plusHours(1);
+                }
+                LocalDateTime rangeEnd = end;
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        regionalAqiRepository.upsertFromSnapshots(start, rangeEnd);
+                        regionalAqiRepository.deleteOrphans(start, rangeEnd);
+                    });
+                } catch (RuntimeException e) {
+                    log.warn("Could not aggregate regions for {} to {}, retrying on next run: {}", start, rangeEnd, e.getMessage());
+                    onSnapshotsChanged(start, rangeEnd);
+                }
+            }
+        });
+    }
+
+    @Scheduled(cron = "${aerogrid.regions.retention-cron:0 15 2 * * *}")
+    public void applyRetention() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays).truncatedTo(ChronoUnit.HOURS);
+        Integer deleted = transactionTemplate.execute(status -> regionalAqiRepository.deleteBefore(before));
+        log.info("Deleted {} regional AQI aggregates before {}", deleted, before);
+    }
+
+    /**
+     * Finds the newest aggregate of every region in [targetTime - 48h, targetTime] whose centre
+     * lies inside the bounding box.
+     *
+     * @param type       the region type
+     * @param resolution the hex grid resolution, ignored for municipalities
+     * @throws IllegalArgumentException if the resolution does not exist
+     */
+    public List<RegionalAqiProjection> findLatest(RegionType type, int resolution, LocalDateTime targetTime,
+                                                  double minLat, double minLon, double maxLat, double maxLon) {
+        int effectiveResolution = type == RegionType.MUNICIPALITY ? 0 : resolution;
+        if (type == RegionType.HEX && (resolution < 0 || resolution >= grids.size())) {
+            throw new IllegalArgumentException("Resolution must be between 0 and " + (grids.size() - 1));
+        }
+        return regionalAqiRepository.findLatest(type.name(), effectiveResolution, targetTime,
+                targetTime.minusHours(StationMapService.RECENT_HOURS), minLat, minLon, maxLat, maxLon);
+    }
+
+    /**
+     * Computes the regions of a station: its municipality and one cell per hex grid.
+     */
+    List<StationRegion> regionsOf(Station station) {
+        double latitude = station.getLocation().getY();
+        double longitude = station.getLocation().getX();
+
+        List<StationRegion> regions = new ArrayList<>(grids.size() + 1);
+        if (station.getMunicipality() != null && !station.getMunicipality().isBlank()) {
+            regions.add(StationRegion.builder()
+                    .stationId(station.getId())
+                    .regionType(RegionType.MUNICIPALITY)
+                    .resolution(0)
+                    .regionKey(station.getMunicipality().trim())
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .build());
+        }
+        for (HexGrid grid : grids) {
+            HexGrid.Cell cell = grid.cellOf(latitude, longitude);
+            regions.add(StationRegion.builder()
+                    .stationId(station.getId())
+                    .regionType(RegionType.HEX)
+                    .resolution(grid.getResolution())
+                    .regionKey(cell.id())
+                    .latitude(cell.latitude())
+                    .longitude(cell.longitude())
+                    .build());
+        }
+        return regions;
+    }
+
+    private void markRecentHoursDirty() {
+        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        onSnapshotsChanged(end.minusHours(StationMapService.RECENT_HOURS), end);
+    }
+}
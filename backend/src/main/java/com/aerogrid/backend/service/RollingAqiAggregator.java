@@ -0,0 +1,251 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.HourlyAqiPeak;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.ingestion.common.MeasurementIngestListener;
+import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
+import com.aerogrid.backend.repository.MeasurementRollupRepository;
+import com.aerogrid.backend.repository.projection.HourlyMeanProjection;
+import com.aerogrid.backend.timeseries.EpochHours;
+import com.aerogrid.backend.timeseries.RollingWindow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the regulatory rolling means of every station and scores them as readings arrive.
+ * <p>
+ * Each tracked pollutant has its own window ({@code aerogrid.aqi.rolling.windows}, by default a
+ * 24h mean for PM10 and PM2.5, an 8h mean for O3 and a 1h mean for NO2). A mean is only valid
+ * once {@code min-coverage} of its hours have data. Every few seconds the stations that received
+ * readings are scored: the rolling AQI of a station is the highest AQI of its valid means, and it
+ * is written to the {@code rolling_aqi} column of the hourly snapshot of its newest hour, where the
+ * map queries pick it up. Hours without a snapshot are skipped; the streaming and hourly snapshot
+ * runs create them. At startup the windows are filled from the HOUR rollups on the job executor.
+ * </p>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "aerogrid.aqi.rolling.enabled", havingValue = "true", matchIfMissing = true)
+public class RollingAqiAggregator implements MeasurementIngestListener {
+
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    private final AqiCalculatorService aqiCalculator;
+    private final HourlyAqiSnapshotRepository snapshotRepository;
+    private final AqiSnapshotNotifier snapshotNotifier;
+    private final MeasurementRollupRepository rollupRepository;
+    private final TaskExecutor jobExecutor;
+    private final Timer flushTimer;
+
+    /** Window length in hours by pollutant ordinal, 0 for pollutants not tracked */
+    private final int[] windowHours = new int[POLLUTANTS.length];
+    private final int[] minHours = new int[POLLUTANTS.length];
+    private final int longestWindow;
+
+    private final Map<Long, StationWindows> stations = new ConcurrentHashMap<>();
+
+    public RollingAqiAggregator(AqiCalculatorService aqiCalculator,
+                                HourlyAqiSnapshotRepository snapshotRepository,
+                                AqiSnapshotNotifier snapshotNotifier,
+                                MeasurementRollupRepository rollupRepository,
+                                TaskExecutor jobExecutor,
+                                MeterRegistry meterRegistry,
+                                @Value("${aerogrid.aqi.rolling.windows:PM10:24,PM25:24,O3:8,NO2:1}") String windows,
+                                @Value("${aerogrid.aqi.rolling.min-coverage:0.75}") double minCoverage) {
+        this.aqiCalculator = aqiCalculator;
+        this.snapshotRepository = snapshotRepository;
+        this.snapshotNotifier = snapshotNotifier;
+        this.rollupRepository = rollupRepository;
+        this.jobExecutor = jobExecutor;
+        this.flushTimer = Timer.builder("aerogrid.aqi.rolling.flush")
+                .description("Time spent writing rolling AQI values to the hourly snapshots")
+                .register(meterRegistry);
+
+        int longest = 0;
+        for (String window : windows.split(",")) {
+            String[] parts = window.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalStateException("Invalid rolling window '" + window + "', expected POLLUTANT:HOURS");
+            }
+            Pollutant pollutant = Pollutant.valueOf(parts[0].trim());
+            int hours = Integer.parseInt(parts[1].trim());
+            windowHours[pollutant.ordinal()] = hours;
+            minHours[pollutant.ordinal()] = Math.max(1, (int) Math.ceil(hours * minCoverage));
+            longest = Math.max(longest, hours);
+        }
+        this.longestWindow = longest;
+    }
+
+    /**
+     * Fills the windows without blocking the startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            jobExecutor.execute(this::fillWindows);
+        } catch (TaskRejectedException e) {
+            log.error("Could not start filling the rolling AQI windows, means start from live readings: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fills the windows from the HOUR rollups of the longest window. Hours that already received
+     * live readings are left as they are.
+     */
+    void fillWindows() {
+        long start = System.currentTimeMillis();
+        List<String> tracked = new ArrayList<>();
+        for (Pollutant pollutant : POLLUTANTS) {
+            if (windowHours[pollutant.ordinal()] > 0) tracked.add(pollutant.name());
+        }
+        if (tracked.isEmpty()) return;
+
+        try {
+            LocalDateTime since = LocalDateTime.now().minusHours(longestWindow);
+            List<HourlyMeanProjection> rows = rollupRepository.findHourlySince(since, tracked);
+            for (HourlyMeanProjection row : rows) {
+                Pollutant pollutant = Pollutant.valueOf(row.getPollutant());
+                StationWindows windows = stations.computeIfAbsent(row.getStationId(), id -> new StationWindows());
+                synchronized (windows) {
+                    windows.window(pollutant).seed(EpochHours.of(row.getBucketStart()), row.getValueSum(), row.getSampleCount());
+                    windows.dirty = true;
+                }
+            }
+            log.info("Rolling AQI windows filled from {} hourly rollups in {} ms", rows.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Could not fill the rolling AQI windows, means start from live readings: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onMeasurementsStored(List<MeasurementRecord> records) {
+        for (MeasurementRecord record : records) {
+            if (windowHours[record.pollutant().ordinal()] == 0) continue;
+
+            long hour = EpochHours.of(record.timestamp());
+            while (true) {
+                StationWindows windows = stations.computeIfAbsent(record.stationId(), id -> new StationWindows());
+                synchronized (windows) {
+                    // Forgotten by a concurrent flush, add to its replacement instead
+                    if (windows.retired) continue;
+                    if (windows.window(record.pollutant()).add(hour, record.value())) {
+                        windows.dirty = true;
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scores the stations that received readings since the last flush and writes their rolling
+     * AQI. Stations without readings for longer than the longest window are forgotten.
+     */
+    @Scheduled(fixedDelayString = "${aerogrid.aqi.rolling.flush-interval-ms:10000}")
+    public void flush() {
+        List<HourlyAqiPeak> batch = new ArrayList<>();
+        List<StationWindows> flushed = new ArrayList<>();
+        long oldestHour = EpochHours.current() - longestWindow;
+
+        for (Map.Entry<Long, StationWindows> entry : stations.entrySet()) {
+            StationWindows windows = entry.getValue();
+            synchronized (windows) {
+                if (!windows.dirty) {
+                    if (windows.headHour() < oldestHour) {
+                        windows.retired = true;
+                        stations.remove(entry.getKey(), windows);
+                    }
+                    continue;
+                }
+                windows.dirty = false;
+                flushed.add(windows);
+                HourlyAqiPeak rolling = score(entry.getKey(), windows);
+                if (rolling != null) batch.add(rolling);
+            }
+        }
+
+        if (batch.isEmpty()) return;
+        try {
+            Integer written = flushTimer.record(() -> snapshotRepository.updateRolling(batch));
+            if (written != null && written > 0) {
+                snapshotNotifier.snapshotsChanged(batch);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not write {} rolling AQI values, retrying on next flush: {}", batch.size(), e.getMessage());
+            for (StationWindows windows : flushed) {
+                synchronized (windows) {
+                    windows.dirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves every window of the station to its newest hour and picks the highest AQI.
+     *
+     * @return the rolling AQI of the newest hour, or null if no mean is valid yet
+     */
+    private HourlyAqiPeak score(long stationId, StationWindows windows) {
+        long head = windows.headHour();
+        int bestAqi = AqiCalculatorService.NO_AQI;
+        Pollutant bestPollutant = null;
+        for (int i = 0; i < windows.windows.length; i++) {
+            RollingWindow window = windows.windows[i];
+            if (window == null) continue;
+
+            window.advanceTo(head);
+            double mean = window.mean();
+            if (Double.isNaN(mean)) continue;
+
+            int aqi = aqiCalculator.calculate(POLLUTANTS[i], mean);
+            if (aqi > bestAqi) {
+                bestAqi = aqi;
+                bestPollutant = POLLUTANTS[i];
+            }
+        }
+        if (bestPollutant == null) return null;
+        return new HourlyAqiPeak(stationId, EpochHours.start(head), bestPollutant, bestAqi);
+    }
+
+    /**
+     * Windows of one station, indexed by pollutant ordinal. Guarded by its own monitor.
+     */
+    private final class StationWindows {
+        private final RollingWindow[] windows = new RollingWindow[POLLUTANTS.length];
+        private boolean dirty;
+        private boolean retired;
+
+        RollingWindow window(Pollutant pollutant) {
+            int index = pollutant.ordinal();
+            if (windows[index] == null) {
+                windows[index] = new RollingWindow(windowHours[index], minHours[index]);
+            }
+            return windows[index];
+        }
+
+        long headHour() {
+            long head = Long.MIN_VALUE;
+            for (RollingWindow window : windows) {
+                if (window != null) head = Math.max(head, window.headHour());
+            }
+            return head;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.aerogrid.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent computations: while one caller computes the value of a key,
+ * other callers with an equal key wait for it and get the same value, or the same exception,
+ * instead of running the computation again.
+ * <p>
+ * Nothing is kept once the computation ends, so a later call runs it again; this only removes
+ * the duplicates of a burst. The value is shared between callers and must not be modified.
+ * Calls are counted in {@code aerogrid.singleflight.calls}, tagged with the flight name and
+ * whether the caller {@code executed} the computation or {@code coalesced} into another one.
+ * </p>
+ *
+ * @param <K> the key, with value equality over everything the result depends on
+ * @param <V> the result
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    /**
+     * @param name flight name for the metrics, such as the query it guards
+     */
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = Counter.builder("aerogrid.singleflight.calls").tag("flight", name).tag("outcome", "executed")
+                .description("Calls of coalesced queries").register(meterRegistry);
+        this.coalesced = Counter.builder("aerogrid.singleflight.calls").tag("flight", name).tag("outcome", "coalesced")
+                .description("Calls of coalesced queries").register(meterRegistry);
+    }
+
+    /**
+     * Runs the computation, or waits for the one already running for an equal key.
+     */
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        executed.increment();
+        try {
+            V value = computation.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+}
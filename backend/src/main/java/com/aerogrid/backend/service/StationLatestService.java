@@ -0,0 +1,95 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.archive.GorillaCodec;
+import com.aerogrid.backend.controller.dto.MeasurementDto;
+import com.aerogrid.backend.domain.MeasurementArchive;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.StationLatest;
+import com.aerogrid.backend.repository.MeasurementArchiveRepository;
+import com.aerogrid.backend.repository.StationLatestRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves the current reading of each pollutant of a station from {@code station_latest}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StationLatestService {
+
+    private final StationLatestRepository latestRepository;
+    private final StationRepository stationRepository;
+    private final MeasurementArchiveRepository archiveRepository;
+
+    /**
+     * Fills {@code station_latest} the first time the application starts with an empty table,
+     * from the raw measurements and then from the newest archived day of every pair, which is
+     * all that is left of a series whose recent days were already compacted.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (latestRepository.hasAny()) return;
+
+        int rows = latestRepository.backfill();
+        int archived = 0;
+        for (MeasurementArchive archive : archiveRepository.findNewestDays()) {
+            List<MeasurementRecord> points = GorillaCodec.decode(archive.getData())
+                    .toRecords(archive.getStation().getId(), archive.getPollutant());
+            if (points.isEmpty()) continue;
+
+            MeasurementRecord last = points.get(points.size() - 1);
+            // A late raw row of an already archived day may be older than the archive
+            Optional<StationLatest> raw = latestRepository.findById(new StationLatest.Key(last.stationId(), last.pollutant()));
+            if (raw.isPresent() && !raw.get().getTimestamp().isBefore(last.timestamp())) continue;
+
+            latestRepository.save(StationLatest.builder()
+                    .stationId(last.stationId())
+                    .pollutant(last.pollutant())
+                    .timestamp(last.timestamp())
+                    .value(last.value())
+                    .aqi(last.aqi())
+                    .build());
+            if (raw.isEmpty()) archived++;
+        }
+
+        if (rows + archived > 0) {
+            log.info("Latest readings table filled with {} station/pollutant pairs, {} of them from the archive",
+                    rows + archived, archived);
+        }
+    }
+
+    /**
+     * Finds the latest reading of every pollutant of a station.
+     *
+     * @param stationCode the station code
+     * @return the readings, or empty if the station does not exist
+     */
+    @Transactional(readOnly = true)
+    public Optional<List<MeasurementDto>> findLatest(String stationCode) {
+        List<MeasurementDto> readings = latestRepository.findByStationCode(stationCode).stream()
+                .map(latest -> MeasurementDto.builder()
+                        .stationCode(stationCode)
+                        .pollutant(latest.getPollutant().name())
+                        .value(latest.getValue())
+                        .aqi(latest.getAqi())
+                        .timestamp(latest.getTimestamp())
+                        .build())
+                .toList();
+
+        // Only an empty result needs to tell an unknown station from one without data
+        if (readings.isEmpty() && stationRepository.findByCode(stationCode).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(readings);
+    }
+}
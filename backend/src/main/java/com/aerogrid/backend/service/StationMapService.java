@@ -0,0 +1,95 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.map.StationStatusCube;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Answers the station map queries, from the in-memory status cube when it covers the requested
+ * range and from the database otherwise.
+ * <p>
+ * Identical database queries running at the same time, typically a shared link opened by many
+ * clients at once, are coalesced into one. Snapshots are hourly, so the window of a query is
+ * normalized to the snapshot hours it includes and requests within the same hour share a key.
+ * </p>
+ */
+@Service
+public class StationMapService {
+
+    /** Snapshots considered before the target time, for data elasticity */
+    public static final int RECENT_HOURS = 48;
+
+    private final StationRepository stationRepository;
+    private final ObjectProvider<StationStatusCube> statusCube;
+    private final SingleFlight<MapQuery, List<StationMapProjection>> queries;
+
+    public StationMapService(StationRepository stationRepository,
+                             ObjectProvider<StationStatusCube> statusCube,
+                             MeterRegistry meterRegistry) {
+        this.stationRepository = stationRepository;
+        this.statusCube = statusCube;
+        this.queries = new SingleFlight<>("station-map", meterRegistry);
+    }
+
+    /**
+     * Finds the stations of the map with their latest AQI in the 48 hours before the target time.
+     * Supports three query modes: a complete bounding box, the stations of an owner, or every
+     * active station.
+     *
+     * @param targetTime target time, null for now
+     */
+    public List<StationMapProjection> findStations(Double minLat, Double minLon, Double maxLat, Double maxLon,
+                                                   Long userId, LocalDateTime targetTime) {
+        LocalDateTime actualTargetTime = targetTime != null ? targetTime : LocalDateTime.now();
+        LocalDateTime minTime = actualTargetTime.minusHours(RECENT_HOURS);
+
+        StationStatusCube cube = statusCube.getIfAvailable();
+        Optional<List<StationMapProjection>> cached = Optional.empty();
+        if (minLat != null && minLon != null && maxLat != null && maxLon != null) {
+            if (cube != null) cached = cube.findStationsInBoundingBox(minLon, minLat, maxLon, maxLat, actualTargetTime, minTime);
+            return cached.orElseGet(() -> query(new MapQuery(minLat, minLon, maxLat, maxLon, null, actualTargetTime),
+                    q -> stationRepository.findStationsInBoundingBox(minLon, minLat, maxLon, maxLat, q.to(), q.from())));
+        } else if (userId != null) {
+            if (cube != null) cached = cube.findByOwnerId(userId, actualTargetTime, minTime);
+            return cached.orElseGet(() -> query(new MapQuery(null, null, null, null, userId, actualTargetTime),
+                    q -> stationRepository.findByOwnerIdProjection(userId, q.to(), q.from())));
+        } else {
+            if (cube != null) cached = cube.findAllStationsWithStatus(actualTargetTime, minTime);
+            return cached.orElseGet(() -> query(new MapQuery(null, null, null, null, null, actualTargetTime),
+                    q -> stationRepository.findAllStationsWithStatus(q.to(), q.from())));
+        }
+    }
+
+    private List<StationMapProjection> query(MapQuery query,
+                                             Function<MapQuery, List<StationMapProjection>> runner) {
+        return queries.execute(query, () -> runner.apply(query));
+    }
+
+    /**
+     * Key of a database map query. The window holds the same hourly snapshots as
+     * {@code [targetTime - 48h, targetTime]}: from the first snapshot hour at or after its start to
+     * the last one at or before its end.
+     */
+    private record MapQuery(Double minLat, Double minLon, Double maxLat, Double maxLon, Long userId,
+                            LocalDateTime from, LocalDateTime to) {
+
+        MapQuery(Double minLat, Double minLon, Double maxLat, Double maxLon, Long userId, LocalDateTime targetTime) {
+            this(minLat, minLon, maxLat, maxLon, userId, ceilHour(targetTime.minusHours(RECENT_HOURS)),
+                    targetTime.truncatedTo(ChronoUnit.HOURS));
+        }
+
+        private static LocalDateTime ceilHour(LocalDateTime time) {
+            LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+            return hour.equals(time) ? hour : hour.plusHours(1);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import com.aerogrid.backend.domain.StationApiKey;
 import com.aerogrid.backend.repository.StationRepository;
 import com.aerogrid.backend.repository.StationApiKeyRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +21,7 @@ public class StationService {
     private final StationRepository stationRepository;
     private final StationApiKeyRepository stationApiKeyRepository;
     private final StationMapper stationMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public StationCreationResponseDto createStation(StationDetailsDto stationDetailsDto, User user) {
@@ -37,6 +39,7 @@ public class StationService {
                 .build();
 
         stationApiKeyRepository.save(apiKey);
+        eventPublisher.publishEvent(new StationsChangedEvent());
 
         return StationCreationResponseDto.builder()
                 .station(stationMapper.toDetailsDto(savedStation))
@@ -57,7 +60,9 @@ public class StationService {
         if (dto.getMunicipality() != null) station.setMunicipality(dto.getMunicipality());
         if (dto.getIsActive() != null) station.setIsActive(dto.getIsActive());
 
-        return stationMapper.toDetailsDto(stationRepository.save(station));
+        Station savedStation = stationRepository.save(station);
+        eventPublisher.publishEvent(new StationsChangedEvent());
+        return stationMapper.toDetailsDto(savedStation);
     }
 
     @Transactional
@@ -71,5 +76,6 @@ public class StationService {
 
         // Hard delete, assume cascading is handled or no strict measurements link
         stationRepository.delete(station);
+        eventPublisher.publishEvent(new StationsChangedEvent());
     }
 }
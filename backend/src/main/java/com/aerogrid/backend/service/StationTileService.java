@@ -0,0 +1,91 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.timeseries.EpochHours;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Serves the station status as Mapbox Vector Tiles, cached per tile and hour.
+ * <p>
+ * A tile for a target time shows the latest snapshot of each station in the 48 hours up to the
+ * start of that hour, so every request within the same hour gets the same tile. Tiles are kept in
+ * an {@link HourlyCache} of {@code aerogrid.tiles.cache-size} entries, which drops the tiles of
+ * the hours that can show changed snapshots and queries the current hour again at most every
+ * {@code aerogrid.tiles.live-refresh-seconds}. Station changes drop the whole cache. Concurrent
+ * misses of the same tile share one query.
+ * </p>
+ */
+@Service
+public class StationTileService implements AqiSnapshotListener {
+
+    public static final int MAX_ZOOM = 22;
+
+    private final StationRepository stationRepository;
+    private final HourlyCache<TileKey, byte[]> cache;
+    private final SingleFlight<TileQuery, byte[]> queries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public StationTileService(StationRepository stationRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${aerogrid.tiles.cache-size:4096}") int cacheSize,
+                              @Value("${aerogrid.tiles.live-refresh-seconds:10}") long liveRefreshSeconds) {
+        this.stationRepository = stationRepository;
+        this.cache = new HourlyCache<>(TileKey::hour, cacheSize, liveRefreshSeconds * 1000);
+        this.queries = new SingleFlight<>("station-tile", meterRegistry);
+        this.hits = Counter.builder("aerogrid.tiles.requests").tag("cache", "hit")
+                .description("Station tile requests").register(meterRegistry);
+        this.misses = Counter.builder("aerogrid.tiles.requests").tag("cache", "miss")
+                .description("Station tile requests").register(meterRegistry);
+    }
+
+    /**
+     * Gets the status tile of the stations at a target time.
+     *
+     * @throws IllegalArgumentException if the tile does not exist
+     */
+    public byte[] getStatusTile(int z, int x, int y, LocalDateTime targetTime) {
+        if (z < 0 || z > MAX_ZOOM || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            throw new IllegalArgumentException("Tile " + z + "/" + x + "/" + y + " does not exist");
+        }
+        LocalDateTime hour = targetTime.truncatedTo(ChronoUnit.HOURS);
+        TileKey key = new TileKey(z, x, y, EpochHours.of(hour));
+
+        byte[] cached = cache.getIfFresh(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        return cache.load(key, ticket -> queries.execute(new TileQuery(key, ticket.generation()),
+                () -> stationRepository.findStatusTile(z, x, y, hour, hour.minusHours(StationMapService.RECENT_HOURS))));
+    }
+
+    @Override
+    public void onSnapshotsChanged(LocalDateTime start, LocalDateTime end) {
+        cache.onSnapshotsChanged(start, end);
+    }
+
+    /**
+     * Drops every tile once a station change is committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationsChanged(StationsChangedEvent event) {
+        cache.clear();
+    }
+
+    private record TileKey(int z, int x, int y, long hour) {
+    }
+
+    /** A query only serves callers of its generation, which may cache its result */
+    private record TileQuery(TileKey key, long generation) {
+    }
+}
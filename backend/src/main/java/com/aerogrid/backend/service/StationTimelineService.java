@@ -0,0 +1,191 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.controller.dto.StationTimelineDto;
+import com.aerogrid.backend.domain.HourlyAqiStatus;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
+import com.aerogrid.backend.timeseries.EpochHours;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the station × hour AQI grids of the map animation.
+ * <p>
+ * All frames come from one scan of the hourly snapshots of the stations, from 48 hours before
+ * the first frame to the last one. Each frame then takes, per station, the latest snapshot of the
+ * 48 hours up to it, the same rule as the station map queries.
+ * </p>
+ */
+@Service
+public class StationTimelineService {
+
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    private final StationRepository stationRepository;
+    private final HourlyAqiSnapshotRepository snapshotRepository;
+    private final int maxFrames;
+
+    public StationTimelineService(StationRepository stationRepository,
+                                  HourlyAqiSnapshotRepository snapshotRepository,
+                                  @Value("${aerogrid.map.timeline.max-frames:168}") int maxFrames) {
+        this.stationRepository = stationRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * Builds the grids of the active stations, in the bounding box when it is complete.
+     *
+     * @param from      first frame, truncated to the hour
+     * @param to        last frame at the latest
+     * @param stepHours hours between frames
+     * @throws IllegalArgumentException if the range is empty, the step is not positive or there are too many frames
+     */
+    public StationTimelineDto getTimeline(Double minLat, Double minLon, Double maxLat, Double maxLon,
+                                          LocalDateTime from, LocalDateTime to, int stepHours) {
+        if (stepHours < 1) {
+            throw new IllegalArgumentException("Step must be at least one hour");
+        }
+        LocalDateTime first = from.truncatedTo(ChronoUnit.HOURS);
+        if (to.isBefore(first)) {
+            throw new IllegalArgumentException("The end of the timeline is before its start");
+        }
+        long frameCountLong = Duration.between(first, to).toHours() / stepHours + 1;
+        if (frameCountLong > maxFrames) {
+            throw new IllegalArgumentException("A timeline has at most " + maxFrames + " frames");
+        }
+        int frameCount = (int) frameCountLong;
+        LocalDateTime last = first.plusHours((long) (frameCount - 1) * stepHours);
+
+        List<StationMetadataProjection> stations = minLat != null && minLon != null && maxLat != null && maxLon != null
+                ? stationRepository.findActiveMetadataInBoundingBox(minLon, minLat, maxLon, maxLat)
+                : stationRepository.findActiveMetadata();
+
+        int stationCount = stations.size();
+        long[] ids = new long[stationCount];
+        String[] codes = new String[stationCount];
+        String[] names = new String[stationCount];
+        double[] latitudes = new double[stationCount];
+        double[] longitudes = new double[stationCount];
+        int[] trustScores = new int[stationCount];
+        String[] sourceTypes = new String[stationCount];
+        for (int s = 0; s < stationCount; s++) {
+            StationMetadataProjection station = stations.get(s);
+            ids[s] = station.getId();
+            codes[s] = station.getCode();
+            names[s] = station.getName();
+            latitudes[s] = station.getLatitude();
+            longitudes[s] = station.getLongitude();
+            trustScores[s] = station.getTrustScore() != null ? station.getTrustScore() : 0;
+            sourceTypes[s] = station.getSourceType();
+        }
+
+        int[] aqi = new int[stationCount * frameCount];
+        int[] pollutant = new int[stationCount * frameCount];
+        Arrays.fill(aqi, -1);
+        Arrays.fill(pollutant, -1);
+
+        GridWriter writer = new GridWriter(ids, EpochHours.of(first), stepHours, frameCount, aqi, pollutant);
+        snapshotRepository.streamForStations(ids, first.minusHours(StationMapService.RECENT_HOURS), last.plusHours(1),
+                writer::add);
+        writer.flush();
+
+        String[] pollutantNames = new String[POLLUTANTS.length];
+        for (int i = 0; i < POLLUTANTS.length; i++) {
+            pollutantNames[i] = POLLUTANTS[i].name();
+        }
+
+        return StationTimelineDto.builder()
+                .from(first)
+                .stepHours(stepHours)
+                .frameCount(frameCount)
+                .stationCount(stationCount)
+                .pollutants(pollutantNames)
+                .id(ids)
+                .code(codes)
+                .name(names)
+                .latitude(latitudes)
+                .longitude(longitudes)
+                .trustScore(trustScores)
+                .sourceType(sourceTypes)
+                .aqi(aqi)
+                .pollutant(pollutant)
+                .build();
+    }
+
+    private static int pollutantIndex(String name) {
+        if (name == null) return -1;
+        for (Pollutant candidate : POLLUTANTS) {
+            if (candidate.name().equals(name)) return candidate.ordinal();
+        }
+        return -1;
+    }
+
+    /**
+     * Collects the snapshots of one station at a time, as they arrive ordered by station and hour,
+     * and writes its row of the grids when the next station starts.
+     */
+    private static final class GridWriter {
+        private final long[] stationIds;
+        private final long firstHour;
+        private final int stepHours;
+        private final int frameCount;
+        private final int[] aqi;
+        private final int[] pollutant;
+
+        private long stationId = Long.MIN_VALUE;
+        private long[] hours = new long[64];
+        private int[] aqis = new int[64];
+        private int[] pollutants = new int[64];
+        private int size;
+
+        GridWriter(long[] stationIds, long firstHour, int stepHours, int frameCount, int[] aqi, int[] pollutant) {
+            this.stationIds = stationIds;
+            this.firstHour = firstHour;
+            this.stepHours = stepHours;
+            this.frameCount = frameCount;
+            this.aqi = aqi;
+            this.pollutant = pollutant;
+        }
+
+        void add(HourlyAqiStatus status) {
+            if (status.stationId() != stationId) {
+                flush();
+                stationId = status.stationId();
+            }
+            if (size == hours.length) {
+                hours = Arrays.copyOf(hours, size * 2);
+                aqis = Arrays.copyOf(aqis, size * 2);
+                pollutants = Arrays.copyOf(pollutants, size * 2);
+            }
+            hours[size] = EpochHours.of(status.hour());
+            aqis[size] = status.maxAqi() != null ? status.maxAqi() : -1;
+            pollutants[size] = pollutantIndex(status.pollutant());
+            size++;
+        }
+
+        void flush() {
+            int station = size > 0 ? Arrays.binarySearch(stationIds, stationId) : -1;
+            if (station >= 0) {
+                int row = -1;
+                for (int f = 0; f < frameCount; f++) {
+                    long frameHour = firstHour + (long) f * stepHours;
+                    while (row + 1 < size && hours[row + 1] <= frameHour) row++;
+                    if (row >= 0 && hours[row] >= frameHour - StationMapService.RECENT_HOURS) {
+                        aqi[station * frameCount + f] = aqis[row];
+                        pollutant[station * frameCount + f] = pollutants[row];
+                    }
+                }
+            }
+            size = 0;
+        }
+    }
+}
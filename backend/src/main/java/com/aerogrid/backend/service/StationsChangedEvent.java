@@ -0,0 +1,9 @@
+package com.aerogrid.backend.service;
+
+/**
+ * Published when station attributes shown on the map change: a station was created, updated or
+ * deleted, or trust scores were recalculated. Listeners use {@code @TransactionalEventListener},
+ * so they see the change after it is committed.
+ */
+public record StationsChangedEvent() {
+}
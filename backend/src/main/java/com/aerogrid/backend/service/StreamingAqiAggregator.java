@@ -0,0 +1,140 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.HourlyAqiPeak;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.ingestion.common.MeasurementIngestListener;
+import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the hourly AQI snapshots of the current hours up to date as readings arrive.
+ * <p>
+ * Every stored measurement with an AQI raises the in-memory peak of its station and hour; peaks
+ * that changed are written to {@code hourly_aqi_snapshots} in one batch every few seconds, so the
+ * map reflects new readings without waiting for the hourly {@link AqiAggregationService} run.
+ * Readings for hours older than the lateness window are left to that run, which recomputes
+ * every hour that received readings from the rollups.
+ * </p>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "aerogrid.aqi.streaming.enabled", havingValue = "true", matchIfMissing = true)
+public class StreamingAqiAggregator implements MeasurementIngestListener {
+
+    private final HourlyAqiSnapshotRepository snapshotRepository;
+    private final AqiSnapshotNotifier snapshotNotifier;
+    private final Timer flushTimer;
+    private final long latenessMinutes;
+
+    private final Map<HourKey, Peak> peaks = new ConcurrentHashMap<>();
+
+    public StreamingAqiAggregator(HourlyAqiSnapshotRepository snapshotRepository,
+                                  AqiSnapshotNotifier snapshotNotifier,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${aerogrid.aqi.streaming.lateness-minutes:120}") long latenessMinutes) {
+        this.snapshotRepository = snapshotRepository;
+        this.snapshotNotifier = snapshotNotifier;
+        this.flushTimer = Timer.builder("aerogrid.aqi.streaming.flush")
+                .description("Time spent writing streamed AQI peaks to the hourly snapshots")
+                .register(meterRegistry);
+        this.latenessMinutes = latenessMinutes;
+    }
+
+    @Override
+    public void onMeasurementsStored(List<MeasurementRecord> records) {
+        LocalDateTime oldestHour = oldestOpenHour();
+        for (MeasurementRecord record : records) {
+            if (record.aqi() == null) continue;
+
+            LocalDateTime hour = record.timestamp().truncatedTo(ChronoUnit.HOURS);
+            if (hour.isBefore(oldestHour)) continue;
+
+            offer(new HourKey(record.stationId(), hour), record.aqi(), record.pollutant());
+        }
+    }
+
+    /**
+     * Writes the peaks that changed since the last flush and forgets the hours that left the
+     * lateness window.
+     */
+    @Scheduled(fixedDelayString = "${aerogrid.aqi.streaming.flush-interval-ms:2000}")
+    public void flush() {
+        List<HourlyAqiPeak> batch = new ArrayList<>();
+        for (HourKey key : peaks.keySet()) {
+            peaks.computeIfPresent(key, (k, peak) -> {
+                if (peak.dirty) {
+                    batch.add(new HourlyAqiPeak(k.stationId(), k.hour(), peak.pollutant, peak.aqi));
+                    peak.dirty = false;
+                }
+                return peak;
+            });
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                Integer written = flushTimer.record(() -> snapshotRepository.raiseToPeaks(batch));
+                if (written != null && written > 0) {
+                    snapshotNotifier.snapshotsChanged(batch);
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not write {} streamed AQI peaks, retrying on next flush: {}", batch.size(), e.getMessage());
+                for (HourlyAqiPeak peak : batch) {
+                    HourKey key = new HourKey(peak.stationId(), peak.hour());
+                    offer(key, peak.aqi(), peak.pollutant());
+                    peaks.computeIfPresent(key, (k, current) -> {
+                        current.dirty = true;
+                        return current;
+                    });
+                }
+            }
+        }
+
+        LocalDateTime oldestHour = oldestOpenHour();
+        peaks.entrySet().removeIf(entry -> entry.getKey().hour().isBefore(oldestHour) && !entry.getValue().dirty);
+    }
+
+    private void offer(HourKey key, int aqi, Pollutant pollutant) {
+        peaks.compute(key, (k, peak) -> {
+            if (peak == null) {
+                peak = new Peak();
+            }
+            if (peak.pollutant == null || aqi > peak.aqi) {
+                peak.aqi = aqi;
+                peak.pollutant = pollutant;
+                peak.dirty = true;
+            }
+            return peak;
+        });
+    }
+
+    private LocalDateTime oldestOpenHour() {
+        return LocalDateTime.now().minusMinutes(latenessMinutes).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private record HourKey(long stationId, LocalDateTime hour) {
+    }
+
+    /**
+     * Peak of one station-hour. Only accessed inside {@code compute} calls on the map.
+     */
+    private static final class Peak {
+        private int aqi;
+        private Pollutant pollutant;
+        private boolean dirty;
+    }
+}
@@ -10,6 +10,7 @@ import com.aerogrid.backend.repository.StationRepository;
 import com.aerogrid.backend.repository.VoteRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -35,6 +36,7 @@ public class VoteService {
 
     private final VoteRepository voteRepository;
     private final StationRepository stationRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     private final ConcurrentHashMap<Long, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
 
@@ -161,14 +163,21 @@ public class VoteService {
             countMap.put(statId, new long[]{upvotes, total});
         }
 
+        boolean changed = false;
         for (Station s : stations) {
             if (s.getCode() != null && s.getCode().startsWith("TEST-")) {
                 continue; // Preserva els valors originals de les estacions de prova
             }
             long[] stats = countMap.getOrDefault(s.getId(), new long[]{0L, 0L});
+            int previous = s.getTrustScore();
             setTrustScoreBasedOnRules(s, stats[0], stats[1]);
+            changed |= previous != s.getTrustScore();
         }
         stationRepository.saveAll(stations);
+        // Only a real change invalidates the map caches, most runs change nothing
+        if (changed) {
+            eventPublisher.publishEvent(new StationsChangedEvent());
+        }
         
         // Evict old rate limiters occasionally (memory management)
         long now = System.currentTimeMillis();
@@ -0,0 +1,17 @@
+package com.aerogrid.backend.timeseries;
+
+import com.aerogrid.backend.repository.projection.AggregatedMeasurementProjection;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Chart bucket computed in memory, shaped like the rows of the rollup aggregate query.
+ */
+@Value
+public class BucketAggregate implements AggregatedMeasurementProjection {
+    LocalDateTime timestamp;
+    String pollutant;
+    Double avgValue;
+    Double avgAqi;
+}
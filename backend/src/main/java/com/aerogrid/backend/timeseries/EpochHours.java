@@ -0,0 +1,45 @@
+package com.aerogrid.backend.timeseries;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Hours counted from the epoch, the index the hourly snapshots, caches and rolling windows use
+ * for an hour. Timestamps are UTC local times, like every timestamp stored by the application.
+ */
+public final class EpochHours {
+
+    public static final int SECONDS_PER_HOUR = 3600;
+
+    private EpochHours() {
+    }
+
+    /**
+     * @return the hour a timestamp falls in
+     */
+    public static long of(LocalDateTime timestamp) {
+        return Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_HOUR);
+    }
+
+    /**
+     * @return the first hour starting at or after a timestamp
+     */
+    public static long ceil(LocalDateTime timestamp) {
+        boolean onTheHour = timestamp.getMinute() == 0 && timestamp.getSecond() == 0 && timestamp.getNano() == 0;
+        return of(timestamp) + (onTheHour ? 0 : 1);
+    }
+
+    /**
+     * @return the hour of the current time
+     */
+    public static long current() {
+        return of(LocalDateTime.now());
+    }
+
+    /**
+     * @return the start of an hour
+     */
+    public static LocalDateTime start(long epochHour) {
+        return LocalDateTime.ofEpochSecond(epochHour * SECONDS_PER_HOUR, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,317 @@
+package com.aerogrid.backend.timeseries;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.domain.Station;
+import com.aerogrid.backend.ingestion.common.MeasurementIngestListener;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.AggregatedMeasurementProjection;
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
+import com.aerogrid.backend.service.MeasurementArchiveService;
+import com.aerogrid.backend.service.StationsChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link RecentMeasurementStore} holding one {@link SeriesBuffer} per station and pollutant.
+ * <p>
+ * Filled by every ingestion write through {@link MeasurementIngestListener} and rebuilt from the
+ * database on the job executor when the application starts, from the raw rows and the archived
+ * days still in the window; until the rebuild finishes {@link #covers} is false and reads go to
+ * the database. Points older than {@code window-days} are evicted periodically, and a series
+ * that outgrows {@code max-points-per-series} is only covered from its oldest point kept.
+ * Station codes are resolved again after a station change, and the series of deleted stations
+ * are dropped on the next eviction.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aerogrid.storage.hot-window.enabled", havingValue = "true", matchIfMissing = true)
+public class InMemoryRecentMeasurementStore implements RecentMeasurementStore, MeasurementIngestListener {
+
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    /** Same origin as the date_bin calls of the rollup queries */
+    private static final long BUCKET_ORIGIN = toMicros(LocalDateTime.of(2024, 1, 1, 0, 0));
+
+    private final MeasurementRepository measurementRepository;
+    private final StationRepository stationRepository;
+    private final MeasurementArchiveService archiveService;
+    private final TaskExecutor jobExecutor;
+    private final int windowDays;
+    private final int maxPointsPerSeries;
+
+    private final Map<Long, SeriesBuffer[]> series = new ConcurrentHashMap<>();
+    private final Map<String, Long> stationIds = new ConcurrentHashMap<>();
+
+    /** Start of the data loaded at startup, or null while loading */
+    private volatile LocalDateTime loadedFrom;
+    private volatile boolean stationsDirty;
+
+    public InMemoryRecentMeasurementStore(MeasurementRepository measurementRepository,
+                                          StationRepository stationRepository,
+                                          MeasurementArchiveService archiveService,
+                                          TaskExecutor jobExecutor,
+                                          @Value("${aerogrid.storage.hot-window.window-days:8}") int windowDays,
+                                          @Value("${aerogrid.storage.hot-window.max-points-per-series:12000}") int maxPointsPerSeries) {
+        this.measurementRepository = measurementRepository;
+        this.stationRepository = stationRepository;
+        this.archiveService = archiveService;
+        this.jobExecutor = jobExecutor;
+        this.windowDays = windowDays;
+        this.maxPointsPerSeries = maxPointsPerSeries;
+    }
+
+    /**
+     * Loads the window from the database without blocking the startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            jobExecutor.execute(this::loadWindow);
+        } catch (TaskRejectedException e) {
+            log.error("Could not start loading the hot window, recent reads will use the database: {}", e.getMessage());
+        }
+    }
+
+    private void loadWindow() {
+        long start = System.currentTimeMillis();
+        LocalDateTime since = windowStart();
+        try {
+            for (Station station : stationRepository.findAll()) {
+                stationIds.put(station.getCode(), station.getId());
+            }
+
+            AtomicLong points = new AtomicLong();
+            measurementRepository.streamSince(since, record -> {
+                if (addRecord(record)) points.incrementAndGet();
+            });
+            // Read after the raw rows, so a day compacted meanwhile is found in the archive
+            for (MeasurementRecord record : archiveService.readArchived(since, LocalDateTime.now())) {
+                if (addRecord(record)) points.incrementAndGet();
+            }
+            loadedFrom = since;
+
+            log.info("Hot window loaded: {} measurements of {} stations since {} in {} ms",
+                    points.get(), series.size(), since, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Could not load the hot window, recent reads will use the database: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onMeasurementsStored(List<MeasurementRecord> records) {
+        for (MeasurementRecord record : records) {
+            addRecord(record);
+        }
+    }
+
+    /**
+     * Forgets the resolved station codes once a station change is committed, so a code deleted
+     * and reused maps to its new station, and prunes deleted stations on the next eviction.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationsChanged(StationsChangedEvent event) {
+        stationIds.clear();
+        stationsDirty = true;
+    }
+
+    @Override
+    public boolean covers(String stationCode, LocalDateTime start) {
+        LocalDateTime from = loadedFrom;
+        if (from == null) return false;
+
+        LocalDateTime windowStart = windowStart();
+        if (start.isBefore(from.isAfter(windowStart) ? from : windowStart)) return false;
+
+        SeriesBuffer[] buffers = buffersOf(stationCode);
+        if (buffers == null) return true;
+        long startMicros = toMicros(start);
+        for (SeriesBuffer buffer : buffers) {
+            if (buffer != null && startMicros < buffer.coveredFrom()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<MeasurementRecord> find(String stationCode, LocalDateTime start, LocalDateTime end) {
+        Long stationId = stationId(stationCode);
+        SeriesBuffer[] buffers = stationId != null ? buffersOf(stationId) : null;
+        if (buffers == null) return List.of();
+
+        long from = toMicros(start);
+        long to = toMicros(end) + 1;
+
+        List<MeasurementRecord> records = new ArrayList<>();
+        for (Pollutant pollutant : POLLUTANTS) {
+            SeriesBuffer buffer = buffers[pollutant.ordinal()];
+            if (buffer == null) continue;
+
+            buffer.forEach(from, to, (time, value, aqi) -> records.add(new MeasurementRecord(
+                    stationId, pollutant, value, aqi == SeriesBuffer.NO_AQI ? null : aqi, toLocalDateTime(time))));
+        }
+        records.sort(Comparator.comparing(MeasurementRecord::timestamp));
+        return records;
+    }
+
+    @Override
+    public List<AggregatedMeasurementProjection> aggregate(String stationCode, LocalDateTime start, LocalDateTime end,
+                                                           Duration bucketWidth) {
+        SeriesBuffer[] buffers = buffersOf(stationCode);
+        if (buffers == null || !end.isAfter(start)) return List.of();
+
+        long from = toMicros(start);
+        long to = toMicros(end);
+        long width = bucketWidth.toNanos() / 1000;
+        long firstBucket = Math.floorDiv(from - BUCKET_ORIGIN, width);
+        int bucketCount = (int) (Math.floorDiv(to - 1 - BUCKET_ORIGIN, width) - firstBucket + 1);
+
+        List<AggregatedMeasurementProjection> rows = new ArrayList<>();
+        for (Pollutant pollutant : POLLUTANTS) {
+            SeriesBuffer buffer = buffers[pollutant.ordinal()];
+            if (buffer == null) continue;
+
+            long[] counts = new long[bucketCount];
+            double[] sums = new double[bucketCount];
+            long[] aqiCounts = new long[bucketCount];
+            long[] aqiSums = new long[bucketCount];
+            buffer.forEach(from, to, (time, value, aqi) -> {
+                int bucket = (int) (Math.floorDiv(time - BUCKET_ORIGIN, width) - firstBucket);
+                counts[bucket]++;
+                sums[bucket] += value;
+                if (aqi != SeriesBuffer.NO_AQI) {
+                    aqiCounts[bucket]++;
+                    aqiSums[bucket] += aqi;
+                }
+            });
+
+            for (int b = 0; b < bucketCount; b++) {
+                if (counts[b] == 0) continue;
+                rows.add(new BucketAggregate(
+                        toLocalDateTime(BUCKET_ORIGIN + (firstBucket + b) * width),
+                        pollutant.name(),
+                        sums[b] / counts[b],
+                        aqiCounts[b] > 0 ? (double) aqiSums[b] / aqiCounts[b] : null));
+            }
+        }
+        rows.sort(Comparator.comparing(AggregatedMeasurementProjection::getTimestamp)
+                .thenComparing(AggregatedMeasurementProjection::getPollutant));
+        return rows;
+    }
+
+    /**
+     * Drops the points that left the window, and the series of deleted stations.
+     */
+    @Scheduled(fixedDelayString = "${aerogrid.storage.hot-window.evict-interval-ms:600000}")
+    public void evict() {
+        if (stationsDirty) {
+            stationsDirty = false;
+            dropDeletedStations();
+        }
+        long cutoff = toMicros(windowStart());
+        for (SeriesBuffer[] buffers : series.values()) {
+            for (SeriesBuffer buffer : snapshot(buffers)) {
+                if (buffer != null) buffer.evictBefore(cutoff);
+            }
+        }
+    }
+
+    int stationCount() {
+        return series.size();
+    }
+
+    private void dropDeletedStations() {
+        Set<Long> ids = new HashSet<>();
+        long maxId = Long.MIN_VALUE;
+        for (StationMetadataProjection station : stationRepository.findAllMetadata()) {
+            ids.add(station.getId());
+            maxId = Math.max(maxId, station.getId());
+        }
+        // Stations created after the query have higher IDs and are kept
+        long newest = maxId;
+        series.keySet().removeIf(id -> id <= newest && !ids.contains(id));
+    }
+
+    private boolean addRecord(MeasurementRecord record) {
+        SeriesBuffer[] buffers = series.computeIfAbsent(record.stationId(), id -> new SeriesBuffer[POLLUTANTS.length]);
+        SeriesBuffer buffer;
+        synchronized (buffers) {
+            buffer = buffers[record.pollutant().ordinal()];
+            if (buffer == null) {
+                buffer = new SeriesBuffer(maxPointsPerSeries);
+                buffers[record.pollutant().ordinal()] = buffer;
+            }
+        }
+        return buffer.add(toMicros(record.timestamp()), record.value(),
+                record.aqi() != null ? record.aqi() : SeriesBuffer.NO_AQI);
+    }
+
+    private static SeriesBuffer[] snapshot(SeriesBuffer[] buffers) {
+        synchronized (buffers) {
+            return buffers.clone();
+        }
+    }
+
+    /**
+     * @return a copy of the buffers of a station, or null if it has no recent data
+     */
+    private SeriesBuffer[] buffersOf(String stationCode) {
+        Long stationId = stationId(stationCode);
+        return stationId != null ? buffersOf(stationId) : null;
+    }
+
+    private SeriesBuffer[] buffersOf(long stationId) {
+        SeriesBuffer[] buffers = series.get(stationId);
+        return buffers != null ? snapshot(buffers) : null;
+    }
+
+    /**
+     * @return the ID of a station, or null if there is no such station
+     */
+    private Long stationId(String stationCode) {
+        Long stationId = stationIds.get(stationCode);
+        if (stationId == null) {
+            // Stations created after startup or a station change are resolved once
+            Optional<Station> station = stationRepository.findByCode(stationCode);
+            if (station.isEmpty()) return null;
+            stationId = station.get().getId();
+            stationIds.put(stationCode, stationId);
+        }
+        return stationId;
+    }
+
+    private LocalDateTime windowStart() {
+        return LocalDateTime.now().minusDays(windowDays);
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + time.getNano() / 1000;
+    }
+
+    private static LocalDateTime toLocalDateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, MICROS_PER_SECOND),
+                (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,49 @@
+package com.aerogrid.backend.timeseries;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.repository.projection.AggregatedMeasurementProjection;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * In-process store of the most recent measurements of every station.
+ * <p>
+ * Interactive reads (station popup, details panel, 1D and 1W charts) only look at the last few
+ * days; when the store {@link #covers} the requested range they are answered from memory
+ * without querying the database.
+ * </p>
+ */
+public interface RecentMeasurementStore {
+
+    /**
+     * @param stationCode the station code
+     * @param start       the start of a range ending now or later
+     * @return whether every stored measurement of the station from {@code start} onwards is held by the store
+     */
+    boolean covers(String stationCode, LocalDateTime start);
+
+    /**
+     * Finds the measurements of a station within a time range.
+     *
+     * @param stationCode the station code
+     * @param start       the start timestamp (inclusive)
+     * @param end         the end timestamp (inclusive)
+     * @return the measurements of every pollutant, ordered by timestamp
+     */
+    List<MeasurementRecord> find(String stationCode, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Aggregates the measurements of a station into fixed-width buckets, aligned like
+     * PostgreSQL's {@code date_bin} with origin 2024-01-01 00:00 (a Monday).
+     *
+     * @param stationCode the station code
+     * @param start       the start timestamp (inclusive)
+     * @param end         the end timestamp (exclusive)
+     * @param bucketWidth the bucket width
+     * @return one row per bucket and pollutant, ordered by bucket
+     */
+    List<AggregatedMeasurementProjection> aggregate(String stationCode, LocalDateTime start, LocalDateTime end,
+                                                    Duration bucketWidth);
+}
@@ -0,0 +1,134 @@
+package com.aerogrid.backend.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Rolling mean of one series over the last {@code hours} clock hours.
+ * <p>
+ * Readings are accumulated into one slot per hour of a ring; the mean is the average of the
+ * hourly means, as regulatory rolling averages are defined. Adding a reading is O(1): only the
+ * running sum of hourly means is adjusted. Moving the window forward clears the slots that fell
+ * out of it. Hours are counted since the epoch, reading the measurement timestamps as UTC.
+ * Not thread safe.
+ * </p>
+ */
+public final class RollingWindow {
+
+    private final int hours;
+    private final int minHours;
+    private final double[] sums;
+    private final int[] counts;
+
+    /** Newest hour of the window, or {@link Long#MIN_VALUE} while empty */
+    private long headHour = Long.MIN_VALUE;
+    private double meanSum;
+    private int filledHours;
+
+    /**
+     * @param hours    window length in hours
+     * @param minHours hours with data needed for the mean to be valid
+     */
+    public RollingWindow(int hours, int minHours) {
+        if (hours < 1 || minHours < 1 || minHours > hours) {
+            throw new IllegalArgumentException("Invalid rolling window " + minHours + "/" + hours);
+        }
+        this.hours = hours;
+        this.minHours = minHours;
+        this.sums = new double[hours];
+        this.counts = new int[hours];
+    }
+
+    /**
+     * Adds a reading, moving the window forward if it belongs to a newer hour.
+     *
+     * @param epochHour hour of the reading
+     * @return false if the reading is older than the window and was ignored
+     */
+    public boolean add(long epochHour, double value) {
+        if (epochHour > headHour) {
+            advanceTo(epochHour);
+        } else if (epochHour <= headHour - hours) {
+            return false;
+        }
+
+        int slot = slot(epochHour);
+        if (counts[slot] > 0) {
+            meanSum -= sums[slot] / counts[slot];
+        } else {
+            filledHours++;
+        }
+        sums[slot] += value;
+        counts[slot]++;
+        meanSum += sums[slot] / counts[slot];
+        return true;
+    }
+
+    /**
+     * Fills an hour from an aggregate, e.g. an HOUR rollup, if the window has no reading for it yet.
+     *
+     * @return whether the hour was filled
+     */
+    public boolean seed(long epochHour, double sum, long count) {
+        if (count <= 0) return false;
+        if (epochHour > headHour) {
+            advanceTo(epochHour);
+        } else if (epochHour <= headHour - hours) {
+            return false;
+        }
+
+        int slot = slot(epochHour);
+        if (counts[slot] > 0) return false;
+        sums[slot] = sum;
+        counts[slot] = (int) Math.min(count, Integer.MAX_VALUE);
+        meanSum += sum / count;
+        filledHours++;
+        return true;
+    }
+
+    /**
+     * Moves the window so that it ends at {@code epochHour}, dropping the hours that leave it.
+     */
+    public void advanceTo(long epochHour) {
+        if (epochHour <= headHour) return;
+
+        if (headHour == Long.MIN_VALUE || epochHour - headHour >= hours) {
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+        } else {
+            for (long hour = headHour + 1; hour <= epochHour; hour++) {
+                int slot = slot(hour);
+                sums[slot] = 0;
+                counts[slot] = 0;
+            }
+        }
+        headHour = epochHour;
+
+        // Recomputed from the slots, at most once per hour, so rounding errors do not pile up
+        meanSum = 0;
+        filledHours = 0;
+        for (int slot = 0; slot < hours; slot++) {
+            if (counts[slot] > 0) {
+                meanSum += sums[slot] / counts[slot];
+                filledHours++;
+            }
+        }
+    }
+
+    /**
+     * @return the newest hour of the window, or {@link Long#MIN_VALUE} if nothing was added
+     */
+    public long headHour() {
+        return headHour;
+    }
+
+    /**
+     * @return the rolling mean, or NaN if fewer than {@code minHours} hours have data
+     */
+    public double mean() {
+        return filledHours >= minHours ? meanSum / filledHours : Double.NaN;
+    }
+
+    private int slot(long epochHour) {
+        return (int) Math.floorMod(epochHour, (long) hours);
+    }
+}
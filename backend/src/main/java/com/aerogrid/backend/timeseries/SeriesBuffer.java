@@ -0,0 +1,158 @@
+package com.aerogrid.backend.timeseries;
+
+/**
+ * Ring buffer of the recent points of one station and pollutant, kept sorted by timestamp.
+ * <p>
+ * Timestamps, values and AQIs are stored in parallel primitive arrays. Points normally arrive in
+ * order and are appended; late points are inserted at their position. The buffer grows up to
+ * {@code maxPoints} and then overwrites its oldest point; {@link #coveredFrom} tells from when on
+ * no added point was lost that way. All methods are synchronized.
+ * </p>
+ */
+final class SeriesBuffer {
+
+    static final int NO_AQI = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final int maxPoints;
+    private long[] times;
+    private double[] values;
+    private int[] aqis;
+    /** Physical index of the oldest point */
+    private int head;
+    private int size;
+    /** Every point added at or after this timestamp is still held, unless evicted */
+    private long coveredFrom = Long.MIN_VALUE;
+
+    SeriesBuffer(int maxPoints) {
+        this.maxPoints = maxPoints;
+        int capacity = Math.min(INITIAL_CAPACITY, maxPoints);
+        this.times = new long[capacity];
+        this.values = new double[capacity];
+        this.aqis = new int[capacity];
+    }
+
+    /**
+     * Adds a point, ignoring it if a point with the same timestamp is already held.
+     *
+     * @param time  timestamp in epoch microseconds
+     * @param value measured value
+     * @param aqi   AQI, or {@link #NO_AQI}
+     * @return whether the point was added
+     */
+    synchronized boolean add(long time, double value, int aqi) {
+        int position = size == 0 || time > times[physical(size - 1)] ? size : search(time);
+        if (position < size && times[physical(position)] == time) return false;
+
+        if (size == times.length) {
+            if (times.length < maxPoints) {
+                grow();
+            } else {
+                if (position == 0) {
+                    // Older than everything kept
+                    coveredFrom = Math.max(coveredFrom, time + 1);
+                    return false;
+                }
+                coveredFrom = Math.max(coveredFrom, times[head] + 1);
+                head = physical(1);
+                size--;
+                position--;
+            }
+        }
+
+        // Shift the newer points one slot to make room; a no-op for in-order appends
+        for (int i = size; i > position; i--) {
+            int to = physical(i);
+            int from = physical(i - 1);
+            times[to] = times[from];
+            values[to] = values[from];
+            aqis[to] = aqis[from];
+        }
+        int slot = physical(position);
+        times[slot] = time;
+        values[slot] = value;
+        aqis[slot] = aqi;
+        size++;
+        return true;
+    }
+
+    /**
+     * Drops every point older than the given timestamp.
+     *
+     * @return the number of points left
+     */
+    synchronized int evictBefore(long time) {
+        int drop = search(time);
+        head = physical(drop);
+        size -= drop;
+        return size;
+    }
+
+    /**
+     * Passes every point in [from, to) to the visitor, in timestamp order.
+     */
+    synchronized void forEach(long from, long to, PointVisitor visitor) {
+        for (int i = search(from); i < size; i++) {
+            int slot = physical(i);
+            if (times[slot] >= to) break;
+            visitor.visit(times[slot], values[slot], aqis[slot]);
+        }
+    }
+
+    /**
+     * @return the timestamp from which on every added point is still held, or {@link Long#MIN_VALUE}
+     * if the buffer never overflowed
+     */
+    synchronized long coveredFrom() {
+        return coveredFrom;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the logical index of the first point at or after {@code time}
+     */
+    private int search(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[physical(mid)] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int physical(int index) {
+        int slot = head + index;
+        return slot < times.length ? slot : slot - times.length;
+    }
+
+    private void grow() {
+        int capacity = Math.min(times.length * 2, maxPoints);
+        long[] newTimes = new long[capacity];
+        double[] newValues = new double[capacity];
+        int[] newAqis = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            int slot = physical(i);
+            newTimes[i] = times[slot];
+            newValues[i] = values[slot];
+            newAqis[i] = aqis[slot];
+        }
+        times = newTimes;
+        values = newValues;
+        aqis = newAqis;
+        head = 0;
+    }
+
+    @FunctionalInterface
+    interface PointVisitor {
+        void visit(long time, double value, int aqi);
+    }
+}
@@ -0,0 +1,72 @@
+package com.aerogrid.backend;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Base class of the tests of native SQL, run against a bare PostgreSQL database without a Spring
+ * context. Tables are recreated from {@code sql/measurement-tables.sql} before each test.
+ * <p>
+ * The database is the one given by the {@code aerogrid.test.jdbc-url} system property (user
+ * {@code postgres}, no password), e.g. {@code mvn test -Daerogrid.test.jdbc-url=jdbc:postgresql://localhost:5432/postgres},
+ * otherwise a PostgreSQL container shared by all tests. Without either the tests are skipped.
+ * </p>
+ */
+public abstract class PostgresSqlTest {
+
+    private static DriverManagerDataSource dataSource;
+
+    protected JdbcTemplate jdbcTemplate;
+    protected NamedParameterJdbcTemplate namedJdbcTemplate;
+    protected DataSourceTransactionManager transactionManager;
+
+    @BeforeAll
+    static void connect() {
+        if (dataSource != null) return;
+
+        String url = System.getProperty("aerogrid.test.jdbc-url");
+        if (url != null) {
+            dataSource = new DriverManagerDataSource(url, "postgres", "");
+            return;
+        }
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "No test database and no Docker");
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        // Stopped by the Testcontainers reaper when the test JVM exits
+        postgres.start();
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+
+    @BeforeEach
+    void createTables() {
+        new ResourceDatabasePopulator(new ClassPathResource("sql/measurement-tables.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    /**
+     * Returns the SQL of a repository method annotated with a native {@link Query}, to run it with
+     * {@link #namedJdbcTemplate} and the same named parameters.
+     */
+    protected static String nativeQuery(Class<?> repository, String methodName) {
+        Method method = Arrays.stream(repository.getMethods())
+                .filter(m -> m.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No method " + methodName));
+        return method.getAnnotation(Query.class).value();
+    }
+}
@@ -0,0 +1,72 @@
+package com.aerogrid.backend.archive;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for GorillaCodec.
+ * Covers lossless round trips and range decoding.
+ */
+class GorillaCodecTest {
+
+    @Test
+    @DisplayName("Decodes exactly what was encoded, including irregular timestamps and missing AQI")
+    void roundTrip() {
+        Random random = new Random(7);
+        int count = 2_000;
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        int[] aqis = new int[count];
+
+        long timestamp = 1_767_225_600L;
+        for (int i = 0; i < count; i++) {
+            // Regular interval with occasional gaps, duplicates and large jumps
+            timestamp += switch (random.nextInt(20)) {
+                case 0 -> 0;
+                case 1 -> random.nextInt(100_000);
+                case 2 -> 60 + random.nextInt(500);
+                default -> 60;
+            };
+            timestamps[i] = timestamp;
+            values[i] = random.nextInt(4) == 0 ? values[Math.max(0, i - 1)] : random.nextGaussian() * 50;
+            aqis[i] = random.nextInt(10) == 0 ? GorillaCodec.NO_AQI : random.nextInt(6);
+        }
+
+        GorillaCodec.Series series = GorillaCodec.decode(GorillaCodec.encode(timestamps, values, aqis, count));
+
+        assertEquals(count, series.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(timestamps[i], series.epochSecond(i), "timestamp " + i);
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(series.value(i)), "value " + i);
+            assertEquals(aqis[i], series.aqi(i), "aqi " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Range decoding returns only the points inside the range")
+    void decodeRange() {
+        long[] timestamps = {100, 200, 300, 400, 500};
+        double[] values = {1.5, 2.5, 3.5, 4.5, 5.5};
+        int[] aqis = {1, 1, 2, 2, 3};
+
+        GorillaCodec.Series series = GorillaCodec.decode(
+                GorillaCodec.encode(timestamps, values, aqis, timestamps.length), 200, 400);
+
+        assertEquals(3, series.size());
+        assertEquals(200, series.epochSecond(0));
+        assertEquals(4.5, series.value(2));
+        assertEquals(2, series.aqi(2));
+    }
+
+    @Test
+    @DisplayName("Rejects empty series")
+    void rejectsEmpty() {
+        assertThrows(IllegalArgumentException.class,
+                () -> GorillaCodec.encode(new long[0], new double[0], new int[0], 0));
+    }
+}
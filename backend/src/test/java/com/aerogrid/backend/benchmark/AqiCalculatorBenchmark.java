@@ -0,0 +1,112 @@
+package com.aerogrid.backend.benchmark;
+
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.service.AqiCalculatorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the AQI calculator on a batch of mixed pollutant readings.
+ * <p>
+ * Compares the boxed, name-based method the ingestion paths used to call with the primitive
+ * single value and batch methods. Run {@link #main} from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.aerogrid.backend.benchmark.AqiCalculatorBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AqiCalculatorBenchmark {
+
+    private static final int READINGS = 10_000;
+    private static final int RUN = 250;
+    private static final Pollutant[] SCORED = {Pollutant.NO2, Pollutant.PM10, Pollutant.PM25, Pollutant.O3};
+
+    @Param({"eu", "us-epa"})
+    public String scale;
+
+    private AqiCalculatorService calculator;
+    private Pollutant[] pollutants;
+    private String[] names;
+    private Double[] boxed;
+    private double[] values;
+    private double[][] runs;
+    private int[][] runScores;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new ResourcePropertySource("classpath:aqi-scales.properties"));
+        calculator = new AqiCalculatorService(environment, scale);
+
+        Random random = new Random(42);
+        pollutants = new Pollutant[READINGS];
+        names = new String[READINGS];
+        boxed = new Double[READINGS];
+        values = new double[READINGS];
+        runs = new double[READINGS / RUN][RUN];
+        runScores = new int[READINGS / RUN][RUN];
+        for (int i = 0; i < READINGS; i++) {
+            // Readings arrive in runs of one pollutant, as in a Gencat page or a citizen CSV
+            pollutants[i] = SCORED[(i / RUN) % SCORED.length];
+            names[i] = pollutants[i].name();
+            values[i] = Math.round(random.nextDouble() * 2000) / 10.0;
+            boxed[i] = values[i];
+            runs[i / RUN][i % RUN] = values[i];
+        }
+    }
+
+    @Benchmark
+    public void boxedByName(Blackhole blackhole) {
+        for (int i = 0; i < READINGS; i++) {
+            blackhole.consume(calculator.calculateAqi(names[i], boxed[i]));
+        }
+    }
+
+    @Benchmark
+    public void primitive(Blackhole blackhole) {
+        for (int i = 0; i < READINGS; i++) {
+            blackhole.consume(calculator.calculate(pollutants[i], values[i]));
+        }
+    }
+
+    /**
+     * Scores the same readings in runs of one pollutant through the batch method.
+     */
+    @Benchmark
+    public int[][] batch() {
+        for (int r = 0; r < runs.length; r++) {
+            calculator.calculate(pollutants[r * RUN], runs[r], runScores[r]);
+        }
+        return runScores;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AqiCalculatorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
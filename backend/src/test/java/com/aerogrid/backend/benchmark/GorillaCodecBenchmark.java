@@ -0,0 +1,145 @@
+package com.aerogrid.backend.benchmark;
+
+import com.aerogrid.backend.archive.GorillaCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage ratio and speed of the measurement archive codec.
+ * <p>
+ * Series are synthetic but shaped like real data: one value per interval with a little jitter on
+ * the timestamps, values with one decimal drifting slowly and AQI levels that rarely change.
+ * Run {@link #main} from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.aerogrid.backend.benchmark.GorillaCodecBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GorillaCodecBenchmark {
+
+    /**
+     * Estimated heap size of one row of the measurements table: tuple header and line pointer,
+     * id, station_id, timestamp, value, aqi and a short pollutant name. Indexes not included.
+     */
+    private static final int ROW_BYTES = 72;
+
+    /** Estimated heap size of one measurement_archives row without its data */
+    private static final int ARCHIVE_ROW_BYTES = 64;
+
+    private static final int DAYS = 30;
+
+    /** Seconds between two readings: citizen sensors report every minute, Gencat every hour */
+    @Param({"60", "3600"})
+    public int intervalSeconds;
+
+    private long[][] epochSeconds;
+    private double[][] values;
+    private int[][] aqis;
+    private byte[][] blocks;
+    private long rangeFrom;
+    private long rangeTo;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        long dayStart = LocalDateTime.of(2026, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+        int perDay = 86_400 / intervalSeconds;
+
+        epochSeconds = new long[DAYS][perDay];
+        values = new double[DAYS][perDay];
+        aqis = new int[DAYS][perDay];
+        blocks = new byte[DAYS][];
+
+        double value = 20;
+        for (int d = 0; d < DAYS; d++) {
+            for (int i = 0; i < perDay; i++) {
+                int jitter = intervalSeconds < 3600 && random.nextInt(10) == 0 ? random.nextInt(3) : 0;
+                epochSeconds[d][i] = dayStart + (long) i * intervalSeconds + jitter;
+                value = Math.max(0, value + random.nextGaussian());
+                values[d][i] = Math.round(value * 10) / 10.0;
+                aqis[d][i] = value < 25 ? 1 : value < 50 ? 2 : 3;
+            }
+            blocks[d] = GorillaCodec.encode(epochSeconds[d], values[d], aqis[d], perDay);
+            dayStart += 86_400;
+        }
+
+        // A six hour window in the middle of the last day
+        rangeFrom = epochSeconds[DAYS - 1][0] + 9 * 3600;
+        rangeTo = rangeFrom + 6 * 3600;
+    }
+
+    @Benchmark
+    public byte[] encodeDay() {
+        return GorillaCodec.encode(epochSeconds[0], values[0], aqis[0], epochSeconds[0].length);
+    }
+
+    @Benchmark
+    public GorillaCodec.Series decodeDay() {
+        return GorillaCodec.decode(blocks[0]);
+    }
+
+    /**
+     * Reads every archived point of the month, as a 30 day chart does.
+     */
+    @Benchmark
+    public void scanMonth(Blackhole blackhole) {
+        for (byte[] block : blocks) {
+            GorillaCodec.Series series = GorillaCodec.decode(block);
+            for (int i = 0; i < series.size(); i++) {
+                blackhole.consume(series.value(i));
+            }
+        }
+    }
+
+    /**
+     * Reads a six hour window of one day; decoding stops after the window.
+     */
+    @Benchmark
+    public GorillaCodec.Series scanWindow() {
+        return GorillaCodec.decode(blocks[DAYS - 1], rangeFrom, rangeTo);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int interval : new int[]{60, 3600}) {
+            GorillaCodecBenchmark benchmark = new GorillaCodecBenchmark();
+            benchmark.intervalSeconds = interval;
+            benchmark.setUp();
+
+            long points = 0;
+            long encoded = 0;
+            for (int d = 0; d < DAYS; d++) {
+                points += benchmark.epochSeconds[d].length;
+                encoded += benchmark.blocks[d].length + ARCHIVE_ROW_BYTES;
+            }
+            System.out.printf("Interval %4ds: %.2f bytes/point archived vs ~%d bytes/row raw, ratio %.1fx%n",
+                    interval, (double) encoded / points, ROW_BYTES, (double) ROW_BYTES * points / encoded);
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(GorillaCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
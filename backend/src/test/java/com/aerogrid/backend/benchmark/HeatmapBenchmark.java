@@ -0,0 +1,101 @@
+package com.aerogrid.backend.benchmark;
+
+import com.aerogrid.backend.map.HeatmapGrid;
+import com.aerogrid.backend.map.HeatmapPalette;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heatmap costs over the Catalonia extent with the default settings (0.005° cells, 25 km
+ * radius): interpolating the grid of one hour with one thread and with every core, and rendering
+ * a tile from it. Station counts go from the official network to a dense citizen one.
+ * Run {@link #main} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeatmapBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    private int stations;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] aqis;
+    private double[] weights;
+    private ForkJoinPool single;
+    private ForkJoinPool parallel;
+    private HeatmapGrid grid;
+    private final HeatmapPalette palette = new HeatmapPalette(new double[]{1.5, 2.5, 3.5, 4.5, 5.5},
+            new String[]{"10b981", "facc15", "fb923c", "ef4444", "9f1239", "7e22ce"});
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        latitudes = new double[stations];
+        longitudes = new double[stations];
+        aqis = new double[stations];
+        weights = new double[stations];
+        for (int i = 0; i < stations; i++) {
+            latitudes[i] = 40.5 + random.nextDouble() * 2.4;
+            longitudes[i] = 0.15 + random.nextDouble() * 3.2;
+            aqis[i] = 1 + random.nextInt(6);
+            weights[i] = 1 + random.nextInt(100);
+        }
+        single = new ForkJoinPool(1);
+        parallel = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        grid = build(parallel);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        single.shutdown();
+        parallel.shutdown();
+    }
+
+    @Benchmark
+    public HeatmapGrid gridSingleThread() {
+        return build(single);
+    }
+
+    @Benchmark
+    public HeatmapGrid gridForkJoin() {
+        return build(parallel);
+    }
+
+    @Benchmark
+    public byte[] pngTile() {
+        return palette.toPng(grid.sampleTile(10, 516, 380, 256), 256);
+    }
+
+    private HeatmapGrid build(ForkJoinPool pool) {
+        return HeatmapGrid.build(latitudes, longitudes, aqis, weights, 40.5, 0.15, 42.9, 3.35, 0.005, 25, 2, pool);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(HeatmapBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
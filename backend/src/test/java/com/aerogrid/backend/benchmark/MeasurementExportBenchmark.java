@@ -0,0 +1,80 @@
+package com.aerogrid.backend.benchmark;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.service.MeasurementExportWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second the measurement export can format and compress, the ceiling of an export once
+ * the database cursor keeps up. Rows are one-minute readings of a few pollutants and are written
+ * to a stream that discards them.
+ * Run {@link #main} from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.aerogrid.backend.benchmark.MeasurementExportBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeasurementExportBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final Pollutant[] POLLUTANTS = {Pollutant.NO2, Pollutant.O3, Pollutant.PM10, Pollutant.PM25};
+
+    @Param({"CSV", "NDJSON"})
+    public MeasurementExportWriter.Format format;
+
+    private MeasurementRecord[] records;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        records = new MeasurementRecord[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            double value = Math.round(random.nextDouble() * 1000) / 10.0;
+            records[i] = new MeasurementRecord(1, POLLUTANTS[i % POLLUTANTS.length], value,
+                    1 + random.nextInt(6), start.plusMinutes(i / POLLUTANTS.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long export() throws IOException {
+        try (MeasurementExportWriter writer = new MeasurementExportWriter(OutputStream.nullOutputStream(), format)) {
+            for (MeasurementRecord record : records) {
+                writer.write("GENCAT-08019004", record);
+            }
+            return writer.rows();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MeasurementExportBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
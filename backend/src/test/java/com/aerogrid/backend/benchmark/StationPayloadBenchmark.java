@@ -0,0 +1,100 @@
+package com.aerogrid.backend.benchmark;
+
+import com.aerogrid.backend.controller.dto.StationMapDto;
+import com.aerogrid.backend.controller.mapper.StationColumnsMapper;
+import com.aerogrid.backend.map.CubeStationStatus;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization time of a full-region station map response in its three representations:
+ * the JSON list of {@link StationMapDto}, the columnar JSON and the binary layout.
+ * The payload sizes are printed at setup. Run {@link #main} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StationPayloadBenchmark {
+
+    private static final int STATIONS = 10_000;
+    private static final String[] POLLUTANTS = {"NO2", "PM10", "PM25", "O3"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StationColumnsMapper columnsMapper = new StationColumnsMapper();
+    private List<StationMapProjection> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        Random random = new Random(42);
+        rows = new ArrayList<>(STATIONS);
+        for (int i = 0; i < STATIONS; i++) {
+            boolean citizen = random.nextInt(4) > 0;
+            rows.add(new CubeStationStatus((long) i + 1, (citizen ? "CIT-" : "XVPCA-") + (10_000 + i), "Station " + i,
+                    40.5 + random.nextDouble() * 2.5, 0.2 + random.nextDouble() * 3.1,
+                    1 + random.nextInt(6), POLLUTANTS[random.nextInt(POLLUTANTS.length)],
+                    1 + random.nextInt(6), POLLUTANTS[random.nextInt(POLLUTANTS.length)],
+                    random.nextInt(101), citizen ? "CITIZEN" : "OFFICIAL"));
+        }
+        System.out.printf("%nPayload bytes: json=%d columnar=%d binary=%d%n",
+                json().length, columnar().length, binary().length);
+    }
+
+    @Benchmark
+    public byte[] json() throws JsonProcessingException {
+        List<StationMapDto> dtos = rows.stream()
+                .map(p -> StationMapDto.builder()
+                        .id(p.getId())
+                        .code(p.getCode())
+                        .name(p.getName())
+                        .latitude(p.getLatitude())
+                        .longitude(p.getLongitude())
+                        .aqi(p.getAqi())
+                        .pollutant(p.getPollutant())
+                        .rollingAqi(p.getRollingAqi())
+                        .rollingPollutant(p.getRollingPollutant())
+                        .trustScore(p.getTrustScore())
+                        .sourceType(p.getSourceType())
+                        .build())
+                .toList();
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] columnar() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(columnsMapper.toColumns(rows));
+    }
+
+    @Benchmark
+    public byte[] binary() {
+        return columnsMapper.toBinary(rows);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StationPayloadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
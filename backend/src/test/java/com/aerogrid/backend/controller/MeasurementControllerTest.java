@@ -2,27 +2,45 @@ package com.aerogrid.backend.controller;
 
 import com.aerogrid.backend.controller.dto.MeasurementDto;
 import com.aerogrid.backend.controller.mapper.MeasurementMapper;
-import com.aerogrid.backend.domain.Measurement;
+import com.aerogrid.backend.domain.MeasurementRecord;
 import com.aerogrid.backend.domain.Pollutant;
-import com.aerogrid.backend.domain.Station;
-import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.security.JwtService;
+import com.aerogrid.backend.service.MeasurementExportService;
+import com.aerogrid.backend.service.MeasurementExportWriter;
+import com.aerogrid.backend.service.MeasurementQueryService;
+import com.aerogrid.backend.service.MeasurementQueryService.MeasurementPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -31,21 +49,30 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Tests all endpoints with various scenarios including success cases, edge cases, and error conditions.
  */
 @WebMvcTest(controllers = {MeasurementController.class, GlobalExceptionHandler.class})
+@WithMockUser
 class MeasurementControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
     @MockitoBean
-    private MeasurementRepository measurementRepository;
+    private MeasurementQueryService measurementQueryService;
+
+    @MockitoBean
+    private MeasurementExportService measurementExportService;
 
     @MockitoBean
     private MeasurementMapper measurementMapper;
 
-    private Station testStation;
-    private Measurement measurement1;
-    private Measurement measurement2;
-    private Measurement measurement3;
+    @MockitoBean
+    private JwtService jwtService;
+
+    @MockitoBean(name = "exportExecutor")
+    private AsyncTaskExecutor exportExecutor;
+
+    private MeasurementRecord measurement1;
+    private MeasurementRecord measurement2;
+    private MeasurementRecord measurement3;
     private MeasurementDto dto1;
     private MeasurementDto dto2;
     private MeasurementDto dto3;
@@ -59,39 +86,13 @@ class MeasurementControllerTest {
         oneDayAgo = now.minusDays(1);
         twoDaysAgo = now.minusDays(2);
 
-        testStation = Station.builder()
-                .id(1L)
-                .code("GENCAT-001")
-                .name("Barcelona Centro")
-                .build();
 
         // Create test measurements
-        measurement1 = Measurement.builder()
-                .id(1L)
-                .station(testStation)
-                .pollutant(Pollutant.NO2)
-                .value(45.5)
-                .timestamp(twoDaysAgo)
-                .aqi(85)
-                .build();
+        measurement1 = new MeasurementRecord(1L, Pollutant.NO2, 45.5, 85, twoDaysAgo);
 
-        measurement2 = Measurement.builder()
-                .id(2L)
-                .station(testStation)
-                .pollutant(Pollutant.PM10)
-                .value(32.0)
-                .timestamp(oneDayAgo)
-                .aqi(60)
-                .build();
+        measurement2 = new MeasurementRecord(1L, Pollutant.PM10, 32.0, 60, oneDayAgo);
 
-        measurement3 = Measurement.builder()
-                .id(3L)
-                .station(testStation)
-                .pollutant(Pollutant.O3)
-                .value(78.3)
-                .timestamp(now)
-                .aqi(120)
-                .build();
+        measurement3 = new MeasurementRecord(1L, Pollutant.O3, 78.3, 120, now);
 
         // Create corresponding DTOs
         dto1 = MeasurementDto.builder()
@@ -121,14 +122,12 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should return last 24 hours of measurements when no time range specified")
     void testGetHistory_NoTimeRange_ReturnsLast24Hours() throws Exception {
-        List<Measurement> measurements = Arrays.asList(measurement2, measurement3);
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                eq("GENCAT-001"),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class)))
-                .thenReturn(measurements);
-        when(measurementMapper.toDto(measurement2)).thenReturn(dto2);
-        when(measurementMapper.toDto(measurement3)).thenReturn(dto3);
+        List<MeasurementRecord> measurements = Arrays.asList(measurement2, measurement3);
+        when(measurementQueryService.findPage(
+                eq("GENCAT-001"), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(measurements));
+        when(measurementMapper.toDto(eq(measurement2), anyString())).thenReturn(dto2);
+        when(measurementMapper.toDto(eq(measurement3), anyString())).thenReturn(dto3);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -145,13 +144,13 @@ class MeasurementControllerTest {
     void testGetHistory_CustomTimeRange_ReturnsFilteredMeasurements() throws Exception {
         LocalDateTime from = twoDaysAgo.minusHours(1);
         LocalDateTime to = oneDayAgo.plusHours(1);
-        List<Measurement> measurements = Arrays.asList(measurement1, measurement2);
+        List<MeasurementRecord> measurements = Arrays.asList(measurement1, measurement2);
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                "GENCAT-001", from, to))
-                .thenReturn(measurements);
-        when(measurementMapper.toDto(measurement1)).thenReturn(dto1);
-        when(measurementMapper.toDto(measurement2)).thenReturn(dto2);
+        when(measurementQueryService.findPage(
+                eq("GENCAT-001"), eq(from), eq(to), isNull(), isNull()))
+                .thenReturn(page(measurements));
+        when(measurementMapper.toDto(eq(measurement1), anyString())).thenReturn(dto1);
+        when(measurementMapper.toDto(eq(measurement2), anyString())).thenReturn(dto2);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001")
@@ -166,9 +165,9 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should return empty list when no measurements in time range")
     void testGetHistory_NoMeasurementsInRange_ReturnsEmptyList() throws Exception {
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.emptyList());
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.emptyList()));
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -180,12 +179,12 @@ class MeasurementControllerTest {
     @DisplayName("Should return measurements when only 'from' parameter is provided")
     void testGetHistory_OnlyFromParameter_UsesNowAsEndTime() throws Exception {
         LocalDateTime from = twoDaysAgo;
-        List<Measurement> measurements = Arrays.asList(measurement1, measurement2, measurement3);
+        List<MeasurementRecord> measurements = Arrays.asList(measurement1, measurement2, measurement3);
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                eq("GENCAT-001"), eq(from), any(LocalDateTime.class)))
-                .thenReturn(measurements);
-        when(measurementMapper.toDto(any(Measurement.class)))
+        when(measurementQueryService.findPage(
+                eq("GENCAT-001"), eq(from), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(measurements));
+        when(measurementMapper.toDto(any(MeasurementRecord.class), anyString()))
                 .thenReturn(dto1, dto2, dto3);
 
         mockMvc.perform(get("/api/v1/measurements")
@@ -199,12 +198,12 @@ class MeasurementControllerTest {
     @DisplayName("Should return measurements when only 'to' parameter is provided")
     void testGetHistory_OnlyToParameter_Uses24HoursBeforeAsStartTime() throws Exception {
         LocalDateTime to = now;
-        List<Measurement> measurements = Arrays.asList(measurement2, measurement3);
+        List<MeasurementRecord> measurements = Arrays.asList(measurement2, measurement3);
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                eq("GENCAT-001"), any(LocalDateTime.class), eq(to)))
-                .thenReturn(measurements);
-        when(measurementMapper.toDto(any(Measurement.class)))
+        when(measurementQueryService.findPage(
+                eq("GENCAT-001"), any(LocalDateTime.class), eq(to), isNull(), isNull()))
+                .thenReturn(page(measurements));
+        when(measurementMapper.toDto(any(MeasurementRecord.class), anyString()))
                 .thenReturn(dto2, dto3);
 
         mockMvc.perform(get("/api/v1/measurements")
@@ -217,10 +216,10 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should return measurements for different station code")
     void testGetHistory_DifferentStationCode_ReturnsMeasurements() throws Exception {
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                eq("AG-USER-001"), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(measurement1));
-        when(measurementMapper.toDto(measurement1)).thenReturn(dto1);
+        when(measurementQueryService.findPage(
+                eq("AG-USER-001"), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(measurement1)));
+        when(measurementMapper.toDto(eq(measurement1), anyString())).thenReturn(dto1);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "AG-USER-001"))
@@ -231,13 +230,13 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle measurements with different pollutants")
     void testGetHistory_MultiplePollutants_ReturnsAllMeasurements() throws Exception {
-        List<Measurement> measurements = Arrays.asList(measurement1, measurement2, measurement3);
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(measurements);
-        when(measurementMapper.toDto(measurement1)).thenReturn(dto1);
-        when(measurementMapper.toDto(measurement2)).thenReturn(dto2);
-        when(measurementMapper.toDto(measurement3)).thenReturn(dto3);
+        List<MeasurementRecord> measurements = Arrays.asList(measurement1, measurement2, measurement3);
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(measurements));
+        when(measurementMapper.toDto(eq(measurement1), anyString())).thenReturn(dto1);
+        when(measurementMapper.toDto(eq(measurement2), anyString())).thenReturn(dto2);
+        when(measurementMapper.toDto(eq(measurement3), anyString())).thenReturn(dto3);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -251,14 +250,7 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle measurements with zero values")
     void testGetHistory_ZeroValues_ReturnsMeasurements() throws Exception {
-        Measurement zeroMeasurement = Measurement.builder()
-                .id(99L)
-                .station(testStation)
-                .pollutant(Pollutant.CO)
-                .value(0.0)
-                .timestamp(now)
-                .aqi(0)
-                .build();
+        MeasurementRecord zeroMeasurement = new MeasurementRecord(1L, Pollutant.CO, 0.0, 0, now);
 
         MeasurementDto zeroDto = MeasurementDto.builder()
                 .stationCode("GENCAT-001")
@@ -267,10 +259,10 @@ class MeasurementControllerTest {
                 .timestamp(now)
                 .build();
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(zeroMeasurement));
-        when(measurementMapper.toDto(zeroMeasurement)).thenReturn(zeroDto);
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(zeroMeasurement)));
+        when(measurementMapper.toDto(eq(zeroMeasurement), anyString())).thenReturn(zeroDto);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -281,14 +273,7 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle measurements with very high values")
     void testGetHistory_HighValues_ReturnsMeasurements() throws Exception {
-        Measurement highMeasurement = Measurement.builder()
-                .id(99L)
-                .station(testStation)
-                .pollutant(Pollutant.PM10)
-                .value(999.99)
-                .timestamp(now)
-                .aqi(500)
-                .build();
+        MeasurementRecord highMeasurement = new MeasurementRecord(1L, Pollutant.PM10, 999.99, 500, now);
 
         MeasurementDto highDto = MeasurementDto.builder()
                 .stationCode("GENCAT-001")
@@ -297,10 +282,10 @@ class MeasurementControllerTest {
                 .timestamp(now)
                 .build();
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(highMeasurement));
-        when(measurementMapper.toDto(highMeasurement)).thenReturn(highDto);
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(highMeasurement)));
+        when(measurementMapper.toDto(eq(highMeasurement), anyString())).thenReturn(highDto);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -311,14 +296,7 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle measurements with decimal values")
     void testGetHistory_DecimalValues_ReturnsMeasurements() throws Exception {
-        Measurement decimalMeasurement = Measurement.builder()
-                .id(99L)
-                .station(testStation)
-                .pollutant(Pollutant.NO2)
-                .value(12.345)
-                .timestamp(now)
-                .aqi(25)
-                .build();
+        MeasurementRecord decimalMeasurement = new MeasurementRecord(1L, Pollutant.NO2, 12.345, 25, now);
 
         MeasurementDto decimalDto = MeasurementDto.builder()
                 .stationCode("GENCAT-001")
@@ -327,10 +305,10 @@ class MeasurementControllerTest {
                 .timestamp(now)
                 .build();
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(decimalMeasurement));
-        when(measurementMapper.toDto(decimalMeasurement)).thenReturn(decimalDto);
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(decimalMeasurement)));
+        when(measurementMapper.toDto(eq(decimalMeasurement), anyString())).thenReturn(decimalDto);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -350,9 +328,9 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle empty station code")
     void testGetHistory_EmptyStationCode_ReturnsEmptyList() throws Exception {
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                eq(""), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.emptyList());
+        when(measurementQueryService.findPage(
+                eq(""), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.emptyList()));
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", ""))
@@ -363,10 +341,10 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle special characters in station code")
     void testGetHistory_SpecialCharactersInCode_ReturnsMeasurements() throws Exception {
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                eq("AG-TEST-123"), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(measurement1));
-        when(measurementMapper.toDto(measurement1)).thenReturn(dto1);
+        when(measurementQueryService.findPage(
+                eq("AG-TEST-123"), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(measurement1)));
+        when(measurementMapper.toDto(eq(measurement1), anyString())).thenReturn(dto1);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "AG-TEST-123"))
@@ -389,9 +367,9 @@ class MeasurementControllerTest {
         LocalDateTime from = now;
         LocalDateTime to = twoDaysAgo;
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), eq(from), eq(to)))
-                .thenReturn(Collections.emptyList());
+        when(measurementQueryService.findPage(
+                anyString(), eq(from), eq(to), isNull(), isNull()))
+                .thenReturn(page(Collections.emptyList()));
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001")
@@ -405,9 +383,9 @@ class MeasurementControllerTest {
     @DisplayName("Should handle very old timestamps")
     void testGetHistory_VeryOldTimestamp_ReturnsMeasurements() throws Exception {
         LocalDateTime veryOld = LocalDateTime.of(2000, 1, 1, 0, 0);
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), eq(veryOld), any(LocalDateTime.class)))
-                .thenReturn(Collections.emptyList());
+        when(measurementQueryService.findPage(
+                anyString(), eq(veryOld), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.emptyList()));
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001")
@@ -420,9 +398,9 @@ class MeasurementControllerTest {
     @DisplayName("Should handle future timestamps")
     void testGetHistory_FutureTimestamp_ReturnsEmptyList() throws Exception {
         LocalDateTime future = LocalDateTime.now().plusYears(1);
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), eq(future)))
-                .thenReturn(Collections.emptyList());
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), eq(future), isNull(), isNull()))
+                .thenReturn(page(Collections.emptyList()));
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001")
@@ -435,10 +413,10 @@ class MeasurementControllerTest {
     @DisplayName("Should handle same 'from' and 'to' timestamp")
     void testGetHistory_SameFromAndTo_ReturnsMeasurements() throws Exception {
         LocalDateTime sameTime = now;
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), eq(sameTime), eq(sameTime)))
-                .thenReturn(Collections.singletonList(measurement3));
-        when(measurementMapper.toDto(measurement3)).thenReturn(dto3);
+        when(measurementQueryService.findPage(
+                anyString(), eq(sameTime), eq(sameTime), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(measurement3)));
+        when(measurementMapper.toDto(eq(measurement3), anyString())).thenReturn(dto3);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001")
@@ -451,8 +429,8 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle repository exceptions gracefully")
     void testGetHistory_RepositoryException_ReturnsInternalServerError() throws Exception {
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
                 .thenThrow(new RuntimeException("Database connection error"));
 
         mockMvc.perform(get("/api/v1/measurements")
@@ -463,10 +441,10 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle mapper exceptions gracefully")
     void testGetHistory_MapperException_ReturnsInternalServerError() throws Exception {
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(measurement1));
-        when(measurementMapper.toDto(measurement1))
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(measurement1)));
+        when(measurementMapper.toDto(eq(measurement1), anyString()))
                 .thenThrow(new RuntimeException("Mapping error"));
 
         mockMvc.perform(get("/api/v1/measurements")
@@ -478,12 +456,12 @@ class MeasurementControllerTest {
     @DisplayName("Should handle large result sets efficiently")
     void testGetHistory_LargeResultSet_ReturnsMeasurements() throws Exception {
         // Create 1000 measurements
-        List<Measurement> largeMeasurementList = Collections.nCopies(1000, measurement1);
+        List<MeasurementRecord> largeMeasurementList = Collections.nCopies(1000, measurement1);
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(largeMeasurementList);
-        when(measurementMapper.toDto(any(Measurement.class))).thenReturn(dto1);
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(largeMeasurementList));
+        when(measurementMapper.toDto(any(MeasurementRecord.class), anyString())).thenReturn(dto1);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -494,13 +472,13 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should preserve measurement order from repository")
     void testGetHistory_PreservesOrder_ReturnsMeasurementsInOrder() throws Exception {
-        List<Measurement> orderedMeasurements = Arrays.asList(measurement1, measurement2, measurement3);
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(orderedMeasurements);
-        when(measurementMapper.toDto(measurement1)).thenReturn(dto1);
-        when(measurementMapper.toDto(measurement2)).thenReturn(dto2);
-        when(measurementMapper.toDto(measurement3)).thenReturn(dto3);
+        List<MeasurementRecord> orderedMeasurements = Arrays.asList(measurement1, measurement2, measurement3);
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(orderedMeasurements));
+        when(measurementMapper.toDto(eq(measurement1), anyString())).thenReturn(dto1);
+        when(measurementMapper.toDto(eq(measurement2), anyString())).thenReturn(dto2);
+        when(measurementMapper.toDto(eq(measurement3), anyString())).thenReturn(dto3);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -513,10 +491,10 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle URL encoded station codes")
     void testGetHistory_UrlEncodedStationCode_ReturnsMeasurements() throws Exception {
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                eq("AG USER 001"), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(measurement1));
-        when(measurementMapper.toDto(measurement1)).thenReturn(dto1);
+        when(measurementQueryService.findPage(
+                eq("AG USER 001"), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(measurement1)));
+        when(measurementMapper.toDto(eq(measurement1), anyString())).thenReturn(dto1);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "AG USER 001"))
@@ -530,10 +508,10 @@ class MeasurementControllerTest {
         LocalDateTime from = LocalDateTime.of(2026, 1, 1, 0, 0, 0);
         LocalDateTime to = LocalDateTime.of(2026, 1, 31, 23, 59, 59);
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), eq(from), eq(to)))
-                .thenReturn(Collections.singletonList(measurement1));
-        when(measurementMapper.toDto(measurement1)).thenReturn(dto1);
+        when(measurementQueryService.findPage(
+                anyString(), eq(from), eq(to), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(measurement1)));
+        when(measurementMapper.toDto(eq(measurement1), anyString())).thenReturn(dto1);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001")
@@ -546,14 +524,7 @@ class MeasurementControllerTest {
     @Test
     @DisplayName("Should handle measurements with null AQI values")
     void testGetHistory_NullAqiValues_ReturnsMeasurements() throws Exception {
-        Measurement nullAqiMeasurement = Measurement.builder()
-                .id(99L)
-                .station(testStation)
-                .pollutant(Pollutant.NO2)
-                .value(45.5)
-                .timestamp(now)
-                .aqi(null)
-                .build();
+        MeasurementRecord nullAqiMeasurement = new MeasurementRecord(1L, Pollutant.NO2, 45.5, null, now);
 
         MeasurementDto nullAqiDto = MeasurementDto.builder()
                 .stationCode("GENCAT-001")
@@ -562,10 +533,10 @@ class MeasurementControllerTest {
                 .timestamp(now)
                 .build();
 
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(nullAqiMeasurement));
-        when(measurementMapper.toDto(nullAqiMeasurement)).thenReturn(nullAqiDto);
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(nullAqiMeasurement)));
+        when(measurementMapper.toDto(eq(nullAqiMeasurement), anyString())).thenReturn(nullAqiDto);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -577,10 +548,10 @@ class MeasurementControllerTest {
     @DisplayName("Should handle consecutive requests for different stations")
     void testGetHistory_ConsecutiveRequests_ReturnsDifferentResults() throws Exception {
         // First request for station 1
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                eq("GENCAT-001"), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(measurement1));
-        when(measurementMapper.toDto(measurement1)).thenReturn(dto1);
+        when(measurementQueryService.findPage(
+                eq("GENCAT-001"), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(measurement1)));
+        when(measurementMapper.toDto(eq(measurement1), anyString())).thenReturn(dto1);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "GENCAT-001"))
@@ -589,10 +560,10 @@ class MeasurementControllerTest {
                 .andExpect(jsonPath("$[0].pollutant", is("NO2")));
 
         // Second request for station 2
-        when(measurementRepository.findByStationCodeAndTimestampBetween(
-                eq("AG-USER-001"), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(measurement2));
-        when(measurementMapper.toDto(measurement2)).thenReturn(dto2);
+        when(measurementQueryService.findPage(
+                eq("AG-USER-001"), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(page(Collections.singletonList(measurement2)));
+        when(measurementMapper.toDto(eq(measurement2), anyString())).thenReturn(dto2);
 
         mockMvc.perform(get("/api/v1/measurements")
                         .param("stationCode", "AG-USER-001"))
@@ -600,7 +571,121 @@ class MeasurementControllerTest {
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].pollutant", is("PM10")));
     }
-}
 
+    // ==================== Pagination ====================
 
+    @Test
+    @DisplayName("Should return the next cursor in a header when more measurements follow")
+    void testGetHistory_MorePages_ReturnsNextCursorHeader() throws Exception {
+        when(measurementQueryService.findPage(
+                eq("GENCAT-001"), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), eq(2)))
+                .thenReturn(new MeasurementPage(Arrays.asList(measurement1, measurement2), "2026-01-01T10:00,PM10"));
+        when(measurementMapper.toDto(eq(measurement1), anyString())).thenReturn(dto1);
+        when(measurementMapper.toDto(eq(measurement2), anyString())).thenReturn(dto2);
 
+        mockMvc.perform(get("/api/v1/measurements")
+                        .param("stationCode", "GENCAT-001")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "2026-01-01T10:00,PM10"))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    @DisplayName("Should pass the cursor through and omit the header on the last page")
+    void testGetHistory_LastPage_OmitsNextCursorHeader() throws Exception {
+        when(measurementQueryService.findPage(
+                eq("GENCAT-001"), any(LocalDateTime.class), any(LocalDateTime.class), eq("2026-01-01T10:00,PM10"), isNull()))
+                .thenReturn(page(Collections.singletonList(measurement3)));
+        when(measurementMapper.toDto(eq(measurement3), anyString())).thenReturn(dto3);
+
+        mockMvc.perform(get("/api/v1/measurements")
+                        .param("stationCode", "GENCAT-001")
+                        .param("after", "2026-01-01T10:00,PM10"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].pollutant", is("O3")));
+    }
+
+    @Test
+    @DisplayName("Should return 400 when the cursor is invalid")
+    void testGetHistory_InvalidCursor_ReturnsBadRequest() throws Exception {
+        when(measurementQueryService.findPage(
+                anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq("garbage"), isNull()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: garbage"));
+
+        mockMvc.perform(get("/api/v1/measurements")
+                        .param("stationCode", "GENCAT-001")
+                        .param("after", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ==================== Export ====================
+
+    @Test
+    @DisplayName("Should stream the export on the export executor as a gzip attachment")
+    void testExport_ValidRange_StreamsFile() throws Exception {
+        MeasurementExportService.Export export = new MeasurementExportService.Export(List.of("GENCAT-001"),
+                Set.of(Pollutant.NO2), twoDaysAgo, now, MeasurementExportWriter.Format.CSV);
+        when(measurementExportService.prepare(any(), any(), any(LocalDateTime.class), any(LocalDateTime.class), eq("csv")))
+                .thenReturn(export);
+        when(measurementExportService.timeout()).thenReturn(Duration.ofMinutes(5));
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write(new byte[]{1, 2, 3});
+            return 1L;
+        }).when(measurementExportService).write(eq(export), any(OutputStream.class));
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return CompletableFuture.completedFuture(null);
+        }).when(exportExecutor).submit(any(Runnable.class));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/measurements/export")
+                        .param("from", twoDaysAgo.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string("Content-Disposition", containsString(export.fileName())))
+                .andExpect(content().bytes(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    @DisplayName("Should return 503 when every export thread is busy")
+    void testExport_ExecutorBusy_ReturnsServiceUnavailable() throws Exception {
+        when(measurementExportService.prepare(any(), any(), any(LocalDateTime.class), any(LocalDateTime.class), eq("csv")))
+                .thenReturn(new MeasurementExportService.Export(List.of("GENCAT-001"), Set.of(Pollutant.NO2),
+                        twoDaysAgo, now, MeasurementExportWriter.Format.CSV));
+        when(measurementExportService.timeout()).thenReturn(Duration.ofMinutes(5));
+        when(exportExecutor.submit(any(Runnable.class))).thenThrow(new TaskRejectedException("busy"));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/measurements/export")
+                        .param("from", twoDaysAgo.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // MockMvc does not capture results set before the task ran, so dispatch the rejection by hand
+        Object rejection = WebAsyncUtils.getAsyncManager(result.getRequest()).getConcurrentResult();
+        assertInstanceOf(TaskRejectedException.class, rejection);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                new GlobalExceptionHandler().handleTaskRejected((TaskRejectedException) rejection).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should return 400 without starting an export when the parameters are invalid")
+    void testExport_InvalidFormat_ReturnsBadRequest() throws Exception {
+        when(measurementExportService.prepare(any(), any(), any(LocalDateTime.class), any(LocalDateTime.class), eq("xml")))
+                .thenThrow(new IllegalArgumentException("Unknown format: xml"));
+
+        mockMvc.perform(get("/api/v1/measurements/export")
+                        .param("from", twoDaysAgo.toString())
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(exportExecutor);
+    }
+
+    private static MeasurementPage page(List<MeasurementRecord> measurements) {
+        return new MeasurementPage(measurements, null);
+    }
+}
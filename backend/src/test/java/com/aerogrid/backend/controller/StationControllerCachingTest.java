@@ -0,0 +1,123 @@
+package com.aerogrid.backend.controller;
+
+import com.aerogrid.backend.controller.mapper.StationColumnsMapper;
+import com.aerogrid.backend.controller.mapper.StationMapper;
+import com.aerogrid.backend.map.MapDataVersion;
+import com.aerogrid.backend.map.NearestStationService;
+import com.aerogrid.backend.map.StationClusterService;
+import com.aerogrid.backend.map.StationStatusStream;
+import com.aerogrid.backend.repository.StationApiKeyRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.VoteRepository;
+import com.aerogrid.backend.security.JwtService;
+import com.aerogrid.backend.service.MeasurementHistoryService;
+import com.aerogrid.backend.service.StationLatestService;
+import com.aerogrid.backend.service.StationMapService;
+import com.aerogrid.backend.service.StationService;
+import com.aerogrid.backend.service.StationTimelineService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the HTTP caching headers of the station map endpoints.
+ * The same URL serves JSON, columnar JSON and binary, so every response must vary by Accept.
+ */
+@WebMvcTest(controllers = StationController.class)
+@Import(MapDataVersion.class)
+@WithMockUser
+class StationControllerCachingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private StationRepository stationRepository;
+
+    @MockitoBean
+    private StationMapper stationMapper;
+
+    @MockitoBean
+    private StationColumnsMapper stationColumnsMapper;
+
+    @MockitoBean
+    private StationService stationService;
+
+    @MockitoBean
+    private MeasurementHistoryService measurementHistoryService;
+
+    @MockitoBean
+    private StationLatestService stationLatestService;
+
+    @MockitoBean
+    private StationApiKeyRepository stationApiKeyRepository;
+
+    @MockitoBean
+    private VoteRepository voteRepository;
+
+    @MockitoBean
+    private StationMapService stationMapService;
+
+    @MockitoBean
+    private StationClusterService stationClusterService;
+
+    @MockitoBean
+    private StationTimelineService stationTimelineService;
+
+    @MockitoBean
+    private StationStatusStream stationStatusStream;
+
+    @MockitoBean
+    private NearestStationService nearestStationService;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @Test
+    @DisplayName("Historical map responses are cacheable and vary by Accept, also when not modified")
+    void variesByAccept() throws Exception {
+        when(stationMapService.findStations(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+        when(stationColumnsMapper.toBinary(any())).thenReturn(new byte[]{1});
+
+        MvcResult result = mockMvc.perform(get("/api/v1/stations")
+                        .param("targetTime", "2025-03-05T10:00:00")
+                        .accept(StationController.BINARY))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=86400")))
+                .andReturn();
+
+        mockMvc.perform(get("/api/v1/stations")
+                        .param("targetTime", "2025-03-05T10:00:00")
+                        .accept(StationController.BINARY)
+                        .header(HttpHeaders.IF_NONE_MATCH, result.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)));
+    }
+
+    @Test
+    @DisplayName("JSON map responses vary by Accept")
+    void jsonVariesByAccept() throws Exception {
+        when(stationMapService.findStations(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/stations"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)));
+    }
+}
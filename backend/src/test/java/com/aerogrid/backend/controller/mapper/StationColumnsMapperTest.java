@@ -0,0 +1,96 @@
+package com.aerogrid.backend.controller.mapper;
+
+import com.aerogrid.backend.controller.dto.StationColumnsDto;
+import com.aerogrid.backend.map.CubeStationStatus;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Unit tests for StationColumnsMapper.
+ * Covers dictionary encoding, missing values and the binary layout.
+ */
+class StationColumnsMapperTest {
+
+    private final StationColumnsMapper mapper = new StationColumnsMapper();
+
+    private final List<StationMapProjection> rows = List.of(
+            new CubeStationStatus(7L, "XVPCA-1", "Barcelona", 41.38512, 2.17394, 3, "NO2", 2, "PM10", 75, "OFFICIAL"),
+            new CubeStationStatus(9L, "CIT-2", "Girona", 41.97944, 2.82140, null, null, null, null, 40, "CITIZEN"),
+            new CubeStationStatus(11L, "CIT-3", "Lleida", 41.61759, 0.62001, 5, "PM10", 4, "NO2", 55, "CITIZEN"));
+
+    @Test
+    @DisplayName("Enums are dictionary-encoded and missing values become -1")
+    void columnarEncoding() {
+        StationColumnsDto columns = mapper.toColumns(rows);
+
+        assertEquals(3, columns.getCount());
+        assertArrayEquals(new String[]{"NO2", "PM10"}, columns.getPollutants());
+        assertArrayEquals(new String[]{"OFFICIAL", "CITIZEN"}, columns.getSourceTypes());
+        assertArrayEquals(new int[]{0, -1, 1}, columns.getPollutant());
+        assertArrayEquals(new int[]{1, -1, 0}, columns.getRollingPollutant());
+        assertArrayEquals(new int[]{3, -1, 5}, columns.getAqi());
+        assertArrayEquals(new int[]{0, 1, 1}, columns.getSourceType());
+        assertArrayEquals(new int[]{4138512, 4197944, 4161759}, columns.getLatitude());
+        assertArrayEquals(new int[]{217394, 282140, 62001}, columns.getLongitude());
+    }
+
+    @Test
+    @DisplayName("The binary layout decodes to the same values")
+    void binaryLayout() {
+        ByteBuffer buffer = ByteBuffer.wrap(mapper.toBinary(rows)).order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] magic = new byte[4];
+        buffer.get(magic);
+        assertEquals("AGS1", new String(magic, StandardCharsets.US_ASCII));
+        int count = buffer.getInt();
+        assertEquals(3, count);
+        assertEquals(StationColumnsMapper.COORDINATE_SCALE, buffer.getInt());
+        assertArrayEquals(new String[]{"NO2", "PM10"}, readDictionary(buffer));
+        assertArrayEquals(new String[]{"OFFICIAL", "CITIZEN"}, readDictionary(buffer));
+
+        assertEquals(7L, buffer.getLong());
+        buffer.position(buffer.position() + 2 * 8);
+        assertEquals(4138512, buffer.getInt());
+        buffer.position(buffer.position() + 2 * 4 + 3 * 4);
+        assertEquals(3, buffer.getShort());
+        assertEquals(-1, buffer.getShort());
+        buffer.position(buffer.position() + 2 + 3 * 2);
+        assertEquals(0, buffer.get());
+        assertEquals(-1, buffer.get());
+        buffer.position(buffer.position() + 1 + 3 + 3 + 3);
+
+        assertEquals("XVPCA-1", readString(buffer));
+        assertEquals("Barcelona", readString(buffer));
+        readString(buffer);
+        readString(buffer);
+        readString(buffer);
+        assertEquals("Lleida", readString(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer) {
+        String[] values = new String[buffer.get()];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[buffer.get()];
+            buffer.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,54 @@
+package com.aerogrid.backend.geo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for HexGrid.
+ * Covers point lookup, cell centres and cell ids.
+ */
+class HexGridTest {
+
+    @Test
+    @DisplayName("A cell centre maps back to the same cell")
+    void centreRoundTrip() {
+        HexGrid grid = new HexGrid(1, 12_000);
+        HexGrid.Cell cell = grid.cellOf(41.3874, 2.1686);
+        HexGrid.Cell again = grid.cellOf(cell.latitude(), cell.longitude());
+
+        assertEquals(cell, again);
+        assertEquals("h1:" + cell.q() + ":" + cell.r(), cell.id());
+    }
+
+    @Test
+    @DisplayName("Nearby points share a cell and distant points do not")
+    void groupsNearbyPoints() {
+        HexGrid grid = new HexGrid(0, 40_000);
+        HexGrid.Cell barcelona = grid.cellOf(41.3874, 2.1686);
+
+        // A few hundred metres away
+        assertEquals(barcelona.id(), grid.cellOf(barcelona.latitude() + 0.003, barcelona.longitude() + 0.003).id());
+        // Girona, about 85 km away
+        assertNotEquals(barcelona.id(), grid.cellOf(41.9794, 2.8214).id());
+    }
+
+    @Test
+    @DisplayName("Every point is closer to the centre of its cell than the cell size")
+    void pointsInsideTheirCell() {
+        HexGrid grid = new HexGrid(2, 4_000);
+        for (double lat = 40.5; lat < 42.9; lat += 0.037) {
+            for (double lon = 0.2; lon < 3.3; lon += 0.041) {
+                HexGrid.Cell cell = grid.cellOf(lat, lon);
+                double scale = Math.cos(Math.toRadians(lat));
+                double dx = Math.toRadians(lon - cell.longitude()) * 6_378_137.0;
+                double dy = Math.toRadians(lat - cell.latitude()) * 6_378_137.0 / scale;
+                double mercatorDistance = Math.hypot(dx, dy);
+                assertTrue(mercatorDistance <= 4_000 * 1.01, "Point " + lat + "," + lon + " outside its cell");
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.aerogrid.backend.geo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for KdTree.
+ * Covers range, radius and nearest neighbour queries against a brute-force scan.
+ */
+class KdTreeTest {
+
+    private static final int POINTS = 5000;
+
+    private final Random random = new Random(7);
+    private final double[] xs = new double[POINTS];
+    private final double[] ys = new double[POINTS];
+
+    KdTreeTest() {
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextDouble();
+            // Repeated coordinates exercise the selection with ties
+            ys[i] = Math.floor(random.nextDouble() * 200) / 200;
+        }
+    }
+
+    @Test
+    @DisplayName("Range queries match a full scan")
+    void rangeMatchesFullScan() {
+        KdTree tree = new KdTree(xs, ys, 16);
+        for (int query = 0; query < 50; query++) {
+            double minX = random.nextDouble() * 0.8;
+            double minY = random.nextDouble() * 0.8;
+            double maxX = minX + random.nextDouble() * 0.2;
+            double maxY = minY + random.nextDouble() * 0.2;
+
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < POINTS; i++) {
+                if (xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY) expected.add(i);
+            }
+            TreeSet<Integer> found = new TreeSet<>();
+            tree.range(minX, minY, maxX, maxY, found::add);
+
+            assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    @DisplayName("Radius queries match a full scan")
+    void withinMatchesFullScan() {
+        KdTree tree = new KdTree(xs, ys, 16);
+        for (int query = 0; query < 50; query++) {
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            double radius = random.nextDouble() * 0.1;
+
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < POINTS; i++) {
+                if ((xs[i] - x) * (xs[i] - x) + (ys[i] - y) * (ys[i] - y) <= radius * radius) expected.add(i);
+            }
+            TreeSet<Integer> found = new TreeSet<>();
+            tree.within(x, y, radius, found::add);
+
+            assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    @DisplayName("Nearest neighbours match a full scan")
+    void nearestMatchesFullScan() {
+        KdTree tree = new KdTree(xs, ys, 16);
+        for (int query = 0; query < 50; query++) {
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            double maxDistance = query % 2 == 0 ? Double.POSITIVE_INFINITY : random.nextDouble() * 0.05;
+            int k = 1 + random.nextInt(20);
+
+            double[] all = new double[POINTS];
+            for (int i = 0; i < POINTS; i++) {
+                all[i] = KdTree.EUCLIDEAN.distance(x, y, xs[i], ys[i]);
+            }
+            double[] expected = Arrays.stream(all).filter(d -> d <= maxDistance).sorted().limit(k).toArray();
+            double[] found = Arrays.stream(tree.nearest(x, y, k, maxDistance, KdTree.EUCLIDEAN))
+                    .mapToDouble(i -> all[i]).toArray();
+
+            assertArrayEquals(expected, found, 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("Great-circle nearest neighbours match a full scan, across the antimeridian and near the poles")
+    void geodesicNearestMatchesFullScan() {
+        int points = 3000;
+        double[] lons = new double[points];
+        double[] lats = new double[points];
+        for (int i = 0; i < points; i++) {
+            lons[i] = random.nextDouble() * 360 - 180;
+            lats[i] = Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1));
+        }
+        KdTree tree = new KdTree(lons, lats, 16);
+        double[][] queries = {{179.9, 0}, {-179.9, 10}, {0, 89.9}, {45, -89}, {2.17, 41.39}};
+        for (double[] q : queries) {
+            double[] all = new double[points];
+            for (int i = 0; i < points; i++) {
+                all[i] = Haversine.distanceKm(q[1], q[0], lats[i], lons[i]);
+            }
+            double[] expected = Arrays.stream(all).sorted().limit(10).toArray();
+            double[] found = Arrays.stream(tree.nearest(q[0], q[1], 10, Double.POSITIVE_INFINITY, Haversine.METRIC))
+                    .mapToDouble(i -> all[i]).toArray();
+
+            assertArrayEquals(expected, found, 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("Haversine distances match known city distances")
+    void haversineDistance() {
+        // Barcelona to Madrid, about 505 km
+        assertEquals(505, Haversine.distanceKm(41.3874, 2.1686, 40.4168, -3.7038), 2);
+        assertEquals(0, Haversine.distanceKm(41.3874, 2.1686, 41.3874, 2.1686), 1e-9);
+    }
+}
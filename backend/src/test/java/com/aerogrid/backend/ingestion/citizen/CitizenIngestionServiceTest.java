@@ -0,0 +1,79 @@
+package com.aerogrid.backend.ingestion.citizen;
+
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.domain.Station;
+import com.aerogrid.backend.domain.StationApiKey;
+import com.aerogrid.backend.ingestion.common.CommonMapper;
+import com.aerogrid.backend.ingestion.common.MeasurementValidator;
+import com.aerogrid.backend.ingestion.common.MeasurementWriter;
+import com.aerogrid.backend.ingestion.wal.IngestWriteAheadLog;
+import com.aerogrid.backend.repository.StationApiKeyRepository;
+import com.aerogrid.backend.service.AqiCalculatorService;
+import com.aerogrid.backend.service.StationsChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the API key cache of CitizenIngestionService.
+ */
+class CitizenIngestionServiceTest {
+
+    private static final String KEY = "key-1";
+
+    private final StationApiKeyRepository apiKeyRepository = mock(StationApiKeyRepository.class);
+    private final MeasurementWriter measurementWriter = mock(MeasurementWriter.class);
+    private final CommonMapper commonMapper = mock(CommonMapper.class);
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<IngestWriteAheadLog> ingestWal = mock(ObjectProvider.class);
+    private final CitizenIngestionService service = new CitizenIngestionService(apiKeyRepository, measurementWriter,
+            mock(AqiCalculatorService.class), commonMapper, mock(MeasurementValidator.class), ingestWal);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "apiKeyCacheTtlSeconds", 30L);
+        when(commonMapper.mapPollutantString("NO2")).thenReturn(Pollutant.NO2);
+        Station station = Station.builder().id(7L).code("CIT-7").build();
+        when(apiKeyRepository.findByApiKey(KEY)).thenReturn(Optional.of(
+                StationApiKey.builder().apiKey(KEY).station(station).isActive(true).build()));
+    }
+
+    @Test
+    @DisplayName("Resolved keys are served from memory within the TTL")
+    void cachesKeys() {
+        service.processIngestion(KEY, reading());
+        service.processIngestion(KEY, reading());
+
+        verify(apiKeyRepository, times(1)).findByApiKey(KEY);
+        verify(measurementWriter, times(2)).write(any());
+    }
+
+    @Test
+    @DisplayName("A key removed with its station is rejected as soon as the change is committed")
+    void evictsKeysOnStationChanges() {
+        service.processIngestion(KEY, reading());
+        when(apiKeyRepository.findByApiKey(KEY)).thenReturn(Optional.empty());
+
+        service.onStationsChanged(new StationsChangedEvent());
+
+        assertThrows(SecurityException.class, () -> service.processIngestion(KEY, reading()));
+    }
+
+    private static StationIngestionDto reading() {
+        StationIngestionDto dto = new StationIngestionDto();
+        dto.setPollutant("NO2");
+        dto.setValue(40.0);
+        return dto;
+    }
+}
@@ -0,0 +1,112 @@
+package com.aerogrid.backend.ingestion.wal;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for IngestWriteAheadLog.
+ * Covers durability across restarts, checkpointing and segment rotation.
+ */
+class IngestWriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    private IngestWriteAheadLog wal;
+
+    @AfterEach
+    void tearDown() {
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    private IngestWriteAheadLog open() {
+        IngestWriteAheadLog log = new IngestWriteAheadLog(dir, 1, 1, 5000);
+        log.open();
+        return log;
+    }
+
+    private static MeasurementRecord record(long stationId, int minute) {
+        return new MeasurementRecord(stationId, Pollutant.NO2, 10.5 + minute, minute % 2 == 0 ? 1 : null,
+                LocalDateTime.of(2025, 1, 1, 12, 0).plusMinutes(minute));
+    }
+
+    @Test
+    @DisplayName("Appended records are returned in order by readBatch")
+    void appendThenRead() {
+        wal = open();
+        wal.append(List.of(record(1, 0), record(2, 1), record(3, 2)));
+
+        IngestWriteAheadLog.WalBatch batch = wal.readBatch(10);
+
+        assertEquals(3, batch.lastSeq());
+        assertEquals(List.of(record(1, 0), record(2, 1), record(3, 2)), batch.records());
+        assertNull(batch.records().get(1).aqi());
+    }
+
+    @Test
+    @DisplayName("Undrained records survive a restart and drained ones do not come back")
+    void recoversAfterRestart() {
+        wal = open();
+        wal.append(List.of(record(1, 0), record(1, 1), record(1, 2)));
+        wal.checkpoint(1);
+        wal.close();
+
+        wal = open();
+        assertEquals(2, wal.pendingCount());
+        assertEquals(List.of(record(1, 1), record(1, 2)), wal.readBatch(10).records());
+
+        wal.append(record(1, 3));
+        IngestWriteAheadLog.WalBatch batch = wal.readBatch(10);
+        assertEquals(4, batch.lastSeq());
+        assertEquals(3, batch.records().size());
+    }
+
+    @Test
+    @DisplayName("Rotated segments are deleted once fully checkpointed")
+    void rotatesAndDeletesDrainedSegments() throws IOException {
+        wal = open();
+        int perSegment = 1024 * 1024 / IngestWriteAheadLog.RECORD_SIZE;
+        List<MeasurementRecord> records = new ArrayList<>();
+        for (int i = 0; i < perSegment + 10; i++) {
+            records.add(record(1, i));
+        }
+        wal.append(records);
+        assertEquals(2, segmentFiles());
+
+        long drained = 0;
+        IngestWriteAheadLog.WalBatch batch;
+        while (!(batch = wal.readBatch(5000)).isEmpty()) {
+            drained += batch.records().size();
+            wal.checkpoint(batch.lastSeq());
+        }
+
+        assertEquals(records.size(), drained);
+        assertEquals(0, wal.pendingCount());
+        assertEquals(1, segmentFiles());
+        assertTrue(Files.exists(dir.resolve("checkpoint")));
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+}
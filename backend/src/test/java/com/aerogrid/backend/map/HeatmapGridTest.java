@@ -0,0 +1,71 @@
+package com.aerogrid.backend.map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for HeatmapGrid.
+ * Covers inverse distance weighting, trust weights, the search radius and tile sampling.
+ */
+class HeatmapGridTest {
+
+    private static final double[] LATITUDES = {41.505, 41.505};
+    private static final double[] LONGITUDES = {1.505, 1.705};
+    private static final double[] AQIS = {2, 4};
+
+    private static HeatmapGrid grid(double[] weights) {
+        return HeatmapGrid.build(LATITUDES, LONGITUDES, AQIS, weights, 41, 1, 42, 3, 0.01, 10, 2,
+                ForkJoinPool.commonPool());
+    }
+
+    @Test
+    @DisplayName("A cell on top of a station takes its value")
+    void exactAtStations() {
+        HeatmapGrid grid = grid(new double[]{50, 50});
+
+        assertEquals(200, grid.getWidth());
+        assertEquals(100, grid.getHeight());
+        assertEquals(2, grid.get(50, 50), 0.01);
+        assertEquals(4, grid.get(70, 50), 0.01);
+    }
+
+    @Test
+    @DisplayName("Halfway between stations the value is the trust weighted mean")
+    void weightsByTrust() {
+        assertEquals(3, grid(new double[]{50, 50}).get(60, 50), 1e-4);
+        assertEquals(2.5, grid(new double[]{75, 25}).get(60, 50), 1e-4);
+    }
+
+    @Test
+    @DisplayName("Cells without a station within the radius have no value")
+    void emptyBeyondRadius() {
+        HeatmapGrid grid = grid(new double[]{50, 50});
+
+        assertTrue(Float.isNaN(grid.get(150, 50)));
+        assertTrue(Float.isNaN(grid.sample(41.5, 2.5)));
+        assertTrue(Float.isNaN(grid.sample(45, 1.5)));
+        assertEquals(2, grid.sample(41.505, 1.505), 0.01);
+    }
+
+    @Test
+    @DisplayName("Tiles over the stations are sampled, tiles elsewhere stay empty")
+    void samplesTiles() {
+        HeatmapGrid grid = grid(new double[]{50, 50});
+
+        // Tile 8/129/95 spans 1.41-2.81E and 41.0-42.0N, holding both stations
+        float[] covering = grid.sampleTile(8, 129, 95, 256);
+        float[] far = grid.sampleTile(8, 10, 10, 256);
+
+        boolean any = false;
+        for (float value : covering) any |= !Float.isNaN(value);
+        assertTrue(any);
+        for (float value : far) assertTrue(Float.isNaN(value));
+        assertFalse(Float.isNaN(grid.sample(41.51, 1.6)));
+    }
+}
@@ -0,0 +1,83 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.service.StationMapService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for HeatmapService.
+ * Covers grid caching, invalidation of past hours and the throttled rebuild of the current hour.
+ */
+class HeatmapServiceTest {
+
+    private static final LocalDateTime CURRENT = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+
+    private final StationMapService stationMapService = mock(StationMapService.class);
+    private final HeatmapService service = service(3600);
+    private final HeatmapService refreshing = service(0);
+
+    @AfterEach
+    void close() {
+        service.close();
+        refreshing.close();
+    }
+
+    @Test
+    @DisplayName("Changed snapshots drop the grids of the past hours that show them")
+    void dropsPastGrids() {
+        when(stationMapService.findStations(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+        LocalDateTime past = CURRENT.minusHours(5);
+        HeatmapGrid grid = service.getGrid(past, false);
+        assertSame(grid, service.getGrid(past, false));
+
+        service.onSnapshotsChanged(past, past.plusHours(1));
+        service.getGrid(past, false);
+
+        verify(stationMapService, times(2)).findStations(null, null, null, null, null, past);
+    }
+
+    @Test
+    @DisplayName("The current grid is kept after a change until the refresh interval passed")
+    void keepsCurrentGridWithinRefreshInterval() {
+        when(stationMapService.findStations(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+        HeatmapGrid grid = service.getGrid(CURRENT, false);
+
+        service.onSnapshotsChanged(CURRENT, CURRENT.plusHours(1));
+
+        assertSame(grid, service.getGrid(CURRENT, false));
+        verify(stationMapService, times(1)).findStations(null, null, null, null, null, CURRENT);
+    }
+
+    @Test
+    @DisplayName("The current grid is built again after a change once the refresh interval passed")
+    void rebuildsChangedCurrentGrid() {
+        when(stationMapService.findStations(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+        refreshing.getGrid(CURRENT, false);
+        refreshing.getGrid(CURRENT, false);
+
+        refreshing.onSnapshotsChanged(CURRENT, CURRENT.plusHours(1));
+        refreshing.getGrid(CURRENT, false);
+        refreshing.getGrid(CURRENT, false);
+
+        verify(stationMapService, times(2)).findStations(null, null, null, null, null, CURRENT);
+    }
+
+    private HeatmapService service(long liveRefreshSeconds) {
+        return new HeatmapService(stationMapService, new SimpleMeterRegistry(), new double[]{41, 2, 41.1, 2.1},
+                0.01, 25, 2, new double[]{1.5, 2.5, 3.5, 4.5, 5.5},
+                new String[]{"10b981", "facc15", "fb923c", "ef4444", "9f1239", "7e22ce"}, 8, 1, 1, liveRefreshSeconds);
+    }
+}
@@ -0,0 +1,43 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.service.StationsChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for MapDataVersion.
+ * Covers ETag stability, invalidation and the caching policy by target time.
+ */
+class MapDataVersionTest {
+
+    private final MapDataVersion version = new MapDataVersion(6, 24);
+
+    @Test
+    @DisplayName("ETags only change with the parameters or the data version")
+    void etagFollowsVersion() {
+        LocalDateTime target = LocalDateTime.of(2025, 3, 1, 10, 30);
+        String etag = version.etag(target, 41.0, 2.0, 42.0, 3.0, null);
+
+        assertEquals(etag, version.etag(target, 41.0, 2.0, 42.0, 3.0, null));
+        assertNotEquals(etag, version.etag(target, 41.0, 2.0, 42.0, 3.5, null));
+        assertNotEquals(etag, version.etag(target.plusMinutes(1), 41.0, 2.0, 42.0, 3.0, null));
+
+        version.onStationsChanged(new StationsChangedEvent());
+        assertNotEquals(etag, version.etag(target, 41.0, 2.0, 42.0, 3.0, null));
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+    }
+
+    @Test
+    @DisplayName("Historical responses are cacheable, recent ones must be revalidated")
+    void cacheControlByTargetTime() {
+        assertEquals("max-age=86400, public", version.cacheControl(LocalDateTime.now().minusDays(2)).getHeaderValue());
+        assertEquals("no-cache, public", version.cacheControl(LocalDateTime.now().minusHours(1)).getHeaderValue());
+        assertEquals("no-cache, public", version.cacheControl(null).getHeaderValue());
+    }
+}
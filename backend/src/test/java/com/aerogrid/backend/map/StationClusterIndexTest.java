@@ -0,0 +1,71 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.map.StationClusterIndex.StationCluster;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for StationClusterIndex.
+ * Covers station counts per zoom, AQI aggregates and the station level.
+ */
+class StationClusterIndexTest {
+
+    @Test
+    @DisplayName("Every zoom level accounts for every station once")
+    void levelsKeepEveryStation() {
+        Random random = new Random(3);
+        List<StationMapProjection> stations = new ArrayList<>();
+        for (long id = 1; id <= 3000; id++) {
+            stations.add(station(id, 40.5 + random.nextDouble() * 2.5, 0.2 + random.nextDouble() * 3.1,
+                    random.nextInt(4) == 0 ? null : 1 + random.nextInt(6)));
+        }
+        StationClusterIndex index = new StationClusterIndex(stations, 16, 60);
+
+        int previous = 0;
+        for (int zoom = 0; zoom <= 17; zoom++) {
+            List<StationCluster> clusters = index.getClusters(-85, -180, 85, 180, zoom);
+            assertEquals(3000, clusters.stream().mapToInt(StationCluster::count).sum());
+            assertTrue(clusters.size() >= previous, "Higher zooms never have fewer points");
+            previous = clusters.size();
+        }
+        assertEquals(3000, index.getClusters(-85, -180, 85, 180, 17).size());
+    }
+
+    @Test
+    @DisplayName("Clusters aggregate the AQI of their stations")
+    void clustersAggregateAqi() {
+        List<StationMapProjection> stations = List.of(
+                station(1L, 41.3851, 2.1734, 2),
+                station(2L, 41.3861, 2.1744, 6),
+                station(3L, 41.3871, 2.1754, null),
+                station(4L, 42.2600, 3.1700, 3));
+        StationClusterIndex index = new StationClusterIndex(stations, 16, 60);
+
+        List<StationCluster> clusters = index.getClusters(40, 0, 43, 4, 8);
+        assertEquals(2, clusters.size());
+        StationCluster barcelona = clusters.stream().filter(c -> c.count() == 3).findFirst().orElseThrow();
+        assertEquals(6, barcelona.maxAqi());
+        assertEquals(4.0, barcelona.meanAqi());
+        assertNull(barcelona.station());
+
+        StationCluster alone = clusters.stream().filter(c -> c.count() == 1).findFirst().orElseThrow();
+        assertNotNull(alone.station());
+        assertEquals(4L, alone.station().getId());
+        assertEquals(42.26, alone.latitude());
+    }
+
+    private static StationMapProjection station(long id, double latitude, double longitude, Integer aqi) {
+        return new CubeStationStatus(id, "S" + id, "Station " + id, latitude, longitude,
+                aqi, aqi != null ? "NO2" : null, null, null, 100, "OFFICIAL");
+    }
+}
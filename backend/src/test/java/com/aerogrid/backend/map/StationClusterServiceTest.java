@@ -0,0 +1,67 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.service.StationMapService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for StationClusterService.
+ * Covers the cache of the indexes of past target times.
+ */
+class StationClusterServiceTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2025, 3, 5, 10, 0);
+
+    private final StationMapService stationMapService = mock(StationMapService.class);
+    private final MapDataVersion mapDataVersion = mock(MapDataVersion.class);
+    private final StationClusterService service = new StationClusterService(stationMapService, mapDataVersion,
+            new SimpleMeterRegistry(), 16, 60, 2);
+
+    StationClusterServiceTest() {
+        when(mapDataVersion.current()).thenReturn(1L);
+        when(stationMapService.findStations(any(), any(), any(), any(), any(), any())).thenReturn(List.of(
+                new CubeStationStatus(1L, "S1", "Station 1", 41.39, 2.17, 40, "NO2", 40, "NO2", 50, "OFFICIAL")));
+    }
+
+    @Test
+    @DisplayName("Target times within the same hour share one index until the data changes")
+    void cachesIndexesPerHour() {
+        assertEquals(1, clusters(HOUR.plusMinutes(5)).size());
+        clusters(HOUR.plusMinutes(40));
+        verify(stationMapService, times(1)).findStations(any(), any(), any(), any(), any(), eq(HOUR));
+
+        when(mapDataVersion.current()).thenReturn(2L);
+        clusters(HOUR);
+        verify(stationMapService, times(2)).findStations(any(), any(), any(), any(), any(), eq(HOUR));
+    }
+
+    @Test
+    @DisplayName("The least recently used hour is dropped past the cache size")
+    void evictsLeastRecentlyUsedHours() {
+        clusters(HOUR);
+        clusters(HOUR.plusHours(1));
+        clusters(HOUR);
+        clusters(HOUR.plusHours(2));
+
+        clusters(HOUR);
+        clusters(HOUR.plusHours(1));
+        verify(stationMapService, times(1)).findStations(any(), any(), any(), any(), any(), eq(HOUR));
+        verify(stationMapService, times(2)).findStations(any(), any(), any(), any(), any(), eq(HOUR.plusHours(1)));
+    }
+
+    private List<StationClusterIndex.StationCluster> clusters(LocalDateTime targetTime) {
+        return service.getClusters(-85, -180, 85, 180, 0, targetTime);
+    }
+}
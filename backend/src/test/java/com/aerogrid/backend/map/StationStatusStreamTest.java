@@ -0,0 +1,241 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.controller.dto.StationStatusDeltaDto;
+import com.aerogrid.backend.repository.projection.StationMapProjection;
+import com.aerogrid.backend.service.StationMapService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for StationStatusStream.
+ * Covers viewport fan-out, coalescing of pending deltas, the resync of slow clients and the closing
+ * of stalled ones.
+ */
+class StationStatusStreamTest {
+
+    private final StationMapService stationMapService = mock(StationMapService.class);
+    private final MapDataVersion mapDataVersion = mock(MapDataVersion.class);
+    private final AtomicLong version = new AtomicLong(1);
+    private final List<Runnable> sends = new ArrayList<>();
+    private final StationStatusStream stream = new StationStatusStream(stationMapService, mapDataVersion,
+            new SimpleMeterRegistry(), sends::add, 1.0, 100, 2, 10, 60000, 60000);
+
+    StationStatusStreamTest() {
+        when(mapDataVersion.current()).thenAnswer(invocation -> version.get());
+    }
+
+    @Test
+    @DisplayName("Clients first get a resync, then only the changes inside their viewport")
+    void fansOutByViewport() {
+        stations(station(1L, 41.39, 2.17, 40), station(2L, 41.98, 2.82, 30), station(3L, 40.42, -3.70, 20));
+        RecordingEmitter barcelona = subscribe(41.0, 1.5, 42.5, 3.5);
+        RecordingEmitter madrid = subscribe(40.0, -4.5, 41.0, -3.0);
+
+        stream.publish();
+        flush();
+        assertEquals(List.of(StationStatusStream.RESYNC_EVENT), barcelona.names());
+        assertEquals(List.of(StationStatusStream.RESYNC_EVENT), madrid.names());
+
+        stations(station(1L, 41.39, 2.17, 85), station(2L, 41.98, 2.82, 30), station(3L, 40.42, -3.70, 20));
+        version.incrementAndGet();
+        stream.publish();
+        flush();
+
+        assertEquals(List.of(StationStatusStream.RESYNC_EVENT, StationStatusStream.STATUS_EVENT), barcelona.names());
+        List<StationStatusDeltaDto> deltas = barcelona.lastDeltas();
+        assertEquals(1, deltas.size());
+        assertEquals(1L, deltas.get(0).getId());
+        assertEquals(85, deltas.get(0).getAqi());
+        assertEquals(List.of(StationStatusStream.RESYNC_EVENT), madrid.names());
+    }
+
+    @Test
+    @DisplayName("The status is only queried again once the data version changes")
+    void skipsUnchangedVersions() {
+        stations(station(1L, 41.39, 2.17, 40));
+        subscribe(null, null, null, null);
+
+        stream.publish();
+        stream.publish();
+        version.incrementAndGet();
+        stream.publish();
+
+        verify(stationMapService, times(2)).findStations(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Changes queued behind a send keep only the latest value per station")
+    void coalescesPendingDeltas() {
+        stations(station(1L, 41.39, 2.17, 40));
+        RecordingEmitter emitter = subscribe(null, null, null, null);
+        stream.publish();
+        flush();
+
+        stations(station(1L, 41.39, 2.17, 60));
+        version.incrementAndGet();
+        stream.publish();
+        stations(station(1L, 41.39, 2.17, 90));
+        version.incrementAndGet();
+        stream.publish();
+        flush();
+
+        assertEquals(List.of(StationStatusStream.RESYNC_EVENT, StationStatusStream.STATUS_EVENT), emitter.names());
+        assertEquals(1, emitter.lastDeltas().size());
+        assertEquals(90, emitter.lastDeltas().get(0).getAqi());
+    }
+
+    @Test
+    @DisplayName("A client too far behind is asked to reload instead of receiving the backlog")
+    void resyncsSlowClients() {
+        stations(station(1L, 41.39, 2.17, 40), station(2L, 41.98, 2.82, 30), station(3L, 41.12, 1.25, 20));
+        RecordingEmitter emitter = subscribe(null, null, null, null);
+        stream.publish();
+        flush();
+
+        stations(station(1L, 41.39, 2.17, 41), station(2L, 41.98, 2.82, 31), station(3L, 41.12, 1.25, 21));
+        version.incrementAndGet();
+        stream.publish();
+        flush();
+
+        assertEquals(List.of(StationStatusStream.RESYNC_EVENT, StationStatusStream.RESYNC_EVENT), emitter.names());
+    }
+
+    @Test
+    @DisplayName("Stations leaving the map are sent as removed")
+    void reportsRemovedStations() {
+        stations(station(1L, 41.39, 2.17, 40), station(2L, 41.98, 2.82, 30));
+        RecordingEmitter emitter = subscribe(null, null, null, null);
+        stream.publish();
+        flush();
+
+        stations(station(1L, 41.39, 2.17, 40));
+        version.incrementAndGet();
+        stream.publish();
+        flush();
+
+        StationStatusDeltaDto delta = emitter.lastDeltas().get(0);
+        assertEquals(2L, delta.getId());
+        assertTrue(delta.isRemoved());
+        assertNull(delta.getAqi());
+    }
+
+    @Test
+    @DisplayName("Closed streams stop receiving and free their slot")
+    void unsubscribesOnFailure() {
+        stations(station(1L, 41.39, 2.17, 40));
+        RecordingEmitter emitter = subscribe(null, null, null, null);
+        emitter.failing = true;
+        stream.publish();
+        flush();
+
+        assertEquals(0, stream.subscriberCount());
+        assertFalse(emitter.names().contains(StationStatusStream.STATUS_EVENT));
+        assertThrows(IllegalArgumentException.class, () -> stream.subscribe(42.0, 2.0, 41.0, 3.0));
+    }
+
+    @Test
+    @DisplayName("A client still blocked in a send on the next publish is closed")
+    void closesStalledClients() {
+        StationStatusStream stalling = new StationStatusStream(stationMapService, mapDataVersion,
+                new SimpleMeterRegistry(), sends::add, 1.0, 100, 2, 10, 60000, 0);
+        stations(station(1L, 41.39, 2.17, 40));
+        RecordingEmitter emitter = new RecordingEmitter();
+        stalling.subscribe(null, null, null, null, emitter);
+        stalling.publish();
+        // The next publish runs while the first event is being written
+        emitter.onSend = stalling::publish;
+        flush();
+
+        assertTrue(emitter.completed);
+        assertEquals(0, stalling.subscriberCount());
+        assertEquals(List.of(StationStatusStream.RESYNC_EVENT), emitter.names());
+
+        stations(station(1L, 41.39, 2.17, 90));
+        version.incrementAndGet();
+        emitter.onSend = null;
+        stalling.publish();
+        flush();
+        assertEquals(List.of(StationStatusStream.RESYNC_EVENT), emitter.names());
+    }
+
+    private RecordingEmitter subscribe(Double minLat, Double minLon, Double maxLat, Double maxLon) {
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(minLat, minLon, maxLat, maxLon, emitter);
+        return emitter;
+    }
+
+    private void flush() {
+        while (!sends.isEmpty()) {
+            sends.remove(0).run();
+        }
+    }
+
+    private void stations(StationMapProjection... stations) {
+        when(stationMapService.findStations(any(), any(), any(), any(), any(), any())).thenReturn(List.of(stations));
+    }
+
+    private static StationMapProjection station(Long id, double latitude, double longitude, int aqi) {
+        return new CubeStationStatus(id, "S" + id, "Station " + id, latitude, longitude, aqi, "PM2_5",
+                aqi, "PM2_5", 50, "OFFICIAL");
+    }
+
+    /**
+     * Emitter that records the events sent to it instead of writing them to a response.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<String> names = new ArrayList<>();
+        private final List<Object> data = new ArrayList<>();
+        private boolean failing;
+        private boolean completed;
+        private Runnable onSend;
+
+        @Override
+        public void send(SseEventBuilder builder) throws java.io.IOException {
+            if (failing) throw new java.io.IOException("Broken pipe");
+            if (onSend != null) onSend.run();
+            String name = null;
+            Object payload = null;
+            for (var part : builder.build()) {
+                if (part.getData() instanceof String text && text.startsWith("event:")) {
+                    name = text.substring("event:".length(), text.indexOf('\n'));
+                } else if (!(part.getData() instanceof String)) {
+                    payload = part.getData();
+                }
+            }
+            names.add(name);
+            data.add(payload);
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+            super.complete();
+        }
+
+        List<String> names() {
+            return names;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<StationStatusDeltaDto> lastDeltas() {
+            return (List<StationStatusDeltaDto>) data.get(data.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.aerogrid.backend.map;
+
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for StationTable.
+ * Covers id lookup and bounding box queries against a brute-force scan.
+ */
+class StationTableTest {
+
+    @Test
+    @DisplayName("Every station id resolves to its own row")
+    void indexOfFindsEveryStation() {
+        List<StationMetadataProjection> rows = List.of(
+                new Row(30L, 41.39, 2.17, null),
+                new Row(10L, 41.98, 2.82, 7L),
+                new Row(20L, 41.12, 1.25, null));
+        StationTable table = new StationTable(rows, 0.25);
+
+        for (StationMetadataProjection row : rows) {
+            int index = table.indexOf(row.getId());
+            assertEquals(row.getId(), table.ids[index]);
+            assertEquals(row.getLatitude(), table.latitudes[index]);
+            assertEquals(row.getOwnerId() != null ? row.getOwnerId() : 0, table.owners[index]);
+        }
+        assertEquals(-1, table.indexOf(99L));
+    }
+
+    @Test
+    @DisplayName("Bounding box queries match a full scan")
+    void boundingBoxMatchesFullScan() {
+        Random random = new Random(42);
+        List<StationMetadataProjection> rows = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            rows.add(new Row(id, 40.5 + random.nextDouble() * 2.5, 0.2 + random.nextDouble() * 3.1, null));
+        }
+        StationTable table = new StationTable(rows, 0.25);
+
+        for (int query = 0; query < 50; query++) {
+            double minLat = 40 + random.nextDouble() * 3;
+            double minLon = random.nextDouble() * 3.5;
+            double maxLat = minLat + random.nextDouble();
+            double maxLon = minLon + random.nextDouble();
+
+            TreeSet<Long> expected = new TreeSet<>();
+            for (StationMetadataProjection row : rows) {
+                if (row.getLatitude() >= minLat && row.getLatitude() <= maxLat
+                        && row.getLongitude() >= minLon && row.getLongitude() <= maxLon) {
+                    expected.add(row.getId());
+                }
+            }
+            TreeSet<Long> found = new TreeSet<>();
+            table.forEachInBox(minLat, minLon, maxLat, maxLon, i -> found.add(table.ids[i]));
+
+            assertEquals(expected, found);
+        }
+    }
+
+    private record Row(Long id, Double latitude, Double longitude, Long ownerId) implements StationMetadataProjection {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getCode() {
+            return "S" + id;
+        }
+
+        @Override
+        public String getName() {
+            return "Station " + id;
+        }
+
+        @Override
+        public Double getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public Double getLongitude() {
+            return longitude;
+        }
+
+        @Override
+        public Integer getTrustScore() {
+            return 100;
+        }
+
+        @Override
+        public String getSourceType() {
+            return "OFFICIAL";
+        }
+
+        @Override
+        public Boolean getIsActive() {
+            return true;
+        }
+
+        @Override
+        public Long getOwnerId() {
+            return ownerId;
+        }
+    }
+}
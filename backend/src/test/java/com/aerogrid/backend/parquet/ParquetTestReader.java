@@ -0,0 +1,294 @@
+package com.aerogrid.backend.parquet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads flat Parquet files back in tests, written from the Parquet format specification rather
+ * than from {@link ParquetWriter}, so a file is only accepted if the format is right.
+ * <p>
+ * Supports what a reader of flat files needs: the Thrift compact footer and page headers,
+ * uncompressed and gzip pages, v1 data pages with RLE or bit-packed definition levels, PLAIN
+ * values and dictionary pages with RLE or bit-packed indices.
+ * </p>
+ */
+public final class ParquetTestReader {
+
+    /**
+     * The content of a file.
+     *
+     * @param columns       column names, in schema order
+     * @param rowGroupSizes rows of each row group
+     * @param rows          values of each row: Integer, Long, Double or String, null for null
+     */
+    public record Table(List<String> columns, List<Integer> rowGroupSizes, List<List<Object>> rows) {
+    }
+
+    private record SchemaColumn(String name, int physicalType, boolean optional) {
+    }
+
+    private ParquetTestReader() {
+    }
+
+    public static Table read(byte[] file) {
+        if (!"PAR1".equals(new String(file, 0, 4, StandardCharsets.US_ASCII))
+                || !"PAR1".equals(new String(file, file.length - 4, 4, StandardCharsets.US_ASCII))) {
+            throw new IllegalArgumentException("Not a Parquet file");
+        }
+        int footerLength = ByteBuffer.wrap(file, file.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        Map<Integer, Object> footer = new Thrift(file, file.length - 8 - footerLength).struct();
+
+        List<SchemaColumn> schema = new ArrayList<>();
+        List<Object> elements = list(footer, 2);
+        for (Object element : elements.subList(1, elements.size())) {
+            Map<Integer, Object> e = struct(element);
+            schema.add(new SchemaColumn(new String((byte[]) e.get(4), StandardCharsets.UTF_8),
+                    i32(e, 1), i32(e, 3) == 1));
+        }
+
+        List<Integer> rowGroupSizes = new ArrayList<>();
+        List<List<Object>> rows = new ArrayList<>();
+        for (Object group : list(footer, 4)) {
+            Map<Integer, Object> rowGroup = struct(group);
+            int groupRows = i32(rowGroup, 3);
+            List<Object> chunks = list(rowGroup, 1);
+            if (chunks.size() != schema.size()) throw new IllegalArgumentException("Column chunk count");
+            List<List<Object>> columns = new ArrayList<>();
+            for (int c = 0; c < schema.size(); c++) {
+                List<Object> values = readChunk(file, struct(struct(chunks.get(c)).get(3)), schema.get(c));
+                if (values.size() != groupRows) throw new IllegalArgumentException("Rows of column " + c);
+                columns.add(values);
+            }
+            for (int r = 0; r < groupRows; r++) {
+                List<Object> row = new ArrayList<>(schema.size());
+                for (List<Object> column : columns) row.add(column.get(r));
+                rows.add(row);
+            }
+            rowGroupSizes.add(groupRows);
+        }
+        if (rows.size() != i32(footer, 3)) throw new IllegalArgumentException("Row count");
+        return new Table(schema.stream().map(SchemaColumn::name).toList(), rowGroupSizes, rows);
+    }
+
+    private static List<Object> readChunk(byte[] file, Map<Integer, Object> meta, SchemaColumn column) {
+        if (i32(meta, 1) != column.physicalType()) throw new IllegalArgumentException("Type of " + column.name());
+        int codec = i32(meta, 4);
+        long valueCount = ((Number) meta.get(5)).longValue();
+        int start = meta.containsKey(11) ? i32(meta, 11) : i32(meta, 9);
+
+        Thrift in = new Thrift(file, start);
+        List<Object> dictionary = null;
+        List<Object> values = new ArrayList<>();
+        while (values.size() < valueCount) {
+            Map<Integer, Object> header = in.struct();
+            int compressedSize = i32(header, 3);
+            ByteBuffer page = ByteBuffer.wrap(decompress(file, in.pos, compressedSize, codec))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (page.remaining() != i32(header, 2)) throw new IllegalArgumentException("Uncompressed page size");
+            in.pos += compressedSize;
+
+            switch (i32(header, 1)) {
+                case 2 -> {
+                    int size = i32(struct(header.get(7)), 1);
+                    dictionary = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) dictionary.add(plain(page, column.physicalType()));
+                }
+                case 0 -> {
+                    Map<Integer, Object> dataHeader = struct(header.get(5));
+                    int pageValues = i32(dataHeader, 1);
+                    int[] levels = new int[pageValues];
+                    int defined = pageValues;
+                    if (column.optional()) {
+                        int length = page.getInt();
+                        ByteBuffer levelBytes = page.slice(page.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+                        page.position(page.position() + length);
+                        levels = hybrid(levelBytes, 1, pageValues);
+                        defined = 0;
+                        for (int level : levels) defined += level;
+                    } else {
+                        Arrays.fill(levels, 1);
+                    }
+                    List<Object> definedValues = new ArrayList<>(defined);
+                    int encoding = i32(dataHeader, 2);
+                    if (encoding == 0) {
+                        for (int i = 0; i < defined; i++) definedValues.add(plain(page, column.physicalType()));
+                    } else if (encoding == 8 || encoding == 2) {
+                        if (dictionary == null) throw new IllegalArgumentException("Dictionary page missing");
+                        int bitWidth = page.get() & 0xFF;
+                        for (int index : hybrid(page, bitWidth, defined)) definedValues.add(dictionary.get(index));
+                    } else {
+                        throw new IllegalArgumentException("Unsupported encoding " + encoding);
+                    }
+                    int next = 0;
+                    for (int level : levels) values.add(level == 1 ? definedValues.get(next++) : null);
+                }
+                default -> throw new IllegalArgumentException("Unsupported page type " + header.get(1));
+            }
+        }
+        return values;
+    }
+
+    private static byte[] decompress(byte[] file, int offset, int length, int codec) {
+        if (codec == 0) return Arrays.copyOfRange(file, offset, offset + length);
+        if (codec != 2) throw new IllegalArgumentException("Unsupported codec " + codec);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(file, offset, length))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object plain(ByteBuffer page, int physicalType) {
+        return switch (physicalType) {
+            case 1 -> page.getInt();
+            case 2 -> page.getLong();
+            case 5 -> page.getDouble();
+            case 6 -> {
+                byte[] bytes = new byte[page.getInt()];
+                page.get(bytes);
+                yield new String(bytes, StandardCharsets.UTF_8);
+            }
+            default -> throw new IllegalArgumentException("Unsupported physical type " + physicalType);
+        };
+    }
+
+    /**
+     * Decodes the RLE/bit-packing hybrid encoding.
+     */
+    private static int[] hybrid(ByteBuffer in, int bitWidth, int count) {
+        int[] values = new int[count];
+        int n = 0;
+        while (n < count) {
+            long header = varint(in);
+            if ((header & 1) == 0) {
+                int value = 0;
+                for (int b = 0; b < (bitWidth + 7) / 8; b++) value |= (in.get() & 0xFF) << (8 * b);
+                for (long i = header >>> 1; i > 0 && n < count; i--) values[n++] = value;
+            } else {
+                int groupValues = (int) (header >>> 1) * 8;
+                long buffer = 0;
+                int bits = 0;
+                for (int i = 0; i < groupValues; i++) {
+                    while (bits < bitWidth) {
+                        buffer |= (long) (in.get() & 0xFF) << bits;
+                        bits += 8;
+                    }
+                    int value = (int) (buffer & ((1L << bitWidth) - 1));
+                    buffer >>>= bitWidth;
+                    bits -= bitWidth;
+                    if (n < count) values[n++] = value;
+                }
+            }
+        }
+        return values;
+    }
+
+    private static long varint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) return value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Integer, Object> struct(Object value) {
+        return (Map<Integer, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Map<Integer, Object> struct, int field) {
+        return (List<Object>) struct.get(field);
+    }
+
+    private static int i32(Map<Integer, Object> struct, int field) {
+        Object value = struct.get(field);
+        if (value == null) throw new IllegalArgumentException("Field " + field + " missing");
+        return Math.toIntExact((Long) value);
+    }
+
+    /**
+     * Thrift compact protocol decoder. Structs become maps from field id to value; integers are
+     * Long, binaries byte[], lists List.
+     */
+    private static final class Thrift {
+
+        private final byte[] data;
+        private int pos;
+
+        Thrift(byte[] data, int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        Map<Integer, Object> struct() {
+            Map<Integer, Object> fields = new HashMap<>();
+            int last = 0;
+            while (true) {
+                int header = data[pos++] & 0xFF;
+                if (header == 0) return fields;
+                int delta = header >>> 4;
+                int id = delta != 0 ? last + delta : (int) unzigzag(varint());
+                fields.put(id, value(header & 0x0F));
+                last = id;
+            }
+        }
+
+        private Object value(int type) {
+            return switch (type) {
+                case 1 -> true;
+                case 2 -> false;
+                case 3 -> (long) data[pos++];
+                case 4, 5, 6 -> unzigzag(varint());
+                case 7 -> {
+                    double value = ByteBuffer.wrap(data, pos, 8).order(ByteOrder.LITTLE_ENDIAN).getDouble();
+                    pos += 8;
+                    yield value;
+                }
+                case 8 -> {
+                    int length = (int) varint();
+                    byte[] bytes = Arrays.copyOfRange(data, pos, pos + length);
+                    pos += length;
+                    yield bytes;
+                }
+                case 9, 10 -> {
+                    int header = data[pos++] & 0xFF;
+                    int size = header >>> 4 == 15 ? (int) varint() : header >>> 4;
+                    int elementType = header & 0x0F;
+                    List<Object> elements = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        // Booleans in lists take a whole byte
+                        elements.add(elementType == 1 || elementType == 2 ? data[pos++] == 1 : value(elementType));
+                    }
+                    yield elements;
+                }
+                case 12 -> struct();
+                default -> throw new IllegalArgumentException("Unsupported Thrift type " + type);
+            };
+        }
+
+        private long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = data[pos++] & 0xFF;
+                value |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) return value;
+            }
+        }
+
+        private static long unzigzag(long value) {
+            return value >>> 1 ^ -(value & 1);
+        }
+    }
+}
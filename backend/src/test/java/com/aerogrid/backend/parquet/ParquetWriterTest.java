@@ -0,0 +1,107 @@
+package com.aerogrid.backend.parquet;
+
+import com.aerogrid.backend.parquet.ParquetWriter.Column;
+import com.aerogrid.backend.parquet.ParquetWriter.Type;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for ParquetWriter.
+ * Files are read back with {@link ParquetTestReader}, so values, nulls and row groups are checked
+ * against the format rather than against the bytes the writer happens to produce.
+ */
+class ParquetWriterTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2025, 3, 5, 10, 0);
+    private static final List<Column> COLUMNS = List.of(
+            Column.required("station_code", Type.STRING),
+            Column.required("timestamp", Type.TIMESTAMP_MILLIS),
+            Column.required("value", Type.DOUBLE),
+            Column.optional("aqi", Type.INT32),
+            Column.optional("pollutant", Type.STRING),
+            Column.required("count", Type.INT64));
+
+    @Test
+    @DisplayName("Values and nulls read back in order across row groups")
+    void readsBackValuesAndNulls() throws IOException {
+        List<List<Object>> rows = List.of(
+                row("GENCAT-001", HOUR, 45.5, 3, "NO2", 1L),
+                row("GENCAT-001", HOUR.plusHours(1), -0.25, null, "NO2", 1L << 40),
+                row("GENCAT-002", HOUR, 0.0, 0, null, 0L),
+                // A row group where an optional string column is all null
+                row("GENCAT-002", HOUR.plusHours(1), 12.0, null, null, -7L),
+                row("GENCAT-002", HOUR.plusHours(2), 13.0, 250, null, 8L),
+                row("AG-ÀÉ", HOUR.plusHours(3), Double.MAX_VALUE, 4, "PM10", Long.MAX_VALUE),
+                row("AG-ÀÉ", HOUR.plusHours(4), 1e-9, null, "O3", Long.MIN_VALUE));
+
+        ParquetTestReader.Table table = ParquetTestReader.read(write(rows, 2));
+
+        assertEquals(List.of("station_code", "timestamp", "value", "aqi", "pollutant", "count"), table.columns());
+        assertEquals(List.of(2, 2, 2, 1), table.rowGroupSizes());
+        assertEquals(rows.stream().map(ParquetWriterTest::stored).toList(), table.rows());
+    }
+
+    @Test
+    @DisplayName("Long runs of a value and many distinct strings read back")
+    void readsBackLargeRowGroups() throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(row("GENCAT-" + i / 1000, HOUR.plusMinutes(i), i * 0.5, i % 3 == 0 ? null : i % 7,
+                    i % 5 == 0 ? "P" + i : null, (long) i << 33));
+        }
+
+        ParquetTestReader.Table table = ParquetTestReader.read(write(rows, 2048));
+
+        assertEquals(List.of(2048, 2048, 904), table.rowGroupSizes());
+        assertEquals(rows.stream().map(ParquetWriterTest::stored).toList(), table.rows());
+    }
+
+    @Test
+    @DisplayName("A row must set every required column once")
+    void rejectsIncompleteRows() throws IOException {
+        ParquetWriter writer = new ParquetWriter(new ByteArrayOutputStream(), COLUMNS, 10);
+        writer.set(0, "GENCAT-001");
+
+        assertThrows(IllegalStateException.class, () -> writer.set(0, "GENCAT-002"));
+        assertThrows(IllegalArgumentException.class, () -> writer.set(1, 1.0));
+        assertThrows(IllegalStateException.class, writer::endRow);
+    }
+
+    private static byte[] write(List<List<Object>> rows, int rowGroupRows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParquetWriter writer = new ParquetWriter(out, COLUMNS, rowGroupRows)) {
+            for (List<Object> row : rows) {
+                writer.set(0, (String) row.get(0));
+                writer.set(1, (LocalDateTime) row.get(1));
+                writer.set(2, (double) row.get(2));
+                writer.set(3, (Integer) row.get(3));
+                writer.set(4, (String) row.get(4));
+                writer.set(5, (long) row.get(5));
+                writer.endRow();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Object> row(Object... values) {
+        return Arrays.asList(values);
+    }
+
+    /** The row as read back, with timestamps as epoch milliseconds */
+    private static List<Object> stored(List<Object> row) {
+        return row.stream()
+                .map(v -> v instanceof LocalDateTime t ? t.toInstant(ZoneOffset.UTC).toEpochMilli() : v)
+                .toList();
+    }
+}
@@ -0,0 +1,113 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.PostgresSqlTest;
+import com.aerogrid.backend.domain.HourlyAqiPeak;
+import com.aerogrid.backend.domain.Pollutant;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of the native SQL of HourlyAqiSnapshotRepository against PostgreSQL.
+ * Covers the set-based recompute of the snapshots from the HOUR rollups, the streamed peaks and
+ * the rolling AQI.
+ */
+class HourlyAqiSnapshotRepositoryTest extends PostgresSqlTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2025, 3, 5, 10, 0);
+    private static final String SNAPSHOT_SQL = """
+        SELECT station_id || ' ' || timestamp || ' ' || COALESCE(max_aqi::text, '-') || ' ' || COALESCE(pollutant, '-')
+        FROM hourly_aqi_snapshots
+        ORDER BY station_id, timestamp
+        """;
+
+    @Test
+    @DisplayName("Each station-hour keeps its highest AQI and the pollutant that caused it")
+    void picksWorstPollutant() {
+        rollup(1, "NO2", HOUR, 3);
+        rollup(1, "PM10", HOUR, 5);
+        rollup(1, "O3", HOUR, 5);
+        rollup(1, "SO2", HOUR.plusHours(1), null);
+        rollup(2, "NO2", HOUR, 2);
+        // Outside the range
+        rollup(2, "NO2", HOUR.plusHours(2), 6);
+
+        assertEquals(3, upsert(HOUR, HOUR.plusHours(2)));
+
+        // Ties go to the pollutant name that sorts first
+        assertEquals(List.of(
+                "1 2025-03-05 10:00:00 5 O3",
+                "1 2025-03-05 11:00:00 - SO2",
+                "2 2025-03-05 10:00:00 2 NO2"), snapshots());
+    }
+
+    @Test
+    @DisplayName("Recomputing updates changed hours only")
+    void rewritesChangedRowsOnly() {
+        rollup(1, "NO2", HOUR, 3);
+        rollup(2, "NO2", HOUR, 2);
+        upsert(HOUR, HOUR.plusHours(1));
+
+        jdbcTemplate.update("UPDATE measurement_rollups SET aqi_max = 4 WHERE station_id = 1");
+
+        assertEquals(1, upsert(HOUR, HOUR.plusHours(1)));
+        assertEquals(List.of("1 2025-03-05 10:00:00 4 NO2", "2 2025-03-05 10:00:00 2 NO2"), snapshots());
+    }
+
+    @Test
+    @DisplayName("Streamed peaks only ever raise a snapshot and skip unknown stations")
+    void raisesToPeaks() {
+        HourlyAqiSnapshotRepositoryImpl repository = new HourlyAqiSnapshotRepositoryImpl(jdbcTemplate);
+        repository.raiseToPeaks(List.of(
+                new HourlyAqiPeak(1, HOUR, Pollutant.NO2, 3),
+                new HourlyAqiPeak(2, HOUR, Pollutant.NO2, 4),
+                new HourlyAqiPeak(99, HOUR, Pollutant.NO2, 4)));
+
+        assertEquals(1, repository.raiseToPeaks(List.of(
+                new HourlyAqiPeak(1, HOUR, Pollutant.PM10, 5),
+                new HourlyAqiPeak(2, HOUR, Pollutant.O3, 2))));
+        assertEquals(List.of("1 2025-03-05 10:00:00 5 PM10", "2 2025-03-05 10:00:00 4 NO2"), snapshots());
+    }
+
+    @Test
+    @DisplayName("The rolling AQI is written to existing snapshots only")
+    void updatesRollingOnly() {
+        HourlyAqiSnapshotRepositoryImpl repository = new HourlyAqiSnapshotRepositoryImpl(jdbcTemplate);
+        repository.raiseToPeaks(List.of(new HourlyAqiPeak(1, HOUR, Pollutant.NO2, 3)));
+
+        assertEquals(1, repository.updateRolling(List.of(
+                new HourlyAqiPeak(1, HOUR, Pollutant.PM10, 4),
+                new HourlyAqiPeak(1, HOUR.plusHours(1), Pollutant.PM10, 4),
+                new HourlyAqiPeak(2, HOUR, Pollutant.PM10, 2))));
+        // Unchanged values are not rewritten
+        assertEquals(0, repository.updateRolling(List.of(new HourlyAqiPeak(1, HOUR, Pollutant.PM10, 4))));
+
+        assertEquals(List.of("1 2025-03-05 10:00:00 3 NO2 4 PM10"), jdbcTemplate.queryForList("""
+                SELECT station_id || ' ' || timestamp || ' ' || max_aqi || ' ' || pollutant
+                       || ' ' || rolling_aqi || ' ' || rolling_pollutant
+                FROM hourly_aqi_snapshots
+                """, String.class));
+    }
+
+    private int upsert(LocalDateTime start, LocalDateTime end) {
+        return namedJdbcTemplate.update(nativeQuery(HourlyAqiSnapshotRepository.class, "upsertFromRollups"),
+                Map.of("start", start, "end", end));
+    }
+
+    private List<String> snapshots() {
+        return jdbcTemplate.queryForList(SNAPSHOT_SQL, String.class);
+    }
+
+    private void rollup(long stationId, String pollutant, LocalDateTime hour, Integer aqiMax) {
+        jdbcTemplate.update("""
+                INSERT INTO measurement_rollups (station_id, pollutant, resolution, bucket_start, sample_count,
+                                                 value_sum, value_min, value_max, aqi_count, aqi_sum, aqi_max)
+                VALUES (?, ?, 'HOUR', ?, 1, 10, 10, 10, ?, COALESCE(?, 0), ?)
+                """, stationId, pollutant, hour, aqiMax != null ? 1 : 0, aqiMax, aqiMax);
+    }
+}
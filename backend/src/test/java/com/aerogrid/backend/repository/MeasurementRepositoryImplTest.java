@@ -0,0 +1,258 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.PostgresSqlTest;
+import com.aerogrid.backend.archive.GorillaCodec;
+import com.aerogrid.backend.domain.MeasurementArchive;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.domain.Station;
+import com.aerogrid.backend.repository.projection.ArchivedDaysProjection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of the native SQL of MeasurementRepositoryImpl against PostgreSQL.
+ * Covers the rollups and latest readings maintained by the insert statement, and keyset pages
+ * merged with archived days.
+ */
+class MeasurementRepositoryImplTest extends PostgresSqlTest {
+
+    /** A Wednesday, so its week starts two days earlier */
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 5, 0, 0);
+    private static final String ROLLUP_SQL = """
+        SELECT resolution || ' ' || bucket_start || ' n=' || sample_count || ' sum=' || value_sum
+               || ' min=' || value_min || ' max=' || value_max
+               || ' aqi n=' || aqi_count || ' sum=' || aqi_sum || ' max=' || COALESCE(aqi_max::text, '-')
+        FROM measurement_rollups
+        WHERE station_id = 1 AND pollutant = 'NO2'
+        ORDER BY resolution, bucket_start
+        """;
+
+    private final MeasurementArchiveRepository archiveRepository = mock(MeasurementArchiveRepository.class);
+    private MeasurementRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new MeasurementRepositoryImpl(jdbcTemplate, archiveRepository);
+    }
+
+    @Test
+    @DisplayName("Inserted rows are added to their HOUR, DAY and WEEK buckets")
+    void foldsInsertedRowsIntoRollups() {
+        repository.insertBatch(List.of(
+                record(DAY.plusHours(10), 10, 1),
+                record(DAY.plusHours(10).plusMinutes(30), 30, null),
+                record(DAY.plusHours(11), 20, 2)));
+        // A later batch adds to the same buckets
+        repository.insertBatch(List.of(record(DAY.plusHours(11).plusMinutes(15), 5, 4)));
+
+        assertEquals(List.of(
+                "DAY 2025-03-05 00:00:00 n=4 sum=65 min=5 max=30 aqi n=3 sum=7 max=4",
+                "HOUR 2025-03-05 10:00:00 n=2 sum=40 min=10 max=30 aqi n=1 sum=1 max=1",
+                "HOUR 2025-03-05 11:00:00 n=2 sum=25 min=5 max=20 aqi n=2 sum=6 max=4",
+                "WEEK 2025-03-03 00:00:00 n=4 sum=65 min=5 max=30 aqi n=3 sum=7 max=4"),
+                rollups());
+    }
+
+    @Test
+    @DisplayName("Rows already stored are neither inserted nor counted again")
+    void ignoresDuplicates() {
+        repository.insertBatch(List.of(record(DAY.plusHours(10), 10, 1)));
+
+        List<MeasurementRecord> inserted = repository.insertBatch(List.of(
+                record(DAY.plusHours(10), 99, 6),
+                record(DAY.plusHours(12), 20, 2)));
+
+        assertEquals(List.of(record(DAY.plusHours(12), 20, 2)), inserted);
+        assertEquals("HOUR 2025-03-05 10:00:00 n=1 sum=10 min=10 max=10 aqi n=1 sum=1 max=1", rollups().get(1));
+    }
+
+    @Test
+    @DisplayName("Retracted rows leave the counts and sums, and incremental rollups match a rebuild")
+    void retractsAndRebuilds() {
+        repository.insertBatch(List.of(record(DAY.plusHours(10), 10, 1), record(DAY.plusHours(10).plusMinutes(5), 30, 3)));
+        repository.retractFromRollups(List.of(record(DAY.plusHours(10).plusMinutes(5), 30, 3)));
+        jdbcTemplate.update("DELETE FROM measurements WHERE value = 30");
+
+        // Minimums and maximums cannot be retracted
+        assertEquals("HOUR 2025-03-05 10:00:00 n=1 sum=10 min=10 max=30 aqi n=1 sum=1 max=3", rollups().get(1));
+
+        repository.insertBatch(List.of(record(DAY.plusDays(1).plusHours(3), 8, 1)));
+        List<String> incremental = rollups();
+        repository.rebuildRollups(DAY.minusDays(2), DAY.plusDays(5), List.of());
+
+        // Rebuilding restores the extremes of the retracted day and leaves the other one as it was
+        assertEquals(List.of(
+                "DAY 2025-03-05 00:00:00 n=1 sum=10 min=10 max=10 aqi n=1 sum=1 max=1",
+                incremental.get(1),
+                "HOUR 2025-03-05 10:00:00 n=1 sum=10 min=10 max=10 aqi n=1 sum=1 max=1",
+                incremental.get(3),
+                "WEEK 2025-03-03 00:00:00 n=2 sum=18 min=8 max=10 aqi n=2 sum=2 max=1"),
+                rollups());
+    }
+
+    @Test
+    @DisplayName("The latest reading of a pair moves forward with newer rows and ignores older ones")
+    void upsertsLatestReadings() {
+        repository.insertBatch(List.of(
+                record(DAY.plusHours(10), 10, 1),
+                record(DAY.plusHours(12), 30, null),
+                record(DAY.plusHours(11), 20, 2)));
+        assertEquals("2025-03-05 12:00:00 30 -", latest());
+
+        // A late row is stored but does not replace the newer reading
+        repository.insertBatch(List.of(record(DAY.plusHours(9), 5, 1)));
+        assertEquals("2025-03-05 12:00:00 30 -", latest());
+
+        repository.insertBatch(List.of(record(DAY.plusHours(13), 40, 3)));
+        assertEquals("2025-03-05 13:00:00 40 3", latest());
+    }
+
+    @Test
+    @DisplayName("The backfill takes the newest raw row of every pair and keeps rows already there")
+    void backfillsLatestReadings() {
+        jdbcTemplate.update("""
+                INSERT INTO measurements (station_id, timestamp, pollutant, value, aqi) VALUES
+                    (1, '2025-03-05 10:00', 'NO2', 10, 1), (1, '2025-03-05 11:00', 'NO2', 20, 2),
+                    (2, '2025-03-05 09:00', 'NO2', 7, 1)
+                """);
+        jdbcTemplate.update("INSERT INTO station_latest (station_id, pollutant, timestamp, value, aqi) "
+                + "VALUES (2, 'NO2', '2025-03-01 00:00', 99, 6)");
+
+        assertEquals(1, jdbcTemplate.update(nativeQuery(StationLatestRepository.class, "backfill")));
+        assertEquals("2025-03-05 11:00:00 20 2", latest());
+        assertEquals(99.0, jdbcTemplate.queryForObject(
+                "SELECT value FROM station_latest WHERE station_id = 2", Double.class));
+    }
+
+    @Test
+    @DisplayName("Compaction deletes and returns the raw rows of one station and day only")
+    void deletesRawRowsOfOneStation() {
+        jdbcTemplate.update("""
+                INSERT INTO measurements (station_id, timestamp, pollutant, value, aqi) VALUES
+                    (1, '2025-03-05 10:00', 'NO2', 10, 1), (1, '2025-03-06 00:00', 'NO2', 20, 2),
+                    (2, '2025-03-05 09:00', 'NO2', 7, 1)
+                """);
+
+        assertEquals(List.of(record(DAY.plusHours(10), 10, 1)),
+                repository.deleteRawReturning(1, DAY, DAY.plusDays(1)));
+        assertEquals(List.of(1L, 2L), jdbcTemplate.queryForList(
+                "SELECT station_id FROM measurements ORDER BY station_id", Long.class));
+    }
+
+    @Test
+    @DisplayName("Pages merge archived and raw rows in timestamp order and only read the archived days")
+    void mergesArchivedDaysIntoPages() {
+        LocalDate archivedDay = DAY.toLocalDate().minusDays(40);
+        when(archiveRepository.findArchivedDays("GENCAT-001")).thenReturn(archivedDays(archivedDay, archivedDay));
+        when(archiveRepository.findByStationCodeAndDayBetween("GENCAT-001", archivedDay, archivedDay)).thenReturn(List.of(
+                archive(Pollutant.NO2, archivedDay.atTime(10, 0), archivedDay.atTime(11, 0))));
+        repository.insertBatch(List.of(record(DAY.plusHours(9), 5, 1), record(DAY.plusHours(10), 6, null)));
+
+        List<MeasurementRecord> page = repository.findPage("GENCAT-001", DAY.minusDays(60), DAY.plusDays(1),
+                null, null, 3);
+
+        assertEquals(List.of(
+                record(archivedDay.atTime(10, 0), 1, 3),
+                record(archivedDay.atTime(11, 0), 2, null),
+                record(DAY.plusHours(9), 5, 1)), page);
+        // The days before and after the archived one are not queried
+        verify(archiveRepository).findByStationCodeAndDayBetween(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("A page starts right after the cursor, pollutants ordered byte-wise within a timestamp")
+    void continuesAfterCursor() {
+        LocalDateTime at = DAY.plusHours(10);
+        when(archiveRepository.findArchivedDays("GENCAT-001")).thenReturn(archivedDays(DAY.toLocalDate(), DAY.toLocalDate()));
+        when(archiveRepository.findByStationCodeAndDayBetween("GENCAT-001", DAY.toLocalDate(), DAY.toLocalDate())).thenReturn(List.of(
+                archive(Pollutant.PM1, at), archive(Pollutant.CO, at)));
+        repository.insertBatch(List.of(
+                new MeasurementRecord(1, Pollutant.PM25, 1, null, at),
+                new MeasurementRecord(1, Pollutant.PM10, 1, null, at),
+                new MeasurementRecord(1, Pollutant.C6H6, 1, null, at),
+                new MeasurementRecord(1, Pollutant.NO2, 1, null, at.plusMinutes(1))));
+
+        List<MeasurementRecord> page = repository.findPage("GENCAT-001", DAY, DAY.plusDays(1),
+                at, Pollutant.CO, 10);
+
+        // C6H6 and CO sort before the cursor
+        assertEquals(List.of(Pollutant.PM1, Pollutant.PM10, Pollutant.PM25, Pollutant.NO2),
+                page.stream().map(MeasurementRecord::pollutant).toList());
+        assertEquals(List.of(at, at, at, at.plusMinutes(1)), page.stream().map(MeasurementRecord::timestamp).toList());
+    }
+
+    @Test
+    @DisplayName("Stations without archived days never query the archive for a page")
+    void skipsArchiveWithoutArchivedDays() {
+        when(archiveRepository.findArchivedDays("GENCAT-001")).thenReturn(archivedDays(null, null));
+        repository.insertBatch(List.of(record(DAY.plusHours(9), 5, 1)));
+
+        assertEquals(List.of(record(DAY.plusHours(9), 5, 1)),
+                repository.findPage("GENCAT-001", DAY.minusYears(1), DAY.plusDays(1), null, null, 10));
+        verify(archiveRepository, never()).findByStationCodeAndDayBetween(any(), any(), any());
+    }
+
+    private String latest() {
+        return jdbcTemplate.queryForObject(
+                "SELECT timestamp || ' ' || value || ' ' || COALESCE(aqi::text, '-') FROM station_latest "
+                        + "WHERE station_id = 1 AND pollutant = 'NO2'", String.class);
+    }
+
+    private List<String> rollups() {
+        return jdbcTemplate.queryForList(ROLLUP_SQL, String.class);
+    }
+
+    private static ArchivedDaysProjection archivedDays(LocalDate first, LocalDate last) {
+        return new ArchivedDaysProjection() {
+            @Override
+            public LocalDate getFirstDay() {
+                return first;
+            }
+
+            @Override
+            public LocalDate getLastDay() {
+                return last;
+            }
+        };
+    }
+
+    /** An archived day of station 1 holding the values 1, 2, ..., with an AQI of 3 on the first one only */
+    private static MeasurementArchive archive(Pollutant pollutant, LocalDateTime... timestamps) {
+        int size = timestamps.length;
+        long[] seconds = new long[size];
+        double[] values = new double[size];
+        int[] aqis = new int[size];
+        for (int i = 0; i < size; i++) {
+            seconds[i] = timestamps[i].toEpochSecond(ZoneOffset.UTC);
+            values[i] = i + 1;
+            aqis[i] = i == 0 ? 3 : GorillaCodec.NO_AQI;
+        }
+        Station station = new Station();
+        station.setId(1L);
+        return MeasurementArchive.builder()
+                .station(station)
+                .pollutant(pollutant)
+                .day(timestamps[0].toLocalDate())
+                .sampleCount(size)
+                .data(GorillaCodec.encode(seconds, values, aqis, size))
+                .build();
+    }
+
+    private static MeasurementRecord record(LocalDateTime timestamp, double value, Integer aqi) {
+        return new MeasurementRecord(1, Pollutant.NO2, value, aqi, timestamp);
+    }
+}
@@ -0,0 +1,83 @@
+package com.aerogrid.backend.repository;
+
+import com.aerogrid.backend.PostgresSqlTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests of the native SQL of MeasurementRollupRepository against PostgreSQL.
+ * Covers the expiry of the HOUR tier and chart reads that fall back to DAY rollups once it expired.
+ */
+class MeasurementRollupRepositoryTest extends PostgresSqlTest {
+
+    /** A Monday, so the rebuilt week starts there */
+    private static final LocalDateTime WEEK = LocalDateTime.of(2025, 3, 3, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        // Day 1: 10:00 holds 10 and 20, 11:00 holds 30. Day 2: 10:00 holds 40
+        insertRaw(WEEK.plusHours(10), 10, 1);
+        insertRaw(WEEK.plusHours(10).plusMinutes(30), 20, 2);
+        insertRaw(WEEK.plusHours(11), 30, 3);
+        insertRaw(WEEK.plusDays(1).plusHours(10), 40, null);
+        new MeasurementRepositoryImpl(jdbcTemplate, mock(MeasurementArchiveRepository.class))
+                .rebuildRollups(WEEK, WEEK.plusWeeks(1), List.of());
+    }
+
+    @Test
+    @DisplayName("Expiring the HOUR tier deletes at most one chunk of hourly buckets before the cutoff")
+    void expiresHourlyBucketsInChunks() {
+        String sql = nativeQuery(MeasurementRollupRepository.class, "deleteExpiredChunk");
+        Map<String, Object> params = Map.of("resolution", "HOUR", "before", WEEK.plusDays(1), "limit", 1);
+
+        assertEquals(1, namedJdbcTemplate.update(sql, params));
+        assertEquals(1, namedJdbcTemplate.update(sql, params));
+        assertEquals(0, namedJdbcTemplate.update(sql, params));
+
+        assertEquals(List.of(WEEK.plusDays(1).plusHours(10)), jdbcTemplate.queryForList(
+                "SELECT bucket_start FROM measurement_rollups WHERE resolution = 'HOUR'", LocalDateTime.class));
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM measurement_rollups WHERE resolution <> 'HOUR'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Charts read DAY rollups before the hourly tier and weigh buckets by their samples")
+    void fallsBackToDailyRollups() {
+        namedJdbcTemplate.update(nativeQuery(MeasurementRollupRepository.class, "deleteExpiredChunk"),
+                Map.of("resolution", "HOUR", "before", WEEK.plusDays(1), "limit", 100));
+
+        List<Map<String, Object>> rows = namedJdbcTemplate.queryForList(
+                nativeQuery(MeasurementRollupRepository.class, "aggregate"), Map.of(
+                        "stationCode", "GENCAT-001",
+                        "start", WEEK,
+                        "end", WEEK.plusDays(2),
+                        "bucketWidth", "6 hours",
+                        "resolution", "HOUR",
+                        "fallbackResolution", "DAY",
+                        "fallbackBefore", WEEK.plusDays(1)));
+
+        assertEquals(2, rows.size());
+        // The expired day becomes one bucket at midnight with the mean of its three samples
+        assertEquals(WEEK, ((Timestamp) rows.get(0).get("timestamp")).toLocalDateTime());
+        assertEquals(20.0, (Double) rows.get(0).get("avgvalue"), 1e-9);
+        assertEquals(2.0, (Double) rows.get(0).get("avgaqi"), 1e-9);
+        assertEquals(WEEK.plusDays(1).plusHours(6), ((Timestamp) rows.get(1).get("timestamp")).toLocalDateTime());
+        assertEquals(40.0, (Double) rows.get(1).get("avgvalue"), 1e-9);
+        assertNull(rows.get(1).get("avgaqi"));
+    }
+
+    private void insertRaw(LocalDateTime timestamp, double value, Integer aqi) {
+        jdbcTemplate.update("INSERT INTO measurements (station_id, timestamp, pollutant, value, aqi) VALUES (1, ?, 'NO2', ?, ?)",
+                timestamp, value, aqi);
+    }
+}
@@ -0,0 +1,88 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for AqiAggregationService.
+ * Covers the hourly run, which only recomputes the hours that received readings.
+ */
+class AqiAggregationServiceTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(10);
+
+    private final HourlyAqiSnapshotRepository repository = mock(HourlyAqiSnapshotRepository.class);
+    private final AqiSnapshotNotifier notifier = mock(AqiSnapshotNotifier.class);
+    private final AqiAggregationService service = new AqiAggregationService(repository, notifier,
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 3);
+
+    @Test
+    @DisplayName("Consecutive changed hours are recomputed together, up to the chunk size, however old")
+    void recomputesChangedHours() {
+        when(repository.upsertFromRollups(any(), any())).thenReturn(1);
+        service.onMeasurementsStored(List.of(
+                record(HOUR.plusMinutes(10)), record(HOUR.plusMinutes(50)),
+                record(HOUR.plusHours(1)), record(HOUR.plusHours(2)), record(HOUR.plusHours(3)),
+                record(HOUR.plusHours(6).plusMinutes(5)),
+                // Older than the startup window and the streaming lateness
+                record(HOUR.minusDays(3))));
+
+        service.aggregateHourlyAqi();
+
+        verify(repository).upsertFromRollups(HOUR, HOUR.plusHours(3));
+        verify(repository).upsertFromRollups(HOUR.plusHours(3), HOUR.plusHours(4));
+        verify(repository).upsertFromRollups(HOUR.plusHours(6), HOUR.plusHours(7));
+        verify(notifier).snapshotsChanged(HOUR.plusHours(6), HOUR.plusHours(7));
+        verify(repository).upsertFromRollups(HOUR.minusDays(3), HOUR.minusDays(3).plusHours(1));
+        verifyNoMoreInteractions(repository);
+
+        // Nothing new arrived since
+        service.aggregateHourlyAqi();
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Unchanged snapshots are not announced")
+    void skipsUnchangedHours() {
+        when(repository.upsertFromRollups(any(), any())).thenReturn(0);
+        service.onMeasurementsStored(List.of(record(HOUR)));
+
+        service.aggregateHourlyAqi();
+
+        verify(notifier, never()).snapshotsChanged(any(), any());
+    }
+
+    @Test
+    @DisplayName("Hours whose recompute failed are retried on the next run")
+    void retriesFailedHours() {
+        when(repository.upsertFromRollups(any(), any())).thenThrow(new QueryTimeoutException("timeout")).thenReturn(1);
+        service.onMeasurementsStored(List.of(record(HOUR)));
+
+        assertThrows(QueryTimeoutException.class, service::aggregateHourlyAqi);
+        service.aggregateHourlyAqi();
+
+        verify(notifier).snapshotsChanged(HOUR, HOUR.plusHours(1));
+    }
+
+    private static MeasurementRecord record(LocalDateTime timestamp) {
+        return new MeasurementRecord(1, Pollutant.NO2, 40.0, 2, timestamp);
+    }
+}
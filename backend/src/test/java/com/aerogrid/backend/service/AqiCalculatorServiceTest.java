@@ -0,0 +1,87 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.Pollutant;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for AqiCalculatorService.
+ * Covers the level scale boundaries, linear interpolation and the batch API.
+ */
+class AqiCalculatorServiceTest {
+
+    static AqiCalculatorService calculator(String scale) {
+        try {
+            StandardEnvironment environment = new StandardEnvironment();
+            environment.getPropertySources().addLast(new ResourcePropertySource("classpath:aqi-scales.properties"));
+            return new AqiCalculatorService(environment, scale);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    @DisplayName("EU scale maps breakpoints inclusively to levels 1 to 6")
+    void euLevels() {
+        AqiCalculatorService calculator = calculator("eu");
+
+        assertEquals(1, calculator.calculate(Pollutant.NO2, 0));
+        assertEquals(1, calculator.calculate(Pollutant.NO2, 40));
+        assertEquals(2, calculator.calculate(Pollutant.NO2, 40.1));
+        assertEquals(5, calculator.calculate(Pollutant.PM25, 75));
+        assertEquals(6, calculator.calculate(Pollutant.CO, 51));
+        assertEquals(AqiCalculatorService.NO_AQI, calculator.calculate(Pollutant.H2S, 10));
+        assertEquals(AqiCalculatorService.NO_AQI, calculator.calculate(Pollutant.NO2, -1));
+        assertEquals(AqiCalculatorService.NO_AQI, calculator.calculate(Pollutant.NO2, Double.NaN));
+
+        assertEquals(3, calculator.calculateAqi("PM10", 45.0));
+        assertNull(calculator.calculateAqi("XYZ", 45.0));
+        assertNull(calculator.calculateAqi(Pollutant.C6H6, 1.0));
+    }
+
+    @Test
+    @DisplayName("Linear scales interpolate inside a band and cap above the last breakpoint")
+    void linearScales() {
+        AqiCalculatorService epa = calculator("us-epa");
+        assertEquals(0, epa.calculate(Pollutant.PM25, 0));
+        assertEquals(50, epa.calculate(Pollutant.PM25, 9));
+        assertEquals(75, epa.calculate(Pollutant.PM25, 22.2));
+        assertEquals(500, epa.calculate(Pollutant.PM25, 1000));
+
+        AqiCalculatorService caqi = calculator("caqi");
+        assertEquals(63, caqi.calculate(Pollutant.NO2, 150));
+        assertEquals(100, caqi.calculate(Pollutant.NO2, 400));
+    }
+
+    @Test
+    @DisplayName("Batch calculation matches the single value path")
+    void batchMatchesSingle() {
+        AqiCalculatorService calculator = calculator("eu");
+        double[] values = {5, 40, 95, 125, 300, 1000, -3};
+        int[] out = new int[values.length];
+
+        calculator.calculate(Pollutant.NO2, values, out);
+
+        int[] expected = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            expected[i] = calculator.calculate(Pollutant.NO2, values[i]);
+        }
+        assertArrayEquals(expected, out);
+        assertArrayEquals(new int[]{1, 1, 3, 4, 5, 6, AqiCalculatorService.NO_AQI}, out);
+    }
+
+    @Test
+    @DisplayName("Unknown scales fail at startup")
+    void unknownScale() {
+        assertThrows(IllegalStateException.class, () -> calculator("nope"));
+    }
+}
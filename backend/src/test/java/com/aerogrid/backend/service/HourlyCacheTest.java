@@ -0,0 +1,52 @@
+package com.aerogrid.backend.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for HourlyCache.
+ * Covers eviction by weight and values read across an invalidation; the invalidation by hour is
+ * covered through StationTileServiceTest and HeatmapServiceTest.
+ */
+class HourlyCacheTest {
+
+    /** Hour 483000 since the epoch, long past */
+    private static final long HOUR = 483_000;
+
+    @Test
+    @DisplayName("The least recently used entries are dropped once over the total weight")
+    void evictsByWeight() {
+        HourlyCache<Long, byte[]> cache = new HourlyCache<>(hour -> hour, value -> value.length, 10, 0);
+        cache.load(HOUR, ticket -> new byte[4]);
+        cache.load(HOUR + 1, ticket -> new byte[4]);
+        cache.getIfFresh(HOUR);
+        cache.load(HOUR + 2, ticket -> new byte[4]);
+
+        assertArrayEquals(new byte[4], cache.getIfFresh(HOUR));
+        assertNull(cache.getIfFresh(HOUR + 1));
+        assertArrayEquals(new byte[4], cache.getIfFresh(HOUR + 2));
+    }
+
+    @Test
+    @DisplayName("A value read while the cache is invalidated is returned but not cached")
+    void skipsValuesReadBeforeInvalidation() {
+        HourlyCache<Long, String> cache = new HourlyCache<>(hour -> hour, 10, 0);
+        LocalDateTime changed = LocalDateTime.of(2025, 2, 6, 0, 0);
+
+        assertEquals("stale", cache.load(HOUR, ticket -> {
+            cache.onSnapshotsChanged(changed, changed.plusHours(1));
+            return "stale";
+        }));
+        assertNull(cache.getIfFresh(HOUR));
+
+        cache.load(HOUR, ticket -> "fresh");
+        cache.clear();
+        assertNull(cache.getIfFresh(HOUR));
+    }
+}
@@ -0,0 +1,145 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
+import com.aerogrid.backend.service.MeasurementExportService.Export;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for MeasurementExportService.
+ * Covers validation, the CSV and NDJSON rows and failures of the output stream.
+ */
+class MeasurementExportServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 4, 1, 0, 0);
+
+    private final MeasurementRepository measurementRepository = mock(MeasurementRepository.class);
+    private final StationRepository stationRepository = mock(StationRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MeasurementExportService service =
+            new MeasurementExportService(measurementRepository, stationRepository, registry, Duration.ofHours(2));
+
+    @BeforeEach
+    void setUp() {
+        List<StationMetadataProjection> stations = List.of(station("GENCAT-002"), station("GENCAT-001"));
+        when(stationRepository.findAllMetadata()).thenReturn(stations);
+    }
+
+    @Test
+    @DisplayName("Unknown stations, pollutants, formats and empty ranges are rejected before writing")
+    void validates() {
+        assertThrows(IllegalArgumentException.class, () -> service.prepare(List.of("NOPE"), null, START, END, "csv"));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare(null, List.of("XX"), START, END, "csv"));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare(null, null, START, END, "xml"));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare(null, null, END, START, "csv"));
+
+        Export export = service.prepare(null, List.of("NO2"), START, END, "NDJSON");
+        assertEquals(List.of("GENCAT-001", "GENCAT-002"), export.stationCodes());
+        assertEquals(Set.of(Pollutant.NO2), export.pollutants());
+        assertEquals("measurements-20250101-20250401.ndjson.gz", export.fileName());
+    }
+
+    @Test
+    @DisplayName("CSV exports write a header and one row per measurement, station by station")
+    void writesCsv() throws IOException {
+        stream("GENCAT-001", new MeasurementRecord(1, Pollutant.NO2, 45.5, 3, START.plusHours(1)),
+                new MeasurementRecord(1, Pollutant.PM10, 12.0, null, START.plusHours(1)));
+        stream("GENCAT-002", new MeasurementRecord(2, Pollutant.O3, 80.25, 2, START.plusHours(2)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = service.write(service.prepare(null, null, START, END, "csv"), out);
+
+        assertEquals(3, rows);
+        assertEquals("""
+                station_code,pollutant,timestamp,value,aqi
+                GENCAT-001,NO2,2025-01-01T01:00:00,45.5,3
+                GENCAT-001,PM10,2025-01-01T01:00:00,12.0,
+                GENCAT-002,O3,2025-01-01T02:00:00,80.25,2
+                """, gunzip(out));
+        assertEquals(3, registry.get("aerogrid.export.rows").tag("format", "csv").counter().count());
+    }
+
+    @Test
+    @DisplayName("NDJSON exports write one object per line")
+    void writesNdjson() throws IOException {
+        stream("GENCAT-001", new MeasurementRecord(1, Pollutant.NO2, 45.5, null, START));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.write(service.prepare(List.of("GENCAT-001"), null, START, END, "ndjson"), out);
+
+        assertEquals("{\"stationCode\":\"GENCAT-001\",\"pollutant\":\"NO2\",\"timestamp\":\"2025-01-01T00:00:00\","
+                + "\"value\":45.5,\"aqi\":null}\n", gunzip(out));
+    }
+
+    @Test
+    @DisplayName("A failing output stream stops the export with its exception")
+    void propagatesOutputFailures() {
+        MeasurementRecord[] records = new MeasurementRecord[100_000];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = new MeasurementRecord(1, Pollutant.NO2, i * 0.1, 3, START.plusMinutes(i));
+        }
+        stream("GENCAT-001", records);
+        // Takes the gzip header, then the client goes away
+        OutputStream broken = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++written > 10) throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException e = assertThrows(IOException.class,
+                () -> service.write(service.prepare(List.of("GENCAT-001"), null, START, END, "csv"), broken));
+        assertEquals("Broken pipe", e.getMessage());
+        assertTrue(registry.get("aerogrid.export.rows").tag("format", "csv").counter().count() < records.length);
+    }
+
+    private void stream(String stationCode, MeasurementRecord... records) {
+        doAnswer(invocation -> {
+            Consumer<MeasurementRecord> consumer = invocation.getArgument(4);
+            for (MeasurementRecord record : records) consumer.accept(record);
+            return null;
+        }).when(measurementRepository).streamRange(eq(stationCode), any(), any(), any(), any());
+    }
+
+    private static String gunzip(ByteArrayOutputStream out) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static StationMetadataProjection station(String code) {
+        StationMetadataProjection station = mock(StationMetadataProjection.class);
+        when(station.getCode()).thenReturn(code);
+        return station;
+    }
+}
@@ -0,0 +1,110 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.PostgresSqlTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of MeasurementPartitionService against PostgreSQL.
+ * Covers the conversion of the plain table, the routing of rows to monthly partitions, the rows
+ * of the default partition and expiry.
+ */
+class MeasurementPartitionServiceTest extends PostgresSqlTest {
+
+    private static final YearMonth CURRENT = YearMonth.now();
+
+    private MeasurementPartitionService service(int retentionMonths) {
+        return new MeasurementPartitionService(jdbcTemplate, transactionManager, new ObjectMapper(),
+                2, retentionMonths, true);
+    }
+
+    @Test
+    @DisplayName("Converting the table keeps its rows and routes each one to the partition of its month")
+    void convertsAndRoutes() {
+        insert(CURRENT.minusMonths(1).atDay(15).atTime(10, 0));
+        insert(CURRENT.atDay(1).atStartOfDay());
+
+        MeasurementPartitionService service = service(0);
+        service.init();
+        insert(CURRENT.plusMonths(2).atDay(1).atTime(23, 59));
+        // Older than the oldest partition
+        insert(LocalDateTime.of(2001, 1, 1, 0, 0));
+
+        assertTrue(service.isPartitioned());
+        assertEquals(List.of(
+                MeasurementPartitionService.DEFAULT_PARTITION,
+                MeasurementPartitionService.partitionName(CURRENT.minusMonths(1)),
+                MeasurementPartitionService.partitionName(CURRENT),
+                MeasurementPartitionService.partitionName(CURRENT.plusMonths(2))),
+                jdbcTemplate.queryForList("SELECT tableoid::regclass::text FROM measurements", String.class)
+                        .stream().sorted().toList());
+        // Identity values continue after the copied rows
+        assertEquals(4L, jdbcTemplate.queryForObject("SELECT MAX(id) FROM measurements", Long.class));
+    }
+
+    @Test
+    @DisplayName("A one-day query only scans the partition of its month")
+    void prunesPartitions() {
+        MeasurementPartitionService service = service(0);
+        service.init();
+
+        LocalDateTime day = CURRENT.atDay(10).atStartOfDay();
+        MeasurementPartitionService.PruningReport report = service.checkPruning(day, day.plusDays(1));
+
+        assertEquals(List.of(MeasurementPartitionService.partitionName(CURRENT)), report.scannedPartitions());
+        assertTrue(report.pruned());
+    }
+
+    @Test
+    @DisplayName("Months older than the retention are dropped with their rows")
+    void expiresOldMonths() {
+        insert(CURRENT.minusMonths(3).atDay(2).atStartOfDay());
+        insert(CURRENT.minusMonths(1).atDay(2).atStartOfDay());
+
+        service(2).init();
+
+        assertEquals(List.of(CURRENT.minusMonths(1).atDay(2).atStartOfDay()),
+                jdbcTemplate.queryForList("SELECT timestamp FROM measurements", LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Rows of the default partition move into the partition later created for their month")
+    void movesDefaultRowsIntoNewPartitions() {
+        service(0).init();
+        LocalDateTime ahead = CURRENT.plusMonths(4).atDay(3).atStartOfDay();
+        insert(ahead);
+
+        new MeasurementPartitionService(jdbcTemplate, transactionManager, new ObjectMapper(), 4, 0, true)
+                .maintainPartitions();
+
+        assertEquals(List.of(MeasurementPartitionService.partitionName(CURRENT.plusMonths(4))),
+                jdbcTemplate.queryForList("SELECT tableoid::regclass::text FROM measurements", String.class));
+    }
+
+    @Test
+    @DisplayName("Rows of the default partition older than the retention expire too")
+    void expiresDefaultRows() {
+        MeasurementPartitionService service = service(2);
+        service.init();
+        insert(LocalDateTime.of(2001, 1, 1, 0, 0));
+        insert(CURRENT.plusMonths(5).atDay(1).atStartOfDay());
+
+        service.maintainPartitions();
+
+        assertEquals(List.of(CURRENT.plusMonths(5).atDay(1).atStartOfDay()),
+                jdbcTemplate.queryForList("SELECT timestamp FROM measurements", LocalDateTime.class));
+    }
+
+    private void insert(LocalDateTime timestamp) {
+        jdbcTemplate.update("INSERT INTO measurements (station_id, timestamp, pollutant, value, aqi) VALUES (1, ?, 'NO2', 40, 2)",
+                timestamp);
+    }
+}
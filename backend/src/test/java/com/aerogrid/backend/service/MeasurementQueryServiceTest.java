@@ -0,0 +1,114 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.service.MeasurementQueryService.MeasurementPage;
+import com.aerogrid.backend.timeseries.RecentMeasurementStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for MeasurementQueryService.
+ * Covers keyset paging over the recent store and the database, and the page size cap.
+ */
+class MeasurementQueryServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(1);
+
+    private final MeasurementRepository repository = mock(MeasurementRepository.class);
+    private final RecentMeasurementStore store = mock(RecentMeasurementStore.class);
+
+    @Test
+    @DisplayName("Pages from the recent store follow each other by cursor")
+    void pagesRecentStore() {
+        // Two pollutants per timestamp, given in store order (by timestamp only)
+        List<MeasurementRecord> records = new ArrayList<>();
+        for (int h = 0; h < 5; h++) {
+            records.add(new MeasurementRecord(1, Pollutant.PM10, h, null, START.plusHours(h)));
+            records.add(new MeasurementRecord(1, Pollutant.NO2, h, null, START.plusHours(h)));
+        }
+        when(store.covers(any(), any())).thenReturn(true);
+        when(store.find("GENCAT-001", START, END)).thenReturn(records);
+        MeasurementQueryService service = service(store, 1000);
+
+        List<MeasurementRecord> read = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MeasurementPage page = service.findPage("GENCAT-001", START, END, cursor, 3);
+            read.addAll(page.measurements());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(10, read.size());
+        assertEquals(Pollutant.NO2, read.get(0).pollutant());
+        assertEquals(Pollutant.PM10, read.get(1).pollutant());
+        assertEquals(START.plusHours(4), read.get(9).timestamp());
+    }
+
+    @Test
+    @DisplayName("Database pages ask for one extra row and pass the parsed cursor")
+    void pagesDatabase() {
+        LocalDateTime last = START.plusHours(1);
+        when(repository.findPage(anyString(), any(), any(), any(), any(), anyInt())).thenReturn(List.of(
+                new MeasurementRecord(1, Pollutant.NO2, 1, 1, START),
+                new MeasurementRecord(1, Pollutant.O3, 2, 1, last),
+                new MeasurementRecord(1, Pollutant.PM10, 3, 1, last)));
+        MeasurementQueryService service = service(null, 1000);
+
+        MeasurementPage page = service.findPage("GENCAT-001", START, END, "2025-02-28T23:00,SO2", 2);
+
+        verify(repository).findPage("GENCAT-001", START, END, START.minusHours(1), Pollutant.SO2, 3);
+        assertEquals(2, page.measurements().size());
+        assertEquals("2025-03-01T01:00,O3", page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Page sizes are capped and a short page is the last one")
+    void capsPageSize() {
+        when(repository.findPage(anyString(), any(), any(), any(), any(), anyInt())).thenReturn(List.of());
+        MeasurementQueryService service = service(null, 100);
+
+        MeasurementPage page = service.findPage("GENCAT-001", START, END, null, 1_000_000);
+
+        verify(repository).findPage(eq("GENCAT-001"), eq(START), eq(END), eq(null), eq(null), eq(101));
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Malformed cursors and limits are rejected")
+    void rejectsInvalidParameters() {
+        MeasurementQueryService service = service(null, 100);
+
+        assertThrows(IllegalArgumentException.class, () -> service.findPage("GENCAT-001", START, END, "yesterday", null));
+        assertThrows(IllegalArgumentException.class, () -> service.findPage("GENCAT-001", START, END, "2025-03-01T00:00,XX", null));
+        assertThrows(IllegalArgumentException.class, () -> service.findPage("GENCAT-001", START, END, null, 0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private MeasurementQueryService service(RecentMeasurementStore recentStore, int maxPageSize) {
+        ObjectProvider<RecentMeasurementStore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(recentStore);
+        return new MeasurementQueryService(repository, provider, 1000, maxPageSize);
+    }
+}
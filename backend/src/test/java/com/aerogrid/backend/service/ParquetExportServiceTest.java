@@ -0,0 +1,190 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.HourlyAqiStatus;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.parquet.ParquetTestReader;
+import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
+import com.aerogrid.backend.repository.MeasurementArchiveRepository;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ParquetExportService.
+ * Covers the partition layout and content, background runs, the incremental runs and the
+ * resolution of downloaded paths.
+ */
+class ParquetExportServiceTest {
+
+    /** The last month whose days are all sealed, with seal-after-days=7 */
+    private static final YearMonth LAST_CLOSED = YearMonth.from(LocalDate.now().minusDays(7)).minusMonths(1);
+    private static final YearMonth FIRST = LAST_CLOSED.minusMonths(1);
+
+    @TempDir
+    Path directory;
+
+    private final MeasurementRepository measurementRepository = mock(MeasurementRepository.class);
+    private final MeasurementArchiveRepository archiveRepository = mock(MeasurementArchiveRepository.class);
+    private final HourlyAqiSnapshotRepository snapshotRepository = mock(HourlyAqiSnapshotRepository.class);
+    private final StationRepository stationRepository = mock(StationRepository.class);
+    private ParquetExportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ParquetExportService(measurementRepository, archiveRepository, snapshotRepository,
+                stationRepository, new SyncTaskExecutor(), directory.toString(), true, 2, 7);
+
+        List<StationMetadataProjection> stations = List.of(station(2L, "GENCAT-002"), station(1L, "GENCAT-001"));
+        when(stationRepository.findAllMetadata()).thenReturn(stations);
+        when(archiveRepository.findOldestDay()).thenReturn(FIRST.atDay(3));
+        LocalDateTime hour = FIRST.atDay(3).atStartOfDay();
+        stream("GENCAT-001", new MeasurementRecord(1, Pollutant.NO2, 45.5, 3, hour),
+                new MeasurementRecord(1, Pollutant.PM10, 12.0, null, hour),
+                new MeasurementRecord(1, Pollutant.NO2, 40.0, 3, hour.plusHours(1)),
+                new MeasurementRecord(1, Pollutant.NO2, 38.0, 2, hour.plusHours(2)));
+        doAnswer(invocation -> {
+            LocalDateTime start = invocation.getArgument(1);
+            Consumer<HourlyAqiStatus> consumer = invocation.getArgument(3);
+            if (start.equals(FIRST.atDay(1).atStartOfDay())) {
+                consumer.accept(new HourlyAqiStatus(1, hour, 3, "NO2", null, null));
+            }
+            return null;
+        }).when(snapshotRepository).streamForStations(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Closed months are written as month and pollutant partitions")
+    void writesPartitions() throws IOException {
+        List<YearMonth> months = service.exportClosedMonths();
+
+        assertEquals(List.of(FIRST, LAST_CLOSED), months);
+        assertEquals(List.of(
+                "measurements/month=" + FIRST + "/pollutant=NO2/part-0.parquet",
+                "measurements/month=" + FIRST + "/pollutant=PM10/part-0.parquet",
+                "snapshots/month=" + FIRST + "/part-0.parquet",
+                "snapshots/month=" + LAST_CLOSED + "/part-0.parquet"),
+                service.listFiles().stream().map(ParquetExportService.ExportedFile::path).toList());
+        assertTrue(Files.isDirectory(directory.resolve("measurements/month=" + LAST_CLOSED)));
+        assertTrue(Files.notExists(directory.resolve(".staging/month=" + FIRST)));
+
+        // The NO2 file holds three rows in two row groups, the station code once in each dictionary
+        byte[] no2 = Files.readAllBytes(service.resolve("measurements/month=" + FIRST + "/pollutant=NO2/part-0.parquet"));
+        assertEquals("PAR1", new String(no2, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals("PAR1", new String(no2, no2.length - 4, 4, StandardCharsets.US_ASCII));
+        int footerLength = (no2[no2.length - 8] & 0xFF) | (no2[no2.length - 7] & 0xFF) << 8
+                | (no2[no2.length - 6] & 0xFF) << 16 | (no2[no2.length - 5] & 0xFF) << 24;
+        String footer = new String(no2, no2.length - 8 - footerLength, footerLength, StandardCharsets.ISO_8859_1);
+        assertTrue(footer.contains("station_code") && footer.contains("timestamp") && footer.contains("aqi"));
+
+        ParquetTestReader.Table table = ParquetTestReader.read(no2);
+        long hour = FIRST.atDay(3).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        assertEquals(List.of(2, 1), table.rowGroupSizes());
+        assertEquals(List.of(
+                List.of("GENCAT-001", hour, 45.5, 3),
+                List.of("GENCAT-001", hour + 3_600_000, 40.0, 3),
+                List.of("GENCAT-001", hour + 7_200_000, 38.0, 2)), table.rows());
+        // The PM10 reading has no AQI
+        assertEquals(Arrays.asList("GENCAT-001", hour, 12.0, null), ParquetTestReader.read(Files.readAllBytes(
+                service.resolve("measurements/month=" + FIRST + "/pollutant=PM10/part-0.parquet"))).rows().get(0));
+    }
+
+    @Test
+    @DisplayName("Background exports run on the job executor and a rejected one can be started again")
+    void startsOnJobExecutor() {
+        ParquetExportService rejecting = new ParquetExportService(measurementRepository, archiveRepository,
+                snapshotRepository, stationRepository, task -> {
+                    throw new TaskRejectedException("busy");
+                }, directory.toString(), true, 2, 7);
+        assertThrows(TaskRejectedException.class, rejecting::start);
+        assertFalse(rejecting.isRunning());
+
+        assertTrue(service.start());
+        assertFalse(service.isRunning());
+        assertTrue(Files.exists(directory.resolve("snapshots/month=" + LAST_CLOSED + "/part-0.parquet")));
+    }
+
+    @Test
+    @DisplayName("Months already exported are not written again")
+    void skipsExportedMonths() throws IOException {
+        service.exportClosedMonths();
+        Path file = directory.resolve("snapshots/month=" + FIRST + "/part-0.parquet");
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        assertEquals(List.of(), service.exportClosedMonths());
+        assertEquals(modified, Files.getLastModifiedTime(file).toMillis());
+    }
+
+    @Test
+    @DisplayName("A month left half moved by a stopped export is exported again")
+    void replacesIncompleteMonths() throws IOException {
+        Path stale = Files.createDirectories(directory.resolve("measurements/month=" + FIRST + "/pollutant=O3"));
+        Files.write(stale.resolve("part-0.parquet"), new byte[]{1, 2, 3});
+
+        assertEquals(List.of(FIRST, LAST_CLOSED), service.exportClosedMonths());
+        assertTrue(Files.notExists(stale));
+    }
+
+    @Test
+    @DisplayName("Only exported Parquet files can be downloaded")
+    void resolvesExportedFilesOnly() throws IOException {
+        service.exportClosedMonths();
+        Files.createDirectories(directory.resolve(".staging"));
+        Files.write(directory.resolve(".staging/part-0.parquet"), new byte[]{1});
+
+        assertNotNull(service.resolve("snapshots/month=" + FIRST + "/part-0.parquet"));
+        assertNull(service.resolve("snapshots/month=" + FIRST));
+        assertNull(service.resolve("../" + directory.getFileName() + "/snapshots/month=" + FIRST + "/../../../x.parquet"));
+        assertNull(service.resolve(".staging/part-0.parquet"));
+        assertNull(service.resolve("measurements/month=" + FIRST + "/pollutant=SO2/part-0.parquet"));
+    }
+
+    private void stream(String stationCode, MeasurementRecord... records) {
+        doAnswer(invocation -> {
+            LocalDateTime start = invocation.getArgument(2);
+            LocalDateTime end = invocation.getArgument(3);
+            Consumer<MeasurementRecord> consumer = invocation.getArgument(4);
+            Arrays.stream(records)
+                    .filter(r -> !r.timestamp().isBefore(start) && !r.timestamp().isAfter(end))
+                    .forEach(consumer);
+            return null;
+        }).when(measurementRepository).streamRange(eq(stationCode), any(), any(), any(), any());
+    }
+
+    private static StationMetadataProjection station(long id, String code) {
+        StationMetadataProjection station = mock(StationMetadataProjection.class);
+        when(station.getId()).thenReturn(id);
+        when(station.getCode()).thenReturn(code);
+        return station;
+    }
+}
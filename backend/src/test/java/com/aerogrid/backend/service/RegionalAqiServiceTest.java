@@ -0,0 +1,52 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.repository.RegionalAqiRepository;
+import com.aerogrid.backend.repository.StationRegionRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RegionalAqiService.
+ * Covers the mapping of the stations again after a station change.
+ */
+class RegionalAqiServiceTest {
+
+    private final StationRepository stationRepository = mock(StationRepository.class);
+    private final StationRegionRepository stationRegionRepository = mock(StationRegionRepository.class);
+    private final RegionalAqiRepository regionalAqiRepository = mock(RegionalAqiRepository.class);
+    private final RegionalAqiService service = new RegionalAqiService(stationRepository, stationRegionRepository,
+            regionalAqiRepository, mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+            new double[]{40}, 30);
+
+    @Test
+    @DisplayName("A station change maps the stations again and recomputes the recent hours on the next run")
+    void remapsStationsAfterChange() {
+        when(stationRepository.findAll()).thenReturn(List.of());
+        service.refresh();
+        verify(stationRepository, never()).findAll();
+
+        service.onStationsChanged(new StationsChangedEvent());
+        service.refresh();
+        service.refresh();
+
+        verify(stationRepository, times(1)).findAll();
+        verify(stationRegionRepository).replaceForStations(List.of(), List.of());
+        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        verify(regionalAqiRepository).upsertFromSnapshots(end.minusHours(StationMapService.RECENT_HOURS), end);
+        verify(regionalAqiRepository, times(1)).upsertFromSnapshots(any(), any());
+    }
+}
@@ -0,0 +1,126 @@
+package com.aerogrid.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for SingleFlight.
+ * Covers sharing of a running computation, its failures, and that nothing is kept after it.
+ */
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<String, Object> flight = new SingleFlight<>("test", registry);
+
+    @Test
+    @DisplayName("Concurrent calls with an equal key share one computation")
+    void coalescesConcurrentCalls() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Object value = new Object();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> flight.execute("key", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                return value;
+            })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(executor.submit(() -> flight.execute("key", () -> {
+                    runs.incrementAndGet();
+                    return new Object();
+                })));
+            }
+            // Followers park on the running computation, which only ends once all of them joined
+            while (count("coalesced") < CALLERS - 1) Thread.sleep(5);
+            release.countDown();
+
+            for (Future<Object> result : results) {
+                assertSame(value, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, runs.get());
+        assertEquals(1, count("executed"));
+        assertEquals(CALLERS - 1, count("coalesced"));
+    }
+
+    @Test
+    @DisplayName("A failure reaches every caller waiting for it")
+    void sharesFailures() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = executor.submit(() -> flight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("database down");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Object> follower = executor.submit(() -> flight.execute("key", Object::new));
+            while (count("coalesced") < 1) Thread.sleep(5);
+            release.countDown();
+
+            for (Future<Object> result : List.of(leader, follower)) {
+                Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+                assertEquals("database down", e.getCause().getMessage());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Sequential and different-key calls run their own computation")
+    void keepsNothingAfterwards() {
+        assertThrows(IllegalStateException.class, () -> flight.execute("key", () -> {
+            throw new IllegalStateException();
+        }));
+        Object first = flight.execute("key", Object::new);
+        Object second = flight.execute("key", Object::new);
+        Object other = flight.execute("other", Object::new);
+
+        assertTrue(first != second && second != other);
+        assertEquals(4, count("executed"));
+        assertEquals(0, count("coalesced"));
+    }
+
+    private double count(String outcome) {
+        return registry.get("aerogrid.singleflight.calls").tag("outcome", outcome).counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.archive.GorillaCodec;
+import com.aerogrid.backend.domain.MeasurementArchive;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.domain.Station;
+import com.aerogrid.backend.domain.StationLatest;
+import com.aerogrid.backend.repository.MeasurementArchiveRepository;
+import com.aerogrid.backend.repository.StationLatestRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for StationLatestService.
+ * Covers the backfill of series whose recent days are only left in the archive.
+ */
+class StationLatestServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 5);
+
+    private final StationLatestRepository latestRepository = mock(StationLatestRepository.class);
+    private final MeasurementArchiveRepository archiveRepository = mock(MeasurementArchiveRepository.class);
+    private final StationLatestService service = new StationLatestService(latestRepository,
+            mock(StationRepository.class), archiveRepository);
+
+    @Test
+    @DisplayName("Pairs without raw rows take the last point of their newest archived day")
+    void backfillsFromArchive() {
+        when(latestRepository.backfill()).thenReturn(0);
+        when(archiveRepository.findNewestDays()).thenReturn(List.of(archive(Pollutant.NO2,
+                DAY.atTime(10, 0), DAY.atTime(23, 0))));
+        when(latestRepository.findById(any())).thenReturn(Optional.empty());
+
+        service.backfillIfEmpty();
+
+        ArgumentCaptor<StationLatest> saved = ArgumentCaptor.forClass(StationLatest.class);
+        verify(latestRepository).save(saved.capture());
+        assertEquals(1L, saved.getValue().getStationId());
+        assertEquals(Pollutant.NO2, saved.getValue().getPollutant());
+        assertEquals(DAY.atTime(23, 0), saved.getValue().getTimestamp());
+        assertEquals(2.0, saved.getValue().getValue());
+        assertNull(saved.getValue().getAqi());
+    }
+
+    @Test
+    @DisplayName("A newer raw reading is kept over the archive")
+    void keepsNewerRawReadings() {
+        when(latestRepository.backfill()).thenReturn(1);
+        when(archiveRepository.findNewestDays()).thenReturn(List.of(archive(Pollutant.NO2, DAY.atTime(10, 0))));
+        when(latestRepository.findById(new StationLatest.Key(1L, Pollutant.NO2))).thenReturn(Optional.of(
+                StationLatest.builder().stationId(1L).pollutant(Pollutant.NO2).timestamp(DAY.plusDays(3).atStartOfDay()).value(5.0).build()));
+
+        service.backfillIfEmpty();
+
+        verify(latestRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Nothing is backfilled once the table has rows")
+    void skipsFilledTable() {
+        when(latestRepository.hasAny()).thenReturn(true);
+
+        service.backfillIfEmpty();
+
+        verify(latestRepository, never()).backfill();
+        verify(archiveRepository, never()).findNewestDays();
+    }
+
+    /** An archive whose points have values 1, 2, ... and no AQI except on the first one */
+    private static MeasurementArchive archive(Pollutant pollutant, LocalDateTime... timestamps) {
+        int size = timestamps.length;
+        long[] seconds = new long[size];
+        double[] values = new double[size];
+        int[] aqis = new int[size];
+        for (int i = 0; i < size; i++) {
+            seconds[i] = timestamps[i].toEpochSecond(ZoneOffset.UTC);
+            values[i] = i + 1;
+            aqis[i] = i == 0 ? 3 : GorillaCodec.NO_AQI;
+        }
+        Station station = new Station();
+        station.setId(1L);
+        return MeasurementArchive.builder()
+                .station(station)
+                .pollutant(pollutant)
+                .day(DAY)
+                .sampleCount(size)
+                .data(GorillaCodec.encode(seconds, values, aqis, size))
+                .build();
+    }
+}
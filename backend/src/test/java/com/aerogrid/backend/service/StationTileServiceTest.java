@@ -0,0 +1,97 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.repository.StationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for StationTileService.
+ * Covers caching per tile and hour, invalidation by snapshot changes and the refresh of current tiles.
+ */
+class StationTileServiceTest {
+
+    private static final byte[] TILE = {1, 2, 3};
+
+    private final StationRepository repository = mock(StationRepository.class);
+    private final StationTileService service = new StationTileService(repository, new SimpleMeterRegistry(), 100, 3600);
+
+    @Test
+    @DisplayName("Requests within the same hour share one tile")
+    void cachesPerHour() {
+        when(repository.findStatusTile(anyInt(), anyInt(), anyInt(), any(), any())).thenReturn(TILE);
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+        assertArrayEquals(TILE, service.getStatusTile(8, 129, 95, hour.plusMinutes(5)));
+        assertArrayEquals(TILE, service.getStatusTile(8, 129, 95, hour.plusMinutes(55)));
+        service.getStatusTile(8, 129, 95, hour.plusHours(1));
+
+        verify(repository).findStatusTile(8, 129, 95, hour, hour.minusHours(48));
+        verify(repository).findStatusTile(8, 129, 95, hour.plusHours(1), hour.minusHours(47));
+    }
+
+    @Test
+    @DisplayName("Changed snapshots drop the tiles of the hours that show them")
+    void snapshotChangesInvalidate() {
+        when(repository.findStatusTile(anyInt(), anyInt(), anyInt(), any(), any())).thenReturn(TILE);
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 1, 10, 0);
+        service.getStatusTile(8, 129, 95, hour);
+        service.getStatusTile(8, 129, 95, hour.minusHours(1));
+
+        service.onSnapshotsChanged(hour, hour.plusHours(1));
+        service.getStatusTile(8, 129, 95, hour);
+        service.getStatusTile(8, 129, 95, hour.minusHours(1));
+
+        verify(repository, times(2)).findStatusTile(8, 129, 95, hour, hour.minusHours(48));
+        verify(repository, times(1)).findStatusTile(8, 129, 95, hour.minusHours(1), hour.minusHours(49));
+    }
+
+    @Test
+    @DisplayName("Changes to the current hour keep its tiles until the refresh interval passed")
+    void keepsCurrentTilesWithinRefreshInterval() {
+        when(repository.findStatusTile(anyInt(), anyInt(), anyInt(), any(), any())).thenReturn(TILE);
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        service.getStatusTile(8, 129, 95, hour);
+
+        service.onSnapshotsChanged(hour, hour.plusHours(1));
+        service.getStatusTile(8, 129, 95, hour);
+
+        verify(repository, times(1)).findStatusTile(8, 129, 95, hour, hour.minusHours(48));
+    }
+
+    @Test
+    @DisplayName("Current tiles are read again after a change once the refresh interval passed")
+    void refreshesChangedCurrentTiles() {
+        StationTileService refreshing = new StationTileService(repository, new SimpleMeterRegistry(), 100, 0);
+        when(repository.findStatusTile(anyInt(), anyInt(), anyInt(), any(), any())).thenReturn(TILE);
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        refreshing.getStatusTile(8, 129, 95, hour);
+        refreshing.getStatusTile(8, 129, 95, hour);
+
+        refreshing.onSnapshotsChanged(hour, hour.plusHours(1));
+        refreshing.getStatusTile(8, 129, 95, hour);
+        refreshing.getStatusTile(8, 129, 95, hour);
+
+        verify(repository, times(2)).findStatusTile(8, 129, 95, hour, hour.minusHours(48));
+    }
+
+    @Test
+    @DisplayName("Tiles outside the zoom level are rejected")
+    void rejectsMissingTiles() {
+        LocalDateTime now = LocalDateTime.now();
+        assertThrows(IllegalArgumentException.class, () -> service.getStatusTile(2, 4, 0, now));
+        assertThrows(IllegalArgumentException.class, () -> service.getStatusTile(-1, 0, 0, now));
+    }
+}
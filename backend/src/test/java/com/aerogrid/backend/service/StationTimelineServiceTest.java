@@ -0,0 +1,83 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.controller.dto.StationTimelineDto;
+import com.aerogrid.backend.domain.HourlyAqiStatus;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for StationTimelineService.
+ * Covers frame layout, carrying snapshots forward and the 48 hour limit.
+ */
+class StationTimelineServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    private final StationRepository stationRepository = mock(StationRepository.class);
+    private final HourlyAqiSnapshotRepository snapshotRepository = mock(HourlyAqiSnapshotRepository.class);
+    private final StationTimelineService service = new StationTimelineService(stationRepository, snapshotRepository, 168);
+
+    @Test
+    @DisplayName("Each frame shows the latest snapshot of the previous 48 hours")
+    @SuppressWarnings("unchecked")
+    void framesCarrySnapshotsForward() {
+        List<StationMetadataProjection> stations = List.of(station(4L), station(9L));
+        when(stationRepository.findActiveMetadata()).thenReturn(stations);
+        doAnswer(invocation -> {
+            Consumer<HourlyAqiStatus> consumer = invocation.getArgument(3);
+            consumer.accept(new HourlyAqiStatus(4L, FROM.minusHours(50), 6, "O3", null, null));
+            consumer.accept(new HourlyAqiStatus(4L, FROM.minusHours(47), 2, "NO2", null, null));
+            consumer.accept(new HourlyAqiStatus(4L, FROM.plusHours(2), 5, "PM10", null, null));
+            consumer.accept(new HourlyAqiStatus(9L, FROM.plusHours(4), null, null, 3, "PM10"));
+            return null;
+        }).when(snapshotRepository).streamForStations(any(), eq(FROM.minusHours(48)), eq(FROM.plusHours(5)), any());
+
+        StationTimelineDto timeline = service.getTimeline(null, null, null, null, FROM.plusMinutes(30), FROM.plusHours(5), 2);
+
+        assertEquals(FROM, timeline.getFrom());
+        assertEquals(3, timeline.getFrameCount());
+        assertEquals(2, timeline.getStationCount());
+        int no2 = Pollutant.NO2.ordinal();
+        int pm10 = Pollutant.PM10.ordinal();
+        // Frames at 0h, 2h and 4h; the snapshot at -47h expires after the first frame
+        assertArrayEquals(new int[]{2, 5, 5, -1, -1, -1}, timeline.getAqi());
+        assertArrayEquals(new int[]{no2, pm10, pm10, -1, -1, -1}, timeline.getPollutant());
+    }
+
+    @Test
+    @DisplayName("Invalid ranges are rejected")
+    void rejectsInvalidRanges() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getTimeline(null, null, null, null, FROM, FROM.minusHours(1), 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getTimeline(null, null, null, null, FROM, FROM.plusHours(1), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getTimeline(null, null, null, null, FROM, FROM.plusDays(8), 1));
+    }
+
+    private static StationMetadataProjection station(long id) {
+        StationMetadataProjection station = mock(StationMetadataProjection.class);
+        when(station.getId()).thenReturn(id);
+        when(station.getCode()).thenReturn("S" + id);
+        when(station.getLatitude()).thenReturn(41.0);
+        when(station.getLongitude()).thenReturn(2.0);
+        return station;
+    }
+}
@@ -0,0 +1,124 @@
+package com.aerogrid.backend.service;
+
+import com.aerogrid.backend.domain.HourlyAqiPeak;
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.repository.HourlyAqiSnapshotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for StreamingAqiAggregator.
+ * Covers the merge of readings into hourly peaks, flushing changed peaks only and retries.
+ */
+class StreamingAqiAggregatorTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+
+    private final HourlyAqiSnapshotRepository repository = mock(HourlyAqiSnapshotRepository.class);
+    private final AqiSnapshotNotifier notifier = mock(AqiSnapshotNotifier.class);
+    private final StreamingAqiAggregator aggregator = new StreamingAqiAggregator(repository, notifier,
+            new SimpleMeterRegistry(), 120);
+    /** Copies of the batches written, in order */
+    private final List<List<HourlyAqiPeak>> written = new ArrayList<>();
+
+    @Test
+    @DisplayName("Each station-hour keeps its highest AQI and the pollutant that caused it")
+    void mergesPeaks() {
+        recordWrites(1);
+        aggregator.onMeasurementsStored(List.of(
+                record(1, Pollutant.NO2, HOUR.plusMinutes(5), 3),
+                record(1, Pollutant.PM10, HOUR.plusMinutes(10), 5),
+                record(1, Pollutant.O3, HOUR.plusMinutes(20), 4),
+                record(1, Pollutant.SO2, HOUR.plusMinutes(30), null),
+                record(2, Pollutant.NO2, HOUR.minusHours(1).plusMinutes(30), 2),
+                // Older than the lateness window
+                record(2, Pollutant.NO2, HOUR.minusHours(3), 6)));
+
+        aggregator.flush();
+
+        assertEquals(List.of(List.of(
+                new HourlyAqiPeak(1, HOUR, Pollutant.PM10, 5),
+                new HourlyAqiPeak(2, HOUR.minusHours(1), Pollutant.NO2, 2))), written);
+        verify(notifier).snapshotsChanged(anyList());
+    }
+
+    @Test
+    @DisplayName("Only peaks raised since the last flush are written again")
+    void flushesChangedPeaksOnly() {
+        recordWrites(1);
+        aggregator.onMeasurementsStored(List.of(record(1, Pollutant.NO2, HOUR, 3), record(2, Pollutant.NO2, HOUR, 3)));
+        aggregator.flush();
+
+        // A lower reading does not change the peak, a higher one does
+        aggregator.onMeasurementsStored(List.of(record(1, Pollutant.PM10, HOUR, 2), record(2, Pollutant.O3, HOUR, 4)));
+        aggregator.flush();
+        aggregator.flush();
+
+        assertEquals(2, written.size());
+        assertEquals(List.of(new HourlyAqiPeak(2, HOUR, Pollutant.O3, 4)), written.get(1));
+    }
+
+    @Test
+    @DisplayName("Listeners are not called when no snapshot changed")
+    void skipsUnchangedSnapshots() {
+        recordWrites(0);
+        aggregator.onMeasurementsStored(List.of(record(1, Pollutant.NO2, HOUR, 3)));
+
+        aggregator.flush();
+
+        verify(notifier, never()).snapshotsChanged(anyList());
+        verify(notifier, never()).snapshotsChanged(any(), any());
+    }
+
+    @Test
+    @DisplayName("Peaks that could not be written are retried with the readings that arrived meanwhile")
+    void retriesFailedFlush() {
+        when(repository.raiseToPeaks(anyList()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenAnswer(invocation -> {
+                    written.add(sorted(invocation.getArgument(0)));
+                    return 1;
+                });
+        aggregator.onMeasurementsStored(List.of(record(1, Pollutant.NO2, HOUR, 3), record(2, Pollutant.NO2, HOUR, 2)));
+        aggregator.flush();
+
+        aggregator.onMeasurementsStored(List.of(record(1, Pollutant.PM10, HOUR, 4)));
+        aggregator.flush();
+
+        assertEquals(List.of(List.of(
+                new HourlyAqiPeak(1, HOUR, Pollutant.PM10, 4),
+                new HourlyAqiPeak(2, HOUR, Pollutant.NO2, 2))), written);
+    }
+
+    private void recordWrites(int changedRows) {
+        when(repository.raiseToPeaks(anyList())).thenAnswer(invocation -> {
+            written.add(sorted(invocation.getArgument(0)));
+            return changedRows;
+        });
+    }
+
+    private static List<HourlyAqiPeak> sorted(List<HourlyAqiPeak> peaks) {
+        return peaks.stream().sorted(Comparator.comparingLong(HourlyAqiPeak::stationId)).toList();
+    }
+
+    private static MeasurementRecord record(long stationId, Pollutant pollutant, LocalDateTime timestamp, Integer aqi) {
+        return new MeasurementRecord(stationId, pollutant, 10.0, aqi, timestamp);
+    }
+}
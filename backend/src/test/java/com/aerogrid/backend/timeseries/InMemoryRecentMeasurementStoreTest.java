@@ -0,0 +1,92 @@
+package com.aerogrid.backend.timeseries;
+
+import com.aerogrid.backend.domain.MeasurementRecord;
+import com.aerogrid.backend.domain.Pollutant;
+import com.aerogrid.backend.domain.Station;
+import com.aerogrid.backend.repository.MeasurementRepository;
+import com.aerogrid.backend.repository.StationRepository;
+import com.aerogrid.backend.repository.projection.StationMetadataProjection;
+import com.aerogrid.backend.service.MeasurementArchiveService;
+import com.aerogrid.backend.service.StationsChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for InMemoryRecentMeasurementStore.
+ * Covers the startup load on the job executor and the invalidation after station changes.
+ */
+class InMemoryRecentMeasurementStoreTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(2);
+
+    private final MeasurementRepository measurementRepository = mock(MeasurementRepository.class);
+    private final StationRepository stationRepository = mock(StationRepository.class);
+    private final MeasurementArchiveService archiveService = mock(MeasurementArchiveService.class);
+
+    InMemoryRecentMeasurementStoreTest() {
+        when(stationRepository.findAll()).thenReturn(List.of(station(1L, "GENCAT-001")));
+        when(archiveService.readArchived(any(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    @DisplayName("The window is loaded on the job executor and reads wait for it")
+    void loadsOnJobExecutor() {
+        InMemoryRecentMeasurementStore rejected = store(task -> {
+            throw new TaskRejectedException("busy");
+        });
+        rejected.load();
+        assertFalse(rejected.covers("GENCAT-001", HOUR));
+
+        InMemoryRecentMeasurementStore store = store(new SyncTaskExecutor());
+        store.load();
+        assertTrue(store.covers("GENCAT-001", HOUR));
+    }
+
+    @Test
+    @DisplayName("A station code reused after a deletion maps to the new station and the old series is dropped")
+    void forgetsDeletedStations() {
+        InMemoryRecentMeasurementStore store = store(new SyncTaskExecutor());
+        store.load();
+        store.onMeasurementsStored(List.of(new MeasurementRecord(1L, Pollutant.NO2, 40.0, 2, HOUR)));
+        assertEquals(1, store.find("GENCAT-001", HOUR.minusHours(1), HOUR).size());
+
+        // Station 1 is deleted and its code given to station 3
+        when(stationRepository.findByCode("GENCAT-001")).thenReturn(Optional.of(station(3L, "GENCAT-001")));
+        StationMetadataProjection metadata = mock(StationMetadataProjection.class);
+        when(metadata.getId()).thenReturn(3L);
+        when(stationRepository.findAllMetadata()).thenReturn(List.of(metadata));
+        store.onStationsChanged(new StationsChangedEvent());
+
+        assertEquals(List.of(), store.find("GENCAT-001", HOUR.minusHours(1), HOUR));
+        assertEquals(1, store.stationCount());
+        store.evict();
+        assertEquals(0, store.stationCount());
+    }
+
+    private InMemoryRecentMeasurementStore store(TaskExecutor executor) {
+        return new InMemoryRecentMeasurementStore(measurementRepository, stationRepository, archiveService,
+                executor, 8, 1000);
+    }
+
+    private static Station station(long id, String code) {
+        Station station = new Station();
+        station.setId(id);
+        station.setCode(code);
+        return station;
+    }
+}
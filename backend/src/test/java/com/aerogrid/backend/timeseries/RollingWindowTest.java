@@ -0,0 +1,58 @@
+package com.aerogrid.backend.timeseries;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for RollingWindow.
+ * Covers the mean of hourly means, coverage, eviction and seeding.
+ */
+class RollingWindowTest {
+
+    @Test
+    @DisplayName("Averages hourly means, not raw readings")
+    void meanOfHourlyMeans() {
+        RollingWindow window = new RollingWindow(3, 1);
+        window.add(100, 10);
+        window.add(100, 20);
+        window.add(100, 30);
+        window.add(101, 40);
+
+        assertEquals(30.0, window.mean(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Is invalid until enough hours have data and drops hours that leave the window")
+    void coverageAndEviction() {
+        RollingWindow window = new RollingWindow(4, 3);
+        window.add(10, 5);
+        window.add(11, 7);
+        assertTrue(Double.isNaN(window.mean()));
+
+        window.add(12, 9);
+        assertEquals(7.0, window.mean(), 1e-9);
+
+        window.add(14, 11);
+        assertEquals(9.0, window.mean(), 1e-9);
+        assertFalse(window.add(10, 100));
+
+        window.advanceTo(20);
+        assertTrue(Double.isNaN(window.mean()));
+        assertEquals(20, window.headHour());
+    }
+
+    @Test
+    @DisplayName("Seeds only hours without live readings")
+    void seedsEmptyHours() {
+        RollingWindow window = new RollingWindow(3, 2);
+        window.add(50, 8);
+
+        assertFalse(window.seed(50, 1000, 10));
+        assertTrue(window.seed(49, 40, 10));
+        assertEquals(6.0, window.mean(), 1e-9);
+    }
+}
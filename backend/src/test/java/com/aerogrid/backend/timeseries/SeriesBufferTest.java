@@ -0,0 +1,91 @@
+package com.aerogrid.backend.timeseries;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for SeriesBuffer.
+ * Covers ordering of late points, duplicates, wrap-around, coverage after overflow and eviction.
+ */
+class SeriesBufferTest {
+
+    private static List<Long> times(SeriesBuffer buffer) {
+        List<Long> times = new ArrayList<>();
+        buffer.forEach(Long.MIN_VALUE, Long.MAX_VALUE, (time, value, aqi) -> times.add(time));
+        return times;
+    }
+
+    @Test
+    @DisplayName("Keeps points sorted when late points arrive and ignores duplicates")
+    void sortsLatePoints() {
+        SeriesBuffer buffer = new SeriesBuffer(100);
+        assertTrue(buffer.add(10, 1.0, 1));
+        assertTrue(buffer.add(30, 3.0, 1));
+        assertTrue(buffer.add(20, 2.0, SeriesBuffer.NO_AQI));
+        assertFalse(buffer.add(20, 9.0, 1));
+
+        assertEquals(List.of(10L, 20L, 30L), times(buffer));
+    }
+
+    @Test
+    @DisplayName("Overwrites the oldest points once full and keeps order across the wrap-around")
+    void wrapsAround() {
+        SeriesBuffer buffer = new SeriesBuffer(4);
+        for (long t = 1; t <= 6; t++) {
+            buffer.add(t * 10, t, 0);
+        }
+        buffer.add(45, 4.5, 0);
+
+        assertEquals(List.of(40L, 45L, 50L, 60L), times(buffer));
+        assertFalse(buffer.add(5, 0.5, 0), "older than everything kept");
+    }
+
+    @Test
+    @DisplayName("Is only covered from the oldest point kept once points were overwritten or refused")
+    void tracksCoverageAfterOverflow() {
+        SeriesBuffer buffer = new SeriesBuffer(3);
+        for (long t = 1; t <= 3; t++) {
+            buffer.add(t * 10, t, 0);
+        }
+        assertEquals(Long.MIN_VALUE, buffer.coveredFrom());
+
+        buffer.add(40, 4, 0);
+        assertEquals(11, buffer.coveredFrom());
+        assertEquals(20L, times(buffer).get(0));
+
+        // Evicting does not lose points of the covered range
+        buffer.evictBefore(30);
+        assertEquals(11, buffer.coveredFrom());
+
+        buffer.add(50, 5, 0);
+        buffer.add(60, 6, 0);
+        assertEquals(31, buffer.coveredFrom());
+        // A late point older than everything kept is refused and lost as well
+        assertFalse(buffer.add(35, 3.5, 0));
+        assertEquals(36, buffer.coveredFrom());
+    }
+
+    @Test
+    @DisplayName("Evicts points before the cutoff and reads half-open ranges")
+    void evictsAndReadsRanges() {
+        SeriesBuffer buffer = new SeriesBuffer(8);
+        for (long t = 1; t <= 8; t++) {
+            buffer.add(t, t, 0);
+        }
+
+        assertEquals(5, buffer.evictBefore(4));
+        List<Long> range = new ArrayList<>();
+        buffer.forEach(5, 7, (time, value, aqi) -> range.add(time));
+        assertEquals(List.of(5L, 6L), range);
+
+        buffer.add(9, 9, 0);
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L), times(buffer));
+    }
+}
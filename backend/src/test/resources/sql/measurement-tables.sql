@@ -0,0 +1,57 @@
+-- The tables read and written by the native SQL of the measurement repositories, as Hibernate
+-- creates them (ddl-auto) minus the PostGIS columns. Recreated before each PostgresSqlTest.
+DROP TABLE IF EXISTS hourly_aqi_snapshots, station_latest, measurement_rollups, measurements, stations CASCADE;
+
+CREATE TABLE stations (
+    id   bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    code varchar(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE measurements (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    station_id bigint       NOT NULL REFERENCES stations (id),
+    timestamp  timestamp(6) NOT NULL,
+    pollutant  varchar(255) NOT NULL,
+    value      float8       NOT NULL,
+    aqi        integer,
+    CONSTRAINT uk_measurement_station_time_pollutant UNIQUE (station_id, timestamp, pollutant)
+);
+CREATE INDEX idx_measurement_station_time ON measurements (station_id, timestamp);
+
+CREATE TABLE measurement_rollups (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    station_id   bigint       NOT NULL REFERENCES stations (id),
+    pollutant    varchar(255) NOT NULL,
+    resolution   varchar(255) NOT NULL,
+    bucket_start timestamp(6) NOT NULL,
+    sample_count bigint       NOT NULL,
+    value_sum    float8       NOT NULL,
+    value_min    float8       NOT NULL,
+    value_max    float8       NOT NULL,
+    aqi_count    bigint       NOT NULL,
+    aqi_sum      bigint       NOT NULL,
+    aqi_max      integer,
+    CONSTRAINT uk_rollup_station_pollutant_resolution_bucket UNIQUE (station_id, pollutant, resolution, bucket_start)
+);
+
+CREATE TABLE station_latest (
+    station_id bigint       NOT NULL REFERENCES stations (id),
+    pollutant  varchar(255) NOT NULL,
+    timestamp  timestamp(6) NOT NULL,
+    value      float8       NOT NULL,
+    aqi        integer,
+    PRIMARY KEY (station_id, pollutant)
+);
+
+CREATE TABLE hourly_aqi_snapshots (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    station_id        bigint       NOT NULL REFERENCES stations (id),
+    timestamp         timestamp(6) NOT NULL,
+    max_aqi           integer,
+    pollutant         varchar(255),
+    rolling_aqi       integer,
+    rolling_pollutant varchar(255),
+    UNIQUE (station_id, timestamp)
+);
+
+INSERT INTO stations (id, code) VALUES (1, 'GENCAT-001'), (2, 'GENCAT-002');
@@ -77,22 +77,15 @@ export default function StationDetailsPanel({ stationCode, onClose }) {
                 const res = await api.get(`/api/v1/stations/${stationCode}`, { signal: abortController.signal });
                 setStationInfo(res.data);
 
-                // Fetch recent measurements directly to reliably display instant top metrics
+                // Latest reading of each pollutant, to display instant top metrics
                 try {
-                    const d = new Date();
-                    d.setDate(d.getDate() - 7); // Look back up to 7 days to find the last update
-                    const mRes = await api.get('/api/v1/measurements', {
-                        params: {
-                            stationCode,
-                            from: d.toISOString().split('.')[0]
-                        },
+                    const mRes = await api.get(`/api/v1/stations/${stationCode}/latest`, {
                         signal: abortController.signal
                     });
                     const mData = mRes.data;
 
                     if (mData && mData.length > 0) {
-                        mData.sort((a, b) => new Date(b.timestamp) - new Date(a.timestamp));
-                        const latestTs = mData[0].timestamp;
+                        const latestTs = mData.reduce((max, m) => (m.timestamp > max ? m.timestamp : max), mData[0].timestamp);
                         const currentMeasurements = mData.filter(m => m.timestamp === latestTs);
 
                         let maxAqi = null;
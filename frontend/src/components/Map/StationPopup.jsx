@@ -62,14 +62,20 @@ export default function StationPopup({ station, targetTime, onClose, onViewDetai
                     console.error("Error fetching station stats", e);
                 }
 
-                const params = { stationCode: station.properties.code || station.code };
-                if (targetTime) params.targetTime = targetTime;
-                const res = await api.get('/api/v1/measurements', { params });
-                const mData = res.data;
+                const code = station.properties.code || station.code;
+                let mData;
+                let currentMeasurements;
+                if (targetTime) {
+                    // One page of the 24 hours before the target time, newest reading first
+                    const res = await api.get('/api/v1/measurements', { params: { stationCode: code, to: targetTime, limit: 10000 } });
+                    mData = (res.data || []).sort((a, b) => new Date(b.timestamp) - new Date(a.timestamp));
+                    currentMeasurements = mData.filter(m => m.timestamp === mData[0]?.timestamp);
+                } else {
+                    const res = await api.get(`/api/v1/stations/${code}/latest`);
+                    mData = res.data || [];
+                    currentMeasurements = mData;
+                }
                 if (mData && mData.length > 0) {
-                    mData.sort((a, b) => new Date(b.timestamp) - new Date(a.timestamp));
-                    const latestTs = mData[0].timestamp;
-                    const currentMeasurements = mData.filter(m => m.timestamp === latestTs);
                     const mainPollutants = currentMeasurements
                         .filter(m => ['NO2', 'O3', 'PM10', 'PM2.5', 'PM25'].includes(m.pollutant))
                         .slice(0, 4); 